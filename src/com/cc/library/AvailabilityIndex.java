@@ -0,0 +1,144 @@
+package com.cc.library;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * A thread-safe bitset over bookID with one bit per book that has a copy to lend.
+ *
+ * Bits live in fixed-size pages of atomic longs, created the first time an ID in their range is set. Growing the page directory only copies page references, so a bit set by one thread is never lost while another thread grows the directory. Checking a book is one array read, and listing the available books walks the set words and skips empty ones 64 books at a time.
+ */
+public class AvailabilityIndex {
+
+	private static final int PAGE_BITS = 16;
+	private static final int WORDS_PER_PAGE = (1 << PAGE_BITS) / 64;
+
+	private volatile AtomicLongArray[] pages = new AtomicLongArray[16];
+
+	/**
+	 * @param bookID the ID of the book
+	 * @return true if the book is marked as available
+	 */
+	public boolean contains(int bookID) {
+		if(bookID<0) {
+			return false;
+		}
+		AtomicLongArray[] current = pages;
+		int page = bookID >>> PAGE_BITS;
+		if(page>=current.length || current[page]==null) {
+			return false;
+		}
+		return (current[page].get(wordOf(bookID)) & bitOf(bookID))!=0;
+	}
+
+	/**
+	 * Marks a book as available or not. Does nothing if the bit already has that value.
+	 *
+	 * @param bookID the ID of the book, must not be negative
+	 * @param available the new value of the book's bit
+	 */
+	public void set(int bookID, boolean available) {
+		AtomicLongArray words = available ? pageForWrite(bookID) : pageOf(bookID);
+		if(words==null) {
+			return;
+		}
+		int word = wordOf(bookID);
+		long bit = bitOf(bookID);
+		long current;
+		long next;
+		do {
+			current = words.get(word);
+			next = available ? current | bit : current & ~bit;
+			if(next==current) {
+				return;
+			}
+		}while(!words.compareAndSet(word, current, next));
+	}
+
+	/**
+	 * Hands every available book ID to the action in ascending order.
+	 *
+	 * @param action receives each ID
+	 */
+	public void forEach(IntConsumer action) {
+		AtomicLongArray[] current = pages;
+		for(int page=0;page<current.length;page++) {
+			AtomicLongArray words = current[page];
+			if(words==null) {
+				continue;
+			}
+			for(int word=0;word<WORDS_PER_PAGE;word++) {
+				long bits = words.get(word);
+				while(bits!=0) {
+					action.accept((page << PAGE_BITS) | (word << 6) | Long.numberOfTrailingZeros(bits));
+					bits &= bits - 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of books marked as available
+	 */
+	public int size() {
+		int size = 0;
+		for(AtomicLongArray words:pages) {
+			if(words!=null) {
+				for(int word=0;word<WORDS_PER_PAGE;word++) {
+					size += Long.bitCount(words.get(word));
+				}
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the bytes held by the allocated pages and the page directory
+	 */
+	public long estimatedBytes() {
+		AtomicLongArray[] current = pages;
+		long bytes = 16 + 4L * current.length;
+		for(AtomicLongArray words:current) {
+			if(words!=null) {
+				bytes += 32 + 8L * WORDS_PER_PAGE;
+			}
+		}
+		return bytes;
+	}
+
+	private AtomicLongArray pageOf(int bookID) {
+		AtomicLongArray[] current = pages;
+		int page = bookID >>> PAGE_BITS;
+		return page<current.length ? current[page] : null;
+	}
+
+	private AtomicLongArray pageForWrite(int bookID) {
+		AtomicLongArray words = pageOf(bookID);
+		if(words!=null) {
+			return words;
+		}
+		synchronized(this) {
+			int page = bookID >>> PAGE_BITS;
+			AtomicLongArray[] current = pages;
+			if(page>=current.length) {
+				AtomicLongArray[] grown = new AtomicLongArray[Math.max(current.length * 2, page + 1)];
+				System.arraycopy(current, 0, grown, 0, current.length);
+				current = grown;
+			}
+			if(current[page]==null) {
+				current[page] = new AtomicLongArray(WORDS_PER_PAGE);
+			}
+			pages = current;
+			return current[page];
+		}
+	}
+
+	private static int wordOf(int bookID) {
+		return (bookID >>> 6) & (WORDS_PER_PAGE - 1);
+	}
+
+	private static long bitOf(int bookID) {
+		return 1L << bookID;
+	}
+
+}
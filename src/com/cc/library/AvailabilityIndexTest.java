@@ -0,0 +1,101 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the AvailabilityIndex bitset and how Books keeps it in sync.
+ * Testing framework: JUnit 5
+ */
+public class AvailabilityIndexTest {
+
+    private AvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Book.ids = new IdAllocator();
+        index = new AvailabilityIndex();
+    }
+
+    @Test
+    void testSetAndClear() {
+        index.set(5, true);
+        index.set(200000, true);
+        index.set(5, true);
+
+        assertTrue(index.contains(5));
+        assertTrue(index.contains(200000));
+        assertFalse(index.contains(6));
+        assertFalse(index.contains(-1));
+        assertEquals(2, index.size());
+
+        index.set(5, false);
+        index.set(7, false);
+        assertFalse(index.contains(5));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testForEach_AscendingOrder() {
+        int[] ids = {70000, 3, 64, 63, 1 << 20};
+        for (int id : ids) {
+            index.set(id, true);
+        }
+        List<Integer> seen = new ArrayList<Integer>();
+        index.forEach(seen::add);
+
+        assertEquals(List.of(3, 63, 64, 70000, 1 << 20), seen);
+    }
+
+    @Test
+    void testBooks_TracksRentReturnAndUpdates() {
+        Books books = new Books();
+        Book dune = books.addBook("Dune", "Frank Herbert", 2);
+        Book emma = books.addBook("Emma", "Jane Austen", 1);
+        assertTrue(books.isAvailable(dune.getBookID()));
+        assertFalse(books.isAvailable(emma.getBookID()));
+
+        assertTrue(books.rent(dune.getBookID()));
+        assertFalse(books.isAvailable(dune.getBookID()));
+        assertTrue(books.giveBack(dune.getBookID()));
+        assertTrue(books.isAvailable(dune.getBookID()));
+
+        books.updateQuantity(emma.getBookID(), 4);
+        assertEquals(-1, books.rentAll(new int[] {emma.getBookID(), emma.getBookID(), emma.getBookID()}));
+        assertFalse(books.isAvailable(emma.getBookID()));
+
+        List<Book> listed = new ArrayList<Book>();
+        books.forEachAvailableBook(listed::add);
+        assertEquals(List.of(dune), listed);
+        assertEquals(1, books.availableCount());
+    }
+
+    @Test
+    void testBooks_ConcurrentRentsAndReturnsLeaveBitsCorrect() throws InterruptedException {
+        Books books = new Books();
+        Book book = books.addBook("Popular", "Author", 3);
+        int bookID = book.getBookID();
+
+        Thread[] desks = new Thread[4];
+        for (int d = 0; d < desks.length; d++) {
+            desks[d] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    if (books.rent(bookID)) {
+                        books.giveBack(bookID);
+                    }
+                }
+            });
+            desks[d].start();
+        }
+        for (Thread desk : desks) {
+            desk.join();
+        }
+
+        assertEquals(3, book.getQuantity());
+        assertTrue(books.isAvailable(bookID));
+    }
+}
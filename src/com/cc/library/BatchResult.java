@@ -0,0 +1,46 @@
+package com.cc.library;
+
+/**
+ * The outcome of a batch checkout or return. A batch is applied completely or not at all, so a failed batch names the first entry that stopped it.
+ */
+public final class BatchResult {
+
+	private static final BatchResult OK = new BatchResult(OperationResult.Status.OK, -1);
+
+	private final OperationResult.Status status;
+	private final int failedIndex;
+
+	private BatchResult(OperationResult.Status status, int failedIndex) {
+		this.status = status;
+		this.failedIndex = failedIndex;
+	}
+
+	static BatchResult ok() {
+		return OK;
+	}
+
+	static BatchResult failed(OperationResult.Status status, int failedIndex) {
+		return new BatchResult(status, failedIndex);
+	}
+
+	public OperationResult.Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the index of the entry that stopped the batch, or -1 if the batch succeeded or was rejected as a whole
+	 */
+	public int getFailedIndex() {
+		return failedIndex;
+	}
+
+	public boolean isOk() {
+		return status==OperationResult.Status.OK;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchResult [status=" + status + ", failedIndex=" + failedIndex + "]";
+	}
+
+}
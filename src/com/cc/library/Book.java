@@ -1,20 +1,39 @@
 package com.cc.library;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 public class Book {
-	static int counter=0;
+	static IdAllocator ids = new IdAllocator();
+	private static final AtomicIntegerFieldUpdater<Book> QUANTITY = AtomicIntegerFieldUpdater.newUpdater(Book.class, "quantity");
 	private final int bookID;
 	private String bookName;
 	private String bookAuthor;
-	private int quantity;
+	private volatile int quantity;
+	
+	/**
+	 * The quantity the book is filed under in the SortedIndexes quantity index, guarded by the book's monitor.
+	 */
+	int sortedQuantity = SortedIndexes.NOT_INDEXED;
 	
 	public Book(String bookName, String bookAuthor, int quantity) {
 		super();
 		this.bookName = bookName;
 		this.bookAuthor = bookAuthor;
 		this.quantity = quantity;
-		this.bookID = ++counter;
+		this.bookID = ids.next();
+	}
+	
+	
+	/**
+	 * Recreates a book that already has an ID, for example when loading saved state. Does not take an ID from the allocator.
+	 */
+	Book(int ID, String bookName, String bookAuthor, int quantity) {
+		super();
+		this.bookID = ID;
+		this.bookName = bookName;
+		this.bookAuthor = bookAuthor;
+		this.quantity = quantity;
 	}
 	
 	public Book(int ID) {
@@ -29,6 +48,53 @@ public class Book {
 	public void setQuantity(int quantity) {
 		this.quantity = quantity;
 	}
+	
+	/**
+	 * Atomically takes one copy off the shelf if the book can be lent.
+	 *
+	 * A book can be lent while more than one copy is on the shelf, the last copy stays in the library. The check and the decrement are one compare-and-set, so concurrent rents can never take the same copy twice or push the quantity below that limit.
+	 *
+	 * @return true if a copy was taken, false if the book is not available
+	 */
+	public boolean takeCopy() {
+		return takeCopies(1);
+	}
+	
+	/**
+	 * Atomically takes several copies off the shelf in one compare-and-set, for batch checkouts. Either all of them are taken or none.
+	 *
+	 * @param count how many copies to take, at least 1
+	 * @return true if the copies were taken, false if fewer than count copies can be lent
+	 */
+	public boolean takeCopies(int count) {
+		int current;
+		do {
+			current = quantity;
+			if(current-count<1) {
+				return false;
+			}
+		}while(!QUANTITY.compareAndSet(this, current, current-count));
+		return true;
+	}
+	
+	/**
+	 * Atomically puts one returned copy back on the shelf.
+	 *
+	 * @return the quantity after the return
+	 */
+	public int returnCopy() {
+		return returnCopies(1);
+	}
+	
+	/**
+	 * Atomically puts several returned copies back on the shelf.
+	 *
+	 * @param count how many copies are returned
+	 * @return the quantity after the return
+	 */
+	public int returnCopies(int count) {
+		return QUANTITY.addAndGet(this, count);
+	}
 
 	public Book(String bookName) {
 		this(bookName, "Author not provided", 0);
@@ -56,7 +122,17 @@ public class Book {
 
 	@Override
 	public String toString() {
-		return "Book [bookID=" + bookID + ", bookName=" + bookName + ", bookAuthor=" + bookAuthor + "]";
+		return appendTo(new StringBuilder(64)).toString();
+	}
+	
+	/**
+	 * Appends the same text as toString to a buffer, so a listing can print a whole page of books without building a String per book.
+	 *
+	 * @param out the buffer to append to
+	 * @return the same buffer
+	 */
+	public StringBuilder appendTo(StringBuilder out) {
+		return out.append("Book [bookID=").append(bookID).append(", bookName=").append(getBookName()).append(", bookAuthor=").append(getBookAuthor()).append(']');
 	}
 
 	@Override
@@ -1,14 +1,47 @@
 package com.cc.library;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public class Books {
 	
+	/**
+	 * How many books the console listing prints with one write.
+	 */
+	static final int PRINT_PAGE = 1000;
+	
+	/**
+	 * How many catalog rows and how many search results the hot caches keep.
+	 */
+	static final int CACHE_SIZE = 10000;
+	
+	/**
+	 * How many suggestions the console shows when a search finds nothing.
+	 */
+	static final int SUGGESTIONS = 10;
+	
 	List<Book> booklist = new ArrayList<Book>();
-	HashMap<Book, Integer> borrowedBooks =  new HashMap<Book, Integer>();
+	Map<Integer, Book> bookIndex = new ConcurrentHashMap<Integer, Book>();
+	StripedBorrowLedger borrowedBooks = new StripedBorrowLedger();
+	ShardedSearchIndex searchIndex = new ShardedSearchIndex();
+	AvailabilityIndex available = new AvailabilityIndex();
+	HotCache<Integer, Book> rowCache = new HotCache<Integer, Book>(CACHE_SIZE);
+	HotCache<String, CachedSearch> searchCache = new HotCache<String, CachedSearch>(CACHE_SIZE);
+	CirculationStats circulation = new CirculationStats();
+	private volatile long searchVersion;
+	private volatile SortedIndexes sorted;
+	private volatile boolean sortedFilled;
+	Journal journal;
+	EventBus events;
+	ColumnarCatalog catalog;
+	private int shadowedRows;
+	private volatile boolean catalogIndexed = true;
 	static Scanner sc = new Scanner(System.in);
 	
 	/**
@@ -17,39 +50,525 @@ public class Books {
 	 * Prompts the user to enter the book's name, author, and quantity, then creates and adds the book to the collection if it is not null or already present.
 	 */
 	public void addBook() {
-		Book book = new Book(askString("Whats the book name?"), askString("Whats the author name?"), askInt("How many books are you adding?"));
-		if(book!=null || this.booklist.contains(book) ) {
-			this.booklist.add(book);
+		addBook(askString("Whats the book name?"), askString("Whats the author name?"), askInt("How many books are you adding?"));
+	}
+	
+	/**
+	 * Creates a new book with the next free ID, logs it to the journal and adds it to the collection.
+	 *
+	 * The book is logged before it can be found, so any rent of it is logged after it and is not lost on replay.
+	 *
+	 * @param name the book's name
+	 * @param author the book's author
+	 * @param quantity how many copies the library has
+	 * @return the new book
+	 */
+	public Book addBook(String name, String author, int quantity) {
+		Book book = new Book(name, author, quantity);
+		long seq = journal!=null ? journal.logAddBook(book) : 0;
+		addBook(book);
+		if(journal!=null) {
+			journal.commit(seq);
 		}
+		return book;
 	}
 	
 	/**
-	 * Allows a user to borrow a book by selecting from available books with quantity greater than one.
+	 * Adds an already created book to the collection and registers it in the ID index.
 	 *
-	 * Prompts the user to enter the Book ID of a book to borrow. If the ID is valid and the book is available, the book is added to the borrowed books list and its quantity is decreased by one. If the input is invalid or the book is not available, an error message is displayed.
+	 * Adding takes the collection's lock, which also guards the book list and the sorted indexes, so adds run one at a time. Inside it the search index only locks the shard the book belongs to, so searches on the other shards are not held up.
+	 *
+	 * @param book the book to add
+	 * @return true if the book was added, false if it is null or its ID is already present
 	 */
-	public void rentAbook() {
-		System.out.println("Avaliable books to borrow:");
-		List<Integer> availableIDs = new ArrayList<Integer>();
+	public boolean addBook(Book book) {
+		if(!insert(book)) {
+			return false;
+		}
+		publish(LibraryEvent.Type.BOOK_ADDED, book.getBookID(), book.getQuantity());
+		return true;
+	}
+	
+	private synchronized boolean insert(Book book) {
+		if(book==null || bookIndex.putIfAbsent(book.getBookID(), book)!=null) {
+			return false;
+		}
+		booklist.add(book);
+		searchIndex.add(book);
+		searchVersion++;
+		if(sorted!=null) {
+			sorted.add(book);
+		}
+		refreshAvailability(book);
+		if(catalog!=null && catalog.rowOf(book.getBookID())>=0) {
+			shadowedRows++;
+		}
+		return true;
+	}
+	
+	/**
+	 * Adds many already created books in one step, for bulk loaders.
+	 *
+	 * The ID index, the list and the search index are each built in a single pass over the batch under one lock, instead of taking the lock and updating every structure once per book. Books whose ID is already present are skipped.
+	 *
+	 * @param books the books to add
+	 * @return how many books were added
+	 */
+	public int addBooks(Collection<Book> books) {
+		List<Book> added = insertAll(books);
+		for(Book book:added) {
+			publish(LibraryEvent.Type.BOOK_ADDED, book.getBookID(), book.getQuantity());
+		}
+		return added.size();
+	}
+	
+	private synchronized List<Book> insertAll(Collection<Book> books) {
+		List<Book> added = new ArrayList<Book>(books.size());
+		for(Book book:books) {
+			if(book!=null && bookIndex.putIfAbsent(book.getBookID(), book)==null) {
+				added.add(book);
+				if(catalog!=null && catalog.rowOf(book.getBookID())>=0) {
+					shadowedRows++;
+				}
+			}
+		}
+		booklist.addAll(added);
+		searchIndex.addAll(added);
+		searchVersion++;
+		for(Book book:added) {
+			if(sorted!=null) {
+				sorted.add(book);
+			}
+			refreshAvailability(book);
+		}
+		return added;
+	}
+	
+	/**
+	 * Puts a memory-mapped catalog underneath the books held on the heap.
+	 *
+	 * Catalog rows are served as read-only flyweight views and cost almost no heap. A row is copied onto the heap the first time its quantity changes, and from then on the heap copy is used instead of the row. New books get IDs above the highest catalog ID. Attach the catalog before recovering a journal, so journal records about catalog books find their rows.
+	 *
+	 * The availability of every row is read from the quantity column here, one sequential pass over mapped memory, so later availability checks never touch the catalog.
+	 *
+	 * @param catalog the opened catalog
+	 */
+	public synchronized void attach(ColumnarCatalog catalog) {
+		this.catalog = catalog;
+		this.catalogIndexed = false;
+		rowCache.clear();
+		searchVersion++;
+		this.shadowedRows = 0;
 		for(Book book:booklist) {
-			if(book.getQuantity()>1) {
-				System.out.println(book);
-				availableIDs.add(book.getBookID());
+			if(catalog.rowOf(book.getBookID())>=0) {
+				shadowedRows++;
+			}
+		}
+		for(int row=0;row<catalog.size();row++) {
+			int bookID = catalog.idAt(row);
+			if(!bookIndex.containsKey(bookID)) {
+				available.set(bookID, catalog.quantityAt(row)>1);
+				circulation.stockLevel(bookID, catalog.quantityAt(row));
+			}
+		}
+		Book.ids.advancePast(catalog.maxBookID());
+	}
+	
+	/**
+	 * Looks up a book by its ID using the ID index, then the hot-title cache, then the attached catalog.
+	 *
+	 * Catalog rows never change in place, a row is copied onto the heap and into the ID index before its quantity changes. A cached view can therefore never be stale: once a heap copy exists it is found first, and the cached view is only dropped to free its slot.
+	 *
+	 * @param bookID the ID of the book
+	 * @return the book with that ID, or null if there is none. Books that only exist in the catalog come back as read-only views
+	 */
+	public Book findBook(int bookID) {
+		Book book = bookIndex.get(bookID);
+		if(book==null && catalog!=null) {
+			book = rowCache.get(bookID);
+			if(book==null) {
+				int row = catalog.rowOf(bookID);
+				if(row>=0) {
+					book = catalog.view(row);
+					rowCache.put(bookID, book);
+				}
+			}
+		}
+		return book;
+	}
+	
+	/**
+	 * Looks up a book whose quantity is about to change, copying a catalog row onto the heap if needed.
+	 *
+	 * The copy is the same book moving off the catalog, so no BOOK_ADDED is published for it. Callers may hold other locks, which is why nothing is published here at all.
+	 *
+	 * @param bookID the ID of the book
+	 * @return a changeable book with that ID, or null if there is none
+	 */
+	Book findBookForUpdate(int bookID) {
+		Book book = findBook(bookID);
+		if(book instanceof MappedBook) {
+			synchronized(this) {
+				book = bookIndex.get(bookID);
+				if(book==null) {
+					book = ((MappedBook) findBook(bookID)).toHeapBook();
+					insert(book);
+					rowCache.invalidate(bookID);
+				}
+			}
+		}
+		return book;
+	}
+	
+	/**
+	 * @return the number of books on the heap and in the attached catalog together
+	 */
+	public int size() {
+		int size = booklist.size();
+		if(catalog!=null) {
+			size += catalog.size() - shadowedRows;
+		}
+		return size;
+	}
+	
+	/**
+	 * Hands every book to the action: catalog rows first in ID order, then the books that only exist on the heap in the order they were added.
+	 *
+	 * @param action receives each book
+	 */
+	public void forEachBook(Consumer<Book> action) {
+		if(catalog!=null) {
+			for(int row=0;row<catalog.size();row++) {
+				Book heapCopy = bookIndex.get(catalog.idAt(row));
+				action.accept(heapCopy!=null ? heapCopy : catalog.view(row));
 			}
 		}
+		for(Book book:booklist) {
+			if(catalog==null || catalog.rowOf(book.getBookID())<0) {
+				action.accept(book);
+			}
+		}
+	}
+	
+	/**
+	 * Returns one page of the collection in the same order as forEachBook.
+	 *
+	 * The cursor is a position: catalog rows come first, then the heap list in the order books were added. Both only ever grow at the end, so a page is found directly from its cursor without walking the pages before it.
+	 *
+	 * @param cursor Page.FIRST, or the next cursor of the previous page
+	 * @param limit the most books to return
+	 * @return the books of the page and the cursor of the next one
+	 */
+	public Page<Book> page(int cursor, int limit) {
+		if(cursor<0 || limit<1) {
+			throw new IllegalArgumentException("cursor must not be negative and limit must be positive");
+		}
+		List<Book> items = new ArrayList<Book>(Math.min(limit, PRINT_PAGE));
+		ColumnarCatalog rows = catalog;
+		int rowCount = rows==null ? 0 : rows.size();
+		int position = cursor;
+		while(position<rowCount && items.size()<limit) {
+			Book heapCopy = bookIndex.get(rows.idAt(position));
+			items.add(heapCopy!=null ? heapCopy : rows.view(position));
+			position++;
+		}
+		synchronized(this) {
+			while(position - rowCount<booklist.size() && items.size()<limit) {
+				Book book = booklist.get(position - rowCount);
+				if(rows==null || rows.rowOf(book.getBookID())<0) {
+					items.add(book);
+				}
+				position++;
+			}
+			return new Page<Book>(items, position<rowCount + booklist.size() ? position : -1);
+		}
+	}
+	
+	/**
+	 * Allows a user to borrow a book by selecting from available books with quantity greater than one.
+	 *
+	 * Prompts the user to enter the Book ID of a book to borrow. If the ID is valid and the book is available, the book is added to the borrowed books list and its quantity is decreased by one. If the input is invalid or the book is not available, an error message is displayed.
+	 */
+	public void rentAbook() {
+		showBooksToBorrow();
 		
 		
 		int borrowingBookID = askInt("Provide the Book ID of the book, you want to borrow:");
-		if(!availableIDs.contains(borrowingBookID)) {
+		if(!isAvailable(borrowingBookID)) {
 			System.out.println("Sorry! Input invalid / that Book ID is not available");
+		}else if(!rent(borrowingBookID)) {
+			System.out.println("Sorry! That book was just borrowed by someone else");
 		}else {
-			Book booktobeborrowed = booklist.get(borrowingBookID);
-			System.out.println(booktobeborrowed.getBookName()+" has been added to your cart.\nGood Choice. Happy Reading.");
-			borrowedBooks.put(booktobeborrowed, borrowedBooks.getOrDefault(booktobeborrowed, 0)+1);
-			booktobeborrowed.setQuantity(booktobeborrowed.getQuantity()-1);
+			System.out.println(findBook(borrowingBookID).getBookName()+" has been added to your cart.\nGood Choice. Happy Reading.");
 		}
 	}
 	
+	/**
+	 * Prints every book that has a copy to lend, in ID order.
+	 *
+	 * @return the number of printed books
+	 */
+	public int showBooksToBorrow() {
+		System.out.println("Avaliable books to borrow:");
+		int[] printed = {0};
+		forEachAvailableBook(book -> {
+			System.out.println(book);
+			printed[0]++;
+		});
+		return printed[0];
+	}
+	
+	/**
+	 * Checks in constant time whether a book has a copy to lend, using the availability index.
+	 *
+	 * @param bookID the ID of the book
+	 * @return true if the book exists and more than one copy is on the shelf
+	 */
+	public boolean isAvailable(int bookID) {
+		return available.contains(bookID);
+	}
+	
+	/**
+	 * Hands every book that has a copy to lend to the action, in ID order. Only the set bits of the availability index are visited, not the whole collection.
+	 *
+	 * @param action receives each available book
+	 */
+	public void forEachAvailableBook(Consumer<Book> action) {
+		available.forEach(bookID -> {
+			Book book = findBook(bookID);
+			if(book!=null && book.getQuantity()>1) {
+				action.accept(book);
+			}
+		});
+	}
+	
+	/**
+	 * @return the number of books that have a copy to lend
+	 */
+	public int availableCount() {
+		return available.size();
+	}
+	
+	/**
+	 * Lends one copy of a book without any console interaction.
+	 *
+	 * Safe to call from many threads at once: the copy is taken, counted in the striped ledger and logged under the book's ledger stripe, so the quantity never drops below one and no global lock is held. Every change to a book's quantity is logged under the same stripe, so the journal replays them in the order they were made. The rent is published on the event bus after the stripe is released.
+	 *
+	 * @param bookID the ID of the book to lend
+	 * @return true if a copy was lent, false if the book does not exist or is not available
+	 */
+	public boolean rent(int bookID) {
+		if(!rentUnpublished(bookID)) {
+			return false;
+		}
+		publish(LibraryEvent.Type.COPIES_RENTED, bookID, 1);
+		return true;
+	}
+	
+	/**
+	 * Lends one copy like rent but does not publish it, for callers that lend while holding locks of their own. They publish the change once those locks are released, Students as a LOAN_OPENED.
+	 */
+	boolean rentUnpublished(int bookID) {
+		Book book = findBook(bookID);
+		if(book==null || book.getQuantity()<=1) {
+			return false;
+		}
+		book = findBookForUpdate(bookID);
+		long seq = 0;
+		synchronized(borrowedBooks.lockFor(bookID)) {
+			if(!book.takeCopy()) {
+				return false;
+			}
+			borrowedBooks.increment(bookID);
+			if(journal!=null) {
+				seq = journal.logRent(bookID);
+			}
+		}
+		refreshAvailability(book);
+		if(journal!=null) {
+			journal.commit(seq);
+		}
+		return true;
+	}
+	
+	/**
+	 * Takes back one borrowed copy of a book without any console interaction. Safe to call from many threads at once.
+	 *
+	 * @param bookID the ID of the book being returned
+	 * @return true if the copy was taken back, false if no copy of that book is borrowed
+	 */
+	public boolean giveBack(int bookID) {
+		if(!giveBackUnpublished(bookID)) {
+			return false;
+		}
+		publish(LibraryEvent.Type.COPIES_RETURNED, bookID, 1);
+		return true;
+	}
+	
+	/**
+	 * Takes back one copy like giveBack but does not publish it, for callers that hold locks of their own and publish the change once those are released, Students as a LOAN_CLOSED.
+	 */
+	boolean giveBackUnpublished(int bookID) {
+		// Only a rented book can come back, and renting already moved it onto the heap
+		if(!borrowedBooks.contains(bookID)) {
+			return false;
+		}
+		Book book = findBookForUpdate(bookID);
+		if(book==null) {
+			return false;
+		}
+		long seq = 0;
+		synchronized(borrowedBooks.lockFor(bookID)) {
+			if(borrowedBooks.decrement(bookID)<0) {
+				return false;
+			}
+			if(journal!=null) {
+				seq = journal.logReturn(bookID);
+			}
+			book.returnCopy();
+		}
+		refreshAvailability(book);
+		if(journal!=null) {
+			journal.commit(seq);
+		}
+		return true;
+	}
+	
+	/**
+	 * Lends several copies in one pass, all or nothing, for self-checkout kiosks and other batch checkouts.
+	 *
+	 * The IDs are first counted per book, so a book asked for three times is checked and taken with one compare-and-set. The copies are taken, counted and logged while the ledger stripes of every book in the batch are held, so no other change to those books can be logged in between. If a book cannot supply its copies, the copies already taken for the batch are put back and nothing is recorded. All rent records of the batch share one journal commit.
+	 *
+	 * @param bookIDs one entry per copy, a book may appear more than once
+	 * @return -1 if every copy was lent, otherwise the index of the first entry whose book could not be lent
+	 */
+	public int rentAll(int[] bookIDs) {
+		int failed = rentAllUnpublished(bookIDs);
+		if(failed<0) {
+			publishAll(LibraryEvent.Type.COPIES_RENTED, bookIDs);
+		}
+		return failed;
+	}
+	
+	/**
+	 * Lends a batch like rentAll but does not publish it. The caller publishes the batch once its own locks are released.
+	 */
+	int rentAllUnpublished(int[] bookIDs) {
+		Batch batch = new Batch(bookIDs);
+		if(batch.invalidIndex>=0) {
+			return batch.invalidIndex;
+		}
+		// A catalog row is only copied onto the heap if it can spare the copies, one left as a row fails the batch
+		Book[] taken = new Book[batch.size];
+		for(int k=0;k<batch.size;k++) {
+			Book book = findBook(batch.ids[k]);
+			if(book!=null && book.getQuantity()-batch.counts[k]>=1) {
+				book = findBookForUpdate(batch.ids[k]);
+			}
+			taken[k] = book;
+		}
+		long[] seq = {0};
+		int failed = borrowedBooks.withLocks(batch.ids, batch.size, () -> {
+			for(int k=0;k<batch.size;k++) {
+				if(taken[k]==null || taken[k] instanceof MappedBook || !taken[k].takeCopies(batch.counts[k])) {
+					for(int j=0;j<k;j++) {
+						taken[j].returnCopies(batch.counts[j]);
+					}
+					return batch.firstIndex[k];
+				}
+			}
+			for(int k=0;k<batch.size;k++) {
+				int bookID = batch.ids[k];
+				borrowedBooks.put(bookID, borrowedBooks.count(bookID) + batch.counts[k]);
+				if(journal!=null) {
+					for(int c=0;c<batch.counts[k];c++) {
+						seq[0] = journal.logRent(bookID);
+					}
+				}
+			}
+			return -1;
+		});
+		for(Book book:taken) {
+			if(book!=null) {
+				refreshAvailability(book);
+			}
+		}
+		if(failed>=0) {
+			return failed;
+		}
+		if(journal!=null) {
+			journal.commit(seq[0]);
+		}
+		return -1;
+	}
+	
+	/**
+	 * Takes back several borrowed copies in one pass, all or nothing, for return bins and other batch returns.
+	 *
+	 * The borrowed counts are checked once before any book is looked up for the change, so a batch that is turned away never copies a catalog row onto the heap. They are checked again and lowered book by book while the ledger stripes of every book in the batch are held. If a book has fewer copies out than the batch returns, the counts already lowered are restored and nothing is recorded. The copies go back on the shelf, and are logged, only once the whole batch is accepted.
+	 *
+	 * @param bookIDs one entry per copy, a book may appear more than once
+	 * @return -1 if every copy was taken back, otherwise the index of the first entry whose book was not borrowed
+	 */
+	public int giveBackAll(int[] bookIDs) {
+		int failed = giveBackAllUnpublished(bookIDs);
+		if(failed<0) {
+			publishAll(LibraryEvent.Type.COPIES_RETURNED, bookIDs);
+		}
+		return failed;
+	}
+	
+	/**
+	 * Takes back a batch like giveBackAll but does not publish it. The caller publishes the batch once its own locks are released.
+	 */
+	int giveBackAllUnpublished(int[] bookIDs) {
+		Batch batch = new Batch(bookIDs);
+		if(batch.invalidIndex>=0) {
+			return batch.invalidIndex;
+		}
+		for(int k=0;k<batch.size;k++) {
+			if(borrowedBooks.count(batch.ids[k])<batch.counts[k]) {
+				return batch.firstIndex[k];
+			}
+		}
+		Book[] returned = new Book[batch.size];
+		for(int k=0;k<batch.size;k++) {
+			returned[k] = findBookForUpdate(batch.ids[k]);
+		}
+		long[] seq = {0};
+		int failed = borrowedBooks.withLocks(batch.ids, batch.size, () -> {
+			for(int k=0;k<batch.size;k++) {
+				int out = returned[k]==null ? 0 : borrowedBooks.count(batch.ids[k]);
+				if(returned[k]==null || out<batch.counts[k]) {
+					for(int j=0;j<k;j++) {
+						borrowedBooks.put(batch.ids[j], borrowedBooks.count(batch.ids[j]) + batch.counts[j]);
+					}
+					return batch.firstIndex[k];
+				}
+				borrowedBooks.put(batch.ids[k], out - batch.counts[k]);
+			}
+			for(int k=0;k<batch.size;k++) {
+				if(journal!=null) {
+					for(int c=0;c<batch.counts[k];c++) {
+						seq[0] = journal.logReturn(batch.ids[k]);
+					}
+				}
+				returned[k].returnCopies(batch.counts[k]);
+			}
+			return -1;
+		});
+		if(failed>=0) {
+			return failed;
+		}
+		for(Book book:returned) {
+			refreshAvailability(book);
+		}
+		if(journal!=null) {
+			journal.commit(seq[0]);
+		}
+		return -1;
+	}
+	
 	/**
 	 * Prompts the user with the specified message and reads an integer input from the console.
 	 *
@@ -81,16 +600,8 @@ public class Books {
 	 */
 	public void returnAbook(){
 		int bookIDtoReturn = askInt("Which Book ID are you returning?");
-		Book findBook = new Book(bookIDtoReturn);
-		if(borrowedBooks.keySet().contains(findBook)) {
-			if(borrowedBooks.get(findBook)>1) {
-				borrowedBooks.put(findBook, borrowedBooks.get(findBook)-1);
-			}else {
-				borrowedBooks.remove(findBook);
-			}
-			Book returnedBook = booklist.get(bookIDtoReturn);
-			returnedBook.setQuantity(returnedBook.getQuantity()+1);
-			System.out.println(returnedBook.getBookName()+" successfully returned");
+		if(giveBack(bookIDtoReturn)) {
+			System.out.println(findBook(bookIDtoReturn).getBookName()+" successfully returned");
 		}else {
 			System.out.println("Invalid input or This book was never borrowed");
 		}
@@ -104,12 +615,22 @@ public class Books {
 	 * Prints a list of all books in the collection, or a message if no books are available.
 	 */
 	public void showAllBooks() {
-		if(booklist.isEmpty()) {
+		if(size()==0) {
 			System.out.println("No books available in the library");
 		}else {
 			System.out.println("Available books in the library:");
-			for(Book book:booklist) {
-				System.out.println(book);
+			StringBuilder out = new StringBuilder(PRINT_PAGE * 80);
+			Page<Book> page = page(Page.FIRST, PRINT_PAGE);
+			while(true) {
+				for(Book book:page.getItems()) {
+					book.appendTo(out).append(System.lineSeparator());
+				}
+				System.out.print(out);
+				out.setLength(0);
+				if(!page.hasMore()) {
+					break;
+				}
+				page = page(page.getNextCursor(), PRINT_PAGE);
 			}
 		}
 	}
@@ -117,19 +638,210 @@ public class Books {
 	/**
 	 * Searches for books in the collection by name and displays matching results.
 	 *
-	 * Prompts the user to enter a book name, performs a case-insensitive search in the book list, and prints all books that match the provided name. If no matches are found, informs the user accordingly.
+	 * Prompts the user to enter words from a book name and prints all books whose name contains every word, ignoring case. A word ending in '*' matches any word starting with it. If nothing matches exactly, the closest titles allowing for typos are offered instead, and if there are none either, informs the user accordingly.
 	 */
 	public void searchBook() {
 		String bookName = askString("Enter the book name you want to search:");
-		List<Book> foundBooks = new ArrayList<Book>();
-		for(Book book:booklist) {
-			if(book.getBookName().equalsIgnoreCase(bookName)) {
-				foundBooks.add(book);
+		List<Book> found = search(bookName, SearchIndex.Field.TITLE, true);
+		if(found.isEmpty()) {
+			found = searchFuzzy(bookName, SearchIndex.Field.TITLE, SUGGESTIONS);
+			if(!found.isEmpty()) {
+				System.out.println("No exact match for: " + bookName + ". Did you mean:");
 			}
 		}
-		
+		printSearchResults(found, "No books found with the name: " + bookName);
+	}
+	
+	/**
+	 * Searches for books by author and displays matching results.
+	 *
+	 * Prompts the user to enter words from an author name and prints all books whose author contains every word, ignoring case.
+	 */
+	public void searchByAuthor() {
+		String authorName = askString("Enter the author name you want to search:");
+		printSearchResults(search(authorName, SearchIndex.Field.AUTHOR, true), "No books found by the author: " + authorName);
+	}
+	
+	/**
+	 * Searches titles and authors for any of the entered words and displays matching results.
+	 */
+	public void searchAnyWord() {
+		String words = askString("Enter the words you want to search for:");
+		printSearchResults(search(words, SearchIndex.Field.ANY, false), "No books found for: " + words);
+	}
+	
+	/**
+	 * Looks up books through the search index.
+	 *
+	 * @param query the words to look for, a trailing '*' on a word makes it a prefix
+	 * @param field whether to search titles, authors or both
+	 * @param matchAll true to require every word, false to accept any word
+	 * @return the matching books in ID order
+	 */
+	public List<Book> search(String query, SearchIndex.Field field, boolean matchAll) {
+		indexCatalog();
+		String key = field.name() + (matchAll ? '&' : '|') + (query==null ? "" : query.trim().toLowerCase(Locale.ROOT));
+		long version = searchVersion;
+		CachedSearch cached = searchCache.get(key);
+		if(cached==null || cached.version!=version) {
+			List<Integer> found = searchIndex.search(query, field, matchAll);
+			int[] bookIDs = new int[found.size()];
+			for(int i=0;i<bookIDs.length;i++) {
+				bookIDs[i] = found.get(i);
+			}
+			cached = new CachedSearch(version, bookIDs);
+			searchCache.put(key, cached);
+		}
+		List<Book> foundBooks = new ArrayList<Book>(cached.bookIDs.length);
+		for(int bookID:cached.bookIDs) {
+			foundBooks.add(findBook(bookID));
+		}
+		return foundBooks;
+	}
+	
+	/**
+	 * Looks up books whose words are within a few typos of the query, best matches first.
+	 *
+	 * @param query the words to look for
+	 * @param field whether to search titles, authors or both
+	 * @param limit the most books to return
+	 * @return the matching books, most similar first
+	 * @see SearchIndex#searchFuzzy(String, SearchIndex.Field, int)
+	 */
+	public List<Book> searchFuzzy(String query, SearchIndex.Field field, int limit) {
+		indexCatalog();
+		String key = field.name() + '~' + limit + '~' + (query==null ? "" : query.trim().toLowerCase(Locale.ROOT));
+		long version = searchVersion;
+		CachedSearch cached = searchCache.get(key);
+		if(cached==null || cached.version!=version) {
+			List<SearchIndex.Hit> hits = searchIndex.searchFuzzy(query, field, limit);
+			int[] bookIDs = new int[hits.size()];
+			for(int i=0;i<bookIDs.length;i++) {
+				bookIDs[i] = hits.get(i).getBookID();
+			}
+			cached = new CachedSearch(version, bookIDs);
+			searchCache.put(key, cached);
+		}
+		List<Book> foundBooks = new ArrayList<Book>(cached.bookIDs.length);
+		for(int bookID:cached.bookIDs) {
+			foundBooks.add(findBook(bookID));
+		}
+		return foundBooks;
+	}
+	
+	/**
+	 * Brings the book's availability bit and its place in the quantity index once there is one in line with its quantity after a change. The low-stock alert follows from the change's event, see track.
+	 *
+	 * The quantity is read again after the bit is written. If a concurrent rent or return moved it across the lending limit in between, the bit is written again, so the last thread to touch a book always leaves the bit matching the quantity.
+	 */
+	private void refreshAvailability(Book book) {
+		boolean lendable;
+		do {
+			lendable = book.getQuantity()>1;
+			available.set(book.getBookID(), lendable);
+		}while((book.getQuantity()>1)!=lendable);
+		SortedIndexes indexes = sorted;
+		if(indexes!=null) {
+			indexes.quantityChanged(book);
+		}
+	}
+	
+	/**
+	 * Tells how much of a title is out on loan, from the borrowed count in the ledger and the copies on the shelf.
+	 *
+	 * @param bookID the ID of the book
+	 * @return the share of its copies that are lent out, from 0 to 1, or 0 if there is no such book
+	 */
+	public double utilization(int bookID) {
+		Book book = findBook(bookID);
+		if(book==null) {
+			return 0;
+		}
+		int out = borrowedBooks.count(bookID);
+		int total = out + Math.max(book.getQuantity(), 0);
+		return total==0 ? 0 : (double) out / total;
+	}
+	
+	/**
+	 * Lists books in title or author order within a range, without sorting the catalog.
+	 *
+	 * @param order whether to order by title or by author
+	 * @param from the first text to include, ignoring case, or null to start at the beginning
+	 * @param to the last text or prefix to include, ignoring case, or null to run to the end
+	 * @param limit the most books to list
+	 * @return the books in order
+	 * @see SortedIndexes#range(SortedIndexes.Order, String, String, int)
+	 */
+	public List<Book> browse(SortedIndexes.Order order, String from, String to, int limit) {
+		return booksOf(sortedIndexes().range(order, from, to, limit));
+	}
+	
+	/**
+	 * Lists the books with a quantity from min to max, fewest copies first. Use Integer.MIN_VALUE as min and n - 1 as max for the books with fewer than n copies left.
+	 *
+	 * @param min the lowest quantity to include
+	 * @param max the highest quantity to include
+	 * @param limit the most books to list
+	 * @return the books in order of quantity, then ID
+	 */
+	public List<Book> byQuantity(int min, int max, int limit) {
+		return booksOf(sortedIndexes().quantityBetween(min, max, limit));
+	}
+	
+	/**
+	 * Builds the sorted indexes on the first ordered query, so catalogs that are never browsed in order do not pay for them.
+	 *
+	 * The empty indexes are published before they are filled, so rents and returns that run while the catalog is read in already keep the books that have been filed up to date. Books are added under the collection's lock, so none can be missed. Once filled, queries read the indexes without taking the lock.
+	 */
+	private SortedIndexes sortedIndexes() {
+		if(!sortedFilled) {
+			synchronized(this) {
+				if(sorted==null) {
+					SortedIndexes indexes = new SortedIndexes();
+					sorted = indexes;
+					forEachBook(indexes::add);
+					sortedFilled = true;
+				}
+			}
+		}
+		return sorted;
+	}
+	
+	private List<Book> booksOf(List<Integer> bookIDs) {
+		List<Book> found = new ArrayList<Book>(bookIDs.size());
+		for(int bookID:bookIDs) {
+			Book book = findBook(bookID);
+			if(book!=null) {
+				found.add(book);
+			}
+		}
+		return found;
+	}
+	
+	/**
+	 * Adds the attached catalog's rows to the search index on the first search, so attaching stays instant.
+	 *
+	 * Every search calls this, so once the rows are indexed, or when no catalog is attached, it returns after one volatile read without taking the lock.
+	 */
+	private void indexCatalog() {
+		if(catalogIndexed) {
+			return;
+		}
+		synchronized(this) {
+			if(catalogIndexed) {
+				return;
+			}
+			for(int row=0;row<catalog.size();row++) {
+				searchIndex.add(catalog.view(row));
+			}
+			catalogIndexed = true;
+			searchVersion++;
+		}
+	}
+	
+	private void printSearchResults(List<Book> foundBooks, String notFoundMessage) {
 		if(foundBooks.isEmpty()) {
-			System.out.println("No books found with the name: " + bookName);
+			System.out.println(notFoundMessage);
 		}else {
 			System.out.println("Books found:");
 			for(Book book:foundBooks) {
@@ -145,17 +857,148 @@ public class Books {
 	 */
 	public void updateBook() {
 		int idofBook = askInt("Which book ID , you want to update?");
-		if(idofBook<0 || idofBook>=booklist.size()) {
+		if(findBook(idofBook)==null) {
 			System.out.println("Not a valid Book ID");
 		}else {
 			int newQuantity = askInt("Whats new quantity of book?");
 			
-			Book bookToUpdate = booklist.get(idofBook);
-			bookToUpdate.setQuantity(newQuantity);
-			System.out.println(booklist.get(idofBook).getQuantity() + "is the new quantity of Book: "+booklist.get(idofBook).getBookID());
+			Book bookToUpdate = updateQuantity(idofBook, newQuantity);
+			System.out.println(bookToUpdate.getQuantity() + "is the new quantity of Book: "+bookToUpdate.getBookID());
+		}
+		
+	}
+	
+	/**
+	 * Sets the number of copies of a book and logs the change to the journal, without any console interaction.
+	 *
+	 * The quantity is set and logged under the book's ledger stripe, like a rent or a return, so a concurrent rent is logged on the same side of the change as it was applied.
+	 *
+	 * @param bookID the ID of the book to change
+	 * @param quantity the new number of copies
+	 * @return the changed book, or null if there is no book with that ID
+	 */
+	public Book updateQuantity(int bookID, int quantity) {
+		Book book = findBookForUpdate(bookID);
+		if(book!=null) {
+			long seq = 0;
+			synchronized(borrowedBooks.lockFor(bookID)) {
+				book.setQuantity(quantity);
+				if(journal!=null) {
+					seq = journal.logSetQuantity(bookID, quantity);
+				}
+			}
+			refreshAvailability(book);
+			if(journal!=null) {
+				journal.commit(seq);
+			}
+			publish(LibraryEvent.Type.QUANTITY_SET, bookID, quantity);
+		}
+		return book;
+	}
+	
+
+	/**
+	 * Publishes a change to a book on the bus. Without a bus, as while the journal is replayed or for a Books used on its own, the change goes to track straight away.
+	 *
+	 * Callers publish only once they hold no lock, so a publisher that waits for room on a full ring never holds up other rents or returns.
+	 *
+	 * @param type what changed
+	 * @param bookID the changed book
+	 * @param copies the copies or quantity the type describes
+	 */
+	void publish(LibraryEvent.Type type, int bookID, int copies) {
+		EventBus bus = events;
+		if(bus!=null) {
+			bus.publish(type, bookID, 0, copies);
+		}else {
+			track(type, bookID, copies);
+		}
+	}
+	
+	/**
+	 * Publishes one event per distinct book of a batch, with the number of entries the book has in it.
+	 */
+	private void publishAll(LibraryEvent.Type type, int[] bookIDs) {
+		Batch batch = new Batch(bookIDs);
+		for(int k=0;k<batch.size;k++) {
+			publish(type, batch.ids[k], batch.counts[k]);
+		}
+	}
+	
+	/**
+	 * Feeds one change to the circulation figures: a rent is counted as demand, and any change to a book's copies files or clears its low-stock alert. LibraryService runs this on a subscriber of its bus, so analytics stay off the rent and return path.
+	 *
+	 * The alert is decided from the book's quantity as it is now and not from the event, so changes to one book that reach the subscriber in a different order than they were made still leave the alert right once the last of them is read.
+	 *
+	 * @param type what changed
+	 * @param bookID the changed book
+	 * @param copies the copies or quantity the type describes
+	 */
+	void track(LibraryEvent.Type type, int bookID, int copies) {
+		switch(type) {
+		case COPIES_RENTED:
+		case LOAN_OPENED:
+			circulation.recordRent(bookID, copies);
+			break;
+		case COPIES_RETURNED:
+		case LOAN_CLOSED:
+		case QUANTITY_SET:
+		case BOOK_ADDED:
+			break;
+		default:
+			return;
+		}
+		Book book = findBook(bookID);
+		if(book!=null) {
+			circulation.stockChanged(book);
 		}
+	}
+	
+	/**
+	 * The IDs a search found, stamped with the version of the search index they were computed from.
+	 *
+	 * Only IDs are kept, the books are looked up again on every hit, so rents, returns and quantity updates never make a cached result stale. Adding books raises the version, which turns every older entry into a miss.
+	 */
+	static class CachedSearch {
+		final long version;
+		final int[] bookIDs;
 		
+		CachedSearch(long version, int[] bookIDs) {
+			this.version = version;
+			this.bookIDs = bookIDs;
+		}
 	}
 	
+	/**
+	 * The distinct books of a batch in order of first appearance, with how many copies each is asked for.
+	 */
+	private static class Batch {
+		final int[] ids;
+		final int[] counts;
+		final int[] firstIndex;
+		int size;
+		int invalidIndex = -1;
+		
+		Batch(int[] bookIDs) {
+			ids = new int[bookIDs.length];
+			counts = new int[bookIDs.length];
+			firstIndex = new int[bookIDs.length];
+			BorrowLedger slots = new BorrowLedger(bookIDs.length);
+			for(int i=0;i<bookIDs.length;i++) {
+				if(bookIDs[i]<1) {
+					invalidIndex = i;
+					return;
+				}
+				int slot = slots.count(bookIDs[i]) - 1;
+				if(slot<0) {
+					slot = size++;
+					ids[slot] = bookIDs[i];
+					firstIndex[slot] = i;
+					slots.put(bookIDs[i], slot + 1);
+				}
+				counts[slot]++;
+			}
+		}
+	}
 
 }
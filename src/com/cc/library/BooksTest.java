@@ -7,8 +7,10 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Comprehensive unit tests for the Books class.
@@ -30,8 +32,8 @@ public class BooksTest {
     @BeforeEach
     void setUp() {
         books = new Books();
-        // Reset the static counter in Book class to ensure predictable IDs
-        Book.counter = 0;
+        // Fresh ID allocator in Book class to ensure predictable IDs
+        Book.ids = new IdAllocator();
         
         // Capture System.out for testing console output
         outputStream = new ByteArrayOutputStream();
@@ -40,7 +42,7 @@ public class BooksTest {
     }
 
     @AfterEach
-    void tearDown() {
+    void tearDown() throws IOException {
         System.setOut(originalOut);
         if (inputStream != null) {
             inputStream.close();
@@ -112,13 +114,44 @@ public class BooksTest {
         // The book is added even though the logic seems flawed
     }
 
+    @Test
+    void testAddBook_DuplicateID_NotAddedTwice() {
+        Book testBook = new Book("Test Book", "Test Author", 5);
+        
+        assertTrue(books.addBook(testBook));
+        assertFalse(books.addBook(testBook));
+        
+        assertEquals(1, books.booklist.size());
+    }
+
+    // ==================== findBook() Tests ====================
+
+    @Test
+    void testFindBook_ExistingID_ReturnsBook() {
+        Book book1 = new Book("Book 1", "Author 1", 3);
+        Book book2 = new Book("Book 2", "Author 2", 2);
+        books.addBook(book1);
+        books.addBook(book2);
+        
+        assertSame(book2, books.findBook(2));
+        assertSame(book1, books.findBook(1));
+    }
+
+    @Test
+    void testFindBook_UnknownID_ReturnsNull() {
+        books.addBook(new Book("Book 1", "Author 1", 3));
+        
+        assertNull(books.findBook(0));
+        assertNull(books.findBook(999));
+    }
+
     // ==================== rentAbook() Tests ====================
 
     @Test
     void testRentAbook_ValidBookID_BorrowsBookSuccessfully() {
         // Setup: Add a book first
         Book testBook = new Book("Test Book", "Test Author", 5);
-        books.booklist.add(testBook);
+        books.addBook(testBook);
         
         setSystemInput("1\n"); // Book ID 1
         
@@ -126,8 +159,8 @@ public class BooksTest {
         
         assertEquals(4, testBook.getQuantity()); // Quantity reduced
         assertEquals(1, books.borrowedBooks.size()); // Book added to borrowed
-        assertTrue(books.borrowedBooks.containsKey(testBook));
-        assertEquals(1, books.borrowedBooks.get(testBook).intValue());
+        assertTrue(books.borrowedBooks.contains(testBook.getBookID()));
+        assertEquals(1, books.borrowedBooks.count(testBook.getBookID()));
         
         String output = outputStream.toString();
         assertTrue(output.contains("has been added to your cart"));
@@ -137,7 +170,7 @@ public class BooksTest {
     @Test
     void testRentAbook_InvalidBookID_ShowsErrorMessage() {
         Book testBook = new Book("Test Book", "Test Author", 5);
-        books.booklist.add(testBook);
+        books.addBook(testBook);
         
         setSystemInput("999\n"); // Non-existent ID
         
@@ -153,7 +186,7 @@ public class BooksTest {
     @Test
     void testRentAbook_BookWithQuantityOne_NotAvailableForBorrowing() {
         Book testBook = new Book("Test Book", "Test Author", 1);
-        books.booklist.add(testBook);
+        books.addBook(testBook);
         
         setSystemInput("1\n");
         
@@ -180,9 +213,9 @@ public class BooksTest {
         Book book1 = new Book("Book 1", "Author 1", 3);
         Book book2 = new Book("Book 2", "Author 2", 2);
         Book book3 = new Book("Book 3", "Author 3", 1); // Won't be shown (quantity <=1)
-        books.booklist.add(book1);
-        books.booklist.add(book2);
-        books.booklist.add(book3);
+        books.addBook(book1);
+        books.addBook(book2);
+        books.addBook(book3);
         
         setSystemInput("1\n"); // Borrow book1
         
@@ -197,7 +230,7 @@ public class BooksTest {
     @Test
     void testRentAbook_IndexOutOfBounds_ShowsErrorMessage() {
         Book testBook = new Book("Test Book", "Test Author", 5);
-        books.booklist.add(testBook);
+        books.addBook(testBook);
         
         setSystemInput("0\n"); // Index 0 when book ID is 1
         
@@ -207,14 +240,52 @@ public class BooksTest {
         assertTrue(output.contains("Sorry! Input invalid / that Book ID is not available"));
     }
 
+    // ==================== rent() / giveBack() Tests ====================
+
+    @Test
+    void testRent_ConcurrentRenters_NeverOversell() throws InterruptedException {
+        Book testBook = new Book("Popular Book", "Author", 1001);
+        books.addBook(testBook);
+        AtomicInteger rented = new AtomicInteger();
+        
+        Thread[] desks = new Thread[8];
+        for (int i = 0; i < desks.length; i++) {
+            desks[i] = new Thread(() -> {
+                for (int j = 0; j < 500; j++) {
+                    if (books.rent(1)) {
+                        rented.incrementAndGet();
+                    }
+                }
+            });
+            desks[i].start();
+        }
+        for (Thread desk : desks) {
+            desk.join();
+        }
+        
+        assertEquals(1000, rented.get()); // Last copy stays in the library
+        assertEquals(1, testBook.getQuantity());
+        assertEquals(1000, books.borrowedBooks.count(1));
+    }
+
+    @Test
+    void testGiveBack_NotBorrowed_ReturnsFalse() {
+        Book testBook = new Book("Test Book", "Test Author", 5);
+        books.addBook(testBook);
+        
+        assertFalse(books.giveBack(1));
+        assertFalse(books.giveBack(999));
+        assertEquals(5, testBook.getQuantity());
+    }
+
     // ==================== returnAbook() Tests ====================
 
     @Test
     void testReturnAbook_ValidReturn_ReturnsBookSuccessfully() {
         // Setup: Add and borrow a book first
         Book testBook = new Book("Test Book", "Test Author", 5);
-        books.booklist.add(testBook);
-        books.borrowedBooks.put(testBook, 1);
+        books.addBook(testBook);
+        books.borrowedBooks.put(testBook.getBookID(), 1);
         testBook.setQuantity(4); // Simulate borrowed state
         
         setSystemInput("1\n"); // Book ID 1
@@ -222,7 +293,7 @@ public class BooksTest {
         books.returnAbook();
         
         assertEquals(5, testBook.getQuantity()); // Quantity restored
-        assertFalse(books.borrowedBooks.containsKey(testBook)); // Removed from borrowed
+        assertFalse(books.borrowedBooks.contains(testBook.getBookID())); // Removed from borrowed
         
         String output = outputStream.toString();
         assertTrue(output.contains("successfully returned"));
@@ -231,8 +302,8 @@ public class BooksTest {
     @Test
     void testReturnAbook_MultipleCopiesBorrowed_DecrementsBorrowCount() {
         Book testBook = new Book("Test Book", "Test Author", 5);
-        books.booklist.add(testBook);
-        books.borrowedBooks.put(testBook, 2); // 2 copies borrowed
+        books.addBook(testBook);
+        books.borrowedBooks.put(testBook.getBookID(), 2); // 2 copies borrowed
         testBook.setQuantity(3);
         
         setSystemInput("1\n");
@@ -240,14 +311,14 @@ public class BooksTest {
         books.returnAbook();
         
         assertEquals(4, testBook.getQuantity()); // Quantity increased by 1
-        assertTrue(books.borrowedBooks.containsKey(testBook)); // Still in borrowed map
-        assertEquals(1, books.borrowedBooks.get(testBook).intValue()); // Count decremented
+        assertTrue(books.borrowedBooks.contains(testBook.getBookID())); // Still in borrowed map
+        assertEquals(1, books.borrowedBooks.count(testBook.getBookID())); // Count decremented
     }
 
     @Test
     void testReturnAbook_BookNotBorrowed_ShowsErrorMessage() {
         Book testBook = new Book("Test Book", "Test Author", 5);
-        books.booklist.add(testBook);
+        books.addBook(testBook);
         
         setSystemInput("1\n");
         
@@ -262,8 +333,8 @@ public class BooksTest {
     @Test
     void testReturnAbook_InvalidBookID_ShowsErrorMessage() {
         Book testBook = new Book("Test Book", "Test Author", 5);
-        books.booklist.add(testBook);
-        books.borrowedBooks.put(testBook, 1);
+        books.addBook(testBook);
+        books.borrowedBooks.put(testBook.getBookID(), 1);
         
         setSystemInput("999\n"); // Invalid ID
         
@@ -287,8 +358,8 @@ public class BooksTest {
     void testShowAllBooks_WithBooks_DisplaysAllBooks() {
         Book book1 = new Book("Book 1", "Author 1", 3);
         Book book2 = new Book("Book 2", "Author 2", 2);
-        books.booklist.add(book1);
-        books.booklist.add(book2);
+        books.addBook(book1);
+        books.addBook(book2);
         
         books.showAllBooks();
         
@@ -303,7 +374,7 @@ public class BooksTest {
     @Test
     void testShowAllBooks_SingleBook_DisplaysCorrectly() {
         Book book = new Book("Single Book", "Single Author", 1);
-        books.booklist.add(book);
+        books.addBook(book);
         
         books.showAllBooks();
         
@@ -319,8 +390,8 @@ public class BooksTest {
     void testSearchBook_BookFound_DisplaysFoundBooks() {
         Book book1 = new Book("Java Programming", "Author 1", 3);
         Book book2 = new Book("Python Programming", "Author 2", 2);
-        books.booklist.add(book1);
-        books.booklist.add(book2);
+        books.addBook(book1);
+        books.addBook(book2);
         
         setSystemInput("Java Programming\n");
         
@@ -332,10 +403,25 @@ public class BooksTest {
         assertFalse(output.contains("Python Programming"));
     }
 
+    @Test
+    void testSearchBook_Typo_SuggestsClosestTitles() {
+        books.addBook(new Book("Harry Potter", "J Rowling", 3));
+        books.addBook(new Book("Python Programming", "Author 2", 2));
+
+        setSystemInput("Harry Poter\n");
+
+        books.searchBook();
+
+        String output = outputStream.toString();
+        assertTrue(output.contains("Did you mean:"));
+        assertTrue(output.contains("Harry Potter"));
+        assertFalse(output.contains("Python Programming"));
+    }
+
     @Test
     void testSearchBook_CaseInsensitive_FindsBook() {
         Book book1 = new Book("Java Programming", "Author 1", 3);
-        books.booklist.add(book1);
+        books.addBook(book1);
         
         setSystemInput("java programming\n");
         
@@ -349,7 +435,7 @@ public class BooksTest {
     @Test
     void testSearchBook_BookNotFound_ShowsNotFoundMessage() {
         Book book1 = new Book("Java Programming", "Author 1", 3);
-        books.booklist.add(book1);
+        books.addBook(book1);
         
         setSystemInput("Non Existent Book\n");
         
@@ -374,9 +460,9 @@ public class BooksTest {
         Book book1 = new Book("Duplicate Name", "Author 1", 3);
         Book book2 = new Book("Duplicate Name", "Author 2", 2);
         Book book3 = new Book("Different Name", "Author 3", 1);
-        books.booklist.add(book1);
-        books.booklist.add(book2);
-        books.booklist.add(book3);
+        books.addBook(book1);
+        books.addBook(book2);
+        books.addBook(book3);
         
         setSystemInput("Duplicate Name\n");
         
@@ -392,7 +478,7 @@ public class BooksTest {
     @Test
     void testSearchBook_EmptyString_ShowsNotFound() {
         Book book1 = new Book("Test Book", "Test Author", 3);
-        books.booklist.add(book1);
+        books.addBook(book1);
         
         setSystemInput("\n");
         
@@ -402,14 +488,49 @@ public class BooksTest {
         assertTrue(output.contains("No books found with the name: "));
     }
 
+    @Test
+    void testSearchBook_PartialName_FindsBooksContainingAllWords() {
+        Book book1 = new Book("Effective Java", "Joshua Bloch", 3);
+        Book book2 = new Book("Java Concurrency in Practice", "Brian Goetz", 2);
+        Book book3 = new Book("Clean Code", "Robert Martin", 1);
+        books.addBook(book1);
+        books.addBook(book2);
+        books.addBook(book3);
+        
+        setSystemInput("java\n");
+        
+        books.searchBook();
+        
+        String output = outputStream.toString();
+        assertTrue(output.contains("Effective Java"));
+        assertTrue(output.contains("Java Concurrency in Practice"));
+        assertFalse(output.contains("Clean Code"));
+    }
+
+    @Test
+    void testSearchByAuthor_MatchesAuthorOnly() {
+        Book book1 = new Book("Effective Java", "Joshua Bloch", 3);
+        Book book2 = new Book("Bloch Family History", "Someone Else", 2);
+        books.addBook(book1);
+        books.addBook(book2);
+        
+        setSystemInput("bloch\n");
+        
+        books.searchByAuthor();
+        
+        String output = outputStream.toString();
+        assertTrue(output.contains("Effective Java"));
+        assertFalse(output.contains("Bloch Family History"));
+    }
+
     // ==================== updateBook() Tests ====================
 
     @Test
     void testUpdateBook_ValidID_UpdatesQuantity() {
         Book testBook = new Book("Test Book", "Test Author", 5);
-        books.booklist.add(testBook);
+        books.addBook(testBook);
         
-        setSystemInput("0\n10\n"); // Index 0, new quantity 10
+        setSystemInput("1\n10\n"); // Book ID 1, new quantity 10
         
         books.updateBook();
         
@@ -421,7 +542,7 @@ public class BooksTest {
     @Test
     void testUpdateBook_NegativeID_ShowsErrorMessage() {
         Book testBook = new Book("Test Book", "Test Author", 5);
-        books.booklist.add(testBook);
+        books.addBook(testBook);
         
         setSystemInput("-1\n");
         
@@ -435,7 +556,7 @@ public class BooksTest {
     @Test
     void testUpdateBook_IDTooLarge_ShowsErrorMessage() {
         Book testBook = new Book("Test Book", "Test Author", 5);
-        books.booklist.add(testBook);
+        books.addBook(testBook);
         
         setSystemInput("999\n");
         
@@ -448,7 +569,7 @@ public class BooksTest {
 
     @Test
     void testUpdateBook_EmptyBookList_ShowsErrorMessage() {
-        setSystemInput("0\n");
+        setSystemInput("1\n");
         
         books.updateBook();
         
@@ -459,9 +580,9 @@ public class BooksTest {
     @Test
     void testUpdateBook_ZeroQuantity_UpdatesToZero() {
         Book testBook = new Book("Test Book", "Test Author", 5);
-        books.booklist.add(testBook);
+        books.addBook(testBook);
         
-        setSystemInput("0\n0\n");
+        setSystemInput("1\n0\n");
         
         books.updateBook();
         
@@ -473,9 +594,9 @@ public class BooksTest {
     @Test
     void testUpdateBook_NegativeQuantity_UpdatesToNegative() {
         Book testBook = new Book("Test Book", "Test Author", 5);
-        books.booklist.add(testBook);
+        books.addBook(testBook);
         
-        setSystemInput("0\n-5\n");
+        setSystemInput("1\n-5\n");
         
         books.updateBook();
         
@@ -485,9 +606,9 @@ public class BooksTest {
     @Test
     void testUpdateBook_ValidIDAtBoundary_UpdatesSuccessfully() {
         Book testBook = new Book("Test Book", "Test Author", 5);
-        books.booklist.add(testBook);
+        books.addBook(testBook);
         
-        setSystemInput("0\n100\n"); // Index 0 (valid boundary)
+        setSystemInput("1\n100\n"); // Book ID 1 (first valid ID)
         
         books.updateBook();
         
@@ -610,7 +731,7 @@ public class BooksTest {
     @Test
     void testMultipleBorrowsSameBook_HandlesCorrectly() {
         Book testBook = new Book("Test Book", "Test Author", 10);
-        books.booklist.add(testBook);
+        books.addBook(testBook);
         
         // Borrow twice
         setSystemInput("1\n");
@@ -622,13 +743,13 @@ public class BooksTest {
         
         assertEquals(8, testBook.getQuantity()); // 10 - 2 = 8
         assertEquals(1, books.borrowedBooks.size()); // Only one entry in map
-        assertEquals(2, books.borrowedBooks.get(testBook).intValue()); // Count is 2
+        assertEquals(2, books.borrowedBooks.count(testBook.getBookID())); // Count is 2
     }
 
     @Test
     void testBorrowUntilUnavailable_BehavesCorrectly() {
         Book testBook = new Book("Limited Book", "Author", 2);
-        books.booklist.add(testBook);
+        books.addBook(testBook);
         
         // Borrow first copy
         setSystemInput("1\n");
@@ -650,8 +771,8 @@ public class BooksTest {
     void testSearchAndUpdate_Integration() {
         Book book1 = new Book("Search Me", "Author 1", 5);
         Book book2 = new Book("Update Me", "Author 2", 3);
-        books.booklist.add(book1);
-        books.booklist.add(book2);
+        books.addBook(book1);
+        books.addBook(book2);
         
         // Search for a book
         setSystemInput("Search Me\n");
@@ -660,9 +781,9 @@ public class BooksTest {
         assertTrue(output.contains("Books found:"));
         assertTrue(output.contains("Search Me"));
         
-        // Update the second book (index 1)
+        // Update the second book (ID 2)
         outputStream.reset();
-        setSystemInput("1\n20\n");
+        setSystemInput("2\n20\n");
         books.updateBook();
         
         assertEquals(20, book2.getQuantity());
@@ -675,14 +796,14 @@ public class BooksTest {
     @Test
     void testRentBook_BoundaryConditions() {
         Book book = new Book("Boundary Book", "Author", 2);
-        books.booklist.add(book);
+        books.addBook(book);
         
         // Book should be available (quantity > 1)
         setSystemInput("1\n");
         books.rentAbook();
         
         assertEquals(1, book.getQuantity());
-        assertTrue(books.borrowedBooks.containsKey(book));
+        assertTrue(books.borrowedBooks.contains(book.getBookID()));
         
         // Now quantity is 1, so book should not be available for borrowing
         outputStream.reset();
@@ -697,8 +818,8 @@ public class BooksTest {
     void testReturnBook_EdgeCaseWithBookCreation() {
         // This tests the problematic logic in returnAbook method
         Book originalBook = new Book("Original", "Author", 5);
-        books.booklist.add(originalBook);
-        books.borrowedBooks.put(originalBook, 1);
+        books.addBook(originalBook);
+        books.borrowedBooks.put(originalBook.getBookID(), 1);
         
         // The method creates a new Book with just ID, which may not equal the original
         setSystemInput("1\n");
@@ -706,6 +827,44 @@ public class BooksTest {
         
         // Due to the way Book equality works (by ID only), this should work
         assertEquals(6, originalBook.getQuantity());
-        assertFalse(books.borrowedBooks.containsKey(originalBook));
+        assertFalse(books.borrowedBooks.contains(originalBook.getBookID()));
+    }
+
+    @Test
+    void testRentAll_AllOrNothing() {
+        Book dune = new Book("Dune", "Frank Herbert", 3);
+        Book emma = new Book("Emma", "Jane Austen", 2);
+        books.addBook(dune);
+        books.addBook(emma);
+
+        // Emma can only lend one copy, so the whole batch is refused at Emma's first entry
+        assertEquals(1, books.rentAll(new int[] {dune.getBookID(), emma.getBookID(), dune.getBookID(), emma.getBookID()}));
+        assertEquals(3, dune.getQuantity());
+        assertEquals(2, emma.getQuantity());
+        assertTrue(books.borrowedBooks.isEmpty());
+
+        assertEquals(-1, books.rentAll(new int[] {dune.getBookID(), emma.getBookID(), dune.getBookID()}));
+        assertEquals(1, dune.getQuantity());
+        assertEquals(1, emma.getQuantity());
+        assertEquals(2, books.borrowedBooks.count(dune.getBookID()));
+        assertEquals(1, books.borrowedBooks.count(emma.getBookID()));
+    }
+
+    @Test
+    void testGiveBackAll_AllOrNothing() {
+        Book dune = new Book("Dune", "Frank Herbert", 3);
+        Book emma = new Book("Emma", "Jane Austen", 2);
+        books.addBook(dune);
+        books.addBook(emma);
+        books.rentAll(new int[] {dune.getBookID(), dune.getBookID()});
+
+        assertEquals(1, books.giveBackAll(new int[] {dune.getBookID(), emma.getBookID()}));
+        assertEquals(2, books.borrowedBooks.count(dune.getBookID()));
+        assertEquals(1, dune.getQuantity());
+        assertEquals(0, books.giveBackAll(new int[] {0}));
+
+        assertEquals(-1, books.giveBackAll(new int[] {dune.getBookID(), dune.getBookID()}));
+        assertEquals(3, dune.getQuantity());
+        assertTrue(books.borrowedBooks.isEmpty());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,185 @@
+package com.cc.library;
+
+/**
+ * Counts how many copies of each book are currently borrowed.
+ *
+ * The ledger is an open-addressing hash table from bookID to count with linear probing, kept in two primitive arrays so that renting and returning never box an Integer or allocate. Book IDs start at 1, so 0 marks an empty slot.
+ */
+public class BorrowLedger {
+
+	/**
+	 * Receives the entries of a ledger, one borrowed book at a time.
+	 */
+	public interface Visitor {
+		void visit(int bookID, int count);
+	}
+
+	private static final int EMPTY = 0;
+
+	private int[] keys;
+	private int[] counts;
+	private int size;
+	private int mask;
+
+	public BorrowLedger() {
+		this(16);
+	}
+
+	public BorrowLedger(int expectedBooks) {
+		int capacity = Integer.highestOneBit(Math.max(expectedBooks * 2 - 1, 8)) << 1;
+		this.keys = new int[capacity];
+		this.counts = new int[capacity];
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Records one more borrowed copy of a book.
+	 *
+	 * @param bookID the ID of the borrowed book, must be greater than 0
+	 * @return the number of borrowed copies after the increment
+	 */
+	public int increment(int bookID) {
+		int slot = slotOf(bookID);
+		if(keys[slot]==EMPTY) {
+			keys[slot] = bookID;
+			counts[slot] = 1;
+			if(++size * 2 > keys.length) {
+				resize();
+			}
+			return 1;
+		}
+		return ++counts[slot];
+	}
+
+	/**
+	 * Records one returned copy of a book, removing the entry when the last copy comes back.
+	 *
+	 * @param bookID the ID of the returned book
+	 * @return the number of borrowed copies after the decrement, or -1 if the book was not borrowed
+	 */
+	public int decrement(int bookID) {
+		int slot = slotOf(bookID);
+		if(keys[slot]==EMPTY) {
+			return -1;
+		}
+		int remaining = --counts[slot];
+		if(remaining==0) {
+			removeSlot(slot);
+		}
+		return remaining;
+	}
+
+	/**
+	 * Sets the borrowed count of a book directly. A count of 0 or less removes the entry.
+	 *
+	 * @param bookID the ID of the book
+	 * @param count the number of borrowed copies
+	 */
+	public void put(int bookID, int count) {
+		int slot = slotOf(bookID);
+		if(count<=0) {
+			if(keys[slot]!=EMPTY) {
+				removeSlot(slot);
+			}
+		}else if(keys[slot]==EMPTY) {
+			keys[slot] = bookID;
+			counts[slot] = count;
+			if(++size * 2 > keys.length) {
+				resize();
+			}
+		}else {
+			counts[slot] = count;
+		}
+	}
+
+	/**
+	 * Returns how many copies of a book are borrowed.
+	 *
+	 * @param bookID the ID of the book
+	 * @return the borrowed count, or 0 if the book is not borrowed
+	 */
+	public int count(int bookID) {
+		int slot = slotOf(bookID);
+		return keys[slot]==EMPTY ? 0 : counts[slot];
+	}
+
+	public boolean contains(int bookID) {
+		return keys[slotOf(bookID)]!=EMPTY;
+	}
+
+	/**
+	 * @return the number of distinct books with at least one borrowed copy
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size==0;
+	}
+
+	/**
+	 * Hands every borrowed book and its count to the visitor, in no particular order.
+	 *
+	 * @param visitor receives each entry
+	 */
+	public void forEach(Visitor visitor) {
+		for(int i=0;i<keys.length;i++) {
+			if(keys[i]!=EMPTY) {
+				visitor.visit(keys[i], counts[i]);
+			}
+		}
+	}
+
+	/**
+	 * Finds the slot holding the given ID, or the empty slot where it would be inserted.
+	 */
+	private int slotOf(int bookID) {
+		int slot = mix(bookID) & mask;
+		while(keys[slot]!=EMPTY && keys[slot]!=bookID) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Empties a slot and shifts later entries of the same probe chain back, so no tombstones are needed.
+	 */
+	private void removeSlot(int slot) {
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while(keys[next]!=EMPTY) {
+			int home = mix(keys[next]) & mask;
+			if(((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				counts[gap] = counts[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[gap] = EMPTY;
+		counts[gap] = 0;
+		size--;
+	}
+
+	private void resize() {
+		int[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new int[oldKeys.length * 2];
+		counts = new int[oldKeys.length * 2];
+		mask = keys.length - 1;
+		for(int i=0;i<oldKeys.length;i++) {
+			if(oldKeys[i]!=EMPTY) {
+				int slot = slotOf(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BorrowLedger open-addressing table.
+ * Testing framework: JUnit 5
+ */
+public class BorrowLedgerTest {
+
+    private BorrowLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new BorrowLedger();
+    }
+
+    @Test
+    void testIncrement_NewBook_StartsAtOne() {
+        assertEquals(1, ledger.increment(7));
+        assertEquals(2, ledger.increment(7));
+
+        assertEquals(2, ledger.count(7));
+        assertEquals(1, ledger.size());
+    }
+
+    @Test
+    void testDecrement_LastCopy_RemovesEntry() {
+        ledger.increment(3);
+
+        assertEquals(0, ledger.decrement(3));
+
+        assertFalse(ledger.contains(3));
+        assertTrue(ledger.isEmpty());
+    }
+
+    @Test
+    void testDecrement_NotBorrowed_ReturnsMinusOne() {
+        assertEquals(-1, ledger.decrement(42));
+        assertEquals(-1, ledger.decrement(0));
+        assertEquals(0, ledger.size());
+    }
+
+    @Test
+    void testPut_ZeroCount_RemovesEntry() {
+        ledger.put(5, 3);
+        assertEquals(3, ledger.count(5));
+
+        ledger.put(5, 0);
+
+        assertFalse(ledger.contains(5));
+        assertEquals(0, ledger.size());
+    }
+
+    @Test
+    void testManyBooks_GrowsAndKeepsCounts() {
+        for (int id = 1; id <= 10000; id++) {
+            ledger.put(id, id % 7 + 1);
+        }
+
+        assertEquals(10000, ledger.size());
+        for (int id = 1; id <= 10000; id++) {
+            assertEquals(id % 7 + 1, ledger.count(id));
+        }
+    }
+
+    @Test
+    void testRemoveEveryOther_RemainingEntriesStillFound() {
+        for (int id = 1; id <= 2000; id++) {
+            ledger.increment(id);
+        }
+        for (int id = 2; id <= 2000; id += 2) {
+            assertEquals(0, ledger.decrement(id));
+        }
+
+        assertEquals(1000, ledger.size());
+        for (int id = 1; id <= 2000; id++) {
+            assertEquals(id % 2 == 1, ledger.contains(id));
+        }
+    }
+}
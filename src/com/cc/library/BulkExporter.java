@@ -0,0 +1,277 @@
+package com.cc.library;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes books and students to CSV files in bulk, in the format BulkLoader reads, or everything including loans as one binary record stream.
+ *
+ * Records are encoded straight into one large direct buffer that is written to a FileChannel whenever it fills up, so no String is built per record: text is encoded to UTF-8 character by character, numbers digit by digit, and titles and authors of catalog rows are copied as the UTF-8 bytes already in the mapped columns.
+ *
+ * Book files have the columns name,author,quantity,bookID and student files name,studentID, each with a header line. BulkLoader ignores the ID column on import and hands out new IDs. Text fields are always quoted and line breaks inside them become spaces, because BulkLoader cuts files at line breaks.
+ */
+public class BulkExporter {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final int PAGE_SIZE = 4096;
+
+	/**
+	 * Exports every book in the same order as Books.forEachBook.
+	 *
+	 * @param csv the file to write, replaced if it exists
+	 * @param books the books to export
+	 * @return the number of books written
+	 * @throws IOException if the file cannot be written
+	 */
+	public static long exportBooks(Path csv, Books books) throws IOException {
+		long rows = 0;
+		try(CsvWriter out = new CsvWriter(csv)) {
+			out.raw("name,author,quantity,bookID\n");
+			Page<Book> page = books.page(Page.FIRST, PAGE_SIZE);
+			while(true) {
+				for(Book book:page.getItems()) {
+					if(book instanceof MappedBook) {
+						MappedBook row = (MappedBook) book;
+						out.text(row.titleBytes()).comma().text(row.authorBytes());
+					}else {
+						out.text(book.getBookName()).comma().text(book.getBookAuthor());
+					}
+					out.comma().number(book.getQuantity()).comma().number(book.getBookID()).endLine();
+					rows++;
+				}
+				if(!page.hasMore()) {
+					return rows;
+				}
+				page = books.page(page.getNextCursor(), PAGE_SIZE);
+			}
+		}
+	}
+
+	/**
+	 * Exports every student in the order they were registered.
+	 *
+	 * @param csv the file to write, replaced if it exists
+	 * @param students the students to export
+	 * @return the number of students written
+	 * @throws IOException if the file cannot be written
+	 */
+	public static long exportStudents(Path csv, Students students) throws IOException {
+		long rows = 0;
+		try(CsvWriter out = new CsvWriter(csv)) {
+			out.raw("name,studentID\n");
+			Page<Student> page = students.page(Page.FIRST, PAGE_SIZE);
+			while(true) {
+				for(Student student:page.getItems()) {
+					out.text(student.getStudentName()).comma().number(student.getStudentID()).endLine();
+					rows++;
+				}
+				if(!page.hasMore()) {
+					return rows;
+				}
+				page = students.page(page.getNextCursor(), PAGE_SIZE);
+			}
+		}
+	}
+
+	/**
+	 * Exports every book, then every student, then every open loan as one binary record stream in the format RecordReader reads.
+	 *
+	 * Unlike the CSV files the stream keeps IDs, quantities and due dates, so it can seed a replica or be compared against a snapshot. Author names are written through the dictionary, and the writer is drained to the file every BUFFER_SIZE bytes.
+	 *
+	 * @param file the file to write, replaced if it exists
+	 * @param books the books to export
+	 * @param students the students and loans to export
+	 * @return the number of records written
+	 * @throws IOException if the file cannot be written
+	 */
+	public static long exportRecords(Path file, Books books, Students students) throws IOException {
+		long records = 0;
+		RecordWriter out = new RecordWriter();
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			Page<Book> bookPage = books.page(Page.FIRST, PAGE_SIZE);
+			while(true) {
+				for(Book book:bookPage.getItems()) {
+					out.writeBook(book);
+					records++;
+				}
+				drainIfFull(out, channel);
+				if(!bookPage.hasMore()) {
+					break;
+				}
+				bookPage = books.page(bookPage.getNextCursor(), PAGE_SIZE);
+			}
+			Page<Student> studentPage = students.page(Page.FIRST, PAGE_SIZE);
+			while(true) {
+				for(Student student:studentPage.getItems()) {
+					out.writeStudent(student);
+					records++;
+				}
+				drainIfFull(out, channel);
+				if(!studentPage.hasMore()) {
+					break;
+				}
+				studentPage = students.page(studentPage.getNextCursor(), PAGE_SIZE);
+			}
+			studentPage = students.page(Page.FIRST, PAGE_SIZE);
+			while(true) {
+				for(Student student:studentPage.getItems()) {
+					for(Loan loan:students.loanDetailsOf(student.getStudentID())) {
+						out.writeLoan(loan);
+						records++;
+					}
+				}
+				drainIfFull(out, channel);
+				if(!studentPage.hasMore()) {
+					break;
+				}
+				studentPage = students.page(studentPage.getNextCursor(), PAGE_SIZE);
+			}
+			out.drainTo(channel);
+		}
+		return records;
+	}
+
+	private static void drainIfFull(RecordWriter out, FileChannel channel) throws IOException {
+		if(out.size()>=BUFFER_SIZE) {
+			out.drainTo(channel);
+		}
+	}
+
+	/**
+	 * Encodes CSV fields into a direct buffer and writes it to the file channel when it is nearly full.
+	 */
+	static class CsvWriter implements AutoCloseable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private final byte[] digits = new byte[11];
+
+		CsvWriter(Path file) throws IOException {
+			this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		/**
+		 * Writes ASCII text as it is, for header lines.
+		 */
+		CsvWriter raw(String ascii) throws IOException {
+			for(int i=0;i<ascii.length();i++) {
+				room(1);
+				buffer.put((byte) ascii.charAt(i));
+			}
+			return this;
+		}
+
+		/**
+		 * Writes a quoted field, encoding the text to UTF-8 on the way.
+		 */
+		CsvWriter text(String text) throws IOException {
+			room(1);
+			buffer.put((byte) '"');
+			int length = text==null ? 0 : text.length();
+			for(int i=0;i<length;i++) {
+				room(4);
+				char c = text.charAt(i);
+				if(c<0x80) {
+					put((byte) c);
+				}else if(c<0x800) {
+					buffer.put((byte) (0xC0 | (c >> 6))).put((byte) (0x80 | (c & 0x3F)));
+				}else if(Character.isHighSurrogate(c) && i + 1<length && Character.isLowSurrogate(text.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, text.charAt(++i));
+					buffer.put((byte) (0xF0 | (codePoint >> 18))).put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+							.put((byte) (0x80 | ((codePoint >> 6) & 0x3F))).put((byte) (0x80 | (codePoint & 0x3F)));
+				}else if(Character.isSurrogate(c)) {
+					buffer.put((byte) '?');
+				}else {
+					buffer.put((byte) (0xE0 | (c >> 12))).put((byte) (0x80 | ((c >> 6) & 0x3F))).put((byte) (0x80 | (c & 0x3F)));
+				}
+			}
+			room(1);
+			buffer.put((byte) '"');
+			return this;
+		}
+
+		/**
+		 * Writes a quoted field from bytes that are already UTF-8.
+		 */
+		CsvWriter text(ByteBuffer utf8) throws IOException {
+			room(1);
+			buffer.put((byte) '"');
+			for(int i=utf8.position();i<utf8.limit();i++) {
+				room(2);
+				put(utf8.get(i));
+			}
+			room(1);
+			buffer.put((byte) '"');
+			return this;
+		}
+
+		CsvWriter number(int value) throws IOException {
+			room(digits.length);
+			long remaining = value;
+			if(remaining<0) {
+				buffer.put((byte) '-');
+				remaining = -remaining;
+			}
+			int count = 0;
+			do {
+				digits[count++] = (byte) ('0' + remaining % 10);
+				remaining /= 10;
+			}while(remaining>0);
+			while(count>0) {
+				buffer.put(digits[--count]);
+			}
+			return this;
+		}
+
+		CsvWriter comma() throws IOException {
+			room(1);
+			buffer.put((byte) ',');
+			return this;
+		}
+
+		CsvWriter endLine() throws IOException {
+			room(1);
+			buffer.put((byte) '\n');
+			return this;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			}finally {
+				channel.close();
+			}
+		}
+
+		/**
+		 * Puts one byte of a quoted field, doubling quotes and turning line breaks into spaces.
+		 */
+		private void put(byte b) {
+			if(b=='"') {
+				buffer.put((byte) '"').put((byte) '"');
+			}else if(b=='\n' || b=='\r') {
+				buffer.put((byte) ' ');
+			}else {
+				buffer.put(b);
+			}
+		}
+
+		private void room(int bytes) throws IOException {
+			if(buffer.remaining()<bytes + 1) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for BulkExporter CSV exports and cursor paging.
+ * Testing framework: JUnit 5
+ */
+public class BulkExporterTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Book.ids = new IdAllocator();
+        Student.ids = new IdAllocator();
+        directory = Files.createTempDirectory("library-export");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void testExportBooks_QuotesAndUnicode() throws IOException {
+        Books books = new Books();
+        books.addBook("Hello, \"World\"", "O'Brien", 2);
+        books.addBook("Caf\u00e9 \ud83d\udcda", "Line\nBreak", 7);
+        Path csv = directory.resolve("books.csv");
+
+        assertEquals(2, BulkExporter.exportBooks(csv, books));
+
+        assertEquals("name,author,quantity,bookID\n"
+                + "\"Hello, \"\"World\"\"\",\"O'Brien\",2,1\n"
+                + "\"Caf\u00e9 \ud83d\udcda\",\"Line Break\",7,2\n",
+                new String(Files.readAllBytes(csv), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testExportBooks_CatalogRowsAndRoundTrip() throws IOException {
+        Path catalogDirectory = directory.resolve("catalog");
+        ColumnarCatalog.write(catalogDirectory, Arrays.asList(
+                new Book("Java Programming", "James Gosling", 5),
+                new Book("\u00dcn\u00efc\u00f6d\u00e9 \"Tales\"", "Ana \u00d1\u00fa\u00f1ez", 2)));
+        Books books = new Books();
+        books.attach(ColumnarCatalog.open(catalogDirectory));
+        books.rent(1);
+        books.addBook("Heap Only", "Someone", 4);
+        Path csv = directory.resolve("books.csv");
+
+        assertEquals(3, BulkExporter.exportBooks(csv, books));
+
+        Book.ids = new IdAllocator();
+        Books imported = new Books();
+        BulkLoader.Report report = BulkLoader.importBooks(csv, imported);
+        assertEquals(3, report.getRows());
+        assertEquals(0, report.getRejected());
+        assertEquals(4, imported.findBook(1).getQuantity());
+        assertEquals("\u00dcn\u00efc\u00f6d\u00e9 \"Tales\"", imported.findBook(2).getBookName());
+        assertEquals("Ana \u00d1\u00fa\u00f1ez", imported.findBook(2).getBookAuthor());
+        assertEquals("Heap Only", imported.findBook(3).getBookName());
+    }
+
+    @Test
+    void testExportStudents_RoundTrip() throws IOException {
+        Students students = new Students();
+        for (int i = 0; i < 2500; i++) {
+            students.registerStudent("Student " + i);
+        }
+        Path csv = directory.resolve("students.csv");
+
+        assertEquals(2500, BulkExporter.exportStudents(csv, students));
+
+        Students imported = new Students();
+        assertEquals(2500, BulkLoader.importStudents(csv, imported).getRows());
+        assertEquals("Student 2499", imported.studentList.get(2499).getStudentName());
+    }
+
+    @Test
+    void testPage_CursorWalksEveryBookOnce() {
+        Books books = new Books();
+        for (int i = 0; i < 25; i++) {
+            books.addBook("Book " + i, "Author", 2);
+        }
+
+        Page<Book> first = books.page(Page.FIRST, 10);
+        assertEquals(10, first.getItems().size());
+        assertTrue(first.hasMore());
+        Page<Book> second = books.page(first.getNextCursor(), 10);
+        assertEquals("Book 10", second.getItems().get(0).getBookName());
+        Page<Book> last = books.page(second.getNextCursor(), 10);
+        assertEquals(5, last.getItems().size());
+        assertFalse(last.hasMore());
+        assertEquals(-1, last.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> books.page(-1, 10));
+    }
+
+    @Test
+    void testPage_Students() {
+        Students students = new Students();
+        students.registerStudent("Asha");
+        students.registerStudent("Ravi");
+        students.registerStudent("Mina");
+
+        Page<Student> first = students.page(Page.FIRST, 2);
+        assertEquals(2, first.getItems().size());
+        List<Student> rest = students.page(first.getNextCursor(), 2).getItems();
+        assertEquals(1, rest.size());
+        assertEquals("Mina", rest.get(0).getStudentName());
+        assertFalse(students.page(first.getNextCursor(), 2).hasMore());
+        assertTrue(students.page(5, 2).getItems().isEmpty());
+    }
+
+    @Test
+    void testExportRecords_KeepsIdsQuantitiesAndLoans() throws IOException {
+        LibraryService service = new LibraryService();
+        int bookID = service.addBook("Java Programming", "James Gosling", 3).getValue().getBookID();
+        service.addBook("Effective Java", "Joshua Bloch", 2);
+        int studentID = service.registerStudent("Asha").getValue().getStudentID();
+        assertTrue(service.rent(studentID, bookID).isOk());
+        Path file = directory.resolve("library.rec");
+
+        assertEquals(4, BulkExporter.exportRecords(file, service.books(), service.students()));
+
+        RecordReader in = new RecordReader(ByteBuffer.wrap(Files.readAllBytes(file)));
+        assertTrue(in.next());
+        assertEquals(bookID, in.bookID());
+        assertEquals(2, in.quantity());
+        assertEquals("James Gosling", in.author());
+        assertTrue(in.next());
+        assertEquals("Effective Java", in.name());
+        assertTrue(in.next());
+        assertEquals("Asha", in.toStudent().getStudentName());
+        assertTrue(in.next());
+        assertTrue(in.isLoan());
+        assertEquals(service.loanDetailsOf(studentID).get(0).getDueAt(), in.dueAt());
+        assertFalse(in.next());
+    }
+
+}
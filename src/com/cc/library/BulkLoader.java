@@ -0,0 +1,269 @@
+package com.cc.library;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Loads books and students from CSV files in bulk.
+ *
+ * The file is cut into chunks that end on a line break, each chunk is memory-mapped and parsed on its own thread, and every chunk then gets one block of consecutive IDs. The finished records are handed to Books or Students in a single call, so indexes are built once for the whole file instead of once per row.
+ *
+ * Book files have the columns name,author,quantity and student files the column name. Fields may be quoted with double quotes, and a doubled quote inside a quoted field stands for one quote. Fields cannot contain line breaks, because chunks are cut at line breaks. A header line with the column names is skipped. Rows that cannot be read, and rows that LibraryService would refuse (a blank name or author, or a quantity below one), are counted as rejected; names are trimmed as LibraryService trims them.
+ */
+public class BulkLoader {
+
+	private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+
+	/**
+	 * What an import did and how fast it was.
+	 */
+	public static class Report {
+		private final String kind;
+		private final long rows;
+		private final long rejected;
+		private final long nanos;
+
+		Report(String kind, long rows, long rejected, long nanos) {
+			this.kind = kind;
+			this.rows = rows;
+			this.rejected = rejected;
+			this.nanos = nanos;
+		}
+
+		public long getRows() {
+			return rows;
+		}
+
+		public long getRejected() {
+			return rejected;
+		}
+
+		public long getMillis() {
+			return nanos / 1000000;
+		}
+
+		public long getRowsPerSecond() {
+			return nanos==0 ? rows : rows * 1000000000L / nanos;
+		}
+
+		@Override
+		public String toString() {
+			return "Imported " + rows + " " + kind + " in " + getMillis() + " ms (" + getRowsPerSecond() + " rows/s), " + rejected + " rejected";
+		}
+	}
+
+	/**
+	 * Rows of one chunk that were read successfully.
+	 */
+	private static class Chunk {
+		final List<String[]> rows = new ArrayList<String[]>();
+		int rejected;
+		int firstID;
+	}
+
+	/**
+	 * Imports books from a CSV file with the columns name,author,quantity.
+	 *
+	 * @param csv the file to read
+	 * @param books where to add the books
+	 * @return the number of books imported and the load rate
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Report importBooks(Path csv, Books books) throws IOException {
+		long start = System.nanoTime();
+		List<Chunk> chunks = parse(csv, 3, "name");
+		for(Chunk chunk:chunks) {
+			reject(chunk, row -> isBlank(row[0]) || isBlank(row[1]) || parseQuantity(row[2])==null || parseQuantity(row[2])<1);
+			chunk.firstID = Book.ids.reserve(chunk.rows.size());
+		}
+		List<Book> loaded = chunks.parallelStream().flatMap(chunk -> {
+			List<Book> created = new ArrayList<Book>(chunk.rows.size());
+			for(int i=0;i<chunk.rows.size();i++) {
+				String[] row = chunk.rows.get(i);
+				created.add(new Book(chunk.firstID + i, row[0].trim(), row[1].trim(), parseQuantity(row[2])));
+			}
+			return created.stream();
+		}).collect(Collectors.toList());
+		books.addBooks(loaded);
+		return new Report("books", loaded.size(), rejected(chunks), System.nanoTime() - start);
+	}
+
+	/**
+	 * Imports students from a CSV file with the column name.
+	 *
+	 * @param csv the file to read
+	 * @param students where to add the students
+	 * @return the number of students imported and the load rate
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Report importStudents(Path csv, Students students) throws IOException {
+		long start = System.nanoTime();
+		List<Chunk> chunks = parse(csv, 1, "name");
+		for(Chunk chunk:chunks) {
+			reject(chunk, row -> isBlank(row[0]));
+			chunk.firstID = Student.ids.reserve(chunk.rows.size());
+		}
+		List<Student> loaded = chunks.parallelStream().flatMap(chunk -> {
+			List<Student> created = new ArrayList<Student>(chunk.rows.size());
+			for(int i=0;i<chunk.rows.size();i++) {
+				created.add(new Student(chunk.firstID + i, chunk.rows.get(i)[0].trim()));
+			}
+			return created.stream();
+		}).collect(Collectors.toList());
+		students.addStudents(loaded);
+		return new Report("students", loaded.size(), rejected(chunks), System.nanoTime() - start);
+	}
+
+	/**
+	 * Splits the file into chunks on line breaks and parses the chunks in parallel, keeping file order.
+	 */
+	private static List<Chunk> parse(Path csv, int columns, String headerStart) throws IOException {
+		try(FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+			long size = channel.size();
+			List<long[]> ranges = new ArrayList<long[]>();
+			long from = 0;
+			while(from<size) {
+				long to = nextLineStart(channel, Math.min(from + CHUNK_SIZE, size), size);
+				ranges.add(new long[] {from, to});
+				from = to;
+			}
+			return ranges.parallelStream().map(range -> {
+				try {
+					MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+					return parseChunk(buffer, columns, range[0]==0 ? headerStart : null);
+				}catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}).collect(Collectors.toList());
+		}catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Returns the position just after the first line break at or after the given position, or the end of the file.
+	 */
+	private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer probe = ByteBuffer.allocate(4096);
+		while(position<size) {
+			probe.clear();
+			int read = channel.read(probe, position);
+			if(read<=0) {
+				break;
+			}
+			for(int i=0;i<read;i++) {
+				if(probe.get(i)=='\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Reads the CSV rows of one chunk. Rows with fewer than the expected number of columns are rejected, blank lines are skipped.
+	 */
+	static Chunk parseChunk(ByteBuffer buffer, int columns, String headerStart) {
+		Chunk chunk = new Chunk();
+		List<String> fields = new ArrayList<String>(columns);
+		byte[] field = new byte[256];
+		int length = 0;
+		boolean quoted = false;
+		boolean wasQuoted = false;
+		boolean firstRow = true;
+		int limit = buffer.limit();
+		for(int i=buffer.position();i<=limit;i++) {
+			byte b = i<limit ? buffer.get(i) : (byte) '\n';
+			if(quoted) {
+				if(b=='"') {
+					if(i + 1<limit && buffer.get(i + 1)=='"') {
+						i++;
+					}else {
+						quoted = false;
+						continue;
+					}
+				}
+			}else if(b=='"' && length==0) {
+				quoted = true;
+				wasQuoted = true;
+				continue;
+			}else if(b==',' || b=='\n') {
+				if(b=='\n' && length>0 && field[length - 1]=='\r') {
+					length--;
+				}
+				String value = new String(field, 0, length, StandardCharsets.UTF_8);
+				fields.add(wasQuoted ? value : value.trim());
+				length = 0;
+				wasQuoted = false;
+				if(b=='\n') {
+					boolean blank = fields.size()==1 && fields.get(0).isEmpty();
+					boolean header = firstRow && headerStart!=null && fields.get(0).equalsIgnoreCase(headerStart);
+					if(!blank && !header) {
+						if(fields.size()>=columns) {
+							chunk.rows.add(fields.subList(0, columns).toArray(new String[columns]));
+						}else {
+							chunk.rejected++;
+						}
+					}
+					if(!blank) {
+						firstRow = false;
+					}
+					fields.clear();
+				}
+				continue;
+			}
+			if(length==field.length) {
+				byte[] bigger = new byte[field.length * 2];
+				System.arraycopy(field, 0, bigger, 0, length);
+				field = bigger;
+			}
+			field[length++] = b;
+		}
+		return chunk;
+	}
+
+	/**
+	 * Drops the rows of a chunk that fail the check and counts them as rejected.
+	 */
+	private static void reject(Chunk chunk, Predicate<String[]> invalid) {
+		chunk.rows.removeIf(row -> {
+			if(invalid.test(row)) {
+				chunk.rejected++;
+				return true;
+			}
+			return false;
+		});
+	}
+
+	private static boolean isBlank(String text) {
+		return text.trim().isEmpty();
+	}
+
+	private static Integer parseQuantity(String text) {
+		try {
+			return Integer.valueOf(text.trim());
+		}catch(NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static long rejected(List<Chunk> chunks) {
+		long rejected = 0;
+		for(Chunk chunk:chunks) {
+			rejected += chunk.rejected;
+		}
+		return rejected;
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Unit tests for BulkLoader CSV imports.
+ * Testing framework: JUnit 5
+ */
+public class BulkLoaderTest {
+
+    private Path csv;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Book.ids = new IdAllocator();
+        Student.ids = new IdAllocator();
+        csv = Files.createTempFile("library-import", ".csv");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(csv);
+    }
+
+    @Test
+    void testImportBooks_HeaderQuotesAndBadRows() throws IOException {
+        Files.write(csv, ("name,author,quantity\r\n"
+                + "Java Programming,James Gosling,5\r\n"
+                + "\"Hello, World\",\"O\"\"Brien\",2\r\n"
+                + "\n"
+                + "Missing Quantity,Someone\n"
+                + "Bad Quantity,Someone,many\n"
+                + "  Clean Code  ,Robert Martin,3").getBytes(StandardCharsets.UTF_8));
+        Books books = new Books();
+
+        BulkLoader.Report report = BulkLoader.importBooks(csv, books);
+
+        assertEquals(3, report.getRows());
+        assertEquals(2, report.getRejected());
+        assertEquals(3, books.booklist.size());
+        assertEquals("Java Programming", books.findBook(1).getBookName());
+        assertEquals("Hello, World", books.findBook(2).getBookName());
+        assertEquals("O\"Brien", books.findBook(2).getBookAuthor());
+        assertEquals("Clean Code", books.findBook(3).getBookName());
+        assertEquals(3, books.findBook(3).getQuantity());
+        assertEquals(1, books.search("clean", SearchIndex.Field.TITLE, true).size());
+        assertEquals(4, Book.ids.peekNext());
+    }
+
+    @Test
+    void testImportBooks_RejectsRowsAddBookWouldRefuse() throws IOException {
+        Files.write(csv, ("Zero Copies,Someone,0\n"
+                + "Negative Copies,Someone,-2\n"
+                + ",Someone,2\n"
+                + "\"   \",Someone,2\n"
+                + "No Author,\" \",2\n"
+                + "\" Kept \",\" Ana Stone \",1\n").getBytes(StandardCharsets.UTF_8));
+        Books books = new Books();
+
+        BulkLoader.Report report = BulkLoader.importBooks(csv, books);
+
+        assertEquals(1, report.getRows());
+        assertEquals(5, report.getRejected());
+        assertEquals(1, books.booklist.size());
+        assertEquals("Kept", books.booklist.get(0).getBookName());
+        assertEquals("Ana Stone", books.booklist.get(0).getBookAuthor());
+    }
+
+    @Test
+    void testImportBooks_ManyChunks_KeepsFileOrder() throws IOException {
+        int rows = 400000;
+        try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+            for (int i = 1; i <= rows; i++) {
+                out.write("Title " + i + ",Author " + (i % 100) + ",3\n");
+            }
+        }
+        Books books = new Books();
+
+        BulkLoader.Report report = BulkLoader.importBooks(csv, books);
+
+        assertEquals(rows, report.getRows());
+        assertEquals(rows, books.booklist.size());
+        assertEquals("Title 1", books.findBook(1).getBookName());
+        assertEquals("Title 250000", books.findBook(250000).getBookName());
+        assertEquals("Title 400000", books.findBook(400000).getBookName());
+    }
+
+    @Test
+    void testImportStudents_AssignsConsecutiveIDs() throws IOException {
+        Students students = new Students();
+        students.addStudent(new Student("Existing"));
+        Files.write(csv, "name\nAsha\nRavi\n".getBytes(StandardCharsets.UTF_8));
+
+        BulkLoader.Report report = BulkLoader.importStudents(csv, students);
+
+        assertEquals(2, report.getRows());
+        assertEquals(3, students.studentList.size());
+        int asha = students.studentList.get(1).getStudentID();
+        assertTrue(asha > students.studentList.get(0).getStudentID());
+        assertEquals(asha + 1, students.studentList.get(2).getStudentID());
+        assertEquals("Ravi", students.studentList.get(2).getStudentName());
+    }
+
+    @Test
+    void testImportStudents_RejectsBlankNames() throws IOException {
+        Students students = new Students();
+        Files.write(csv, "name\nAsha\n\"  \"\n\" Ravi \"\n".getBytes(StandardCharsets.UTF_8));
+
+        BulkLoader.Report report = BulkLoader.importStudents(csv, students);
+
+        assertEquals(2, report.getRows());
+        assertEquals(1, report.getRejected());
+        assertEquals("Ravi", students.studentList.get(1).getStudentName());
+    }
+}
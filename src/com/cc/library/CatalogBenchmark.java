@@ -0,0 +1,137 @@
+package com.cc.library;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * JMH benchmarks for the catalog: adding books, looking them up by ID, name searches and student lookups.
+ * Benchmark framework: JMH
+ *
+ * Every benchmark runs against catalogs of 1K to 10M titles. Run all suites through LibraryBenchmarks to get JSON results.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+
+    static final String[] WORDS = {"history", "science", "river", "garden", "winter", "machine", "city", "stone",
+            "ocean", "light", "empire", "shadow", "music", "forest", "code", "journey"};
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int catalogSize;
+
+    Books books;
+    Students students;
+
+    @Setup(Level.Trial)
+    public void buildCatalog() {
+        Book.ids = new IdAllocator();
+        Student.ids = new IdAllocator();
+        books = fill(new Books(), catalogSize);
+        students = new Students();
+        List<Student> roster = new ArrayList<Student>();
+        int studentCount = Math.max(catalogSize / 30, 100);
+        int firstStudent = Student.ids.reserve(studentCount);
+        for (int i = 0; i < studentCount; i++) {
+            roster.add(new Student(firstStudent + i, "Student " + i));
+        }
+        students.addStudents(roster);
+    }
+
+    /**
+     * Builds a catalog of generated titles through the bulk path, so large sizes set up quickly.
+     */
+    static Books fill(Books books, int size) {
+        List<Book> batch = new ArrayList<Book>(size);
+        int first = Book.ids.reserve(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(new Book(first + i, title(i), "Author " + (i % 5000), 10));
+        }
+        books.addBooks(batch);
+        return books;
+    }
+
+    static String title(int i) {
+        return WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+    }
+
+    @Benchmark
+    public boolean addBook(AddState state) {
+        return state.target.addBook(new Book("New Title " + state.added++, "New Author", 5));
+    }
+
+    @Benchmark
+    public Book findBookByID() {
+        return books.findBook(1 + ThreadLocalRandom.current().nextInt(catalogSize));
+    }
+
+    @Benchmark
+    public List<Book> searchTitleWords() {
+        return books.search(title(ThreadLocalRandom.current().nextInt(catalogSize)), SearchIndex.Field.TITLE, true);
+    }
+
+    @Benchmark
+    public List<Book> searchWordAndPrefix() {
+        int i = ThreadLocalRandom.current().nextInt(catalogSize);
+        String number = Integer.toString(i);
+        return books.search(WORDS[i % WORDS.length] + " " + number.substring(0, Math.min(number.length(), 4)) + "*", SearchIndex.Field.TITLE, true);
+    }
+
+    /**
+     * Two title words with one letter of the second dropped, as a patron would mistype them.
+     */
+    @Benchmark
+    public List<Book> searchFuzzyTitle() {
+        int i = ThreadLocalRandom.current().nextInt(catalogSize);
+        String second = WORDS[(i / WORDS.length) % WORDS.length];
+        return books.searchFuzzy(WORDS[i % WORDS.length] + " " + second.substring(0, second.length() - 1), SearchIndex.Field.TITLE, 10);
+    }
+
+    @Benchmark
+    public List<Book> searchAuthor() {
+        return books.search("author " + ThreadLocalRandom.current().nextInt(5000), SearchIndex.Field.AUTHOR, true);
+    }
+
+    @Benchmark
+    public List<Book> browseAuthorRange() {
+        String author = "author " + ThreadLocalRandom.current().nextInt(5000);
+        return books.browse(SortedIndexes.Order.AUTHOR, author, author, 50);
+    }
+
+    @Benchmark
+    public List<Book> browseLowStock() {
+        return books.byQuantity(Integer.MIN_VALUE, 9, 50);
+    }
+
+    @Benchmark
+    public Student searchStudent() {
+        return students.searchStudent(1 + ThreadLocalRandom.current().nextInt(students.studentList.size()));
+    }
+
+    /**
+     * A separate catalog that add-book iterations grow, rebuilt for every iteration so its size stays close to the parameter.
+     */
+    @State(Scope.Thread)
+    public static class AddState {
+        Books target;
+        int added;
+
+        @Setup(Level.Iteration)
+        public void reset(CatalogBenchmark benchmark) {
+            target = fill(new Books(), benchmark.catalogSize);
+            added = 0;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.cc.library;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * JMH benchmarks for rent and return throughput.
+ * Benchmark framework: JMH
+ *
+ * All threads share one catalog. LibraryBenchmarks runs this suite with 1 to 64 threads. Every title has far more copies than can be rented in a run, so operations never fail for lack of stock.
+ *
+ * With events on, every rent and return is published on an EventBus read by one subscriber that does nothing, which measures what publishing adds to the hot path. With events off, Books updates the circulation figures itself on every rent and return, as it does whenever no bus is attached.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class CirculationBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int catalogSize;
+
+    @Param({"false", "true"})
+    boolean events;
+
+    Books books;
+
+    @Setup(Level.Trial)
+    public void buildCatalog() {
+        Book.ids = new IdAllocator();
+        books = CatalogBenchmark.fill(new Books(), catalogSize);
+        books.forEachBook(book -> books.updateQuantity(book.getBookID(), Integer.MAX_VALUE / 2));
+        if (events) {
+            books.events = new EventBus();
+            books.events.subscribe("benchmark", (event, sequence, endOfBatch) -> { });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeEvents() {
+        if (books.events != null) {
+            books.events.close();
+        }
+    }
+
+    @Benchmark
+    public boolean rentAndReturn() {
+        int bookID = 1 + ThreadLocalRandom.current().nextInt(catalogSize);
+        return books.rent(bookID) && books.giveBack(bookID);
+    }
+
+    @Benchmark
+    public boolean rentAndReturnHotTitle() {
+        int bookID = 1 + ThreadLocalRandom.current().nextInt(Math.min(catalogSize, 16));
+        return books.rent(bookID) && books.giveBack(bookID);
+    }
+}
@@ -0,0 +1,297 @@
+package com.cc.library;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Demand and stock figures kept up to date from the stream of rents, returns and quantity changes, so questions like "what is most borrowed this week" or "which titles are always out" never rescan the catalog or the ledger.
+ *
+ * Checkouts are counted in a count-min sketch per day, and the last WINDOW_DAYS days together give each title's borrows for the week. A sketch never undercounts and overcounts by a small fraction of all checkouts, in a fixed amount of memory however many titles there are. Next to it a small table holds the titles with the highest counts. A checkout only takes the table's lock when its title's count reaches the table's lowest count, so ordinary titles cost a few atomic increments and no lock.
+ *
+ * A title is low on stock while its copies on the shelf are at or below the low-stock limit. Each title that crosses the limit is filed with the time it did, and taken out again once copies come back, so listing the alerts costs only the number of alerts.
+ *
+ * None of this takes the lock of Books. LibraryService feeds the figures from a subscriber of its event bus, so they trail a rent or a return by as long as the subscriber takes to read it. Counts are not saved, they start again from zero whenever the library is loaded, and checkouts that land while a day's sketch is being emptied at midnight may be missed.
+ */
+public class CirculationStats {
+
+	/**
+	 * How many days the borrow counts cover.
+	 */
+	static final int WINDOW_DAYS = 7;
+
+	static final int DEPTH = 4;
+	static final int WIDTH = 1 << 14;
+	static final int DEFAULT_TOP = 10;
+
+	/**
+	 * By default a title is low on stock once only one copy is left to lend. The last copy on the shelf is never lent, so a lower limit would only report titles that are already out.
+	 */
+	static final int DEFAULT_LOW_STOCK = 2;
+
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+
+	private final Clock clock;
+	private final int topSize;
+	private final int lowStockLimit;
+	private final AtomicIntegerArray[] days = new AtomicIntegerArray[WINDOW_DAYS];
+	private final AtomicLong newestDay;
+	private final Map<Integer, Integer> top = new HashMap<Integer, Integer>();
+	private volatile int topFloor;
+	private final Map<Integer, Long> lowStock = new ConcurrentHashMap<Integer, Long>();
+
+	/**
+	 * A title and how often it was checked out in the window.
+	 */
+	public static final class Demand {
+		final int bookID;
+		final int borrows;
+
+		Demand(int bookID, int borrows) {
+			this.bookID = bookID;
+			this.borrows = borrows;
+		}
+
+		public int getBookID() {
+			return bookID;
+		}
+
+		public int getBorrows() {
+			return borrows;
+		}
+	}
+
+	/**
+	 * A title that is low on stock and since when, in epoch milliseconds.
+	 */
+	public static final class StockAlert {
+		final int bookID;
+		final long since;
+
+		StockAlert(int bookID, long since) {
+			this.bookID = bookID;
+			this.since = since;
+		}
+
+		public int getBookID() {
+			return bookID;
+		}
+
+		public long getSince() {
+			return since;
+		}
+	}
+
+	public CirculationStats() {
+		this(Clock.systemUTC(), DEFAULT_TOP, DEFAULT_LOW_STOCK);
+	}
+
+	/**
+	 * @param clock where the day of each checkout comes from
+	 * @param topSize how many most borrowed titles to keep
+	 * @param lowStockLimit a title is low on stock while it has this many copies on the shelf or fewer
+	 */
+	CirculationStats(Clock clock, int topSize, int lowStockLimit) {
+		this.clock = clock;
+		this.topSize = topSize;
+		this.lowStockLimit = lowStockLimit;
+		for(int i=0;i<WINDOW_DAYS;i++) {
+			days[i] = new AtomicIntegerArray(DEPTH * WIDTH);
+		}
+		this.newestDay = new AtomicLong(clock.millis() / DAY);
+	}
+
+	/**
+	 * Counts copies of a title going out.
+	 *
+	 * @param bookID the borrowed title
+	 * @param copies how many copies went out
+	 */
+	public void recordRent(int bookID, int copies) {
+		long day = roll();
+		AtomicIntegerArray today = days[(int) (day % WINDOW_DAYS)];
+		int first = hash(bookID);
+		int step = hash(~bookID) | 1;
+		for(int row=0;row<DEPTH;row++) {
+			today.addAndGet(row * WIDTH + ((first + row * step) & (WIDTH - 1)), copies);
+		}
+		int borrows = estimate(bookID);
+		if(borrows>=topFloor) {
+			synchronized(top) {
+				top.put(bookID, borrows);
+				trimTop();
+			}
+		}
+	}
+
+	/**
+	 * Brings a title's low-stock alert in line with its copies on the shelf.
+	 *
+	 * As with the availability bit, the quantity is read again after the alert is filed or cleared, and the step is repeated if a concurrent rent or return moved it across the limit in between.
+	 */
+	public void stockChanged(Book book) {
+		boolean low;
+		do {
+			low = book.getQuantity()<=lowStockLimit;
+			stockLevel(book.getBookID(), low);
+		}while((book.getQuantity()<=lowStockLimit)!=low);
+	}
+
+	/**
+	 * Files or clears a title's alert from a quantity read elsewhere, for example from a catalog column.
+	 */
+	void stockLevel(int bookID, int quantity) {
+		stockLevel(bookID, quantity<=lowStockLimit);
+	}
+
+	private void stockLevel(int bookID, boolean low) {
+		if(low) {
+			lowStock.putIfAbsent(bookID, clock.millis());
+		}else {
+			lowStock.remove(bookID);
+		}
+	}
+
+	/**
+	 * @param bookID a title
+	 * @return how often it was checked out in the last WINDOW_DAYS days, possibly a little more, never less
+	 */
+	public int borrows(int bookID) {
+		roll();
+		return estimate(bookID);
+	}
+
+	/**
+	 * @return the most borrowed titles of the window, most borrowed first
+	 */
+	public List<Demand> mostBorrowed() {
+		roll();
+		List<Integer> bookIDs;
+		synchronized(top) {
+			bookIDs = new ArrayList<Integer>(top.keySet());
+		}
+		List<Demand> demand = new ArrayList<Demand>(bookIDs.size());
+		for(int bookID:bookIDs) {
+			int borrows = estimate(bookID);
+			if(borrows>0) {
+				demand.add(new Demand(bookID, borrows));
+			}
+		}
+		demand.sort((a, b) -> a.borrows!=b.borrows ? Integer.compare(b.borrows, a.borrows) : Integer.compare(a.bookID, b.bookID));
+		return demand;
+	}
+
+	/**
+	 * @return the titles that are low on stock, the ones that have been low the longest first
+	 */
+	public List<StockAlert> lowStock() {
+		List<StockAlert> alerts = new ArrayList<StockAlert>(lowStock.size());
+		for(Map.Entry<Integer, Long> entry:lowStock.entrySet()) {
+			alerts.add(new StockAlert(entry.getKey(), entry.getValue()));
+		}
+		alerts.sort((a, b) -> a.since!=b.since ? Long.compare(a.since, b.since) : Integer.compare(a.bookID, b.bookID));
+		return alerts;
+	}
+
+	/**
+	 * @return the number of titles that are low on stock
+	 */
+	public int lowStockCount() {
+		return lowStock.size();
+	}
+
+	/**
+	 * Forgets every borrow count, keeping the stock alerts. Used after replaying a journal, whose checkouts happened before the library was loaded.
+	 */
+	public void clearDemand() {
+		for(AtomicIntegerArray day:days) {
+			clear(day);
+		}
+		synchronized(top) {
+			top.clear();
+			topFloor = 0;
+		}
+	}
+
+	/**
+	 * Moves the window on to the clock's day, emptying the sketches of the days that dropped out of it. The thread that wins the move does the clearing and then recounts the top table, whose counts can only have gone down.
+	 *
+	 * @return the current day
+	 */
+	private long roll() {
+		long day = clock.millis() / DAY;
+		long newest = newestDay.get();
+		if(day<=newest || !newestDay.compareAndSet(newest, day)) {
+			return Math.max(day, newestDay.get());
+		}
+		for(long d=Math.max(newest + 1, day - WINDOW_DAYS + 1);d<=day;d++) {
+			clear(days[(int) (d % WINDOW_DAYS)]);
+		}
+		synchronized(top) {
+			top.replaceAll((bookID, borrows) -> estimate(bookID));
+			top.values().removeIf(borrows -> borrows==0);
+			topFloor = 0;
+			trimTop();
+		}
+		return day;
+	}
+
+	/**
+	 * Drops the least borrowed title while the table is too big, and raises the floor a checkout must reach once it is full.
+	 */
+	private void trimTop() {
+		while(top.size()>topSize) {
+			top.remove(lowest());
+		}
+		topFloor = top.size()<topSize ? 0 : top.get(lowest());
+	}
+
+	private int lowest() {
+		int lowestID = 0;
+		int lowestBorrows = Integer.MAX_VALUE;
+		for(Map.Entry<Integer, Integer> entry:top.entrySet()) {
+			if(entry.getValue()<lowestBorrows || (entry.getValue()==lowestBorrows && entry.getKey()>lowestID)) {
+				lowestID = entry.getKey();
+				lowestBorrows = entry.getValue();
+			}
+		}
+		return lowestID;
+	}
+
+	/**
+	 * The smallest of the title's counters over the rows, each summed over the days of the window.
+	 */
+	private int estimate(int bookID) {
+		int first = hash(bookID);
+		int step = hash(~bookID) | 1;
+		int estimate = Integer.MAX_VALUE;
+		for(int row=0;row<DEPTH;row++) {
+			int slot = row * WIDTH + ((first + row * step) & (WIDTH - 1));
+			int sum = 0;
+			for(AtomicIntegerArray day:days) {
+				sum += day.get(slot);
+			}
+			estimate = Math.min(estimate, sum);
+		}
+		return estimate;
+	}
+
+	private static void clear(AtomicIntegerArray day) {
+		for(int i=0;i<day.length();i++) {
+			day.set(i, 0);
+		}
+	}
+
+	private static int hash(int value) {
+		int h = value * 0x9E3779B9;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		return h ^ (h >>> 13);
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Unit tests for CirculationStats and the analytics Books feeds into it.
+ * Testing framework: JUnit 5
+ */
+public class CirculationStatsTest {
+
+    private MutableClock clock;
+    private CirculationStats stats;
+
+    @BeforeEach
+    void setUp() {
+        Book.ids = new IdAllocator();
+        clock = new MutableClock(Instant.parse("2026-03-02T10:00:00Z"));
+        stats = new CirculationStats(clock, 3, 1);
+    }
+
+    @Test
+    void mostBorrowedKeepsTheTopTitlesInOrder() {
+        for (int bookID = 1; bookID <= 6; bookID++) {
+            stats.recordRent(bookID, bookID);
+        }
+        stats.recordRent(2, 10);
+
+        List<CirculationStats.Demand> top = stats.mostBorrowed();
+        assertEquals(3, top.size());
+        assertEquals(2, top.get(0).getBookID());
+        assertEquals(12, top.get(0).getBorrows());
+        assertEquals(6, top.get(1).getBookID());
+        assertEquals(5, top.get(2).getBookID());
+        assertTrue(stats.borrows(1) >= 1);
+    }
+
+    @Test
+    void borrowsDropOutAfterTheWindow() {
+        stats.recordRent(7, 4);
+        clock.now = clock.now.plus(Duration.ofDays(3));
+        stats.recordRent(7, 1);
+        stats.recordRent(8, 2);
+        assertEquals(5, stats.borrows(7));
+
+        clock.now = clock.now.plus(Duration.ofDays(CirculationStats.WINDOW_DAYS - 2));
+        assertEquals(1, stats.borrows(7));
+        assertEquals(8, stats.mostBorrowed().get(0).getBookID());
+
+        clock.now = clock.now.plus(Duration.ofDays(CirculationStats.WINDOW_DAYS));
+        assertEquals(0, stats.borrows(7));
+        assertTrue(stats.mostBorrowed().isEmpty());
+    }
+
+    @Test
+    void clearDemandForgetsCountsButKeepsAlerts() {
+        stats.recordRent(3, 2);
+        stats.stockLevel(3, 1);
+        stats.clearDemand();
+        assertEquals(0, stats.borrows(3));
+        assertTrue(stats.mostBorrowed().isEmpty());
+        assertEquals(1, stats.lowStockCount());
+    }
+
+    @Test
+    void lowStockAlertsFollowTheShelf() {
+        Books books = new Books();
+        books.circulation = stats;
+        Book dune = new Book("Dune", "Frank Herbert", 3);
+        Book emma = new Book("Emma", "Jane Austen", 2);
+        books.addBook(dune);
+        books.addBook(emma);
+        assertEquals(0, stats.lowStockCount());
+
+        assertTrue(books.rent(emma.getBookID()));
+        clock.now = clock.now.plus(Duration.ofHours(1));
+        assertTrue(books.rent(dune.getBookID()));
+        assertTrue(books.rent(dune.getBookID()));
+
+        List<CirculationStats.StockAlert> alerts = stats.lowStock();
+        assertEquals(2, alerts.size());
+        assertEquals(emma.getBookID(), alerts.get(0).getBookID());
+        assertEquals(dune.getBookID(), alerts.get(1).getBookID());
+        assertEquals(Instant.parse("2026-03-02T10:00:00Z").toEpochMilli(), alerts.get(0).getSince());
+        assertEquals(2, stats.borrows(dune.getBookID()));
+        assertEquals(dune.getBookID(), stats.mostBorrowed().get(0).getBookID());
+
+        assertTrue(books.giveBack(emma.getBookID()));
+        assertEquals(1, stats.lowStockCount());
+        assertEquals(dune.getBookID(), stats.lowStock().get(0).getBookID());
+    }
+
+    @Test
+    void defaultLimitWarnsWhileACopyCanStillBeLent() {
+        Books books = new Books();
+        books.circulation = new CirculationStats(clock, 3, CirculationStats.DEFAULT_LOW_STOCK);
+        Book dune = new Book("Dune", "Frank Herbert", 3);
+        books.addBook(dune);
+        assertEquals(0, books.circulation.lowStockCount());
+
+        assertTrue(books.rent(dune.getBookID()));
+        assertEquals(1, books.circulation.lowStockCount());
+        assertTrue(books.rent(dune.getBookID()));
+        assertFalse(books.rent(dune.getBookID()));
+        assertEquals(1, books.circulation.lowStockCount());
+    }
+
+    @Test
+    void utilizationIsTheShareOfCopiesOut() {
+        Books books = new Books();
+        books.circulation = stats;
+        Book dune = new Book("Dune", "Frank Herbert", 4);
+        books.addBook(dune);
+        assertEquals(0.0, books.utilization(dune.getBookID()), 1e-9);
+
+        assertTrue(books.rent(dune.getBookID()));
+        assertEquals(0.25, books.utilization(dune.getBookID()), 1e-9);
+        assertTrue(books.rent(dune.getBookID()));
+        assertEquals(0.5, books.utilization(dune.getBookID()), 1e-9);
+        assertEquals(0.0, books.utilization(9999), 1e-9);
+    }
+
+    private static class MutableClock extends Clock {
+        Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.cc.library;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only catalog kept off the heap in memory-mapped column files.
+ *
+ * Each field of Book is stored as its own column: IDs and quantities as int columns, titles as UTF-8 bytes indexed by an offset column, and authors dictionary-encoded because the same author appears on many titles. Opening a catalog only maps the files, so it takes the same time for a thousand titles as for fifty million, and the operating system pages data in as it is read.
+ *
+ * Rows are sorted by bookID, so an ID is found with a binary search over the ID column. Books hands out MappedBook flyweights over the rows and copies a title onto the heap the first time its quantity changes, which keeps the column files themselves unchanged.
+ */
+public class ColumnarCatalog {
+
+	private static final int MAGIC = 0x4C494243;
+	private static final int VERSION = 1;
+
+	private final int rows;
+	private final IntBuffer ids;
+	private final IntBuffer quantities;
+	private final IntBuffer titleOffsets;
+	private final ByteBuffer titles;
+	private final IntBuffer authorCodes;
+	private final IntBuffer authorOffsets;
+	private final ByteBuffer authors;
+
+	private ColumnarCatalog(Path directory) throws IOException {
+		ByteBuffer meta = map(directory.resolve("catalog.meta"));
+		if(meta.getInt()!=MAGIC || meta.getInt()!=VERSION) {
+			throw new IOException("Not a columnar catalog: " + directory);
+		}
+		this.rows = meta.getInt();
+		this.ids = map(directory.resolve("ids.col")).asIntBuffer();
+		this.quantities = map(directory.resolve("quantity.col")).asIntBuffer();
+		this.titleOffsets = map(directory.resolve("title.off")).asIntBuffer();
+		this.titles = map(directory.resolve("title.dat"));
+		this.authorCodes = map(directory.resolve("author.code")).asIntBuffer();
+		this.authorOffsets = map(directory.resolve("author.off")).asIntBuffer();
+		this.authors = map(directory.resolve("author.dat"));
+	}
+
+	/**
+	 * Maps an existing catalog directory.
+	 *
+	 * @param directory a directory written by {@link #write(Path, Iterable)}
+	 * @return the opened catalog
+	 * @throws IOException if the files are missing or not a catalog
+	 */
+	public static ColumnarCatalog open(Path directory) throws IOException {
+		return new ColumnarCatalog(directory);
+	}
+
+	/**
+	 * Writes books into a new catalog directory, sorted by ID.
+	 *
+	 * Each text column is limited to 2 GB of UTF-8, the size of a single mapping.
+	 *
+	 * @param directory where to write the column files
+	 * @param books the books to store
+	 * @throws IOException if the files cannot be written
+	 */
+	public static void write(Path directory, Iterable<? extends Book> books) throws IOException {
+		List<Book> sorted = new ArrayList<Book>();
+		for(Book book:books) {
+			sorted.add(book);
+		}
+		sorted.sort(Comparator.comparingInt(Book::getBookID));
+		Files.createDirectories(directory);
+
+		Map<String, Integer> authorDictionary = new HashMap<String, Integer>();
+		try(DataOutputStream idOut = output(directory.resolve("ids.col"));
+				DataOutputStream quantityOut = output(directory.resolve("quantity.col"));
+				DataOutputStream titleOffsetOut = output(directory.resolve("title.off"));
+				DataOutputStream titleOut = output(directory.resolve("title.dat"));
+				DataOutputStream authorCodeOut = output(directory.resolve("author.code"));
+				DataOutputStream authorOffsetOut = output(directory.resolve("author.off"));
+				DataOutputStream authorOut = output(directory.resolve("author.dat"))) {
+			titleOffsetOut.writeInt(0);
+			authorOffsetOut.writeInt(0);
+			for(Book book:sorted) {
+				idOut.writeInt(book.getBookID());
+				quantityOut.writeInt(book.getQuantity());
+				titleOut.write(utf8(book.getBookName()));
+				titleOffsetOut.writeInt(titleOut.size());
+				String author = book.getBookAuthor()==null ? "" : book.getBookAuthor();
+				Integer code = authorDictionary.get(author);
+				if(code==null) {
+					code = authorDictionary.size();
+					authorDictionary.put(author, code);
+					authorOut.write(utf8(author));
+					authorOffsetOut.writeInt(authorOut.size());
+				}
+				authorCodeOut.writeInt(code);
+			}
+		}
+		try(DataOutputStream metaOut = output(directory.resolve("catalog.meta"))) {
+			metaOut.writeInt(MAGIC);
+			metaOut.writeInt(VERSION);
+			metaOut.writeInt(sorted.size());
+		}
+	}
+
+	/**
+	 * @return the number of books in the catalog
+	 */
+	public int size() {
+		return rows;
+	}
+
+	/**
+	 * Finds the row of a book with a binary search over the sorted ID column.
+	 *
+	 * @param bookID the ID to look for
+	 * @return the row number, or -1 if the catalog has no such book
+	 */
+	public int rowOf(int bookID) {
+		int low = 0;
+		int high = rows - 1;
+		while(low<=high) {
+			int mid = (low + high) >>> 1;
+			int id = ids.get(mid);
+			if(id<bookID) {
+				low = mid + 1;
+			}else if(id>bookID) {
+				high = mid - 1;
+			}else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the highest book ID in the catalog, or 0 if it is empty
+	 */
+	public int maxBookID() {
+		return rows==0 ? 0 : ids.get(rows - 1);
+	}
+
+	public int idAt(int row) {
+		return ids.get(row);
+	}
+
+	public int quantityAt(int row) {
+		return quantities.get(row);
+	}
+
+	public String titleAt(int row) {
+		return decode(titles, titleOffsets.get(row), titleOffsets.get(row + 1));
+	}
+
+	public String authorAt(int row) {
+		int code = authorCodes.get(row);
+		return decode(authors, authorOffsets.get(code), authorOffsets.get(code + 1));
+	}
+
+	/**
+	 * @return a read-only buffer over the row's title bytes, for writers that copy UTF-8 without decoding it
+	 */
+	ByteBuffer titleBytesAt(int row) {
+		return slice(titles, titleOffsets.get(row), titleOffsets.get(row + 1));
+	}
+
+	/**
+	 * @return a read-only buffer over the row's author bytes
+	 */
+	ByteBuffer authorBytesAt(int row) {
+		int code = authorCodes.get(row);
+		return slice(authors, authorOffsets.get(code), authorOffsets.get(code + 1));
+	}
+
+	/**
+	 * Creates a flyweight Book over one row. The view holds only the row number and reads every field from the mapped columns.
+	 *
+	 * @param row the row number
+	 * @return a read-only view of the row
+	 */
+	public Book view(int row) {
+		return new MappedBook(this, row);
+	}
+
+	private static ByteBuffer slice(ByteBuffer column, int start, int end) {
+		ByteBuffer bytes = column.asReadOnlyBuffer();
+		bytes.limit(end).position(start);
+		return bytes;
+	}
+
+	private static String decode(ByteBuffer column, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		column.get(start, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static MappedByteBuffer map(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	private static DataOutputStream output(Path file) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+	}
+
+	private static byte[] utf8(String text) {
+		return text==null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,164 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for the memory-mapped ColumnarCatalog and its use from Books.
+ * Testing framework: JUnit 5
+ */
+public class ColumnarCatalogTest {
+
+    private Path directory;
+    private ColumnarCatalog catalog;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Book.ids = new IdAllocator();
+        directory = Files.createTempDirectory("library-catalog");
+        List<Book> source = Arrays.asList(
+                new Book("Java Programming", "James Gosling", 5),
+                new Book("\u00dcn\u00efc\u00f6d\u00e9 Tales", "Ana \u00d1\u00fa\u00f1ez", 2),
+                new Book("The Java Language", "James Gosling", 1));
+        ColumnarCatalog.write(directory, source);
+        catalog = ColumnarCatalog.open(directory);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        catalog = null;
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void testOpen_ReadsEveryColumn() {
+        assertEquals(3, catalog.size());
+        assertEquals(3, catalog.maxBookID());
+        int row = catalog.rowOf(2);
+        assertEquals("\u00dcn\u00efc\u00f6d\u00e9 Tales", catalog.titleAt(row));
+        assertEquals("Ana \u00d1\u00fa\u00f1ez", catalog.authorAt(row));
+        assertEquals(2, catalog.quantityAt(row));
+        assertEquals("James Gosling", catalog.authorAt(catalog.rowOf(3)));
+        assertEquals(-1, catalog.rowOf(99));
+    }
+
+    @Test
+    void testView_IsReadOnly() {
+        Book view = catalog.view(0);
+
+        assertEquals("Java Programming", view.getBookName());
+        assertThrows(UnsupportedOperationException.class, () -> view.setQuantity(9));
+    }
+
+    @Test
+    void testBooks_AttachedCatalog_ServesLookupsAndListing() {
+        Books books = new Books();
+        books.attach(catalog);
+        Book heapBook = new Book("Heap Only", "Someone", 4);
+        books.addBook(heapBook);
+
+        assertTrue(heapBook.getBookID() > 3); // IDs continue after the catalog
+        assertEquals(4, books.size());
+        assertEquals("The Java Language", books.findBook(3).getBookName());
+        List<Integer> ids = new ArrayList<Integer>();
+        books.forEachBook(book -> ids.add(book.getBookID()));
+        assertEquals(Arrays.asList(1, 2, 3, heapBook.getBookID()), ids);
+        assertEquals(2, books.search("java", SearchIndex.Field.TITLE, true).size());
+        assertTrue(books.isAvailable(2));
+        assertFalse(books.isAvailable(3)); // Only one copy in the column
+        assertEquals(3, books.availableCount());
+    }
+
+    @Test
+    void testService_JournalAfterCatalog_NewBooksStayAboveCatalogIDs() throws IOException {
+        Path data = Files.createTempDirectory("library-data");
+        try {
+            LibraryService service = new LibraryService();
+            service.attachCatalog(directory);
+            service.openJournal(data);
+            int bookID = service.addBook("New Book", "Someone", 2).getValue().getBookID();
+            service.close();
+
+            assertTrue(bookID > 3);
+            assertEquals("Java Programming", service.findBook(1).getBookName());
+            assertEquals(4, service.bookCount());
+        } finally {
+            try (Stream<Path> files = Files.walk(data)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    void testBooks_RentCatalogBook_CopiesItToHeap() {
+        Books books = new Books();
+        books.attach(catalog);
+
+        assertTrue(books.rent(1));
+        assertFalse(books.rent(3)); // Last copy stays in the library
+
+        assertEquals(4, books.findBook(1).getQuantity());
+        assertFalse(books.findBook(1) instanceof MappedBook);
+        assertEquals(5, catalog.quantityAt(catalog.rowOf(1))); // Column file unchanged
+        assertEquals(3, books.size());
+        assertTrue(books.giveBack(1));
+        assertEquals(5, books.findBook(1).getQuantity());
+    }
+
+    @Test
+    void testBooks_RentAllCatalogRowWithTooFewCopies_FailsAtItsIndex() {
+        Books books = new Books();
+        books.attach(catalog);
+
+        assertEquals(1, books.rentAll(new int[] {1, 3}));
+        assertEquals(5, books.findBook(1).getQuantity());
+        assertEquals(1, books.findBook(3).getQuantity());
+        assertTrue(books.findBook(3) instanceof MappedBook);
+        assertEquals(0, books.borrowedBooks.totalCopies());
+    }
+
+    @Test
+    void testBooks_CopyToHeap_IsNotPublishedAsANewBook() {
+        Books books = new Books();
+        books.attach(catalog);
+        List<LibraryEvent.Type> seen = Collections.synchronizedList(new ArrayList<LibraryEvent.Type>());
+        try (EventBus bus = new EventBus(8)) {
+            bus.subscribe("types", (event, sequence, endOfBatch) -> seen.add(event.getType()));
+            books.events = bus;
+
+            assertTrue(books.rent(1));
+            assertTrue(bus.awaitDrained(5, TimeUnit.SECONDS));
+        }
+        assertEquals(Arrays.asList(LibraryEvent.Type.COPIES_RENTED), seen);
+    }
+
+    @Test
+    void testBooks_RejectedReturns_LeaveCatalogRowsInPlace() {
+        Books books = new Books();
+        books.attach(catalog);
+
+        assertFalse(books.giveBack(1));
+        assertEquals(0, books.giveBackAll(new int[] {2, 1}));
+        assertTrue(books.rent(2));
+        assertEquals(1, books.giveBackAll(new int[] {2, 1}));
+
+        assertTrue(books.findBook(1) instanceof MappedBook);
+        assertTrue(books.findBook(3) instanceof MappedBook);
+        assertEquals(1, books.borrowedBooks.totalCopies());
+    }
+}
@@ -0,0 +1,207 @@
+package com.cc.library;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Hierarchical timer wheel over loan due dates, so overdue loans are found without walking every loan.
+ *
+ * Time is cut into ticks of a fixed length. Four wheels of 64 slots cover 64, 4096, 262144 and 16777216 ticks ahead. A loan goes into the finest wheel whose range still contains its due tick, and loans due even later wait in an overflow list. Each slot is an intrusive doubly linked list, so scheduling and cancelling a loan are O(1). When the clock passes the start of a coarse slot, its loans are moved down into the finer wheels (cascaded). Advancing the clock therefore touches each elapsed tick once, each due loan once and each loan at most once per wheel, but never the loans that are not due yet. With one-minute ticks, a nightly run over millions of active loans costs about 1440 slot visits plus the loans that fell due that day.
+ *
+ * A slot keeps its loans in the order they were placed in it, not in due order. When a tick is drained, the loans that fell due in it are sorted by due time before they move to the overdue list, so the list stays in due order while sorting only the loans of one tick at a time. The exception is a loan that was already past due when it was scheduled, which joins the list at the next advance. They stay on the overdue list until they are returned. All methods are synchronized.
+ */
+class DueDateWheel {
+
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int MASK = SLOTS - 1;
+	private static final int LEVELS = 4;
+	private static final Comparator<Loan> DUE_ORDER = Comparator.comparingLong(Loan::getDueAt);
+
+	private final long tickMillis;
+	private final Loan[][] wheels = new Loan[LEVELS][SLOTS];
+	private final Loan overflow = sentinel();
+	private final Loan overdue = sentinel();
+	private long currentTick;
+	private long cascadedTick;
+	private int scheduled;
+	private int overdueCount;
+
+	/**
+	 * @param tickMillis the length of one tick in milliseconds, which is how late after its due time a loan may be reported
+	 * @param nowMillis the current time in epoch milliseconds
+	 */
+	DueDateWheel(long tickMillis, long nowMillis) {
+		this.tickMillis = tickMillis;
+		this.currentTick = Math.floorDiv(nowMillis, tickMillis);
+		this.cascadedTick = currentTick;
+		for(Loan[] wheel:wheels) {
+			for(int slot=0;slot<SLOTS;slot++) {
+				wheel[slot] = sentinel();
+			}
+		}
+	}
+
+	/**
+	 * Starts watching a loan. A loan that is already past due is reported by the next advance.
+	 *
+	 * @param loan a loan that is not scheduled yet
+	 */
+	synchronized void schedule(Loan loan) {
+		place(loan);
+		scheduled++;
+	}
+
+	/**
+	 * Stops watching a loan, whether it is still pending or already overdue.
+	 *
+	 * @param loan the returned loan, may be null
+	 * @return true if the loan was being watched
+	 */
+	synchronized boolean cancel(Loan loan) {
+		if(loan==null || loan.list==null) {
+			return false;
+		}
+		if(loan.list==overdue) {
+			overdueCount--;
+		}else {
+			scheduled--;
+		}
+		unlink(loan);
+		return true;
+	}
+
+	/**
+	 * Moves the clock forward and moves every loan whose due time has passed to the overdue list.
+	 *
+	 * @param nowMillis the current time in epoch milliseconds
+	 * @return the loans that became overdue in this call, in due order
+	 */
+	synchronized List<Loan> advance(long nowMillis) {
+		List<Loan> expired = new ArrayList<Loan>();
+		long target = Math.floorDiv(nowMillis, tickMillis);
+		while(true) {
+			if(scheduled==0) {
+				if(target>currentTick) {
+					currentTick = target;
+					cascadedTick = target;
+				}
+				return expired;
+			}
+			if(cascadedTick<currentTick) {
+				cascade(currentTick);
+				cascadedTick = currentTick;
+			}
+			boolean last = currentTick>=target;
+			int drained = expired.size();
+			Loan head = wheels[0][(int) (currentTick & MASK)];
+			Loan loan = head.next;
+			while(loan!=head) {
+				Loan following = loan.next;
+				if(!last || loan.isOverdueAt(nowMillis)) {
+					unlink(loan);
+					expired.add(loan);
+				}
+				loan = following;
+			}
+			List<Loan> due = expired.subList(drained, expired.size());
+			due.sort(DUE_ORDER);
+			for(Loan fellDue:due) {
+				link(overdue, fellDue);
+			}
+			scheduled -= due.size();
+			overdueCount += due.size();
+			if(last) {
+				return expired;
+			}
+			currentTick++;
+		}
+	}
+
+	/**
+	 * @return every loan that fell due and has not been returned, oldest first
+	 */
+	synchronized List<Loan> overdue() {
+		List<Loan> loans = new ArrayList<Loan>(overdueCount);
+		for(Loan loan=overdue.next;loan!=overdue;loan=loan.next) {
+			loans.add(loan);
+		}
+		return loans;
+	}
+
+	synchronized int overdueCount() {
+		return overdueCount;
+	}
+
+	/**
+	 * @return the number of loans that are not due yet as of the last advance
+	 */
+	synchronized int scheduledCount() {
+		return scheduled;
+	}
+
+	/**
+	 * Moves the loans of every coarse slot that starts at this tick into the finer wheels.
+	 */
+	private void cascade(long tick) {
+		if((tick & ((1L << (SLOT_BITS * LEVELS)) - 1))==0) {
+			redistribute(overflow);
+		}
+		for(int level=LEVELS - 1;level>=1;level--) {
+			if((tick & ((1L << (SLOT_BITS * level)) - 1))==0) {
+				redistribute(wheels[level][(int) ((tick >> (SLOT_BITS * level)) & MASK)]);
+			}
+		}
+	}
+
+	private void redistribute(Loan head) {
+		Loan loan = head.next;
+		head.next = head;
+		head.prev = head;
+		while(loan!=head) {
+			Loan following = loan.next;
+			place(loan);
+			loan = following;
+		}
+	}
+
+	/**
+	 * Links a loan into the finest wheel whose current window contains its due tick.
+	 */
+	private void place(Loan loan) {
+		long tick = Math.max(Math.floorDiv(loan.getDueAt(), tickMillis), currentTick);
+		for(int level=0;level<LEVELS;level++) {
+			int window = SLOT_BITS * (level + 1);
+			if((tick >> window)==(currentTick >> window)) {
+				link(wheels[level][(int) ((tick >> (SLOT_BITS * level)) & MASK)], loan);
+				return;
+			}
+		}
+		link(overflow, loan);
+	}
+
+	private static void link(Loan head, Loan loan) {
+		loan.prev = head.prev;
+		loan.next = head;
+		head.prev.next = loan;
+		head.prev = loan;
+		loan.list = head;
+	}
+
+	private static void unlink(Loan loan) {
+		loan.prev.next = loan.next;
+		loan.next.prev = loan.prev;
+		loan.prev = null;
+		loan.next = null;
+		loan.list = null;
+	}
+
+	private static Loan sentinel() {
+		Loan head = new Loan(0, 0, 0, 0);
+		head.prev = head;
+		head.next = head;
+		return head;
+	}
+
+}
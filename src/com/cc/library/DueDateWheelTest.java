@@ -0,0 +1,117 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Unit tests for the DueDateWheel timer wheel.
+ * Testing framework: JUnit 5
+ */
+public class DueDateWheelTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    @Test
+    void testAdvance_ReportsLoansOnceTheyFallDue() {
+        long start = 1_700_000_000_000L;
+        DueDateWheel wheel = new DueDateWheel(MINUTE, start);
+        Loan soon = new Loan(1, 10, start, start + 90_000);
+        Loan later = new Loan(1, 11, start, start + 14 * DAY);
+        wheel.schedule(later);
+        wheel.schedule(soon);
+
+        assertTrue(wheel.advance(start + 89_999).isEmpty());
+        assertEquals(List.of(soon), wheel.advance(start + 90_000));
+        assertTrue(wheel.advance(start + 14 * DAY - 1).isEmpty());
+        assertEquals(List.of(later), wheel.advance(start + 20 * DAY));
+        assertEquals(List.of(soon, later), wheel.overdue());
+        assertEquals(0, wheel.scheduledCount());
+    }
+
+    @Test
+    void testAdvance_SortsTheLoansOfATickByDueTime() {
+        DueDateWheel wheel = new DueDateWheel(MINUTE, 0);
+        Loan third = new Loan(1, 12, 0, DAY + 50_000);
+        Loan first = new Loan(1, 10, 0, DAY + 10_000);
+        Loan second = new Loan(1, 11, 0, DAY + 30_000);
+        wheel.schedule(third);
+        wheel.schedule(first);
+        wheel.schedule(second);
+
+        assertEquals(List.of(first, second, third), wheel.advance(2 * DAY));
+        assertEquals(List.of(first, second, third), wheel.overdue());
+    }
+
+    @Test
+    void testCancel_PendingAndOverdueLoans() {
+        DueDateWheel wheel = new DueDateWheel(MINUTE, 0);
+        Loan pending = new Loan(1, 10, 0, 5 * DAY);
+        Loan overdue = new Loan(1, 11, 0, DAY);
+        wheel.schedule(pending);
+        wheel.schedule(overdue);
+        wheel.advance(2 * DAY);
+
+        assertTrue(wheel.cancel(pending));
+        assertTrue(wheel.cancel(overdue));
+        assertFalse(wheel.cancel(overdue));
+        assertFalse(wheel.cancel(null));
+        assertTrue(wheel.advance(10 * DAY).isEmpty());
+        assertEquals(0, wheel.overdueCount());
+    }
+
+    @Test
+    void testSchedule_PastDueLoanReportedOnNextAdvance() {
+        DueDateWheel wheel = new DueDateWheel(MINUTE, 10 * DAY);
+        Loan late = new Loan(1, 10, 0, DAY);
+        wheel.schedule(late);
+
+        assertEquals(List.of(late), wheel.advance(10 * DAY));
+    }
+
+    @Test
+    void testAdvance_BeyondTheWheelsUsesOverflow() {
+        DueDateWheel wheel = new DueDateWheel(1, 0);
+        Loan far = new Loan(1, 10, 0, (1L << 24) + 5000);
+        wheel.schedule(far);
+
+        assertTrue(wheel.advance((1L << 24) + 4999).isEmpty());
+        assertEquals(List.of(far), wheel.advance((1L << 24) + 5000));
+    }
+
+    @Test
+    void testAdvance_MatchesScanningEveryLoan() {
+        Random random = new Random(42);
+        long now = 1_700_000_000_000L;
+        DueDateWheel wheel = new DueDateWheel(MINUTE, now);
+        List<Loan> pending = new ArrayList<Loan>();
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 50; i++) {
+                Loan loan = new Loan(i, round, now, now + (long) (random.nextDouble() * 400 * DAY));
+                wheel.schedule(loan);
+                pending.add(loan);
+            }
+            if (!pending.isEmpty() && random.nextInt(4) == 0) {
+                wheel.cancel(pending.remove(random.nextInt(pending.size())));
+            }
+            now += (long) (random.nextDouble() * 3 * DAY);
+
+            Set<Loan> expected = new HashSet<Loan>();
+            for (Loan loan : pending) {
+                if (loan.isOverdueAt(now)) {
+                    expected.add(loan);
+                }
+            }
+            pending.removeAll(expected);
+            assertEquals(expected, new HashSet<Loan>(wheel.advance(now)));
+            assertEquals(pending.size(), wheel.scheduledCount());
+        }
+    }
+
+}
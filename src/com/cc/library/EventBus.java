@@ -0,0 +1,292 @@
+package com.cc.library;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process bus that carries every change to the library to subscribers running on their own threads, so logging, indexing or analytics never add to the latency of a rent or a return.
+ *
+ * Events live in a ring of pre-allocated LibraryEvent slots, in the style of the LMAX Disruptor. A publisher claims the next sequence number with one atomic increment, fills in the slot and marks it published with an ordered store of the sequence's lap. Nothing is allocated and no lock is taken, and the publisher never wakes a subscriber up. Each subscriber has a thread and a sequence of its own. It reads every event that is published after its sequence in one batch and then moves its sequence past the batch, so a subscriber that falls behind catches up in large batches.
+ *
+ * A publisher only waits when the ring is full, that is when the slowest subscriber is a whole ring behind. That keeps the bus bounded and makes a stuck subscriber slow the library down instead of losing events. Handlers must therefore not change books or students themselves. An idle subscriber spins briefly, then yields, then sleeps PARK_NANOS between looks, so an event is seen within about that long while the library is quiet.
+ *
+ * Events from one thread arrive in the order they were published. Books and Students publish a change once it is committed to the journal and every lock they took for it is released, so a publisher waiting for room never holds up other rents or returns. As a result, two threads that change the same book at once may publish in a different order than the journal has their changes. Subscribers that care about a book's state, like the circulation figures, read it from the book rather than adding up the events.
+ */
+public class EventBus implements AutoCloseable {
+
+	static final int DEFAULT_CAPACITY = 1 << 14;
+
+	private static final int SPINS = 100;
+	private static final int YIELDS = 100;
+	static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	/**
+	 * Receives the events of a subscription, one at a time and in sequence order, on the subscription's thread.
+	 */
+	public interface Handler {
+		/**
+		 * @param event the event, valid only until the handler returns
+		 * @param sequence the event's position on the bus
+		 * @param endOfBatch true for the last event that was ready, a good moment to flush
+		 */
+		void onEvent(LibraryEvent event, long sequence, boolean endOfBatch);
+	}
+
+	private final Clock clock;
+	private final LibraryEvent[] ring;
+	private final int mask;
+	private final int shift;
+	private final AtomicIntegerArray published;
+	private final AtomicLong claimed = new AtomicLong(-1);
+	private volatile long gatingCache = -1;
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+
+	public EventBus() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity the number of slots in the ring, a power of two
+	 * @throws IllegalArgumentException if the capacity is not a power of two
+	 */
+	public EventBus(int capacity) {
+		this(Clock.systemUTC(), capacity);
+	}
+
+	/**
+	 * @param clock where the time of each event comes from
+	 * @param capacity the number of slots in the ring, a power of two
+	 */
+	EventBus(Clock clock, int capacity) {
+		if(capacity<2 || Integer.bitCount(capacity)!=1) {
+			throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+		}
+		this.clock = clock;
+		this.ring = new LibraryEvent[capacity];
+		for(int i=0;i<capacity;i++) {
+			ring[i] = new LibraryEvent();
+		}
+		this.mask = capacity - 1;
+		this.shift = Integer.numberOfTrailingZeros(capacity);
+		this.published = new AtomicIntegerArray(capacity);
+		for(int i=0;i<capacity;i++) {
+			published.set(i, -1);
+		}
+	}
+
+	/**
+	 * Publishes one change. Safe to call from many threads at once.
+	 *
+	 * @param type what changed
+	 * @param bookID the book, or 0
+	 * @param studentID the student, or 0
+	 * @param copies the copies or quantity the type describes, or 0
+	 * @return the sequence of the event
+	 */
+	public long publish(LibraryEvent.Type type, int bookID, int studentID, int copies) {
+		long sequence = claimed.incrementAndGet();
+		long wrapPoint = sequence - ring.length;
+		if(wrapPoint>gatingCache) {
+			waitForRoom(wrapPoint, sequence);
+		}
+		int slot = (int) sequence & mask;
+		ring[slot].set(type, bookID, studentID, copies, clock.millis());
+		published.lazySet(slot, (int) (sequence >>> shift));
+		return sequence;
+	}
+
+	/**
+	 * Starts a subscriber on its own daemon thread. It receives every event published from now on.
+	 *
+	 * @param name names the subscriber's thread
+	 * @param handler receives the events
+	 * @return the subscription, to watch its progress or close it
+	 */
+	public Subscription subscribe(String name, Handler handler) {
+		Subscription subscription = new Subscription(name, handler);
+		subscriptions.add(subscription);
+		// Only now that publishers see the subscription can it start at the cursor: a publisher
+		// that missed it claimed its sequence before this read, so it cannot lap the new start.
+		subscription.sequence.set(claimed.get());
+		subscription.thread.start();
+		return subscription;
+	}
+
+	/**
+	 * @return the sequence of the last event claimed by a publisher, -1 before the first
+	 */
+	public long cursor() {
+		return claimed.get();
+	}
+
+	/**
+	 * @return how many published events the slowest subscriber has still to read, 0 without subscribers
+	 */
+	public long backlog() {
+		long cursor = claimed.get();
+		return cursor - slowest(cursor);
+	}
+
+	/**
+	 * Waits until every subscriber has read the events published before the call.
+	 *
+	 * @param timeout how long to wait at most
+	 * @param unit the unit of the timeout
+	 * @return true if every subscriber caught up, false if the time ran out first
+	 */
+	public boolean awaitDrained(long timeout, TimeUnit unit) {
+		long target = claimed.get();
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for(Subscription subscription:subscriptions) {
+			while(subscription.sequence.get()<target && subscription.thread.isAlive()) {
+				if(System.nanoTime() - deadline>=0) {
+					return false;
+				}
+				LockSupport.parkNanos(PARK_NANOS);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Closes every subscription, each after it has read the events published before the call.
+	 */
+	@Override
+	public void close() {
+		for(Subscription subscription:subscriptions) {
+			subscription.close();
+		}
+	}
+
+	/**
+	 * Parks the publisher until the slowest subscriber has read the event that used to be in its slot, then remembers how far the subscribers got so later publishes can skip the check.
+	 */
+	private void waitForRoom(long wrapPoint, long sequence) {
+		long slowest;
+		while(wrapPoint>(slowest = slowest(sequence - 1))) {
+			LockSupport.parkNanos(1);
+		}
+		gatingCache = slowest;
+	}
+
+	/**
+	 * @return the lowest subscriber sequence, or the given sequence if it is lower or there are no subscribers
+	 */
+	private long slowest(long sequence) {
+		long slowest = sequence;
+		for(Subscription subscription:subscriptions) {
+			slowest = Math.min(slowest, subscription.sequence.get());
+		}
+		return slowest;
+	}
+
+	private boolean isPublished(long sequence) {
+		return published.get((int) sequence & mask)==(int) (sequence >>> shift);
+	}
+
+	/**
+	 * One subscriber: its handler, its thread and the sequence of the last event it read.
+	 */
+	public final class Subscription implements AutoCloseable {
+		private final Handler handler;
+		private final Thread thread;
+		private final AtomicLong sequence;
+		private final LongAdder failures = new LongAdder();
+		private volatile long stopAfter = Long.MAX_VALUE;
+
+		Subscription(String name, Handler handler) {
+			this.handler = handler;
+			this.sequence = new AtomicLong(-1);
+			this.thread = new Thread(this::run, "library-events-" + name);
+			thread.setDaemon(true);
+		}
+
+		/**
+		 * @return the sequence of the last event the handler has finished with
+		 */
+		public long getSequence() {
+			return sequence.get();
+		}
+
+		/**
+		 * @return how many events the handler failed on with an exception. Failed events are skipped.
+		 */
+		public long getFailures() {
+			return failures.sum();
+		}
+
+		/**
+		 * Lets the subscriber read the events published so far, then stops its thread and takes it off the bus.
+		 */
+		@Override
+		public void close() {
+			if(stopAfter==Long.MAX_VALUE) {
+				stopAfter = claimed.get();
+			}
+			LockSupport.unpark(thread);
+			if(thread!=Thread.currentThread()) {
+				try {
+					thread.join();
+				}catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		/**
+		 * Reads batches until the subscription is closed. The subscription leaves the bus only when its thread ends, so publishers never overwrite an event it may still be reading.
+		 */
+		private void run() {
+			try {
+				consume();
+			}finally {
+				subscriptions.remove(this);
+			}
+		}
+
+		private void consume() {
+			long next = sequence.get() + 1;
+			int idle = 0;
+			while(next<=stopAfter) {
+				long last = next - 1;
+				long limit = Math.min(claimed.get(), stopAfter);
+				while(last<limit && isPublished(last + 1)) {
+					last++;
+				}
+				if(last<next) {
+					idle = idle(idle);
+					continue;
+				}
+				for(long s=next;s<=last;s++) {
+					try {
+						handler.onEvent(ring[(int) s & mask], s, s==last);
+					}catch(RuntimeException e) {
+						failures.increment();
+					}
+				}
+				sequence.set(last);
+				next = last + 1;
+				idle = 0;
+			}
+		}
+
+		private int idle(int idle) {
+			if(idle<SPINS) {
+				Thread.onSpinWait();
+			}else if(idle<SPINS + YIELDS) {
+				Thread.yield();
+			}else {
+				LockSupport.parkNanos(PARK_NANOS);
+				return idle;
+			}
+			return idle + 1;
+		}
+	}
+
+}
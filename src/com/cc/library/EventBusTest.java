@@ -0,0 +1,264 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for the EventBus ring buffer and the events Books and Students publish on it.
+ * Testing framework: JUnit 5
+ */
+public class EventBusTest {
+
+    private EventBus bus;
+
+    @BeforeEach
+    void setUp() {
+        Book.ids = new IdAllocator();
+        Student.ids = new IdAllocator();
+        bus = new EventBus(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bus.close();
+    }
+
+    private static String describe(LibraryEvent event) {
+        return event.getType() + " " + event.getBookID() + " " + event.getStudentID() + " " + event.getCopies();
+    }
+
+    @Test
+    void everySubscriberSeesEveryEventInOrder() {
+        List<String> first = Collections.synchronizedList(new ArrayList<String>());
+        List<Long> second = Collections.synchronizedList(new ArrayList<Long>());
+        bus.subscribe("first", (event, sequence, endOfBatch) -> first.add(describe(event)));
+        bus.subscribe("second", (event, sequence, endOfBatch) -> second.add(sequence));
+
+        bus.publish(LibraryEvent.Type.BOOK_ADDED, 1, 0, 3);
+        bus.publish(LibraryEvent.Type.COPIES_RENTED, 1, 0, 1);
+        bus.publish(LibraryEvent.Type.LOAN_OPENED, 1, 7, 1);
+        assertTrue(bus.awaitDrained(5, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList("BOOK_ADDED 1 0 3", "COPIES_RENTED 1 0 1", "LOAN_OPENED 1 7 1"), first);
+        assertEquals(Arrays.asList(0L, 1L, 2L), second);
+        assertEquals(0, bus.backlog());
+    }
+
+    @Test
+    void slowSubscriberHoldsPublishersBackInsteadOfLosingEvents() {
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<Integer>());
+        AtomicInteger batchEnds = new AtomicInteger();
+        bus.subscribe("slow", (event, sequence, endOfBatch) -> {
+            seen.add(event.getBookID());
+            if (endOfBatch) {
+                batchEnds.incrementAndGet();
+            }
+            if (sequence % 50 == 0) {
+                Thread.yield();
+            }
+        });
+
+        for (int i = 1; i <= 2000; i++) {
+            bus.publish(LibraryEvent.Type.COPIES_RETURNED, i, 0, 1);
+        }
+        assertTrue(bus.awaitDrained(5, TimeUnit.SECONDS));
+
+        assertEquals(2000, seen.size());
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals(i + 1, (int) seen.get(i));
+        }
+        assertTrue(batchEnds.get() >= 2000 / 8);
+    }
+
+    @Test
+    void concurrentPublishersKeepTheirOwnOrder() throws InterruptedException {
+        int threads = 4;
+        int perThread = 5000;
+        int[] lastSeen = new int[threads];
+        AtomicInteger outOfOrder = new AtomicInteger();
+        AtomicInteger received = new AtomicInteger();
+        bus.subscribe("checker", (event, sequence, endOfBatch) -> {
+            int publisher = event.getStudentID();
+            if (event.getCopies() != lastSeen[publisher] + 1) {
+                outOfOrder.incrementAndGet();
+            }
+            lastSeen[publisher] = event.getCopies();
+            received.incrementAndGet();
+        });
+
+        List<Thread> publishers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            int publisher = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 1; i <= perThread; i++) {
+                    bus.publish(LibraryEvent.Type.COPIES_RENTED, 1, publisher, i);
+                }
+            });
+            publishers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : publishers) {
+            thread.join();
+        }
+        assertTrue(bus.awaitDrained(5, TimeUnit.SECONDS));
+
+        assertEquals(threads * perThread, received.get());
+        assertEquals(0, outOfOrder.get());
+        assertEquals(threads * perThread - 1, bus.cursor());
+    }
+
+    @Test
+    void failingHandlerSkipsTheEventAndCarriesOn() {
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<Integer>());
+        EventBus.Subscription subscription = bus.subscribe("picky", (event, sequence, endOfBatch) -> {
+            if (event.getBookID() == 2) {
+                throw new IllegalStateException("no book 2");
+            }
+            seen.add(event.getBookID());
+        });
+
+        for (int i = 1; i <= 3; i++) {
+            bus.publish(LibraryEvent.Type.BOOK_ADDED, i, 0, 2);
+        }
+        assertTrue(bus.awaitDrained(5, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList(1, 3), seen);
+        assertEquals(1, subscription.getFailures());
+        assertEquals(2, subscription.getSequence());
+    }
+
+    @Test
+    void closedSubscriptionReadsWhatWasPublishedAndLeaves() {
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<Integer>());
+        EventBus.Subscription subscription = bus.subscribe("leaving", (event, sequence, endOfBatch) -> seen.add(event.getBookID()));
+        for (int i = 1; i <= 5; i++) {
+            bus.publish(LibraryEvent.Type.BOOK_ADDED, i, 0, 2);
+        }
+        subscription.close();
+        assertEquals(5, seen.size());
+
+        for (int i = 6; i <= 100; i++) {
+            bus.publish(LibraryEvent.Type.BOOK_ADDED, i, 0, 2);
+        }
+        assertEquals(5, seen.size());
+        assertEquals(0, bus.backlog());
+    }
+
+    @Test
+    void capacityMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new EventBus(12));
+        assertThrows(IllegalArgumentException.class, () -> new EventBus(1));
+    }
+
+    @Test
+    void serviceChangesArePublished() throws IOException {
+        LibraryService service = new LibraryService();
+        List<String> seen = Collections.synchronizedList(new ArrayList<String>());
+        service.subscribe("log", (event, sequence, endOfBatch) -> seen.add(describe(event)));
+
+        int bookID = service.addBook("Dune", "Frank Herbert", 3).getValue().getBookID();
+        int studentID = service.registerStudent("Asha").getValue().getStudentID();
+        assertTrue(service.rent(studentID, bookID).isOk());
+        assertTrue(service.giveBack(studentID, bookID).isOk());
+        assertTrue(service.updateQuantity(bookID, 5).isOk());
+        service.close();
+
+        assertEquals(Arrays.asList(
+                "BOOK_ADDED " + bookID + " 0 3",
+                "STUDENT_REGISTERED 0 " + studentID + " 0",
+                "LOAN_OPENED " + bookID + " " + studentID + " 1",
+                "LOAN_CLOSED " + bookID + " " + studentID + " 1",
+                "QUANTITY_SET " + bookID + " 0 5"), seen);
+    }
+
+    @Test
+    void fullRingDoesNotHoldTheBooksLocks() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        bus.subscribe("stuck", (event, sequence, endOfBatch) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Books books = new Books();
+        books.events = bus;
+        Book dune = new Book("Dune", "Frank Herbert", 20);
+        books.addBook(dune);
+        for (int i = 0; i < 7; i++) {
+            assertTrue(books.rent(dune.getBookID()));
+        }
+
+        Thread first = new Thread(() -> books.rent(dune.getBookID()));
+        Thread second = new Thread(() -> books.rent(dune.getBookID()));
+        first.start();
+        second.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dune.getQuantity() != 11 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        int quantity = dune.getQuantity();
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(11, quantity);
+        assertTrue(bus.awaitDrained(5, TimeUnit.SECONDS));
+        assertEquals(9, bus.cursor());
+    }
+
+    @Test
+    void circulationFollowsTheBus() {
+        LibraryService service = new LibraryService();
+        int bookID = service.addBook("Dune", "Frank Herbert", 3).getValue().getBookID();
+        int studentID = service.registerStudent("Asha").getValue().getStudentID();
+        assertTrue(service.rent(studentID, bookID).isOk());
+        assertTrue(service.events().awaitDrained(5, TimeUnit.SECONDS));
+
+        assertEquals(1, service.borrows(bookID));
+        assertEquals(bookID, service.lowStock().get(0).getBookID());
+        assertTrue(service.giveBack(studentID, bookID).isOk());
+        assertTrue(service.events().awaitDrained(5, TimeUnit.SECONDS));
+        assertTrue(service.lowStock().isEmpty());
+    }
+
+    @Test
+    void replayedJournalIsNotPublishedAgain() throws IOException {
+        Path directory = Files.createTempDirectory("library-events");
+        try {
+            LibraryService first = new LibraryService();
+            first.openJournal(directory);
+            int bookID = first.addBook("Dune", "Frank Herbert", 3).getValue().getBookID();
+            first.close();
+
+            LibraryService second = new LibraryService();
+            List<String> seen = Collections.synchronizedList(new ArrayList<String>());
+            second.subscribe("log", (event, sequence, endOfBatch) -> seen.add(describe(event)));
+            second.openJournal(directory);
+            assertNotNull(second.findBook(bookID));
+            second.updateQuantity(bookID, 4);
+            second.close();
+
+            assertEquals(Arrays.asList("QUANTITY_SET " + bookID + " 0 4"), seen);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.cc.library;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * First-come, first-served queues of students waiting for a copy of a title.
+ *
+ * Every title with holds has its own queue and its own lock, so holds on different titles never wait on each other. A queue keeps its holds in an intrusive doubly linked list in arrival order and an index by student, so joining, finding the next student and leaving are O(1). The number of waiting students is also kept in a volatile field, so the checkout path can see whether a title is reserved without taking the queue's lock. A queue that runs empty is dropped, so only titles that someone is waiting for take up memory.
+ *
+ * A waiting student gets a CompletableFuture that completes when a copy has been lent to them, or with the reason it could not be. Cancelling the future, or completing it exceptionally, for example with orTimeout, gives up the place in the queue.
+ */
+class HoldQueues {
+
+	private final Map<Integer, Queue> queues = new ConcurrentHashMap<Integer, Queue>();
+
+	/**
+	 * @param bookID the title to look at
+	 * @return true if at least one student is waiting for the title
+	 */
+	boolean hasWaiting(int bookID) {
+		return waiting(bookID)>0;
+	}
+
+	/**
+	 * @param bookID the title to look at
+	 * @return the number of students waiting for the title
+	 */
+	int waiting(int bookID) {
+		Queue queue = queues.get(bookID);
+		return queue==null ? 0 : queue.waiting;
+	}
+
+	/**
+	 * Puts a student at the back of a title's queue. A student who is already waiting keeps their place and gets the same future back.
+	 *
+	 * @param studentID the waiting student
+	 * @param bookID the wanted title
+	 * @return completes with the result of lending the student a copy
+	 */
+	CompletableFuture<OperationResult<Book>> join(int studentID, int bookID) {
+		while(true) {
+			Queue queue = queues.computeIfAbsent(bookID, Queue::new);
+			synchronized(queue) {
+				if(queue.dropped) {
+					continue;
+				}
+				Hold existing = queue.byStudent.get(studentID);
+				if(existing!=null) {
+					return existing.future;
+				}
+				Hold hold = new Hold(studentID);
+				queue.append(hold);
+				hold.future.whenComplete((result, failure) -> {
+					if(failure!=null) {
+						remove(queue, hold);
+					}
+				});
+				return hold.future;
+			}
+		}
+	}
+
+	/**
+	 * Takes a student out of a title's queue and cancels their future.
+	 *
+	 * @return true if the student was waiting
+	 */
+	boolean leave(int studentID, int bookID) {
+		Queue queue = queues.get(bookID);
+		if(queue==null) {
+			return false;
+		}
+		Hold hold;
+		synchronized(queue) {
+			hold = queue.byStudent.get(studentID);
+			if(hold==null) {
+				return false;
+			}
+			remove(queue, hold);
+		}
+		hold.future.cancel(false);
+		return true;
+	}
+
+	/**
+	 * Offers copies of a title to the waiting students in arrival order until the lender reports that no copy is left.
+	 *
+	 * The lender is called under the title's lock, so two returns of the same title never hand out copies out of order. Any other result than NOT_AVAILABLE, such as LOAN_LIMIT_REACHED, is passed to the student's future and ends their hold. Futures are completed after the lock is released, so code waiting on them can use the library straight away. A student who gave up in the meantime, by cancelling or timing out, cannot take the copy: their loan is handed to the undo and the copy is offered to the next student.
+	 *
+	 * @param bookID the title that may have a copy free
+	 * @param lender lends a copy to the given student
+	 * @param undo takes back the copy that was lent to the given student
+	 */
+	void serve(int bookID, IntFunction<OperationResult<Book>> lender, IntPredicate undo) {
+		boolean returned = true;
+		while(returned) {
+			Queue queue = queues.get(bookID);
+			if(queue==null || queue.waiting==0) {
+				return;
+			}
+			List<Hold> done = new ArrayList<Hold>();
+			List<OperationResult<Book>> results = new ArrayList<OperationResult<Book>>();
+			synchronized(queue) {
+				Hold next;
+				while((next = queue.first())!=null) {
+					OperationResult<Book> result = lender.apply(next.studentID);
+					if(result.getStatus()==OperationResult.Status.NOT_AVAILABLE) {
+						break;
+					}
+					remove(queue, next);
+					done.add(next);
+					results.add(result);
+				}
+			}
+			returned = false;
+			for(int i=0;i<done.size();i++) {
+				Hold hold = done.get(i);
+				if(!hold.future.complete(results.get(i)) && results.get(i).isOk()) {
+					returned |= undo.test(hold.studentID);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Unlinks a hold if it is still waiting and drops the queue once nobody is left in it.
+	 */
+	private void remove(Queue queue, Hold hold) {
+		synchronized(queue) {
+			if(queue.byStudent.remove(hold.studentID, hold)) {
+				queue.unlink(hold);
+				if(queue.waiting==0) {
+					queue.dropped = true;
+					queues.remove(queue.bookID, queue);
+				}
+			}
+		}
+	}
+
+	/**
+	 * One title's waiting students, guarded by the queue's own monitor. Once dropped from the map a queue takes no more holds, and join starts a new one.
+	 */
+	private static class Queue {
+		final int bookID;
+		final Hold head = new Hold(0);
+		final Map<Integer, Hold> byStudent = new HashMap<Integer, Hold>();
+		volatile int waiting;
+		boolean dropped;
+
+		Queue(int bookID) {
+			this.bookID = bookID;
+			head.prev = head;
+			head.next = head;
+		}
+
+		/**
+		 * @return the hold that has waited longest, or null if the queue is empty
+		 */
+		Hold first() {
+			return head.next==head ? null : head.next;
+		}
+
+		void append(Hold hold) {
+			hold.prev = head.prev;
+			hold.next = head;
+			head.prev.next = hold;
+			head.prev = hold;
+			byStudent.put(hold.studentID, hold);
+			waiting = byStudent.size();
+		}
+
+		void unlink(Hold hold) {
+			hold.prev.next = hold.next;
+			hold.next.prev = hold.prev;
+			hold.prev = null;
+			hold.next = null;
+			waiting = byStudent.size();
+		}
+	}
+
+	private static class Hold {
+		final int studentID;
+		final CompletableFuture<OperationResult<Book>> future = new CompletableFuture<OperationResult<Book>>();
+		Hold prev;
+		Hold next;
+
+		Hold(int studentID) {
+			this.studentID = studentID;
+		}
+	}
+
+}
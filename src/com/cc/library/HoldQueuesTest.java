@@ -0,0 +1,187 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the HoldQueues and the hold handling of Students and LibraryService.
+ * Testing framework: JUnit 5
+ */
+public class HoldQueuesTest {
+
+    private LibraryService service;
+    private int bookID;
+
+    @BeforeEach
+    void setUp() {
+        Book.ids = new IdAllocator();
+        Student.ids = new IdAllocator();
+        service = new LibraryService();
+        bookID = service.addBook("Popular", "Author", 2).getValue().getBookID();
+    }
+
+    private int student(String name) {
+        return service.registerStudent(name).getValue().getStudentID();
+    }
+
+    @Test
+    void testReturn_HandsCopyToFirstWaitingStudent() throws Exception {
+        int asha = student("Asha");
+        int ravi = student("Ravi");
+        int mina = student("Mina");
+        assertTrue(service.rent(asha, bookID).isOk());
+
+        CompletableFuture<OperationResult<Book>> raviHold = service.placeHold(ravi, bookID);
+        CompletableFuture<OperationResult<Book>> minaHold = service.placeHold(mina, bookID);
+        assertFalse(raviHold.isDone());
+        assertSame(raviHold, service.placeHold(ravi, bookID));
+        assertEquals(2, service.holdsWaiting(bookID));
+
+        assertTrue(service.giveBack(asha, bookID).isOk());
+        assertTrue(raviHold.get(1, TimeUnit.SECONDS).isOk());
+        assertEquals(1, service.loansOf(ravi).size());
+        assertFalse(minaHold.isDone());
+
+        service.updateQuantity(bookID, 2);
+        assertTrue(minaHold.get(1, TimeUnit.SECONDS).isOk());
+        assertEquals(0, service.holdsWaiting(bookID));
+    }
+
+    @Test
+    void testPlaceHold_FreeCopyIsLentStraightAway() {
+        int asha = student("Asha");
+
+        CompletableFuture<OperationResult<Book>> hold = service.placeHold(asha, bookID);
+        assertTrue(hold.isDone());
+        assertTrue(hold.join().isOk());
+        assertEquals(OperationResult.Status.NO_SUCH_BOOK, service.placeHold(asha, bookID + 99).join().getStatus());
+        assertEquals(OperationResult.Status.NO_SUCH_STUDENT, service.placeHold(asha + 99, bookID).join().getStatus());
+    }
+
+    @Test
+    void testCancel_LeavesTheQueue() {
+        int asha = student("Asha");
+        int ravi = student("Ravi");
+        int mina = student("Mina");
+        service.rent(asha, bookID);
+        CompletableFuture<OperationResult<Book>> raviHold = service.placeHold(ravi, bookID);
+        CompletableFuture<OperationResult<Book>> minaHold = service.placeHold(mina, bookID);
+
+        raviHold.cancel(false);
+        assertEquals(1, service.holdsWaiting(bookID));
+        assertTrue(service.cancelHold(mina, bookID).isOk());
+        assertTrue(minaHold.isCancelled());
+        assertEquals(OperationResult.Status.NO_SUCH_HOLD, service.cancelHold(mina, bookID).getStatus());
+
+        service.giveBack(asha, bookID);
+        assertTrue(service.rent(asha, bookID).isOk());
+    }
+
+    @Test
+    void testHandOff_LoanLimitEndsTheHold() {
+        int asha = student("Asha");
+        int ravi = student("Ravi");
+        service.rent(asha, bookID);
+        CompletableFuture<OperationResult<Book>> hold = service.placeHold(ravi, bookID);
+        for (int i = 0; i < Students.MAX_LOANS; i++) {
+            int other = service.addBook("Other " + i, "Author", 3).getValue().getBookID();
+            assertTrue(service.rent(ravi, other).isOk());
+        }
+
+        service.giveBack(asha, bookID);
+        assertEquals(OperationResult.Status.LOAN_LIMIT_REACHED, hold.join().getStatus());
+        assertEquals(0, service.holdsWaiting(bookID));
+    }
+
+    @Test
+    void testServe_CopyOfAStudentWhoGaveUpGoesToTheNext() {
+        HoldQueues queues = new HoldQueues();
+        CompletableFuture<OperationResult<Book>> first = queues.join(1, bookID);
+        CompletableFuture<OperationResult<Book>> second = queues.join(2, bookID);
+        int[] free = {1};
+        List<Integer> undone = new ArrayList<Integer>();
+
+        queues.serve(bookID, studentID -> {
+            if (studentID == 1) {
+                first.cancel(false);
+            }
+            if (free[0] == 0) {
+                return OperationResult.failed(OperationResult.Status.NOT_AVAILABLE);
+            }
+            free[0]--;
+            return OperationResult.ok(null);
+        }, studentID -> {
+            undone.add(studentID);
+            free[0]++;
+            return true;
+        });
+
+        assertTrue(first.isCancelled());
+        assertTrue(second.join().isOk());
+        assertEquals(List.of(1), undone);
+        assertEquals(0, free[0]);
+        assertEquals(0, queues.waiting(bookID));
+        assertFalse(queues.leave(2, bookID));
+        assertFalse(queues.join(3, bookID).isDone());
+        assertEquals(1, queues.waiting(bookID));
+    }
+
+    @Test
+    void testConcurrentRestocks_ServeEveryHoldOnce() throws Exception {
+        int holders = 40;
+        int first = student("Holder");
+        service.updateQuantity(bookID, 1);
+        Set<Integer> waiting = new HashSet<Integer>();
+        List<CompletableFuture<OperationResult<Book>>> holds = new ArrayList<CompletableFuture<OperationResult<Book>>>();
+        ConcurrentLinkedQueue<Integer> served = new ConcurrentLinkedQueue<Integer>();
+        for (int i = 0; i < holders; i++) {
+            int studentID = i == 0 ? first : student("Student " + i);
+            waiting.add(studentID);
+            CompletableFuture<OperationResult<Book>> hold = service.placeHold(studentID, bookID);
+            hold.thenAccept(result -> served.add(studentID));
+            holds.add(hold);
+        }
+
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] desks = new Thread[4];
+        for (int d = 0; d < desks.length; d++) {
+            desks[d] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < holders / desks.length; j++) {
+                    service.updateQuantity(bookID, service.findBook(bookID).getQuantity() + 1);
+                }
+            });
+            desks[d].start();
+        }
+        go.countDown();
+        for (Thread desk : desks) {
+            desk.join();
+        }
+        service.updateQuantity(bookID, service.findBook(bookID).getQuantity() + holders);
+
+        for (CompletableFuture<OperationResult<Book>> hold : holds) {
+            assertTrue(hold.get(5, TimeUnit.SECONDS).isOk());
+        }
+        assertEquals(holders, served.size());
+        assertEquals(waiting, new HashSet<Integer>(served));
+        for (int studentID : waiting) {
+            assertEquals(1, service.loansOf(studentID).size());
+        }
+        assertEquals(0, service.holdsWaiting(bookID));
+    }
+
+}
@@ -0,0 +1,226 @@
+package com.cc.library;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache that keeps the most frequently used entries, for hot titles and search results in front of the catalog.
+ *
+ * Entries are split over segments by key hash, each with its own lock, its own least-recently-used order and its own frequency sketch. A full segment only takes a new entry if the new key has been asked for more often than the segment's least recently used entry (TinyLFU admission), so a burst of one-off lookups cannot push the bestsellers out. Frequencies are kept in a count-min sketch of four rows of byte counters, eight per entry of capacity, which are halved after every ten lookups per entry of capacity so that old popularity fades.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class HotCache<K, V> {
+
+	private static final int MAX_COUNT = 15;
+	private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+	private final Segment<K, V>[] segments;
+	private final int mask;
+	private final int capacity;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder rejections = new LongAdder();
+
+	/**
+	 * @param capacity the most entries the cache holds, at least 1
+	 */
+	public HotCache(int capacity) {
+		int concurrency = Runtime.getRuntime().availableProcessors() * 2;
+		int count = Integer.highestOneBit(Math.max(1, Math.min(concurrency, capacity / 16)));
+		this.segments = newSegments(count);
+		for(int i=0;i<count;i++) {
+			segments[i] = new Segment<K, V>((capacity + count - 1) / count);
+		}
+		this.mask = count - 1;
+		this.capacity = capacity;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> Segment<K, V>[] newSegments(int count) {
+		return (Segment<K, V>[]) new Segment<?, ?>[count];
+	}
+
+	/**
+	 * Looks up a key and counts the lookup towards the key's frequency, whether it hits or not.
+	 *
+	 * @param key the key to look up
+	 * @return the cached value, or null on a miss
+	 */
+	public V get(K key) {
+		int hash = spread(key.hashCode());
+		Segment<K, V> segment = segmentOf(hash);
+		V value;
+		synchronized(segment) {
+			segment.record(hash);
+			value = segment.entries.get(key);
+		}
+		if(value==null) {
+			misses.increment();
+		}else {
+			hits.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Offers a value to the cache. When the key's segment is full, the value is only taken if the key is used more often than the entry it would evict.
+	 *
+	 * @param key the key
+	 * @param value the value, not null
+	 * @return true if the value is now cached
+	 */
+	public boolean put(K key, V value) {
+		int hash = spread(key.hashCode());
+		Segment<K, V> segment = segmentOf(hash);
+		synchronized(segment) {
+			if(segment.entries.containsKey(key) || segment.entries.size()<segment.capacity) {
+				segment.entries.put(key, value);
+				return true;
+			}
+			Iterator<Map.Entry<K, V>> eldest = segment.entries.entrySet().iterator();
+			K victim = eldest.next().getKey();
+			if(segment.frequency(hash)<=segment.frequency(spread(victim.hashCode()))) {
+				rejections.increment();
+				return false;
+			}
+			eldest.remove();
+			segment.entries.put(key, value);
+		}
+		evictions.increment();
+		return true;
+	}
+
+	/**
+	 * Removes a key, for example when the record behind it changed.
+	 *
+	 * @param key the key to drop
+	 */
+	public void invalidate(K key) {
+		Segment<K, V> segment = segmentOf(spread(key.hashCode()));
+		synchronized(segment) {
+			segment.entries.remove(key);
+		}
+	}
+
+	/**
+	 * Drops every entry. Frequencies are kept.
+	 */
+	public void clear() {
+		for(Segment<K, V> segment:segments) {
+			synchronized(segment) {
+				segment.entries.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of cached entries
+	 */
+	public int size() {
+		int size = 0;
+		for(Segment<K, V> segment:segments) {
+			synchronized(segment) {
+				size += segment.entries.size();
+			}
+		}
+		return size;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return how many entries were pushed out to make room for more frequently used ones
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return how many offered values were turned away because the key was used less often than the entry it would evict
+	 */
+	public long getRejections() {
+		return rejections.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "HotCache [size=" + size() + "/" + capacity + ", hits=" + getHits() + ", misses=" + getMisses()
+				+ ", evictions=" + getEvictions() + ", rejections=" + getRejections() + "]";
+	}
+
+	private Segment<K, V> segmentOf(int hash) {
+		return segments[(hash >>> 24) & mask];
+	}
+
+	private static int spread(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * One lock's worth of the cache: the entries in access order and a frequency sketch over their keys.
+	 */
+	private static class Segment<K, V> {
+		final LinkedHashMap<K, V> entries = new LinkedHashMap<K, V>(16, 0.75f, true);
+		final int capacity;
+		final byte[][] sketch;
+		final int sketchMask;
+		final int sampleSize;
+		int additions;
+
+		Segment(int capacity) {
+			this.capacity = capacity;
+			int width = Integer.highestOneBit(Math.max(capacity * 8 - 1, 128)) << 1;
+			this.sketch = new byte[SEEDS.length][width];
+			this.sketchMask = width - 1;
+			this.sampleSize = Math.max(capacity * 10, 100);
+		}
+
+		void record(int hash) {
+			for(int i=0;i<SEEDS.length;i++) {
+				byte[] row = sketch[i];
+				int slot = index(hash, i);
+				if(row[slot]<MAX_COUNT) {
+					row[slot]++;
+				}
+			}
+			if(++additions>=sampleSize) {
+				for(byte[] row:sketch) {
+					for(int j=0;j<row.length;j++) {
+						row[j] >>= 1;
+					}
+				}
+				additions /= 2;
+			}
+		}
+
+		int frequency(int hash) {
+			int frequency = MAX_COUNT;
+			for(int i=0;i<SEEDS.length;i++) {
+				frequency = Math.min(frequency, sketch[i][index(hash, i)]);
+			}
+			return frequency;
+		}
+
+		private int index(int hash, int row) {
+			int h = hash * SEEDS[row];
+			return (h ^ (h >>> 15)) & sketchMask;
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for the HotCache and the caches Books keeps in front of the catalog.
+ * Testing framework: JUnit 5
+ */
+public class HotCacheTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Book.ids = new IdAllocator();
+        directory = Files.createTempDirectory("library-cache");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void testGetAndPut_CountsHitsAndMisses() {
+        HotCache<Integer, String> cache = new HotCache<Integer, String>(8);
+
+        assertNull(cache.get(1));
+        assertTrue(cache.put(1, "one"));
+        assertEquals("one", cache.get(1));
+        cache.invalidate(1);
+        assertNull(cache.get(1));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testAdmission_ScanDoesNotFlushHotEntries() {
+        HotCache<Integer, Integer> cache = new HotCache<Integer, Integer>(16);
+        for (int round = 0; round < 5; round++) {
+            for (int key = 0; key < 16; key++) {
+                if (cache.get(key) == null) {
+                    cache.put(key, key);
+                }
+            }
+        }
+
+        // A long scan of keys seen only once, mixed with the usual hot traffic, must not push the hot keys out
+        for (int key = 1000; key < 3000; key++) {
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+            cache.get(key % 16);
+        }
+
+        int stillCached = 0;
+        for (int key = 0; key < 16; key++) {
+            if (cache.get(key) != null) {
+                stillCached++;
+            }
+        }
+        assertEquals(16, stillCached);
+        assertTrue(cache.getRejections() > 0);
+        assertTrue(cache.size() <= 16);
+    }
+
+    @Test
+    void testAdmission_FrequentNewKeyEvictsColdEntry() {
+        HotCache<Integer, Integer> cache = new HotCache<Integer, Integer>(1);
+        cache.get(1);
+        cache.put(1, 1);
+        for (int i = 0; i < 3; i++) {
+            cache.get(2);
+        }
+
+        assertTrue(cache.put(2, 2));
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void testBooks_CachesCatalogRowsUntilTheyChange() throws IOException {
+        ColumnarCatalog.write(directory, Arrays.asList(
+                new Book("Java Programming", "James Gosling", 5),
+                new Book("Clean Code", "Robert Martin", 3)));
+        Books books = new Books();
+        books.attach(ColumnarCatalog.open(directory));
+
+        Book first = books.findBook(1);
+        assertSame(first, books.findBook(1));
+        assertEquals(1, books.rowCache.getHits());
+
+        assertTrue(books.rent(1));
+        Book changed = books.findBook(1);
+        assertFalse(changed instanceof MappedBook);
+        assertEquals(4, changed.getQuantity());
+        assertEquals(0, books.rowCache.size()); // Only row 1 was cached, and it was dropped
+        assertNull(books.rowCache.get(1));
+    }
+
+    @Test
+    void testBooks_SearchCacheSeesNewBooks() {
+        Books books = new Books();
+        books.addBook("The Old River", "Ana Stone", 2);
+
+        assertEquals(1, books.search("river", SearchIndex.Field.TITLE, true).size());
+        assertEquals(1, books.search(" River ", SearchIndex.Field.TITLE, true).size());
+        assertEquals(1, books.searchCache.getHits());
+
+        books.addBook("River Songs", "Ana Stone", 3);
+        assertEquals(2, books.search("river", SearchIndex.Field.TITLE, true).size());
+
+        Book rented = books.search("songs", SearchIndex.Field.TITLE, true).get(0);
+        books.rent(rented.getBookID());
+        assertEquals(2, books.search("songs", SearchIndex.Field.TITLE, true).get(0).getQuantity());
+    }
+}
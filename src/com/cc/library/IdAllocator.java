@@ -0,0 +1,148 @@
+package com.cc.library;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out unique IDs for books or students, safely from any number of threads.
+ *
+ * Each thread takes blocks of IDs from a shared atomic counter and then assigns IDs from its own block without touching shared state, so threads creating records at the same time do not contend. A thread's first block holds a single ID and each later block is twice the size of the one before, up to THREAD_BLOCK. A thread that lives for one request, such as a virtual thread of the HTTP front-end, therefore takes exactly the IDs it uses, while a thread that creates many records soon takes them a thousand at a time. Bulk loaders can reserve a block of any size in one call.
+ *
+ * When a mark file is given, the allocator writes a high-water mark to it before any ID at or above the previous mark is handed out, and starts from that mark after a restart. IDs are therefore never reused, at the cost of gaps after a restart. The mark is raised in large steps so the file is rarely written.
+ */
+public class IdAllocator {
+
+	static final int THREAD_BLOCK = 1024;
+	private static final int MARK_STEP = 1 << 16;
+
+	private final AtomicInteger next;
+	private final AtomicInteger epoch = new AtomicInteger();
+	private final Path markFile;
+	private volatile int persistedMark;
+	private final ThreadLocal<int[]> block = ThreadLocal.withInitial(() -> new int[] {0, 0, -1, 0});
+
+	/**
+	 * Creates an allocator that starts at 1 and keeps nothing on disk.
+	 */
+	public IdAllocator() {
+		this.next = new AtomicInteger(1);
+		this.markFile = null;
+		this.persistedMark = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Creates an allocator that continues from the high-water mark saved in a file.
+	 *
+	 * @param markFile the file holding the mark, created on first use
+	 * @throws IOException if an existing mark file cannot be read
+	 */
+	public IdAllocator(Path markFile) throws IOException {
+		if(markFile.getParent()!=null) {
+			Files.createDirectories(markFile.getParent());
+		}
+		int start = 1;
+		if(Files.exists(markFile)) {
+			start = Integer.parseInt(new String(Files.readAllBytes(markFile), StandardCharsets.UTF_8).trim());
+		}
+		this.next = new AtomicInteger(start);
+		this.markFile = markFile;
+		this.persistedMark = start;
+	}
+
+	/**
+	 * Returns the next ID from the calling thread's block, taking a new, larger block when it runs out.
+	 *
+	 * @return a unique ID
+	 * @throws IllegalStateException if every positive ID has been handed out
+	 */
+	public int next() {
+		int[] mine = block.get();
+		if(mine[0]<mine[1] && mine[2]==epoch.get()) {
+			return mine[0]++;
+		}
+		mine[2] = epoch.get();
+		int size = mine[3]==0 ? 1 : Math.min(mine[3] * 2, THREAD_BLOCK);
+		int first = reserve(size);
+		mine[0] = first + 1;
+		mine[1] = first + size;
+		mine[3] = size;
+		return first;
+	}
+
+	/**
+	 * Reserves a block of consecutive IDs.
+	 *
+	 * @param count how many IDs to reserve
+	 * @return the first ID of the block
+	 * @throws IllegalStateException if the block would run past Integer.MAX_VALUE
+	 */
+	public int reserve(int count) {
+		int first;
+		do {
+			first = next.get();
+			if(first>Integer.MAX_VALUE - count) {
+				throw new IllegalStateException("No IDs left for a block of " + count + " after " + (first - 1));
+			}
+		}while(!next.compareAndSet(first, first + count));
+		if(first + count>persistedMark) {
+			persistMark(first + count);
+		}
+		return first;
+	}
+
+	/**
+	 * Makes sure no ID up to the given one is handed out from now on, for example after records with known IDs were loaded. Blocks that threads already hold are dropped.
+	 *
+	 * @param id the highest ID already in use
+	 * @throws IllegalStateException if id is Integer.MAX_VALUE, which leaves no ID to hand out
+	 */
+	public void advancePast(int id) {
+		if(id==Integer.MAX_VALUE) {
+			throw new IllegalStateException("No IDs left after " + id);
+		}
+		int previous = next.getAndAccumulate(id + 1, Math::max);
+		if(previous<=id) {
+			epoch.incrementAndGet();
+			if(id + 1>persistedMark) {
+				persistMark(id + 1);
+			}
+		}
+	}
+
+	/**
+	 * @return the ID the next block will start at
+	 */
+	public int peekNext() {
+		return next.get();
+	}
+
+	/**
+	 * Raises the saved mark to at least the given end, rounded up to a whole step, writing it through a temporary file.
+	 */
+	private synchronized void persistMark(int end) {
+		if(end<=persistedMark) {
+			return;
+		}
+		int mark = (int) Math.min(Integer.MAX_VALUE, ((long) end / MARK_STEP + 1) * MARK_STEP);
+		try {
+			Path temp = markFile.resolveSibling(markFile.getFileName() + ".tmp");
+			try(FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				out.write(ByteBuffer.wrap(Integer.toString(mark).getBytes(StandardCharsets.UTF_8)));
+				out.force(true);
+			}
+			Files.move(temp, markFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}catch(IOException e) {
+			throw new UncheckedIOException("Could not save the ID high-water mark", e);
+		}
+		persistedMark = mark;
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for IdAllocator.
+ * Testing framework: JUnit 5
+ */
+public class IdAllocatorTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("library-ids");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void testNext_SingleThread_IsSequential() {
+        IdAllocator ids = new IdAllocator();
+
+        assertEquals(1, ids.next());
+        assertEquals(2, ids.next());
+        assertEquals(3, ids.next());
+    }
+
+    @Test
+    void testNext_ConcurrentThreads_NoDuplicates() throws InterruptedException {
+        IdAllocator ids = new IdAllocator();
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 5000; j++) {
+                    seen.add(ids.next());
+                }
+                seen.add(ids.reserve(10));
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8 * 5001, seen.size());
+    }
+
+    @Test
+    void testNext_ShortLivedThreads_TakeOnlyWhatTheyUse() throws InterruptedException {
+        IdAllocator ids = new IdAllocator();
+        for (int i = 0; i < 100; i++) {
+            Thread thread = new Thread(ids::next);
+            thread.start();
+            thread.join();
+        }
+
+        assertEquals(101, ids.peekNext());
+    }
+
+    @Test
+    void testReserve_PastLastID_Throws() {
+        IdAllocator ids = new IdAllocator();
+        ids.advancePast(Integer.MAX_VALUE - 10);
+
+        assertEquals(Integer.MAX_VALUE - 9, ids.reserve(5));
+        assertThrows(IllegalStateException.class, () -> ids.reserve(10));
+        assertEquals(Integer.MAX_VALUE - 4, ids.peekNext());
+        assertThrows(IllegalStateException.class, () -> ids.advancePast(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testAdvancePast_DropsHeldBlocks() {
+        IdAllocator ids = new IdAllocator();
+        ids.next();
+
+        ids.advancePast(5000);
+
+        assertTrue(ids.next() > 5000);
+    }
+
+    @Test
+    void testMarkFile_RestartNeverReusesIDs() throws IOException {
+        Path mark = directory.resolve("book.ids");
+        IdAllocator first = new IdAllocator(mark);
+        int highest = 0;
+        for (int i = 0; i < 3000; i++) {
+            highest = Math.max(highest, first.next());
+        }
+        highest = Math.max(highest, first.reserve(100000) + 99999);
+
+        IdAllocator restarted = new IdAllocator(mark);
+
+        assertTrue(restarted.next() > highest);
+        assertTrue(restarted.reserve(10) > highest);
+    }
+}
@@ -0,0 +1,454 @@
+package com.cc.library;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Durable storage for the library: an append-only write-ahead log plus periodic snapshots.
+ *
+ * Every mutation of Books and Students is appended to library.wal as a small binary record. Records are collected in memory and written with one FileChannel write and one force per group, so concurrent callers that commit at the same time share a single disk sync. A snapshot writes the whole state to library.snap and starts an empty log, which keeps recovery time bounded by the snapshot size plus the records since it was taken.
+ *
+ * Check-outs are logged with their checkout time and due date, and snapshots keep both for every open loan.
+ *
+ * Both files carry a generation number. A log is only replayed on top of a snapshot with the same generation, so a crash between writing a snapshot and resetting the log can never apply the same records twice.
+ */
+public class Journal implements AutoCloseable {
+
+	static final byte ADD_BOOK = 1;
+	static final byte SET_QUANTITY = 2;
+	static final byte RENT = 3;
+	static final byte RETURN = 4;
+	static final byte REGISTER_STUDENT = 5;
+	static final byte CHECK_IN = 7;
+	static final byte CHECK_OUT_DUE = 8;
+
+	private static final int MAGIC = 0x4C49424A;
+	private static final int SNAPSHOT_MAGIC = 0x4C49424B;
+	private static final int HEADER_SIZE = 12;
+	private static final int DEFAULT_SNAPSHOT_EVERY = 100000;
+
+	private final Path walFile;
+	private final Path snapshotFile;
+	private final FileChannel channel;
+	private final int snapshotEvery;
+	private final Object flushLock = new Object();
+	private final CRC32 crc = new CRC32();
+
+	private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+	private ByteBuffer writing = ByteBuffer.allocate(64 * 1024);
+	private long generation;
+	private long appendedSeq;
+	private volatile long durableSeq;
+	private long recordsSinceSnapshot;
+	private int recordStart;
+
+	private Journal(Path directory, int snapshotEvery) throws IOException {
+		Files.createDirectories(directory);
+		this.walFile = directory.resolve("library.wal");
+		this.snapshotFile = directory.resolve("library.snap");
+		this.snapshotEvery = snapshotEvery;
+		this.channel = FileChannel.open(walFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Opens the journal in a directory, creating the files if they do not exist yet.
+	 *
+	 * @param directory where library.wal and library.snap are kept
+	 * @return the opened journal, call recover before logging anything
+	 * @throws IOException if the files cannot be opened
+	 */
+	public static Journal open(Path directory) throws IOException {
+		return new Journal(directory, DEFAULT_SNAPSHOT_EVERY);
+	}
+
+	public static Journal open(Path directory, int snapshotEvery) throws IOException {
+		return new Journal(directory, snapshotEvery);
+	}
+
+	/**
+	 * Rebuilds the state from the last snapshot and the log records written after it.
+	 *
+	 * Must be called once, on empty Books and Students that do not have this journal attached yet, so replayed operations are not logged again. A torn record at the end of the log, left by a crash in the middle of a write, ends the replay and is cut off.
+	 *
+	 * @param books the empty book collection to fill
+	 * @param students the empty student register to fill
+	 * @return the number of log records replayed after the snapshot
+	 * @throws IOException if the files cannot be read
+	 */
+	public synchronized long recover(Books books, Students students) throws IOException {
+		long snapshotGeneration = 0;
+		if(Files.exists(snapshotFile)) {
+			snapshotGeneration = readSnapshot(books, students);
+		}
+		long replayed = 0;
+		long validEnd = 0;
+		if(channel.size()>=HEADER_SIZE && readHeaderGeneration()==snapshotGeneration) {
+			channel.position(HEADER_SIZE);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+			validEnd = HEADER_SIZE;
+			byte[] record = new byte[256];
+			while(true) {
+				int length;
+				int checksum;
+				try {
+					length = in.readInt();
+					checksum = in.readInt();
+					if(length<=0 || length>(1 << 24)) {
+						break;
+					}
+					if(record.length<length) {
+						record = new byte[length];
+					}
+					in.readFully(record, 0, length);
+				}catch(EOFException e) {
+					break;
+				}
+				crc.reset();
+				crc.update(record, 0, length);
+				if((int) crc.getValue()!=checksum) {
+					break;
+				}
+				apply(ByteBuffer.wrap(record, 0, length), books, students);
+				validEnd += 8 + length;
+				replayed++;
+			}
+		}
+		generation = snapshotGeneration;
+		if(validEnd==0) {
+			resetLog();
+		}else {
+			channel.truncate(validEnd);
+			channel.position(validEnd);
+		}
+		recordsSinceSnapshot = replayed;
+		return replayed;
+	}
+
+	public long logAddBook(Book book) {
+		byte[] name = utf8(book.getBookName());
+		byte[] author = utf8(book.getBookAuthor());
+		synchronized(this) {
+			ByteBuffer buffer = begin(1 + 4 + 4 + 4 + name.length + 4 + author.length);
+			buffer.put(ADD_BOOK).putInt(book.getBookID()).putInt(book.getQuantity());
+			putBytes(buffer, name);
+			putBytes(buffer, author);
+			return finish();
+		}
+	}
+
+	public synchronized long logSetQuantity(int bookID, int quantity) {
+		begin(1 + 4 + 4).put(SET_QUANTITY).putInt(bookID).putInt(quantity);
+		return finish();
+	}
+
+	public synchronized long logRent(int bookID) {
+		begin(1 + 4).put(RENT).putInt(bookID);
+		return finish();
+	}
+
+	public synchronized long logReturn(int bookID) {
+		begin(1 + 4).put(RETURN).putInt(bookID);
+		return finish();
+	}
+
+	public long logRegisterStudent(Student student) {
+		byte[] name = utf8(student.getStudentName());
+		synchronized(this) {
+			ByteBuffer buffer = begin(1 + 4 + 4 + name.length);
+			buffer.put(REGISTER_STUDENT).putInt(student.getStudentID());
+			putBytes(buffer, name);
+			return finish();
+		}
+	}
+
+	public synchronized long logCheckOut(Loan loan) {
+		begin(1 + 4 + 4 + 8 + 8).put(CHECK_OUT_DUE).putInt(loan.getStudentID()).putInt(loan.getBookID())
+				.putLong(loan.getCheckedOutAt()).putLong(loan.getDueAt());
+		return finish();
+	}
+
+	public synchronized long logCheckIn(int studentID, int bookID) {
+		begin(1 + 4 + 4).put(CHECK_IN).putInt(studentID).putInt(bookID);
+		return finish();
+	}
+
+	/**
+	 * Makes every record up to the given sequence number durable.
+	 *
+	 * The first caller to get here writes all pending records with one write and one force. Callers that arrive while that sync is running wait for it, and usually find their own record was part of the group.
+	 *
+	 * @param seq the sequence number returned by one of the log methods
+	 */
+	public void commit(long seq) {
+		if(durableSeq>=seq) {
+			return;
+		}
+		synchronized(flushLock) {
+			if(durableSeq>=seq) {
+				return;
+			}
+			long groupEnd;
+			synchronized(this) {
+				ByteBuffer full = pending;
+				pending = writing;
+				writing = full;
+				groupEnd = appendedSeq;
+			}
+			try {
+				writing.flip();
+				while(writing.hasRemaining()) {
+					channel.write(writing);
+				}
+				writing.clear();
+				channel.force(false);
+			}catch(IOException e) {
+				throw new UncheckedIOException("Could not write the library journal", e);
+			}
+			durableSeq = groupEnd;
+		}
+	}
+
+	/**
+	 * @return true once enough records have been logged since the last snapshot that a new one should be taken
+	 */
+	public synchronized boolean shouldSnapshot() {
+		return recordsSinceSnapshot>=snapshotEvery;
+	}
+
+	/**
+	 * Writes the full state to a new snapshot and starts an empty log.
+	 *
+	 * Must be called while no other thread is changing Books or Students, for example from the console loop between two menu choices. The snapshot is written to a temporary file and moved into place, so a crash leaves either the old or the new snapshot.
+	 *
+	 * @param books the book collection to save
+	 * @param students the student register to save
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public void snapshot(Books books, Students students) throws IOException {
+		synchronized(flushLock) {
+			synchronized(this) {
+				long nextGeneration = generation + 1;
+				Path temp = snapshotFile.resolveSibling("library.snap.tmp");
+				try(FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+					DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out), 1 << 16));
+					writeSnapshot(data, nextGeneration, books, students);
+					data.flush();
+					out.force(true);
+				}
+				Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				generation = nextGeneration;
+				pending.clear();
+				resetLog();
+				durableSeq = appendedSeq;
+				recordsSinceSnapshot = 0;
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		long last;
+		synchronized(this) {
+			last = appendedSeq;
+		}
+		commit(last);
+		channel.close();
+	}
+
+	private ByteBuffer begin(int size) {
+		int needed = 8 + size;
+		if(pending.remaining()<needed) {
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+			pending.flip();
+			bigger.put(pending);
+			pending = bigger;
+		}
+		recordStart = pending.position();
+		pending.putInt(size).putInt(0);
+		return pending;
+	}
+
+	/**
+	 * Fills in the checksum of the record started by the last begin call and hands out its sequence number.
+	 */
+	private long finish() {
+		ByteBuffer body = pending.duplicate();
+		body.position(recordStart + 8).limit(pending.position());
+		crc.reset();
+		crc.update(body);
+		pending.putInt(recordStart + 4, (int) crc.getValue());
+		recordsSinceSnapshot++;
+		return ++appendedSeq;
+	}
+
+	private void apply(ByteBuffer record, Books books, Students students) {
+		byte type = record.get();
+		switch(type) {
+		case ADD_BOOK:
+			int bookID = record.getInt();
+			int quantity = record.getInt();
+			books.addBook(new Book(bookID, getString(record), getString(record), quantity));
+			Book.ids.advancePast(bookID);
+			break;
+		case SET_QUANTITY:
+			books.updateQuantity(record.getInt(), record.getInt());
+			break;
+		case RENT:
+			books.rent(record.getInt());
+			break;
+		case RETURN:
+			books.giveBack(record.getInt());
+			break;
+		case REGISTER_STUDENT:
+			int studentID = record.getInt();
+			students.addStudent(new Student(studentID, getString(record)));
+			Student.ids.advancePast(studentID);
+			break;
+		case CHECK_IN:
+			students.clearLoan(record.getInt(), record.getInt());
+			break;
+		case CHECK_OUT_DUE:
+			students.recordLoan(record.getInt(), record.getInt(), record.getLong(), record.getLong());
+			break;
+		default:
+			throw new IllegalStateException("Unknown journal record type " + type);
+		}
+	}
+
+	private static void writeSnapshot(DataOutputStream out, long generation, Books books, Students students) throws IOException {
+		out.writeInt(SNAPSHOT_MAGIC);
+		out.writeLong(generation);
+		out.writeInt(books.booklist.size());
+		for(Book book:books.booklist) {
+			out.writeInt(book.getBookID());
+			out.writeInt(book.getQuantity());
+			writeString(out, book.getBookName());
+			writeString(out, book.getBookAuthor());
+		}
+		int[] loans = new int[books.borrowedBooks.size() * 2];
+		int[] next = {0};
+		books.borrowedBooks.forEach((bookID, count) -> {
+			loans[next[0]++] = bookID;
+			loans[next[0]++] = count;
+		});
+		out.writeInt(loans.length / 2);
+		for(int value:loans) {
+			out.writeInt(value);
+		}
+		out.writeInt(students.studentList.size());
+		for(Student student:students.studentList) {
+			out.writeInt(student.getStudentID());
+			writeString(out, student.getStudentName());
+		}
+		List<Loan> studentLoans = new ArrayList<Loan>();
+		for(Students.Loans current:students.loans.values()) {
+			synchronized(current) {
+				studentLoans.addAll(current.active);
+			}
+		}
+		out.writeInt(studentLoans.size());
+		for(Loan loan:studentLoans) {
+			out.writeInt(loan.getStudentID());
+			out.writeInt(loan.getBookID());
+			out.writeLong(loan.getCheckedOutAt());
+			out.writeLong(loan.getDueAt());
+		}
+	}
+
+	private long readSnapshot(Books books, Students students) throws IOException {
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16))) {
+			return readSnapshot(in, books, students);
+		}
+	}
+
+	private static long readSnapshot(DataInputStream in, Books books, Students students) throws IOException {
+		if(in.readInt()!=SNAPSHOT_MAGIC) {
+			throw new IOException("Not a library snapshot");
+		}
+		long generation = in.readLong();
+		int bookCount = in.readInt();
+		for(int i=0;i<bookCount;i++) {
+			int bookID = in.readInt();
+			int quantity = in.readInt();
+			books.addBook(new Book(bookID, readString(in), readString(in), quantity));
+			Book.ids.advancePast(bookID);
+		}
+		int loanCount = in.readInt();
+		for(int i=0;i<loanCount;i++) {
+			books.borrowedBooks.put(in.readInt(), in.readInt());
+		}
+		int studentCount = in.readInt();
+		for(int i=0;i<studentCount;i++) {
+			int studentID = in.readInt();
+			students.addStudent(new Student(studentID, readString(in)));
+			Student.ids.advancePast(studentID);
+		}
+		int studentLoanCount = in.readInt();
+		for(int i=0;i<studentLoanCount;i++) {
+			students.recordLoan(in.readInt(), in.readInt(), in.readLong(), in.readLong());
+		}
+		return generation;
+	}
+
+	private long readHeaderGeneration() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		channel.read(header, 0);
+		header.flip();
+		if(header.getInt()!=MAGIC) {
+			return -1;
+		}
+		return header.getLong();
+	}
+
+	private void resetLog() throws IOException {
+		channel.truncate(0);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putLong(generation).flip();
+		channel.write(header, 0);
+		channel.force(true);
+		channel.position(HEADER_SIZE);
+	}
+
+	private static byte[] utf8(String text) {
+		return text==null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+		buffer.putInt(bytes.length).put(bytes);
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String text) throws IOException {
+		byte[] bytes = utf8(text);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,278 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for the Journal write-ahead log and snapshots.
+ * Testing framework: JUnit 5
+ */
+public class JournalTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Book.ids = new IdAllocator();
+        Student.ids = new IdAllocator();
+        directory = Files.createTempDirectory("library-journal");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private Journal attach(Books books, Students students) throws IOException {
+        Journal journal = Journal.open(directory);
+        journal.recover(books, students);
+        books.journal = journal;
+        students.journal = journal;
+        return journal;
+    }
+
+    private void addBook(Books books, Book book) {
+        books.addBook(book);
+        books.journal.commit(books.journal.logAddBook(book));
+    }
+
+    @Test
+    void testRecover_ReplaysLoggedChanges() throws IOException {
+        Books books = new Books();
+        Students students = new Students();
+        Journal journal = attach(books, students);
+        addBook(books, new Book("Java Programming", "Author 1", 5));
+        addBook(books, new Book("Clean Code", "Author 2", 3));
+        books.rent(1);
+        books.rent(1);
+        books.giveBack(1);
+        books.rent(2);
+        Student student = new Student("Asha");
+        students.addStudent(student);
+        journal.commit(journal.logRegisterStudent(student));
+        journal.close();
+
+        Book.ids = new IdAllocator();
+        Student.ids = new IdAllocator();
+        Books restored = new Books();
+        Students restoredStudents = new Students();
+        attach(restored, restoredStudents).close();
+
+        assertEquals(2, restored.booklist.size());
+        assertEquals(4, restored.findBook(1).getQuantity());
+        assertEquals(2, restored.findBook(2).getQuantity());
+        assertEquals(1, restored.borrowedBooks.count(1));
+        assertEquals(1, restored.borrowedBooks.count(2));
+        assertEquals("Asha", restoredStudents.studentList.get(0).getStudentName());
+        assertEquals(1, restored.search("java", SearchIndex.Field.TITLE, true).size());
+        assertTrue(new Book("New", "Author", 1).getBookID() > 2); // IDs continue after the log
+        assertTrue(new Student("New").getStudentID() > 1);
+    }
+
+    @Test
+    void testRecover_ConcurrentRentsAndQuantityUpdates_ReplayToTheSameState() throws Exception {
+        Books books = new Books();
+        Journal journal = attach(books, new Students());
+        int titles = 4;
+        for (int i = 0; i < titles; i++) {
+            books.addBook("Title " + i, "Author", 20);
+        }
+        List<Thread> threads = new java.util.ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            boolean updater = t == 0;
+            Thread thread = new Thread(() -> {
+                java.util.Random random = new java.util.Random();
+                for (int i = 0; i < 500; i++) {
+                    int bookID = 1 + random.nextInt(titles);
+                    if (updater) {
+                        books.updateQuantity(bookID, 2 + random.nextInt(30));
+                    } else if (random.nextBoolean()) {
+                        books.rent(bookID);
+                    } else {
+                        books.giveBack(bookID);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        journal.close();
+
+        Books restored = new Books();
+        attach(restored, new Students()).close();
+        for (int bookID = 1; bookID <= titles; bookID++) {
+            assertEquals(books.findBook(bookID).getQuantity(), restored.findBook(bookID).getQuantity());
+            assertEquals(books.borrowedBooks.count(bookID), restored.borrowedBooks.count(bookID));
+        }
+    }
+
+    @Test
+    void testSnapshot_ThenMoreChanges_RecoversBoth() throws IOException {
+        Books books = new Books();
+        Students students = new Students();
+        Journal journal = attach(books, students);
+        addBook(books, new Book("Before Snapshot", "Author", 5));
+        books.rent(1);
+        journal.snapshot(books, students);
+        addBook(books, new Book("After Snapshot", "Author", 4));
+        books.rent(2);
+        journal.close();
+
+        Books restored = new Books();
+        attach(restored, new Students()).close();
+
+        assertEquals(2, restored.booklist.size());
+        assertEquals(4, restored.findBook(1).getQuantity());
+        assertEquals(3, restored.findBook(2).getQuantity());
+        assertEquals(1, restored.borrowedBooks.count(1));
+        assertEquals(1, restored.borrowedBooks.count(2));
+    }
+
+    @Test
+    void testRecover_TornLastRecord_IsIgnored() throws IOException {
+        Books books = new Books();
+        Journal journal = attach(books, new Students());
+        addBook(books, new Book("Kept", "Author", 5));
+        books.rent(1);
+        journal.close();
+
+        Path wal = directory.resolve("library.wal");
+        try (FileChannel channel = FileChannel.open(wal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 2);
+        }
+
+        Books restored = new Books();
+        attach(restored, new Students()).close();
+
+        assertEquals(1, restored.booklist.size());
+        assertEquals(5, restored.findBook(1).getQuantity());
+        assertFalse(restored.borrowedBooks.contains(1));
+    }
+
+    @Test
+    void testCommit_ConcurrentRents_AllDurable() throws Exception {
+        Books books = new Books();
+        Journal journal = attach(books, new Students());
+        addBook(books, new Book("Popular", "Author", 401));
+
+        Thread[] desks = new Thread[4];
+        for (int i = 0; i < desks.length; i++) {
+            desks[i] = new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    books.rent(1);
+                }
+            });
+            desks[i].start();
+        }
+        for (Thread desk : desks) {
+            desk.join();
+        }
+        journal.close();
+
+        Books restored = new Books();
+        attach(restored, new Students()).close();
+
+        assertEquals(1, restored.findBook(1).getQuantity());
+        assertEquals(400, restored.borrowedBooks.count(1));
+    }
+
+    @Test
+    void testRecover_StudentLoans_FromLogAndSnapshot() throws IOException {
+        Books books = new Books();
+        Students students = new Students();
+        Journal journal = attach(books, students);
+        addBook(books, new Book("Loaned", "Author", 5));
+        Student student = new Student("Asha");
+        students.addStudent(student);
+        journal.commit(journal.logRegisterStudent(student));
+        students.checkOut(student.getStudentID(), 1, books);
+        journal.snapshot(books, students);
+        students.checkOut(student.getStudentID(), 1, books);
+        students.checkOut(student.getStudentID(), 1, books);
+        students.checkIn(student.getStudentID(), 1, books);
+        journal.close();
+
+        Books restored = new Books();
+        Students restoredStudents = new Students();
+        attach(restored, restoredStudents).close();
+
+        assertEquals(2, restoredStudents.loanCount(student.getStudentID()));
+        assertEquals(2, restored.borrowedBooks.count(1));
+        assertEquals(3, restored.findBook(1).getQuantity());
+    }
+
+    @Test
+    void testRecover_KeepsDueDates() throws IOException {
+        Clock checkout = Clock.fixed(Instant.parse("2026-01-05T09:00:00Z"), ZoneOffset.UTC);
+        Books books = new Books();
+        Students students = new Students(checkout);
+        Journal journal = attach(books, students);
+        addBook(books, new Book("Loaned", "Author", 5));
+        Student student = new Student("Asha");
+        students.addStudent(student);
+        journal.commit(journal.logRegisterStudent(student));
+        students.checkOut(student.getStudentID(), 1, books);
+        journal.snapshot(books, students);
+        students.checkOut(student.getStudentID(), 1, books);
+        journal.close();
+
+        Books restored = new Books();
+        Students restoredStudents = new Students(Clock.fixed(Instant.parse("2026-02-01T00:00:00Z"), ZoneOffset.UTC));
+        attach(restored, restoredStudents).close();
+
+        List<Loan> loans = restoredStudents.loanDetailsOf(student.getStudentID());
+        assertEquals(2, loans.size());
+        for (Loan loan : loans) {
+            assertEquals(Instant.parse("2026-01-05T09:00:00Z").toEpochMilli(), loan.getCheckedOutAt());
+            assertEquals(Instant.parse("2026-01-19T09:00:00Z").toEpochMilli(), loan.getDueAt());
+        }
+        assertEquals(2, restoredStudents.overdueLoans().size());
+    }
+
+    @Test
+    void testRecover_ReplaysBatchCirculation() throws IOException {
+        Books books = new Books();
+        Students students = new Students();
+        Journal journal = attach(books, students);
+        addBook(books, new Book("Java Programming", "Author 1", 5));
+        addBook(books, new Book("Clean Code", "Author 2", 3));
+        Student student = new Student("Asha");
+        students.addStudent(student);
+        journal.commit(journal.logRegisterStudent(student));
+        int asha = student.getStudentID();
+        assertTrue(students.checkOutAll(new int[] {asha, asha, asha}, new int[] {1, 2, 1}, books).isOk());
+        assertTrue(students.checkInAll(new int[] {asha}, new int[] {2}, books).isOk());
+        journal.close();
+
+        Book.ids = new IdAllocator();
+        Student.ids = new IdAllocator();
+        Books restored = new Books();
+        Students restoredStudents = new Students();
+        attach(restored, restoredStudents).close();
+
+        assertEquals(3, restored.findBook(1).getQuantity());
+        assertEquals(3, restored.findBook(2).getQuantity());
+        assertEquals(2, restored.borrowedBooks.count(1));
+        assertFalse(restored.borrowedBooks.contains(2));
+        assertEquals(2, restoredStudents.loanCount(asha));
+    }
+}
@@ -0,0 +1,276 @@
+package com.cc.library;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the HTTP front-end: writing books, students, loans and results, and reading flat request objects.
+ *
+ * Request bodies are single objects whose values are strings, numbers, booleans or null, such as {"studentId": 4, "bookId": 17}. Nested objects and arrays are rejected.
+ */
+final class Json {
+
+	private Json() {
+	}
+
+	static String book(Book book) {
+		return "{\"bookID\":" + book.getBookID()
+				+ ",\"bookName\":" + quote(book.getBookName())
+				+ ",\"bookAuthor\":" + quote(book.getBookAuthor())
+				+ ",\"quantity\":" + book.getQuantity() + "}";
+	}
+
+	static String student(Student student) {
+		return "{\"studentID\":" + student.getStudentID()
+				+ ",\"studentName\":" + quote(student.getStudentName()) + "}";
+	}
+
+	static String books(List<Book> books) {
+		StringBuilder out = new StringBuilder(books.size() * 80 + 2).append('[');
+		for(int i=0;i<books.size();i++) {
+			if(i>0) {
+				out.append(',');
+			}
+			out.append(book(books.get(i)));
+		}
+		return out.append(']').toString();
+	}
+
+	static String loans(List<Loan> loans) {
+		StringBuilder out = new StringBuilder(loans.size() * 96 + 2).append('[');
+		for(int i=0;i<loans.size();i++) {
+			Loan loan = loans.get(i);
+			if(i>0) {
+				out.append(',');
+			}
+			out.append("{\"studentID\":").append(loan.getStudentID())
+					.append(",\"bookID\":").append(loan.getBookID())
+					.append(",\"checkedOutAt\":").append(quote(Instant.ofEpochMilli(loan.getCheckedOutAt()).toString()))
+					.append(",\"dueAt\":").append(quote(Instant.ofEpochMilli(loan.getDueAt()).toString())).append('}');
+		}
+		return out.append(']').toString();
+	}
+
+	static String demand(List<CirculationStats.Demand> demand) {
+		StringBuilder out = new StringBuilder(demand.size() * 32 + 2).append('[');
+		for(int i=0;i<demand.size();i++) {
+			if(i>0) {
+				out.append(',');
+			}
+			out.append("{\"bookID\":").append(demand.get(i).getBookID())
+					.append(",\"borrows\":").append(demand.get(i).getBorrows()).append('}');
+		}
+		return out.append(']').toString();
+	}
+
+	static String stockAlerts(List<CirculationStats.StockAlert> alerts) {
+		StringBuilder out = new StringBuilder(alerts.size() * 56 + 2).append('[');
+		for(int i=0;i<alerts.size();i++) {
+			if(i>0) {
+				out.append(',');
+			}
+			out.append("{\"bookID\":").append(alerts.get(i).getBookID())
+					.append(",\"since\":").append(quote(Instant.ofEpochMilli(alerts.get(i).getSince()).toString())).append('}');
+		}
+		return out.append(']').toString();
+	}
+
+	static String circulation(int bookID, int borrows, double utilization) {
+		return "{\"bookID\":" + bookID + ",\"borrows\":" + borrows + ",\"utilization\":" + utilization + "}";
+	}
+
+	static String bookPage(Page<Book> page) {
+		return "{\"books\":" + books(page.getItems()) + ",\"nextCursor\":" + page.getNextCursor() + "}";
+	}
+
+	static String studentPage(Page<Student> page) {
+		StringBuilder out = new StringBuilder(page.getItems().size() * 48 + 32).append("{\"students\":[");
+		for(int i=0;i<page.getItems().size();i++) {
+			if(i>0) {
+				out.append(',');
+			}
+			out.append(student(page.getItems().get(i)));
+		}
+		return out.append("],\"nextCursor\":").append(page.getNextCursor()).append('}').toString();
+	}
+
+	static String result(OperationResult<?> result) {
+		StringBuilder out = new StringBuilder("{\"status\":").append(quote(result.getStatus().name()));
+		Object value = result.getValue();
+		if(value instanceof Book) {
+			out.append(",\"book\":").append(book((Book) value));
+		}else if(value instanceof Student) {
+			out.append(",\"student\":").append(student((Student) value));
+		}
+		return out.append('}').toString();
+	}
+
+	static String batch(BatchResult result) {
+		return "{\"status\":" + quote(result.getStatus().name()) + ",\"failedIndex\":" + result.getFailedIndex() + "}";
+	}
+
+	static String quote(String text) {
+		if(text==null) {
+			return "null";
+		}
+		StringBuilder out = new StringBuilder(text.length() + 2).append('"');
+		for(int i=0;i<text.length();i++) {
+			char c = text.charAt(i);
+			switch(c) {
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				if(c<0x20) {
+					out.append(String.format("\\u%04x", (int) c));
+				}else {
+					out.append(c);
+				}
+			}
+		}
+		return out.append('"').toString();
+	}
+
+	/**
+	 * Reads a flat JSON object into a map of field names to values as text. Null values are left out.
+	 *
+	 * @param text the JSON object
+	 * @return the fields in the order they appear
+	 * @throws IllegalArgumentException if the text is not a flat JSON object
+	 */
+	static Map<String, String> parseObject(String text) {
+		Map<String, String> fields = new LinkedHashMap<String, String>();
+		int[] at = {skipSpace(text, 0)};
+		expect(text, at, '{');
+		if(peek(text, at)=='}') {
+			at[0]++;
+			return fields;
+		}
+		while(true) {
+			at[0] = skipSpace(text, at[0]);
+			String name = readString(text, at);
+			expect(text, at, ':');
+			at[0] = skipSpace(text, at[0]);
+			String value = peek(text, at)=='"' ? readString(text, at) : readLiteral(text, at);
+			if(value!=null) {
+				fields.put(name, value);
+			}
+			char next = peek(text, at);
+			at[0]++;
+			if(next=='}') {
+				break;
+			}
+			if(next!=',') {
+				throw new IllegalArgumentException("Expected , or } at " + (at[0] - 1));
+			}
+		}
+		if(skipSpace(text, at[0])!=text.length()) {
+			throw new IllegalArgumentException("Unexpected text after the object");
+		}
+		return fields;
+	}
+
+	private static String readString(String text, int[] at) {
+		expect(text, at, '"');
+		StringBuilder out = new StringBuilder();
+		int i = at[0];
+		while(i<text.length()) {
+			char c = text.charAt(i++);
+			if(c=='"') {
+				at[0] = i;
+				return out.toString();
+			}
+			if(c!='\\') {
+				out.append(c);
+				continue;
+			}
+			if(i>=text.length()) {
+				break;
+			}
+			char escaped = text.charAt(i++);
+			switch(escaped) {
+			case 'n':
+				out.append('\n');
+				break;
+			case 't':
+				out.append('\t');
+				break;
+			case 'r':
+				out.append('\r');
+				break;
+			case 'b':
+				out.append('\b');
+				break;
+			case 'f':
+				out.append('\f');
+				break;
+			case 'u':
+				if(i + 4>text.length()) {
+					throw new IllegalArgumentException("Bad \\u escape");
+				}
+				out.append((char) Integer.parseInt(text.substring(i, i + 4), 16));
+				i += 4;
+				break;
+			default:
+				out.append(escaped);
+			}
+		}
+		throw new IllegalArgumentException("Unterminated string");
+	}
+
+	private static String readLiteral(String text, int[] at) {
+		int start = at[0];
+		int i = start;
+		while(i<text.length() && ",} \t\r\n".indexOf(text.charAt(i))<0) {
+			char c = text.charAt(i);
+			if(c=='{' || c=='[') {
+				throw new IllegalArgumentException("Nested values are not supported");
+			}
+			i++;
+		}
+		String literal = text.substring(start, i);
+		if(literal.isEmpty()) {
+			throw new IllegalArgumentException("Missing value at " + start);
+		}
+		at[0] = skipSpace(text, i);
+		return literal.equals("null") ? null : literal;
+	}
+
+	private static void expect(String text, int[] at, char c) {
+		at[0] = skipSpace(text, at[0]);
+		if(at[0]>=text.length() || text.charAt(at[0])!=c) {
+			throw new IllegalArgumentException("Expected " + c + " at " + at[0]);
+		}
+		at[0]++;
+	}
+
+	private static char peek(String text, int[] at) {
+		at[0] = skipSpace(text, at[0]);
+		if(at[0]>=text.length()) {
+			throw new IllegalArgumentException("Unexpected end of JSON");
+		}
+		return text.charAt(at[0]);
+	}
+
+	private static int skipSpace(String text, int i) {
+		while(i<text.length() && Character.isWhitespace(text.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.cc.library;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ *
+ * Values below 32 get a bucket each. Above that, every power of two is split into 32 equal buckets, so any recorded value is reported within about 3% of its true size while the whole range of a long fits in 1920 counters. Recording is one bucket index computation and one atomic increment, with no lock and no allocation, so it can sit on every call of the circulation hot path.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 5;
+	private static final int SUB = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder total = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records one value, usually a latency in nanoseconds. Negative values count as 0.
+	 *
+	 * @param value the value to record
+	 */
+	public void record(long value) {
+		long v = Math.max(value, 0);
+		counts.incrementAndGet(indexOf(v));
+		total.increment();
+		sum.add(v);
+		long currentMax = max.get();
+		while(v>currentMax && !max.compareAndSet(currentMax, v)) {
+			currentMax = max.get();
+		}
+	}
+
+	/**
+	 * @return the number of recorded values
+	 */
+	public long count() {
+		return total.sum();
+	}
+
+	public long max() {
+		return max.get();
+	}
+
+	public double mean() {
+		long count = count();
+		return count==0 ? 0 : (double) sum.sum() / count;
+	}
+
+	/**
+	 * Returns the value below which the given share of recorded values fall, rounded up to the top of its bucket.
+	 *
+	 * Counters are read one by one while other threads keep recording, so under load the answer describes a moment within the read rather than one exact instant.
+	 *
+	 * @param percentile between 0 and 100, for example 99.9
+	 * @return the value at the percentile, or 0 if nothing was recorded
+	 */
+	public long valueAt(double percentile) {
+		long count = count();
+		if(count==0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+		long seen = 0;
+		for(int i=0;i<BUCKETS;i++) {
+			seen += counts.get(i);
+			if(seen>=rank) {
+				return Math.min(highestValueIn(i), max());
+			}
+		}
+		return max();
+	}
+
+	static int indexOf(long value) {
+		if(value<SUB) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BITS;
+		return (shift + 1) * SUB + (int) ((value >>> shift) - SUB);
+	}
+
+	static long highestValueIn(int index) {
+		if(index<SUB) {
+			return index;
+		}
+		int shift = index / SUB - 1;
+		long lowest = (long) (SUB + index % SUB) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+}
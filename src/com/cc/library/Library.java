@@ -4,11 +4,24 @@ package com.cc.library;
 //To Create The Menu For the Program
 
 //Importing required classes
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+
+import javax.management.JMException;
 
 //Class
 public class Library {
 
+ // How many books one ordered listing shows
+ private static final int BROWSE_LIMIT = 50;
+
  // Main driver method
  public static void main(String[] args)
  {
@@ -24,20 +37,44 @@ public class Library {
      System.out.println(
          "**********************************************************************");
 
-     // Creating object of book class
-     Books ob = new Books();
-     // Creating object of students class
-     Students obStudent = new Students();
+     // Creating the service that does the actual work,
+     // this class only asks questions and prints answers
+     LibraryService service = new LibraryService();
+
+     // Reading the options
+     // --catalog <directory> attaches a memory-mapped catalog
+     // --http <port> serves the library over HTTP instead of this menu
+     int httpPort = -1;
+     for (int i = 0; i + 1 < args.length; i += 2) {
+         if (args[i].equals("--catalog")) {
+             attachCatalog(service, args[i + 1]);
+         } else if (args[i].equals("--http")) {
+             httpPort = Integer.parseInt(args[i + 1]);
+         }
+     }
+
+     // Publishing the counters and latencies over JMX
+     // so jconsole or any JMX client can watch them
+     registerMetrics(service);
+
+     // Loading saved state and attaching the journal
+     // so every change is written to disk
+     openJournal(service);
+
+     if (httpPort >= 0) {
+         serveHttp(service, httpPort);
+         return;
+     }
 
      int choice;
-     //int searchChoice;
+     int searchChoice;
 
      // Creating menu
      // using do-while loop
      do {
 
          dispMenu();
-         choice = input.nextInt();
+         choice = askInt(input, "");
 
          // Switch case
          switch (choice) {
@@ -48,66 +85,103 @@ public class Library {
 
              // Case
          case 1:
-             ob.addBook();
+             addBook(input, service);
              break;
 
              // Case
          case 2:
-             ob.updateBook();
+             updateBook(input, service);
              break;
 
          // Case
          case 3:
-        	 
-        	 /*
              System.out.println(
-                 " press 1 to Search with Book Serial No.");
+                 " Press 1 to Search with Book Name.");
              System.out.println(
                  " Press 2 to Search with Book's Author Name.");
-             searchChoice = input.nextInt();
+             System.out.println(
+                 " Press 3 to Search any word in Name or Author.");
+             searchChoice = askInt(input, "");
 
              // Nested switch
              switch (searchChoice) {
 
                  // Case
              case 1:
-                 ob.searchBySno();
+                 search(input, service, "Enter the book name you want to search:",
+                     SearchIndex.Field.TITLE, true, "No books found with the name: ");
                  break;
 
                  // Case
              case 2:
-                 ob.searchByAuthorName();
+                 search(input, service, "Enter the author name you want to search:",
+                     SearchIndex.Field.AUTHOR, true, "No books found by the author: ");
+                 break;
+
+                 // Case
+             case 3:
+                 search(input, service, "Enter any words from a book name or author:",
+                     SearchIndex.Field.ANY, false, "No books found for: ");
+                 break;
+
+             default:
+                 System.out.println("ENTER BETWEEN 1 TO 3.");
              }
-             */
-			 ob.searchBook();
              break;
 
              // Case
          case 4:
-             ob.showAllBooks();
+             showAllBooks(service);
              break;
 
              // Case
          case 5:
-             
-             obStudent.registerStudent();
+             registerStudent(input, service);
              break;
 
              // Case
          case 6:
-             obStudent.showAllStudents();
+             showAllStudents(service);
              break;
 
              // Case
          case 7:
-             //obStudent.checkOutBook(ob);
-        	 ob.rentAbook();
+             rentBook(input, service);
              break;
 
              // Case
          case 8:
-             //obStudent.checkInBook(ob);
-        	 ob.returnAbook();
+             returnBook(input, service);
+             break;
+
+             // Case
+         case 9:
+             importCsv(input, service);
+             break;
+
+             // Case
+         case 10:
+             exportCsv(input, service);
+             break;
+
+             // Case
+         case 11:
+             System.out.print(service.metrics().dump());
+             break;
+
+             // Case
+         case 12:
+             showOverdueLoans(service);
+             break;
+
+             // Case
+         case 13:
+             browseBooks(input, service);
+             break;
+
+             // Case
+         case 14:
+             showCirculation(service);
              break;
 
              // Default case that will execute for sure
@@ -115,7 +189,19 @@ public class Library {
          default:
 
              // Print statement
-             System.out.println("ENTER BETWEEN 0 TO 8.");
+             System.out.println("ENTER BETWEEN 0 TO 14.");
+         }
+
+         // Compacting the journal into a snapshot
+         // once enough changes have piled up
+         try {
+             if (choice == 0) {
+                 service.snapshot();
+             } else {
+                 service.snapshotIfDue();
+             }
+         } catch (IOException e) {
+             System.out.println("Could not save a snapshot: " + e.getMessage());
          }
 
      }
@@ -123,6 +209,359 @@ public class Library {
      // Checking condition at last where we are
      // checking case entered value is not zero
      while (choice != 0);
+
+     try {
+         service.close();
+     } catch (IOException e) {
+         System.out.println("Could not close the library journal: " + e.getMessage());
+     }
+ }
+
+ private static void attachCatalog(LibraryService service, String directory) {
+	 try {
+		 int size = service.attachCatalog(Paths.get(directory));
+		 System.out.println("Opened catalog with " + size + " books.");
+	 } catch (IOException e) {
+		 System.out.println("Could not open the catalog " + directory + ": " + e.getMessage());
+	 }
+ }
+
+ private static void registerMetrics(LibraryService service) {
+	 try {
+		 service.metrics().registerPlatform();
+	 } catch (JMException e) {
+		 System.out.println("Could not publish metrics over JMX: " + e.getMessage());
+	 }
+ }
+
+ private static void serveHttp(LibraryService service, int port) {
+	 try {
+		 LibraryHttpServer server = new LibraryHttpServer(service, new InetSocketAddress(port));
+		 server.start();
+
+		 // Stopping cleanly on Ctrl+C so the journal is
+		 // snapshotted and closed
+		 Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			 server.stop(2);
+			 try {
+				 service.close();
+			 } catch (IOException e) {
+				 System.out.println("Could not close the library journal: " + e.getMessage());
+			 }
+		 }));
+		 System.out.println("Serving the library on http://localhost:" + server.getPort() + "/ (Ctrl+C to stop)");
+	 } catch (IOException e) {
+		 System.out.println("Could not start the HTTP server on port " + port + ": " + e.getMessage());
+	 }
+ }
+
+ private static void openJournal(LibraryService service) {
+	 try {
+		 service.openJournal(Paths.get("library-data"));
+		 System.out.println("Loaded " + service.bookCount() + " books and "
+			 + service.studentCount() + " students.");
+	 } catch (IOException e) {
+		 System.out.println("Could not open the library journal, changes will not be saved: " + e.getMessage());
+	 }
+ }
+
+ private static void addBook(Scanner input, LibraryService service) {
+	 OperationResult<Book> result = service.addBook(askString(input, "Whats the book name?"),
+		 askString(input, "Whats the author name?"), askInt(input, "How many books are you adding?"));
+	 if (result.isOk()) {
+		 System.out.println(result.getValue() + " added.");
+	 } else {
+		 System.out.println("Please give a name, an author and at least one copy.");
+	 }
+ }
+
+ private static void updateBook(Scanner input, LibraryService service) {
+	 int bookID = askInt(input, "Which book ID , you want to update?");
+	 if (service.findBook(bookID) == null) {
+		 System.out.println("Not a valid Book ID");
+		 return;
+	 }
+	 OperationResult<Book> result = service.updateQuantity(bookID, askInt(input, "Whats new quantity of book?"));
+	 if (result.isOk()) {
+		 System.out.println(result.getValue().getQuantity() + "is the new quantity of Book: " + bookID);
+	 } else {
+		 System.out.println("The quantity cannot be negative.");
+	 }
+ }
+
+ private static void search(Scanner input, LibraryService service, String prompt,
+		 SearchIndex.Field field, boolean matchAll, String noneFound) {
+	 String query = askString(input, prompt);
+	 List<Book> results = service.search(query, field, matchAll);
+	 if (results.isEmpty()) {
+		 results = service.searchFuzzy(query, field, Books.SUGGESTIONS);
+		 if (!results.isEmpty()) {
+			 System.out.println("No exact match for: " + query + ". Did you mean:");
+		 }
+	 }
+	 if (results.isEmpty()) {
+		 System.out.println(noneFound + query);
+	 } else {
+		 System.out.println("Search results:");
+		 for (Book book : results) {
+			 System.out.println(book);
+		 }
+	 }
+ }
+
+ // Printing a page at a time with one write per page
+ // instead of one synchronized println per book
+ private static void showAllBooks(LibraryService service) {
+	 if (service.bookCount() == 0) {
+		 System.out.println("No books available in the library");
+		 return;
+	 }
+	 System.out.println("Available books in the library:");
+	 StringBuilder out = new StringBuilder(Books.PRINT_PAGE * 80);
+	 int cursor = Page.FIRST;
+	 do {
+		 Page<Book> page = service.booksPage(cursor, Books.PRINT_PAGE);
+		 for (Book book : page.getItems()) {
+			 book.appendTo(out).append(System.lineSeparator());
+		 }
+		 System.out.print(out);
+		 out.setLength(0);
+		 cursor = page.getNextCursor();
+	 } while (cursor >= 0);
+ }
+
+ private static void registerStudent(Scanner input, LibraryService service) {
+	 OperationResult<Student> result = service.registerStudent(askString(input, "Whats your name?"));
+	 if (result.isOk()) {
+		 System.out.println("Student registered successfully. Your Student ID is " + result.getValue().getStudentID());
+	 } else {
+		 System.out.println("Please give a name.");
+	 }
+ }
+
+ private static void showAllStudents(LibraryService service) {
+	 if (service.studentCount() == 0) {
+		 System.out.println("No students registered yet.");
+		 return;
+	 }
+	 System.out.println("Registered Students:");
+	 StringBuilder out = new StringBuilder(Books.PRINT_PAGE * 48);
+	 int cursor = Page.FIRST;
+	 do {
+		 Page<Student> page = service.studentsPage(cursor, Books.PRINT_PAGE);
+		 for (Student student : page.getItems()) {
+			 student.appendTo(out).append(System.lineSeparator());
+		 }
+		 System.out.print(out);
+		 out.setLength(0);
+		 cursor = page.getNextCursor();
+	 } while (cursor >= 0);
+ }
+
+ private static void rentBook(Scanner input, LibraryService service) {
+	 int studentID = askInt(input, "Enter your Student ID:");
+	 if (service.findStudent(studentID) == null) {
+		 System.out.println("No student found with ID: " + studentID);
+		 return;
+	 }
+	 System.out.println("Avaliable books to borrow:");
+	 for (Book book : service.availableBooks()) {
+		 System.out.println(book);
+	 }
+	 int bookID = askInt(input, "Provide the Book ID of the book, you want to borrow:");
+	 OperationResult<Book> result = service.rent(studentID, bookID);
+	 switch (result.getStatus()) {
+	 case OK:
+		 System.out.println(result.getValue().getBookName() + " has been added to your cart.\nGood Choice. Happy Reading.");
+		 System.out.println("Please return it by " + LocalDate.now().plus(Students.LOAN_PERIOD));
+		 break;
+	 case LOAN_LIMIT_REACHED:
+		 System.out.println("You already have " + Students.MAX_LOANS + " books. Please return one before borrowing another.");
+		 break;
+	 case NOT_AVAILABLE:
+		 placeHold(input, service, studentID, bookID);
+		 break;
+	 default:
+		 System.out.println("Sorry! Input invalid / that Book ID is not available");
+	 }
+ }
+
+ // Offering a place in the queue for a book with no copy left,
+ // the next returned copy goes to the first student waiting
+ private static void placeHold(Scanner input, LibraryService service, int studentID, int bookID) {
+	 int waiting = service.holdsWaiting(bookID);
+	 if (askInt(input, "That book is not available right now, " + waiting
+		 + " student(s) are waiting for it.\nPress 1 to place a hold, any other number to skip.") != 1) {
+		 return;
+	 }
+	 CompletableFuture<OperationResult<Book>> hold = service.placeHold(studentID, bookID);
+	 if (!hold.isDone()) {
+		 System.out.println("You are on the hold list. The book will be checked out to you when a copy comes back.");
+	 }
+	 hold.thenAccept(result -> {
+		 if (result.isOk()) {
+			 System.out.println("Hold ready: " + result.getValue().getBookName() + " has been checked out to student " + studentID + ".");
+		 } else {
+			 System.out.println("Hold for student " + studentID + " ended: " + result.getStatus());
+		 }
+	 });
+ }
+
+ private static void returnBook(Scanner input, LibraryService service) {
+	 int studentID = askInt(input, "Enter your Student ID:");
+	 if (service.findStudent(studentID) == null) {
+		 System.out.println("No student found with ID: " + studentID);
+		 return;
+	 }
+	 List<Book> borrowed = service.loansOf(studentID);
+	 if (borrowed.isEmpty()) {
+		 System.out.println("You have not borrowed any books.");
+		 return;
+	 }
+	 System.out.println("Books you have borrowed:");
+	 for (Book book : borrowed) {
+		 System.out.println(book);
+	 }
+	 OperationResult<Book> result = service.giveBack(studentID, askInt(input, "Which Book ID are you returning?"));
+	 if (result.isOk()) {
+		 System.out.println(result.getValue().getBookName() + " successfully returned");
+	 } else {
+		 System.out.println("Invalid input or you never borrowed this book");
+	 }
+ }
+
+ private static void showOverdueLoans(LibraryService service) {
+	 List<Loan> overdue = service.overdueLoans();
+	 if (overdue.isEmpty()) {
+		 System.out.println("No overdue loans.");
+		 return;
+	 }
+	 System.out.println("Overdue loans:");
+	 for (Loan loan : overdue) {
+		 Book book = service.findBook(loan.getBookID());
+		 System.out.println("Student " + loan.getStudentID() + ": " + (book == null ? "Book " + loan.getBookID() : book.getBookName())
+			 + ", due " + Instant.ofEpochMilli(loan.getDueAt()).atZone(ZoneId.systemDefault()).toLocalDate());
+	 }
+ }
+
+ // Reading ranges straight off the sorted indexes
+ // instead of sorting every book for each listing
+ private static void browseBooks(Scanner input, LibraryService service) {
+	 System.out.println(" Press 1 to Browse by Book Name.");
+	 System.out.println(" Press 2 to Browse by Author Name.");
+	 System.out.println(" Press 3 to List Books Running Low.");
+	 int browseChoice = askInt(input, "");
+	 List<Book> results;
+	 if (browseChoice == 1 || browseChoice == 2) {
+		 String from = askString(input, "Start from (leave empty for the beginning):").trim();
+		 String to = askString(input, "Up to and including (leave empty for the end):").trim();
+		 results = service.browse(browseChoice == 1 ? SortedIndexes.Order.TITLE : SortedIndexes.Order.AUTHOR,
+			 from.isEmpty() ? null : from, to.isEmpty() ? null : to, BROWSE_LIMIT);
+	 } else if (browseChoice == 3) {
+		 int copies = askInt(input, "Show books with fewer copies than:");
+		 results = service.byQuantity(Integer.MIN_VALUE, Math.max(copies, Integer.MIN_VALUE + 1) - 1, BROWSE_LIMIT);
+	 } else {
+		 System.out.println("ENTER BETWEEN 1 TO 3.");
+		 return;
+	 }
+	 if (results.isEmpty()) {
+		 System.out.println("No books in that range.");
+		 return;
+	 }
+	 for (Book book : results) {
+		 System.out.println(book + " (" + book.getQuantity() + " copies)");
+	 }
+	 if (results.size() == BROWSE_LIMIT) {
+		 System.out.println("Showing the first " + BROWSE_LIMIT + " books, narrow the range to see more.");
+	 }
+ }
+
+ // Reading the running counts kept by CirculationStats
+ // instead of going through every loan
+ private static void showCirculation(LibraryService service) {
+	 List<CirculationStats.Demand> demand = service.mostBorrowed();
+	 if (demand.isEmpty()) {
+		 System.out.println("No books borrowed this week.");
+	 } else {
+		 System.out.println("Most borrowed this week:");
+		 for (CirculationStats.Demand entry : demand) {
+			 Book book = service.findBook(entry.getBookID());
+			 System.out.println((book == null ? "Book " + entry.getBookID() : book.getBookName()) + ": " + entry.getBorrows()
+				 + " loans, " + Math.round(service.utilization(entry.getBookID()) * 100) + "% out");
+		 }
+	 }
+	 List<CirculationStats.StockAlert> alerts = service.lowStock();
+	 if (alerts.isEmpty()) {
+		 System.out.println("No books low on stock.");
+		 return;
+	 }
+	 System.out.println("Low on stock:");
+	 for (CirculationStats.StockAlert alert : alerts) {
+		 Book book = service.findBook(alert.getBookID());
+		 System.out.println((book == null ? "Book " + alert.getBookID() : book.getBookName()) + ", since "
+			 + Instant.ofEpochMilli(alert.getSince()).atZone(ZoneId.systemDefault()).toLocalDate());
+	 }
+ }
+
+ private static void importCsv(Scanner input, LibraryService service) {
+	 System.out.println(" Press 1 to Import Books (name,author,quantity).");
+	 System.out.println(" Press 2 to Import Students (name).");
+	 int importChoice = askInt(input, "");
+	 if (importChoice != 1 && importChoice != 2) {
+		 System.out.println("ENTER BETWEEN 1 TO 2.");
+		 return;
+	 }
+	 String file = askString(input, "Path of the CSV file:");
+	 try {
+		 BulkLoader.Report report = importChoice == 1
+			 ? service.importBooks(Paths.get(file))
+			 : service.importStudents(Paths.get(file));
+		 System.out.println(report);
+	 } catch (IOException e) {
+		 System.out.println("Could not import " + file + ": " + e.getMessage());
+	 }
+ }
+
+ private static void exportCsv(Scanner input, LibraryService service) {
+	 System.out.println(" Press 1 to Export Books.");
+	 System.out.println(" Press 2 to Export Students.");
+	 int exportChoice = askInt(input, "");
+	 if (exportChoice != 1 && exportChoice != 2) {
+		 System.out.println("ENTER BETWEEN 1 TO 2.");
+		 return;
+	 }
+	 String file = askString(input, "Path of the CSV file to write:");
+	 try {
+		 long rows = exportChoice == 1
+			 ? service.exportBooks(Paths.get(file))
+			 : service.exportStudents(Paths.get(file));
+		 System.out.println("Exported " + rows + (exportChoice == 1 ? " books" : " students") + " to " + file);
+	 } catch (IOException e) {
+		 System.out.println("Could not export " + file + ": " + e.getMessage());
+	 }
+ }
+
+ // Reading whole lines so numbers and text can be mixed
+ // without leftover line breaks
+ private static int askInt(Scanner input, String prompt) {
+	 if (!prompt.isEmpty()) {
+		 System.out.println(prompt);
+	 }
+	 while (true) {
+		 if (!input.hasNextLine()) {
+			 return 0;
+		 }
+		 try {
+			 return Integer.parseInt(input.nextLine().trim());
+		 } catch (NumberFormatException e) {
+			 System.out.println("Please enter a number.");
+		 }
+	 }
+ }
+
+ private static String askString(Scanner input, String prompt) {
+	 System.out.println(prompt);
+	 return input.hasNextLine() ? input.nextLine() : "";
  }
 
  private static void dispMenu() {
@@ -137,6 +576,12 @@ public class Library {
 	 System.out.println("6. Show All Students");
 	 System.out.println("7. Rent a Book");
 	 System.out.println("8. Return a Book");
+	 System.out.println("9. Import from CSV");
+	 System.out.println("10. Export to CSV");
+	 System.out.println("11. Show Metrics");
+	 System.out.println("12. Show Overdue Loans");
+	 System.out.println("13. Browse Books in Order");
+	 System.out.println("14. Show Circulation Analytics");
 	 System.out.println("0. Exit");
 	 System.out.print("Enter your choice: ");
 	
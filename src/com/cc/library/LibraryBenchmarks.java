@@ -0,0 +1,47 @@
+package com.cc.library;
+
+import java.io.File;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every JMH suite and writes the results as JSON, one file per run, so two versions can be compared.
+ * Benchmark framework: JMH
+ *
+ * Usage: LibraryBenchmarks [output directory] [catalog sizes, comma separated]. Results go to catalog.json, serialization.json and circulation-&lt;threads&gt;t.json.
+ */
+public class LibraryBenchmarks {
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws RunnerException {
+        File outputDirectory = new File(args.length > 0 ? args[0] : "benchmark-results");
+        outputDirectory.mkdirs();
+        String[] sizes = args.length > 1 ? args[1].split(",") : new String[] {"1000", "100000", "1000000", "10000000"};
+
+        new Runner(options(CatalogBenchmark.class, 1, sizes, new File(outputDirectory, "catalog.json"))).run();
+        new Runner(options(SerializationBenchmark.class, 1, sizes, new File(outputDirectory, "serialization.json"))).run();
+        for (int threads : THREAD_COUNTS) {
+            new Runner(options(CirculationBenchmark.class, threads, sizes,
+                    new File(outputDirectory, "circulation-" + threads + "t.json"))).run();
+        }
+    }
+
+    private static Options options(Class<?> suite, int threads, String[] sizes, File result) {
+        return new OptionsBuilder()
+                .include(suite.getSimpleName())
+                .param("catalogSize", sizes)
+                .threads(threads)
+                .forks(1)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .jvmArgsAppend("-Xmx8g")
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.getPath())
+                .build();
+    }
+}
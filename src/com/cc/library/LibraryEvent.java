@@ -0,0 +1,84 @@
+package com.cc.library;
+
+import java.time.Instant;
+
+/**
+ * One change to the library, as published on the EventBus.
+ *
+ * Events are slots of the bus's ring and are filled in again once every subscriber has moved past them, so a handler must copy what it wants to keep before it returns. Fields that do not apply to a type are 0: a book that is added has no student, and a student who registers has no book.
+ */
+public final class LibraryEvent {
+
+	public enum Type {
+		/**
+		 * A book was added, copies is its quantity.
+		 */
+		BOOK_ADDED,
+		/**
+		 * A book's quantity was set, copies is the new quantity.
+		 */
+		QUANTITY_SET,
+		/**
+		 * Copies of a book went out without a student, copies is how many. Copies lent to a student are published as LOAN_OPENED only.
+		 */
+		COPIES_RENTED,
+		/**
+		 * Copies of a book came back without a student, copies is how many. Copies a student returns are published as LOAN_CLOSED only.
+		 */
+		COPIES_RETURNED,
+		STUDENT_REGISTERED,
+		/**
+		 * A student borrowed one copy of a book, which also left the shelf.
+		 */
+		LOAN_OPENED,
+		/**
+		 * A student returned one copy of a book, which is back on the shelf.
+		 */
+		LOAN_CLOSED
+	}
+
+	Type type;
+	int bookID;
+	int studentID;
+	int copies;
+	long at;
+
+	LibraryEvent() {
+	}
+
+	void set(Type type, int bookID, int studentID, int copies, long at) {
+		this.type = type;
+		this.bookID = bookID;
+		this.studentID = studentID;
+		this.copies = copies;
+		this.at = at;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public int getBookID() {
+		return bookID;
+	}
+
+	public int getStudentID() {
+		return studentID;
+	}
+
+	public int getCopies() {
+		return copies;
+	}
+
+	/**
+	 * @return when the change was published, in epoch milliseconds
+	 */
+	public long getAt() {
+		return at;
+	}
+
+	@Override
+	public String toString() {
+		return Instant.ofEpochMilli(at) + " " + type + " book " + bookID + " student " + studentID + " copies " + copies;
+	}
+}
@@ -0,0 +1,95 @@
+package com.cc.library;
+
+/**
+ * Current size and memory use of the library, read on demand.
+ *
+ * No gauge takes a lock on the catalog or changes anything. Most read a counter the library keeps up to date as it changes, and the index size adds up estimates that the search index keeps as books are added and removed. The available books gauge is the exception that does real work: it counts the bits of the availability bitset, one word per 64 books.
+ */
+public class LibraryGauges implements LibraryGaugesMBean {
+
+	private final Books books;
+	private final Students students;
+
+	LibraryGauges(Books books, Students students) {
+		this.books = books;
+		this.students = students;
+	}
+
+	@Override
+	public int getBookCount() {
+		return books.size();
+	}
+
+	@Override
+	public int getStudentCount() {
+		return students.studentList.size();
+	}
+
+	/**
+	 * @return the number of copies currently lent out, across all books
+	 */
+	@Override
+	public long getBorrowedCopies() {
+		return books.borrowedBooks.totalCopies();
+	}
+
+	/**
+	 * @return the number of books with a copy to lend
+	 */
+	@Override
+	public int getAvailableBooks() {
+		return books.availableCount();
+	}
+
+	/**
+	 * Reads the due date wheel without moving its clock, so a monitoring read never decides which loans fall due. Loans that fell due since overdue loans were last looked up are counted from the next look-up on.
+	 *
+	 * @return the number of loans found past their due date at the last look-up
+	 */
+	@Override
+	public int getOverdueLoans() {
+		return students.dueDates.overdueCount();
+	}
+
+	/**
+	 * @return the estimated heap taken by the search index and the availability bitset
+	 */
+	@Override
+	public long getIndexBytes() {
+		return books.searchIndex.estimatedBytes() + books.available.estimatedBytes();
+	}
+
+	@Override
+	public double getBookCacheHitRatio() {
+		return hitRatio(books.rowCache);
+	}
+
+	@Override
+	public double getSearchCacheHitRatio() {
+		return hitRatio(books.searchCache);
+	}
+
+	/**
+	 * @return the number of titles at or below the low-stock limit
+	 */
+	@Override
+	public int getLowStockTitles() {
+		return books.circulation.lowStockCount();
+	}
+
+	/**
+	 * @return how many published events the slowest event subscriber has still to read
+	 */
+	@Override
+	public long getEventBacklog() {
+		EventBus events = books.events;
+		return events==null ? 0 : events.backlog();
+	}
+
+	private static double hitRatio(HotCache<?, ?> cache) {
+		long hits = cache.getHits();
+		long lookups = hits + cache.getMisses();
+		return lookups==0 ? 0 : (double) hits / lookups;
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.cc.library;
+
+/**
+ * JMX view of the library's current size and memory use.
+ */
+public interface LibraryGaugesMBean {
+
+	int getBookCount();
+
+	int getStudentCount();
+
+	long getBorrowedCopies();
+
+	int getAvailableBooks();
+
+	int getOverdueLoans();
+
+	long getIndexBytes();
+
+	double getBookCacheHitRatio();
+
+	double getSearchCacheHitRatio();
+
+	int getLowStockTitles();
+
+	long getEventBacklog();
+
+}
@@ -0,0 +1,520 @@
+package com.cc.library;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP/JSON front-end for the library, so many desks can use it at the same time.
+ *
+ * Built on the JDK's own HTTP server. Every request runs on its own virtual thread when the JVM has them (Java 21 and later), and on a cached pool of platform threads otherwise. Parameters can be sent in the query string, as a form body or as a flat JSON object.
+ *
+ * <pre>
+ * POST /books              name, author, quantity      add a book
+ * GET  /books/{id}                                     one book
+ * GET  /books?q=...        field=title|author|any, all=true|false
+ * GET  /books?q=...&amp;fuzzy=true   field, limit              typo-tolerant search, best matches first
+ * GET  /books              cursor, limit               one page of every book
+ * GET  /books?sort=title|author   from, to, limit       books in order, to includes every text starting with it
+ * GET  /books?sort=quantity       from, to, limit       books with from to to copies, fewest first
+ * POST /students           name                        register a student
+ * GET  /students/{id}                                  the student and their loans
+ * GET  /students           cursor, limit               one page of every student
+ * POST /rent               studentId, bookId
+ * POST /return             studentId, bookId
+ * POST /rent/batch         studentIds or studentId, bookIds     comma separated, all or nothing
+ * POST /return/batch       studentIds or studentId, bookIds
+ * POST /holds             studentId, bookId, wait         join the queue for a title, waiting up to wait seconds for a copy
+ * DELETE /holds           studentId, bookId               leave the queue
+ * GET  /loans/overdue                                 every loan past its due date
+ * GET  /stats/top                                      the most borrowed titles of the last week
+ * GET  /stats/lowstock                                 titles at or below the low-stock limit, longest first
+ * GET  /stats/books/{id}                               one title's borrows this week and share of copies out
+ * GET  /metrics                                        counters, latencies and gauges as plain text
+ * </pre>
+ *
+ * A hold that is not filled within its wait answers 202 with the number of students waiting. Posting the same hold again keeps the student's place and waits once more, so clients can long-poll without losing their turn. A hold that is filled between two polls shows up in the student's loans.
+ *
+ * Requests run under the read side of a lock. A background task takes the write side every few seconds to snapshot the journal when one is due, because a snapshot must not run while books or students are changing.
+ */
+public class LibraryHttpServer {
+
+	private static final int SNAPSHOT_CHECK_SECONDS = 5;
+	private static final int DEFAULT_PAGE = 100;
+	private static final int MAX_PAGE = 1000;
+	private static final int MAX_HOLD_WAIT_SECONDS = 60;
+	private static final Logger LOG = Logger.getLogger(LibraryHttpServer.class.getName());
+
+	private final LibraryService service;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final ScheduledExecutorService snapshots;
+	private final ReadWriteLock quiesce = new ReentrantReadWriteLock();
+
+	/**
+	 * Creates the server. Nothing is served until start is called.
+	 *
+	 * @param service the library to serve
+	 * @param address where to listen, port 0 picks a free port
+	 * @throws IOException if the address cannot be bound
+	 */
+	public LibraryHttpServer(LibraryService service, InetSocketAddress address) throws IOException {
+		this.service = service;
+		this.server = HttpServer.create(address, 1024);
+		this.executor = newRequestExecutor();
+		this.snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "library-snapshots");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(executor);
+		server.createContext("/books", this::handleBooks);
+		server.createContext("/students", this::handleStudents);
+		server.createContext("/rent", exchange -> handleCirculation(exchange, true));
+		server.createContext("/return", exchange -> handleCirculation(exchange, false));
+		server.createContext("/holds", this::handleHolds);
+		server.createContext("/loans/overdue", this::handleOverdue);
+		server.createContext("/stats", this::handleStats);
+		server.createContext("/metrics", this::handleMetrics);
+	}
+
+	public void start() {
+		server.start();
+		snapshots.scheduleWithFixedDelay(this::snapshotIfDue, SNAPSHOT_CHECK_SECONDS, SNAPSHOT_CHECK_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops accepting requests, waits for running ones to finish and then takes a final snapshot.
+	 *
+	 * @param delaySeconds how long to wait for running requests
+	 */
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		snapshots.shutdownNow();
+		executor.shutdown();
+		try {
+			executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+			service.snapshot();
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}catch(IOException e) {
+			LOG.log(Level.WARNING, "Could not save a snapshot", e);
+		}
+	}
+
+	/**
+	 * @return the port the server listens on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Uses a virtual thread per request when the running JVM supports it, looked up by reflection so the code still compiles and runs on Java 17.
+	 */
+	static ExecutorService newRequestExecutor() {
+		try {
+			Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) virtual.invoke(null);
+		}catch(ReflectiveOperationException e) {
+			AtomicInteger count = new AtomicInteger();
+			return Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "library-http-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	private void snapshotIfDue() {
+		quiesce.writeLock().lock();
+		try {
+			service.snapshotIfDue();
+		}catch(IOException e) {
+			LOG.log(Level.WARNING, "Could not save a snapshot", e);
+		}finally {
+			quiesce.writeLock().unlock();
+		}
+	}
+
+	private void handleBooks(HttpExchange exchange) throws IOException {
+		serve(exchange, () -> {
+			String method = exchange.getRequestMethod();
+			Integer id = pathID(exchange, "/books");
+			if(method.equals("GET") && id!=null) {
+				Book book = service.findBook(id);
+				return book==null ? new Response(404, "{\"status\":\"NO_SUCH_BOOK\"}") : new Response(200, Json.book(book));
+			}
+			Map<String, String> params = params(exchange);
+			if(method.equals("GET")) {
+				String query = params.get("q");
+				String sort = params.get("sort");
+				if(sort!=null) {
+					return new Response(200, Json.books(sorted(sort, params)));
+				}
+				if(query==null) {
+					return new Response(200, Json.bookPage(service.booksPage(cursorParam(params), limitParam(params))));
+				}
+				if(query.trim().isEmpty()) {
+					return new Response(400, "{\"status\":\"INVALID_INPUT\",\"message\":\"q must not be empty\"}");
+				}
+				SearchIndex.Field field = SearchIndex.Field.valueOf(params.getOrDefault("field", "title").toUpperCase(Locale.ROOT));
+				if(Boolean.parseBoolean(params.get("fuzzy"))) {
+					return new Response(200, Json.books(service.searchFuzzy(query, field, limitParam(params))));
+				}
+				boolean matchAll = Boolean.parseBoolean(params.getOrDefault("all", field==SearchIndex.Field.ANY ? "false" : "true"));
+				return new Response(200, Json.books(service.search(query, field, matchAll)));
+			}
+			if(method.equals("POST") && id==null) {
+				return result(service.addBook(params.get("name"), params.get("author"), intParam(params, "quantity")), 201);
+			}
+			return new Response(405, "{\"status\":\"METHOD_NOT_ALLOWED\"}");
+		});
+	}
+
+	private void handleStudents(HttpExchange exchange) throws IOException {
+		serve(exchange, () -> {
+			String method = exchange.getRequestMethod();
+			Integer id = pathID(exchange, "/students");
+			if(method.equals("GET") && id!=null) {
+				Student student = service.findStudent(id);
+				if(student==null) {
+					return new Response(404, "{\"status\":\"NO_SUCH_STUDENT\"}");
+				}
+				return new Response(200, "{\"student\":" + Json.student(student) + ",\"loans\":" + Json.books(service.loansOf(id)) + "}");
+			}
+			if(method.equals("GET")) {
+				Map<String, String> params = params(exchange);
+				return new Response(200, Json.studentPage(service.studentsPage(cursorParam(params), limitParam(params))));
+			}
+			if(method.equals("POST") && id==null) {
+				return result(service.registerStudent(params(exchange).get("name")), 201);
+			}
+			return new Response(405, "{\"status\":\"METHOD_NOT_ALLOWED\"}");
+		});
+	}
+
+	private void handleCirculation(HttpExchange exchange, boolean rent) throws IOException {
+		serve(exchange, () -> {
+			if(!exchange.getRequestMethod().equals("POST")) {
+				return new Response(405, "{\"status\":\"METHOD_NOT_ALLOWED\"}");
+			}
+			Map<String, String> params = params(exchange);
+			if(exchange.getRequestURI().getPath().endsWith("/batch")) {
+				int[] bookIDs = intListParam(params, "bookIds");
+				int[] studentIDs;
+				if(params.containsKey("studentIds")) {
+					studentIDs = intListParam(params, "studentIds");
+				}else {
+					studentIDs = new int[bookIDs.length];
+					Arrays.fill(studentIDs, intParam(params, "studentId"));
+				}
+				BatchResult result = rent ? service.rentAll(studentIDs, bookIDs) : service.giveBackAll(studentIDs, bookIDs);
+				return new Response(status(result.getStatus(), 200), Json.batch(result));
+			}
+			int studentID = intParam(params, "studentId");
+			int bookID = intParam(params, "bookId");
+			return result(rent ? service.rent(studentID, bookID) : service.giveBack(studentID, bookID), 200);
+		});
+	}
+
+	private void handleHolds(HttpExchange exchange) throws IOException {
+		serve(exchange, () -> {
+			String method = exchange.getRequestMethod();
+			Map<String, String> params = params(exchange);
+			int studentID = intParam(params, "studentId");
+			int bookID = intParam(params, "bookId");
+			if(method.equals("DELETE")) {
+				return result(service.cancelHold(studentID, bookID), 200);
+			}
+			if(!method.equals("POST")) {
+				return new Response(405, "{\"status\":\"METHOD_NOT_ALLOWED\"}");
+			}
+			int wait = params.containsKey("wait") ? intParam(params, "wait") : 0;
+			if(wait<0 || wait>MAX_HOLD_WAIT_SECONDS) {
+				throw new IllegalArgumentException("wait must be between 0 and " + MAX_HOLD_WAIT_SECONDS + " seconds");
+			}
+			CompletableFuture<OperationResult<Book>> hold = service.placeHold(studentID, bookID);
+			return new Response(() -> awaitHold(hold, wait, bookID));
+		});
+	}
+
+	/**
+	 * Waits for a hold outside the request lock, so a long wait never holds up a snapshot.
+	 */
+	private Response awaitHold(CompletableFuture<OperationResult<Book>> hold, int waitSeconds, int bookID) {
+		try {
+			return result(hold.get(waitSeconds, TimeUnit.SECONDS), 200);
+		}catch(TimeoutException e) {
+			return new Response(202, "{\"status\":\"WAITING\",\"waiting\":" + service.holdsWaiting(bookID) + "}");
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new Response(503, "{\"status\":\"INTERRUPTED\"}");
+		}catch(ExecutionException | CancellationException e) {
+			return result(OperationResult.failed(OperationResult.Status.NO_SUCH_HOLD), 200);
+		}
+	}
+
+	private void handleOverdue(HttpExchange exchange) throws IOException {
+		serve(exchange, () -> {
+			if(!exchange.getRequestMethod().equals("GET")) {
+				return new Response(405, "{\"status\":\"METHOD_NOT_ALLOWED\"}");
+			}
+			return new Response(200, Json.loans(service.overdueLoans()));
+		});
+	}
+
+	private void handleStats(HttpExchange exchange) throws IOException {
+		serve(exchange, () -> {
+			if(!exchange.getRequestMethod().equals("GET")) {
+				return new Response(405, "{\"status\":\"METHOD_NOT_ALLOWED\"}");
+			}
+			String path = exchange.getRequestURI().getPath();
+			if(path.equals("/stats/top")) {
+				return new Response(200, Json.demand(service.mostBorrowed()));
+			}
+			if(path.equals("/stats/lowstock")) {
+				return new Response(200, Json.stockAlerts(service.lowStock()));
+			}
+			Integer id = path.startsWith("/stats/books/") ? pathID(exchange, "/stats/books") : null;
+			if(id==null) {
+				return new Response(404, "{\"status\":\"NOT_FOUND\"}");
+			}
+			if(service.findBook(id)==null) {
+				return new Response(404, "{\"status\":\"NO_SUCH_BOOK\"}");
+			}
+			return new Response(200, Json.circulation(id, service.borrows(id), service.utilization(id)));
+		});
+	}
+
+	private void handleMetrics(HttpExchange exchange) throws IOException {
+		serve(exchange, () -> {
+			if(!exchange.getRequestMethod().equals("GET")) {
+				return new Response(405, "{\"status\":\"METHOD_NOT_ALLOWED\"}");
+			}
+			return new Response(200, service.metrics().dump(), "text/plain; charset=utf-8");
+		});
+	}
+
+	/**
+	 * Runs a handler under the read lock and writes its response. Bad parameters become 400 responses, and any other failure a 500 response, so the client always gets an answer.
+	 */
+	private void serve(HttpExchange exchange, Handler handler) throws IOException {
+		Response response;
+		quiesce.readLock().lock();
+		try {
+			response = answer(handler);
+		}finally {
+			quiesce.readLock().unlock();
+		}
+		if(response.later!=null) {
+			response = answer(response.later);
+		}
+		byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", response.contentType);
+		exchange.sendResponseHeaders(response.status, body.length);
+		try(OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	private static Response answer(Handler handler) {
+		try {
+			return handler.handle();
+		}catch(IllegalArgumentException e) {
+			return new Response(400, "{\"status\":\"INVALID_INPUT\",\"message\":" + Json.quote(e.getMessage()) + "}");
+		}catch(RuntimeException e) {
+			return new Response(500, "{\"status\":\"INTERNAL_ERROR\",\"message\":" + Json.quote(e.getMessage()) + "}");
+		}
+	}
+
+	private static Response result(OperationResult<?> result, int okStatus) {
+		return new Response(status(result.getStatus(), okStatus), Json.result(result));
+	}
+
+	private static int status(OperationResult.Status status, int okStatus) {
+		switch(status) {
+		case OK:
+			return okStatus;
+		case INVALID_INPUT:
+			return 400;
+		case NO_SUCH_BOOK:
+		case NO_SUCH_STUDENT:
+		case NO_SUCH_HOLD:
+			return 404;
+		default:
+			return 409;
+		}
+	}
+
+	/**
+	 * @return the number after the context path, such as 12 in /books/12, or null if there is none
+	 */
+	private static Integer pathID(HttpExchange exchange, String context) {
+		String path = exchange.getRequestURI().getPath();
+		if(path.length()<=context.length() + 1) {
+			return null;
+		}
+		try {
+			return Integer.valueOf(path.substring(context.length() + 1));
+		}catch(NumberFormatException e) {
+			throw new IllegalArgumentException("Not an ID: " + path.substring(context.length() + 1));
+		}
+	}
+
+	/**
+	 * Collects parameters from the query string and the body, which may be a form or a JSON object.
+	 */
+	private static Map<String, String> params(HttpExchange exchange) {
+		Map<String, String> params = new HashMap<String, String>();
+		parseForm(exchange.getRequestURI().getRawQuery(), params);
+		String body;
+		try(InputStream in = exchange.getRequestBody()) {
+			body = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+		}catch(IOException e) {
+			throw new IllegalArgumentException("Could not read the request body");
+		}
+		if(body.startsWith("{")) {
+			params.putAll(Json.parseObject(body));
+		}else {
+			parseForm(body, params);
+		}
+		return params;
+	}
+
+	private static void parseForm(String form, Map<String, String> params) {
+		if(form==null || form.isEmpty()) {
+			return;
+		}
+		for(String pair:form.split("&")) {
+			int equals = pair.indexOf('=');
+			if(equals>0) {
+				params.put(decode(pair.substring(0, equals)), decode(pair.substring(equals + 1)));
+			}
+		}
+	}
+
+	private static String decode(String text) {
+		return URLDecoder.decode(text, StandardCharsets.UTF_8);
+	}
+
+	private static int intParam(Map<String, String> params, String name) {
+		String value = params.get(name);
+		if(value==null) {
+			throw new IllegalArgumentException(name + " is required");
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		}catch(NumberFormatException e) {
+			throw new IllegalArgumentException(name + " must be a whole number");
+		}
+	}
+
+	private static int cursorParam(Map<String, String> params) {
+		if(!params.containsKey("cursor")) {
+			return Page.FIRST;
+		}
+		int cursor = intParam(params, "cursor");
+		if(cursor<0) {
+			throw new IllegalArgumentException("cursor must not be negative");
+		}
+		return cursor;
+	}
+
+	private List<Book> sorted(String sort, Map<String, String> params) {
+		int limit = limitParam(params);
+		if(sort.equalsIgnoreCase("quantity")) {
+			int min = params.containsKey("from") ? intParam(params, "from") : Integer.MIN_VALUE;
+			int max = params.containsKey("to") ? intParam(params, "to") : Integer.MAX_VALUE;
+			return service.byQuantity(min, max, limit);
+		}
+		return service.browse(SortedIndexes.Order.valueOf(sort.toUpperCase(Locale.ROOT)), params.get("from"), params.get("to"), limit);
+	}
+
+	private static int limitParam(Map<String, String> params) {
+		if(!params.containsKey("limit")) {
+			return DEFAULT_PAGE;
+		}
+		int limit = intParam(params, "limit");
+		if(limit<1 || limit>MAX_PAGE) {
+			throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE);
+		}
+		return limit;
+	}
+
+	private static int[] intListParam(Map<String, String> params, String name) {
+		String value = params.get(name);
+		if(value==null || value.trim().isEmpty()) {
+			throw new IllegalArgumentException(name + " is required");
+		}
+		String[] parts = value.split(",");
+		int[] numbers = new int[parts.length];
+		try {
+			for(int i=0;i<parts.length;i++) {
+				numbers[i] = Integer.parseInt(parts[i].trim());
+			}
+		}catch(NumberFormatException e) {
+			throw new IllegalArgumentException(name + " must be whole numbers separated by commas");
+		}
+		return numbers;
+	}
+
+	private interface Handler {
+		Response handle();
+	}
+
+	private static class Response {
+		final int status;
+		final String body;
+		final String contentType;
+		final Handler later;
+
+		Response(int status, String body) {
+			this(status, body, "application/json; charset=utf-8");
+		}
+
+		Response(int status, String body, String contentType) {
+			this.status = status;
+			this.body = body;
+			this.contentType = contentType;
+			this.later = null;
+		}
+
+		/**
+		 * A response that is only worked out after the request lock is released.
+		 */
+		Response(Handler later) {
+			this.status = 0;
+			this.body = null;
+			this.contentType = null;
+			this.later = later;
+		}
+	}
+
+}
@@ -0,0 +1,258 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the HTTP front-end and its small JSON reader.
+ * Testing framework: JUnit 5
+ */
+public class LibraryHttpServerTest {
+
+    private LibraryService service;
+    private LibraryHttpServer server;
+    private String base;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Book.ids = new IdAllocator();
+        Student.ids = new IdAllocator();
+        service = new LibraryService();
+        server = new LibraryHttpServer(service, new InetSocketAddress("localhost", 0));
+        server.start();
+        base = "http://localhost:" + server.getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testRentAndReturn_OverHttp() throws IOException {
+        Reply added = call("POST", "/books", "name=Dune&author=Frank+Herbert&quantity=3");
+        assertEquals(201, added.status);
+        Reply registered = call("POST", "/students", "{\"name\": \"Asha\"}");
+        assertEquals(201, registered.status);
+        int bookID = idOf(added, "bookID");
+        int studentID = idOf(registered, "studentID");
+
+        Reply rented = call("POST", "/rent", "{\"studentId\": " + studentID + ", \"bookId\": " + bookID + "}");
+        assertEquals(200, rented.status);
+        assertTrue(rented.body.contains("\"quantity\":2"));
+        assertTrue(call("GET", "/students/" + studentID, null).body.contains("\"loans\":[{\"bookID\":" + bookID));
+
+        String form = "studentId=" + studentID + "&bookId=" + bookID;
+        assertEquals(200, call("POST", "/return", form).status);
+        assertEquals(409, call("POST", "/return", form).status);
+    }
+
+    @Test
+    void testBatchRentAndReturn_OverHttp() throws IOException {
+        int dune = idOf(call("POST", "/books", "name=Dune&author=Frank+Herbert&quantity=3"), "bookID");
+        int emma = idOf(call("POST", "/books", "name=Emma&author=Jane+Austen&quantity=2"), "bookID");
+        int asha = idOf(call("POST", "/students", "name=Asha"), "studentID");
+
+        Reply refused = call("POST", "/rent/batch", "studentId=" + asha + "&bookIds=" + dune + "," + emma + "," + emma);
+        assertEquals(409, refused.status);
+        assertEquals("{\"status\":\"NOT_AVAILABLE\",\"failedIndex\":1}", refused.body);
+
+        String stack = dune + "," + dune + "," + emma;
+        assertEquals(200, call("POST", "/rent/batch", "{\"studentId\": " + asha + ", \"bookIds\": \"" + stack + "\"}").status);
+        assertTrue(call("GET", "/books/" + dune, null).body.contains("\"quantity\":1"));
+        assertEquals(200, call("POST", "/return/batch", "studentIds=" + asha + "," + asha + "," + asha + "&bookIds=" + stack).status);
+        assertTrue(call("GET", "/books/" + emma, null).body.contains("\"quantity\":2"));
+    }
+
+    @Test
+    void testSearchAndLookup() throws IOException {
+        int bookID = idOf(call("POST", "/books", "name=The+Old+River&author=Ana+Stone&quantity=2"), "bookID");
+
+        assertTrue(call("GET", "/books?q=river", null).body.contains("The Old River"));
+        assertEquals("[]", call("GET", "/books?q=ocean", null).body);
+        assertTrue(call("GET", "/books?q=old+rivr&fuzzy=true", null).body.contains("The Old River"));
+        assertTrue(call("GET", "/books?sort=author&from=a&to=b", null).body.contains("The Old River"));
+        assertEquals("[]", call("GET", "/books?sort=title&from=x", null).body);
+        assertTrue(call("GET", "/books?sort=quantity&to=2", null).body.contains("The Old River"));
+        assertEquals(400, call("GET", "/books?sort=isbn", null).status);
+        assertEquals(200, call("GET", "/books/" + bookID, null).status);
+        assertEquals(404, call("GET", "/books/" + (bookID + 5000), null).status);
+    }
+
+    @Test
+    void testSearchParameters_IgnoreDefaultLocale() throws IOException {
+        call("POST", "/books", "name=The+Old+River&author=Ana+Stone&quantity=2");
+        Locale saved = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            assertTrue(call("GET", "/books?q=river&field=title", null).body.contains("The Old River"));
+            assertTrue(call("GET", "/books?sort=title", null).body.contains("The Old River"));
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    @Test
+    void testListingPages() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            call("POST", "/books", "name=Book+" + i + "&author=Author&quantity=2");
+        }
+        call("POST", "/students", "name=Asha");
+
+        Reply first = call("GET", "/books?limit=2", null);
+        assertEquals(200, first.status);
+        assertTrue(first.body.endsWith("\"nextCursor\":2}"));
+        Reply last = call("GET", "/books?cursor=2&limit=2", null);
+        assertTrue(last.body.contains("\"bookName\":\"Book 2\""));
+        assertTrue(last.body.endsWith("\"nextCursor\":-1}"));
+        assertTrue(call("GET", "/students", null).body.contains("\"studentName\":\"Asha\"}],\"nextCursor\":-1}"));
+    }
+
+    @Test
+    void testBadRequests() throws IOException {
+        assertEquals(400, call("POST", "/rent", "studentId=one&bookId=1").status);
+        assertEquals(400, call("GET", "/books?q=river&field=isbn", null).status);
+        assertEquals(400, call("GET", "/books?limit=0", null).status);
+        assertEquals(404, call("POST", "/rent", "studentId=1&bookId=1").status);
+        assertEquals(405, call("DELETE", "/students", null).status);
+    }
+
+    @Test
+    void testUnexpectedFailure_AnswersWith500() throws IOException {
+        server.stop(0);
+        LibraryService failing = new LibraryService() {
+            @Override
+            public Book findBook(int bookID) {
+                throw new UnsupportedOperationException("catalog rows are read-only");
+            }
+        };
+        server = new LibraryHttpServer(failing, new InetSocketAddress("localhost", 0));
+        server.start();
+        base = "http://localhost:" + server.getPort();
+
+        Reply reply = call("GET", "/books/1", null);
+        assertEquals(500, reply.status);
+        assertEquals("{\"status\":\"INTERNAL_ERROR\",\"message\":\"catalog rows are read-only\"}", reply.body);
+    }
+
+    @Test
+    void testOverdueLoans_NoneForFreshLoans() throws IOException {
+        int studentID = idOf(call("POST", "/students", "name=Asha"), "studentID");
+        int bookID = idOf(call("POST", "/books", "name=Fresh&author=Ana&quantity=3"), "bookID");
+        call("POST", "/rent", "studentId=" + studentID + "&bookId=" + bookID);
+
+        assertEquals("[]", call("GET", "/loans/overdue", null).body);
+        assertEquals(405, call("POST", "/loans/overdue", null).status);
+    }
+
+    @Test
+    void testCirculationStats() throws IOException {
+        int studentID = idOf(call("POST", "/students", "name=Asha"), "studentID");
+        int bookID = idOf(call("POST", "/books", "name=Popular&author=Ana&quantity=2"), "bookID");
+        call("POST", "/rent", "studentId=" + studentID + "&bookId=" + bookID);
+        assertTrue(service.events().awaitDrained(5, TimeUnit.SECONDS));
+
+        assertEquals("[{\"bookID\":" + bookID + ",\"borrows\":1}]", call("GET", "/stats/top", null).body);
+        assertTrue(call("GET", "/stats/lowstock", null).body.startsWith("[{\"bookID\":" + bookID + ",\"since\":"));
+        assertEquals("{\"bookID\":" + bookID + ",\"borrows\":1,\"utilization\":0.5}", call("GET", "/stats/books/" + bookID, null).body);
+        assertEquals(404, call("GET", "/stats/books/" + (bookID + 5000), null).status);
+        assertEquals(404, call("GET", "/stats/other", null).status);
+        assertTrue(call("GET", "/metrics", null).body.contains("low_stock_titles 1"));
+    }
+
+    @Test
+    void testHolds_LongPollUntilACopyComesBack() throws Exception {
+        int asha = idOf(call("POST", "/students", "name=Asha"), "studentID");
+        int ravi = idOf(call("POST", "/students", "name=Ravi"), "studentID");
+        int bookID = idOf(call("POST", "/books", "name=Popular&author=Ana&quantity=2"), "bookID");
+        call("POST", "/rent", "studentId=" + asha + "&bookId=" + bookID);
+
+        Reply waiting = call("POST", "/holds", "studentId=" + ravi + "&bookId=" + bookID);
+        assertEquals(202, waiting.status);
+        assertEquals("{\"status\":\"WAITING\",\"waiting\":1}", waiting.body);
+        Thread desk = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+                call("POST", "/return", "studentId=" + asha + "&bookId=" + bookID);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        desk.start();
+        Reply served = call("POST", "/holds", "studentId=" + ravi + "&bookId=" + bookID + "&wait=10");
+        desk.join();
+        assertEquals(200, served.status);
+        assertTrue(served.body.startsWith("{\"status\":\"OK\""));
+        assertEquals(404, call("DELETE", "/holds?studentId=" + ravi + "&bookId=" + bookID, null).status);
+    }
+
+    @Test
+    void testMetrics_PlainText() throws IOException {
+        call("POST", "/books", "name=Counted&author=Ana&quantity=1");
+
+        Reply reply = call("GET", "/metrics", null);
+        assertEquals(200, reply.status);
+        assertTrue(reply.body.startsWith("operation"));
+        assertTrue(reply.body.contains("books 1"));
+    }
+
+    @Test
+    void testJsonParseObject() {
+        Map<String, String> fields = Json.parseObject("{\"name\": \"A \\\"quoted\\\" title\", \"quantity\": 4, \"note\": null}");
+        assertEquals("A \"quoted\" title", fields.get("name"));
+        assertEquals("4", fields.get("quantity"));
+        assertFalse(fields.containsKey("note"));
+
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"tags\": [1, 2]}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"name\": \"open"));
+    }
+
+    private static int idOf(Reply reply, String field) {
+        int start = reply.body.indexOf("\"" + field + "\":") + field.length() + 3;
+        int end = start;
+        while (Character.isDigit(reply.body.charAt(end))) {
+            end++;
+        }
+        return Integer.parseInt(reply.body.substring(start, end));
+    }
+
+    private Reply call(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(base + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        String text = in == null ? "" : new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        connection.disconnect();
+        return new Reply(status, text);
+    }
+
+    private static class Reply {
+        final int status;
+        final String body;
+
+        Reply(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+}
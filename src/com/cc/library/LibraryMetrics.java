@@ -0,0 +1,153 @@
+package com.cc.library;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters, latency histograms and gauges for every operation of a LibraryService.
+ *
+ * Each operation has its own OperationStats, found by indexing an array with the operation's ordinal, so recording a call is two nanoTime reads, two adder increments and one histogram increment. The same numbers can be read in code, over JMX under the com.cc.library domain, or as a plain-text table from dump.
+ */
+public class LibraryMetrics {
+
+	/**
+	 * The JMX domain the MBeans are registered under.
+	 */
+	public static final String DOMAIN = "com.cc.library";
+
+	/**
+	 * The operations that are timed.
+	 */
+	public enum Operation {
+		ADD_BOOK, UPDATE_QUANTITY, REGISTER_STUDENT, RENT, RETURN, RENT_BATCH, RETURN_BATCH, PLACE_HOLD, FIND_BOOK, FIND_STUDENT, SEARCH, BROWSE, OVERDUE_SCAN, IMPORT, EXPORT
+	}
+
+	private final OperationStats[] stats;
+	private final LibraryGauges gauges;
+
+	LibraryMetrics(Books books, Students students) {
+		Operation[] operations = Operation.values();
+		this.stats = new OperationStats[operations.length];
+		for(Operation operation:operations) {
+			stats[operation.ordinal()] = new OperationStats(operation.name().toLowerCase(Locale.ROOT));
+		}
+		this.gauges = new LibraryGauges(books, students);
+	}
+
+	/**
+	 * @param operation the operation to look at
+	 * @return its counters and latency histogram
+	 */
+	public OperationStats of(Operation operation) {
+		return stats[operation.ordinal()];
+	}
+
+	public LibraryGauges gauges() {
+		return gauges;
+	}
+
+	/**
+	 * Records a call that started at the given System.nanoTime and finished now.
+	 *
+	 * @param operation the operation that ran
+	 * @param startNanos System.nanoTime when it started
+	 * @param ok false if it was refused or failed
+	 */
+	void record(Operation operation, long startNanos, boolean ok) {
+		stats[operation.ordinal()].record(System.nanoTime() - startNanos, ok);
+	}
+
+	/**
+	 * Records a call and hands its result back, so a method can end with return metrics.record(...).
+	 */
+	<T> OperationResult<T> record(Operation operation, long startNanos, OperationResult<T> result) {
+		record(operation, startNanos, result.isOk());
+		return result;
+	}
+
+	BatchResult record(Operation operation, long startNanos, BatchResult result) {
+		record(operation, startNanos, result.isOk());
+		return result;
+	}
+
+	/**
+	 * Registers one MBean per operation and one for the gauges.
+	 *
+	 * @param server the MBean server, usually ManagementFactory.getPlatformMBeanServer()
+	 * @return the names the MBeans were registered under, for unregister
+	 * @throws JMException if a name is already taken
+	 */
+	public List<ObjectName> register(MBeanServer server) throws JMException {
+		List<ObjectName> names = new ArrayList<ObjectName>();
+		try {
+			for(OperationStats operation:stats) {
+				ObjectName name = new ObjectName(DOMAIN + ":type=Operation,name=" + operation.getName());
+				server.registerMBean(operation, name);
+				names.add(name);
+			}
+			ObjectName name = new ObjectName(DOMAIN + ":type=Gauges");
+			server.registerMBean(gauges, name);
+			names.add(name);
+		}catch(JMException e) {
+			unregister(server, names);
+			throw e;
+		}
+		return names;
+	}
+
+	/**
+	 * @return the names the MBeans were registered under in the platform MBean server
+	 * @throws JMException if a name is already taken
+	 */
+	public List<ObjectName> registerPlatform() throws JMException {
+		return register(ManagementFactory.getPlatformMBeanServer());
+	}
+
+	/**
+	 * Removes MBeans returned by register. Names that are no longer registered are skipped.
+	 */
+	public static void unregister(MBeanServer server, List<ObjectName> names) {
+		for(ObjectName name:names) {
+			try {
+				server.unregisterMBean(name);
+			}catch(JMException e) {
+				// already gone
+			}
+		}
+	}
+
+	/**
+	 * Formats every operation and gauge as a plain-text table, with latencies in microseconds.
+	 *
+	 * @return the table, one line per operation followed by one line per gauge
+	 */
+	public String dump() {
+		StringBuilder out = new StringBuilder(2048);
+		out.append(String.format(Locale.ROOT, "%-17s %10s %9s %10s %10s %10s %10s %10s%n",
+				"operation", "calls", "failures", "mean_us", "p50_us", "p99_us", "p999_us", "max_us"));
+		for(OperationStats operation:stats) {
+			out.append(String.format(Locale.ROOT, "%-17s %10d %9d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+					operation.getName(), operation.getCalls(), operation.getFailures(), operation.getMeanNanos() / 1000.0,
+					operation.getP50Nanos() / 1000.0, operation.getP99Nanos() / 1000.0, operation.getP999Nanos() / 1000.0,
+					operation.getMaxNanos() / 1000.0));
+		}
+		out.append(String.format(Locale.ROOT, "books %d%n", gauges.getBookCount()));
+		out.append(String.format(Locale.ROOT, "students %d%n", gauges.getStudentCount()));
+		out.append(String.format(Locale.ROOT, "borrowed_copies %d%n", gauges.getBorrowedCopies()));
+		out.append(String.format(Locale.ROOT, "available_books %d%n", gauges.getAvailableBooks()));
+		out.append(String.format(Locale.ROOT, "overdue_loans %d%n", gauges.getOverdueLoans()));
+		out.append(String.format(Locale.ROOT, "index_bytes %d%n", gauges.getIndexBytes()));
+		out.append(String.format(Locale.ROOT, "book_cache_hit_ratio %.3f%n", gauges.getBookCacheHitRatio()));
+		out.append(String.format(Locale.ROOT, "search_cache_hit_ratio %.3f%n", gauges.getSearchCacheHitRatio()));
+		out.append(String.format(Locale.ROOT, "low_stock_titles %d%n", gauges.getLowStockTitles()));
+		out.append(String.format(Locale.ROOT, "event_backlog %d%n", gauges.getEventBacklog()));
+		return out.toString();
+	}
+
+}
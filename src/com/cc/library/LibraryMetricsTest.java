@@ -0,0 +1,110 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+/**
+ * Unit tests for the LatencyHistogram and the metrics LibraryService records.
+ * Testing framework: JUnit 5
+ */
+public class LibraryMetricsTest {
+
+    private LibraryService service;
+
+    @BeforeEach
+    void setUp() {
+        Book.ids = new IdAllocator();
+        Student.ids = new IdAllocator();
+        service = new LibraryService();
+    }
+
+    @Test
+    void testHistogram_PercentilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 10000; value++) {
+            histogram.record(value * 1000L);
+        }
+
+        assertEquals(10000, histogram.count());
+        assertEquals(10_000_000, histogram.max());
+        assertEquals(5_000_500, histogram.mean(), 1);
+        assertEquals(5_000_000, histogram.valueAt(50), 5_000_000 / 32);
+        assertEquals(9_900_000, histogram.valueAt(99), 9_900_000 / 32);
+        assertEquals(9_990_000, histogram.valueAt(99.9), 9_990_000 / 32);
+        assertEquals(10_000_000, histogram.valueAt(100));
+    }
+
+    @Test
+    void testHistogram_BucketsCoverEveryValue() {
+        long[] values = {0, 1, 31, 32, 63, 64, 1000, 1L << 40, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.highestValueIn(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.highestValueIn(index - 1) < value);
+        }
+        assertEquals(0, new LatencyHistogram().valueAt(99));
+    }
+
+    @Test
+    void testService_RecordsCallsAndFailures() {
+        int studentID = service.registerStudent("Asha").getValue().getStudentID();
+        int bookID = service.addBook("Counted", "Ana", 2).getValue().getBookID();
+        service.addBook("", "Ana", 1);
+        assertTrue(service.rent(studentID, bookID).isOk());
+        assertFalse(service.rent(studentID, bookID).isOk());
+        service.giveBack(studentID, bookID);
+
+        LibraryMetrics metrics = service.metrics();
+        assertEquals(2, metrics.of(LibraryMetrics.Operation.ADD_BOOK).getCalls());
+        assertEquals(1, metrics.of(LibraryMetrics.Operation.ADD_BOOK).getFailures());
+        assertEquals(2, metrics.of(LibraryMetrics.Operation.RENT).getCalls());
+        assertEquals(1, metrics.of(LibraryMetrics.Operation.RENT).getFailures());
+        assertEquals(1, metrics.of(LibraryMetrics.Operation.RETURN).getCalls());
+        assertTrue(metrics.of(LibraryMetrics.Operation.RENT).getMaxNanos() > 0);
+    }
+
+    @Test
+    void testGauges_TrackBorrowedCopies() {
+        int studentID = service.registerStudent("Asha").getValue().getStudentID();
+        int first = service.addBook("First", "Ana", 3).getValue().getBookID();
+        int second = service.addBook("Second", "Ana", 3).getValue().getBookID();
+        service.rent(studentID, first);
+        service.rent(studentID, first);
+        service.rentAll(new int[] {studentID}, new int[] {second});
+
+        LibraryGauges gauges = service.metrics().gauges();
+        assertEquals(2, gauges.getBookCount());
+        assertEquals(1, gauges.getStudentCount());
+        assertEquals(3, gauges.getBorrowedCopies());
+        service.giveBack(studentID, first);
+        assertEquals(2, gauges.getBorrowedCopies());
+        assertTrue(gauges.getIndexBytes() > 0);
+        assertEquals(0, gauges.getOverdueLoans());
+
+        String dump = service.metrics().dump();
+        assertTrue(dump.contains("borrowed_copies 2"));
+        assertTrue(dump.contains("rent_batch"));
+    }
+
+    @Test
+    void testRegister_PublishesMBeans() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        service.addBook("Counted", "Ana", 1);
+        List<ObjectName> names = service.metrics().register(server);
+
+        assertEquals(LibraryMetrics.Operation.values().length + 1, names.size());
+        assertEquals(1L, server.getAttribute(new ObjectName("com.cc.library:type=Operation,name=add_book"), "Calls"));
+        assertEquals(1, server.getAttribute(new ObjectName("com.cc.library:type=Gauges"), "BookCount"));
+
+        LibraryMetrics.unregister(server, names);
+        assertFalse(server.isRegistered(names.get(0)));
+    }
+
+}
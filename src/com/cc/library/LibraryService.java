@@ -0,0 +1,552 @@
+package com.cc.library;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The library's operations without any console input or output.
+ *
+ * Every call takes plain arguments and returns a value or an OperationResult, so the same logic can be driven by the console menu in Library, a server, a batch job, a benchmark or a test. Lending and returning are safe to call from many threads at once.
+ *
+ * Every operation is counted and timed in the service's LibraryMetrics, and every change is published on the service's EventBus for subscribers to pick up on their own threads.
+ */
+public class LibraryService implements AutoCloseable {
+
+	private final Books books;
+	private final Students students;
+	private final LibraryMetrics metrics;
+	private final EventBus events = new EventBus();
+	private Journal journal;
+
+	public LibraryService() {
+		this(new Books(), new Students());
+	}
+
+	public LibraryService(Books books, Students students) {
+		this.books = books;
+		this.students = students;
+		this.metrics = new LibraryMetrics(books, students);
+		books.events = events;
+		students.events = events;
+		// Analytics follow the changes on their own thread, off the rent and return path
+		events.subscribe("circulation", (event, sequence, endOfBatch) -> books.track(event.getType(), event.getBookID(), event.getCopies()));
+	}
+
+	/**
+	 * Puts a memory-mapped catalog underneath the books. Must be called before openJournal.
+	 *
+	 * @param directory the directory written by ColumnarCatalog.write
+	 * @return the number of books in the catalog
+	 * @throws IOException if the catalog cannot be opened
+	 */
+	public int attachCatalog(Path directory) throws IOException {
+		ColumnarCatalog catalog = ColumnarCatalog.open(directory);
+		books.attach(catalog);
+		return catalog.size();
+	}
+
+	/**
+	 * Loads the saved state from a data directory and writes every later change to its journal.
+	 *
+	 * IDs continue from the high-water marks saved in the same directory, so they are never reused after a restart. Book IDs also stay above an attached catalog's IDs.
+	 *
+	 * @param dataDirectory where the journal, snapshot and ID marks are kept
+	 * @throws IOException if the saved state cannot be read
+	 */
+	public void openJournal(Path dataDirectory) throws IOException {
+		Book.ids = new IdAllocator(dataDirectory.resolve("book.ids"));
+		Student.ids = new IdAllocator(dataDirectory.resolve("student.ids"));
+		// The saved marks know nothing of an attached catalog, so new books still start above its IDs
+		if(books.catalog!=null) {
+			Book.ids.advancePast(books.catalog.maxBookID());
+		}
+		Journal opened = Journal.open(dataDirectory);
+		// Replayed changes already happened, subscribers only hear about new ones
+		books.events = null;
+		students.events = null;
+		opened.recover(books, students);
+		books.circulation.clearDemand();
+		books.events = events;
+		students.events = events;
+		books.journal = opened;
+		students.journal = opened;
+		journal = opened;
+	}
+
+	/**
+	 * Starts a subscriber that receives every change from now on, in batches on its own thread.
+	 *
+	 * @param name names the subscriber's thread
+	 * @param handler receives the events, must not change books or students itself
+	 * @return the subscription, to watch its progress or close it
+	 * @see EventBus#subscribe(String, EventBus.Handler)
+	 */
+	public EventBus.Subscription subscribe(String name, EventBus.Handler handler) {
+		return events.subscribe(name, handler);
+	}
+
+	/**
+	 * @return the bus every change of this service is published on
+	 */
+	public EventBus events() {
+		return events;
+	}
+
+	/**
+	 * @return true if a journal is attached and changes are being saved
+	 */
+	public boolean isDurable() {
+		return journal!=null;
+	}
+
+	/**
+	 * @return the counters, latency histograms and gauges of this service
+	 */
+	public LibraryMetrics metrics() {
+		return metrics;
+	}
+
+	public OperationResult<Book> addBook(String name, String author, int quantity) {
+		long start = System.nanoTime();
+		if(isBlank(name) || isBlank(author) || quantity<1) {
+			return metrics.record(LibraryMetrics.Operation.ADD_BOOK, start, OperationResult.<Book>failed(OperationResult.Status.INVALID_INPUT));
+		}
+		return metrics.record(LibraryMetrics.Operation.ADD_BOOK, start, OperationResult.ok(books.addBook(name.trim(), author.trim(), quantity)));
+	}
+
+	public OperationResult<Book> updateQuantity(int bookID, int quantity) {
+		long start = System.nanoTime();
+		OperationResult<Book> result;
+		if(quantity<0) {
+			result = OperationResult.failed(OperationResult.Status.INVALID_INPUT);
+		}else {
+			Book book = books.updateQuantity(bookID, quantity);
+			result = book==null ? OperationResult.<Book>failed(OperationResult.Status.NO_SUCH_BOOK) : OperationResult.ok(book);
+			if(book!=null) {
+				students.serveHolds(bookID, books);
+			}
+		}
+		return metrics.record(LibraryMetrics.Operation.UPDATE_QUANTITY, start, result);
+	}
+
+	public OperationResult<Student> registerStudent(String name) {
+		long start = System.nanoTime();
+		if(isBlank(name)) {
+			return metrics.record(LibraryMetrics.Operation.REGISTER_STUDENT, start, OperationResult.<Student>failed(OperationResult.Status.INVALID_INPUT));
+		}
+		return metrics.record(LibraryMetrics.Operation.REGISTER_STUDENT, start, OperationResult.ok(students.registerStudent(name.trim())));
+	}
+
+	/**
+	 * Lends one copy of a book to a student.
+	 *
+	 * @param studentID the borrowing student
+	 * @param bookID the book to lend
+	 * @return OK with the book, or the reason the copy could not be lent
+	 */
+	public OperationResult<Book> rent(int studentID, int bookID) {
+		long start = System.nanoTime();
+		return metrics.record(LibraryMetrics.Operation.RENT, start, lend(studentID, bookID));
+	}
+
+	private OperationResult<Book> lend(int studentID, int bookID) {
+		if(students.findStudent(studentID)==null) {
+			return OperationResult.failed(OperationResult.Status.NO_SUCH_STUDENT);
+		}
+		Book book = books.findBook(bookID);
+		if(book==null) {
+			return OperationResult.failed(OperationResult.Status.NO_SUCH_BOOK);
+		}
+		if(!students.canBorrow(studentID)) {
+			return OperationResult.failed(OperationResult.Status.LOAN_LIMIT_REACHED);
+		}
+		if(!students.checkOut(studentID, bookID, books)) {
+			return OperationResult.failed(students.canBorrow(studentID) ? OperationResult.Status.NOT_AVAILABLE : OperationResult.Status.LOAN_LIMIT_REACHED);
+		}
+		return OperationResult.ok(books.findBook(bookID));
+	}
+
+	/**
+	 * Takes back one copy of a book from a student.
+	 *
+	 * @param studentID the returning student
+	 * @param bookID the book being returned
+	 * @return OK with the book, or the reason the copy could not be taken back
+	 */
+	public OperationResult<Book> giveBack(int studentID, int bookID) {
+		long start = System.nanoTime();
+		return metrics.record(LibraryMetrics.Operation.RETURN, start, takeBack(studentID, bookID));
+	}
+
+	private OperationResult<Book> takeBack(int studentID, int bookID) {
+		if(students.findStudent(studentID)==null) {
+			return OperationResult.failed(OperationResult.Status.NO_SUCH_STUDENT);
+		}
+		if(books.findBook(bookID)==null) {
+			return OperationResult.failed(OperationResult.Status.NO_SUCH_BOOK);
+		}
+		if(!students.checkIn(studentID, bookID, books)) {
+			return OperationResult.failed(OperationResult.Status.NOT_BORROWED);
+		}
+		return OperationResult.ok(books.findBook(bookID));
+	}
+
+	/**
+	 * Lends a batch of books in one step, for example a stack at a self-checkout kiosk. Either every entry is lent or none is.
+	 *
+	 * @param studentIDs the borrowing student of each entry
+	 * @param bookIDs the book of each entry
+	 * @return OK, or the reason and index of the first entry that stopped the batch
+	 */
+	public BatchResult rentAll(int[] studentIDs, int[] bookIDs) {
+		long start = System.nanoTime();
+		BatchResult invalid = checkBatch(studentIDs, bookIDs);
+		return metrics.record(LibraryMetrics.Operation.RENT_BATCH, start, invalid!=null ? invalid : students.checkOutAll(studentIDs, bookIDs, books));
+	}
+
+	/**
+	 * Takes back a batch of books in one step, for example the contents of a return bin. Either every entry is taken back or none is.
+	 *
+	 * @param studentIDs the returning student of each entry
+	 * @param bookIDs the book of each entry
+	 * @return OK, or the reason and index of the first entry that stopped the batch
+	 */
+	public BatchResult giveBackAll(int[] studentIDs, int[] bookIDs) {
+		long start = System.nanoTime();
+		BatchResult invalid = checkBatch(studentIDs, bookIDs);
+		return metrics.record(LibraryMetrics.Operation.RETURN_BATCH, start, invalid!=null ? invalid : students.checkInAll(studentIDs, bookIDs, books));
+	}
+
+	/**
+	 * Puts a student in the queue for a title that has no copy free. The first student in the queue gets the next copy that is returned or added, without anyone polling.
+	 *
+	 * @param studentID the waiting student
+	 * @param bookID the wanted title
+	 * @return completes with OK and the book once a copy is lent to the student, or with the reason the hold ended; cancel it to leave the queue
+	 */
+	public CompletableFuture<OperationResult<Book>> placeHold(int studentID, int bookID) {
+		long start = System.nanoTime();
+		CompletableFuture<OperationResult<Book>> hold = students.placeHold(studentID, bookID, books);
+		boolean refused = hold.isDone() && !hold.isCompletedExceptionally() && !hold.join().isOk();
+		metrics.record(LibraryMetrics.Operation.PLACE_HOLD, start, !refused);
+		return hold;
+	}
+
+	/**
+	 * @return OK if the student left the title's queue, NO_SUCH_HOLD if they were not in it
+	 */
+	public OperationResult<Book> cancelHold(int studentID, int bookID) {
+		return students.cancelHold(studentID, bookID) ? OperationResult.ok(books.findBook(bookID)) : OperationResult.<Book>failed(OperationResult.Status.NO_SUCH_HOLD);
+	}
+
+	/**
+	 * @return the number of students waiting for a title
+	 */
+	public int holdsWaiting(int bookID) {
+		return students.holdsWaiting(bookID);
+	}
+
+	public Book findBook(int bookID) {
+		long start = System.nanoTime();
+		Book book = books.findBook(bookID);
+		metrics.record(LibraryMetrics.Operation.FIND_BOOK, start, book!=null);
+		return book;
+	}
+
+	public Student findStudent(int studentID) {
+		long start = System.nanoTime();
+		Student student = students.findStudent(studentID);
+		metrics.record(LibraryMetrics.Operation.FIND_STUDENT, start, student!=null);
+		return student;
+	}
+
+	/**
+	 * @see Books#search(String, SearchIndex.Field, boolean)
+	 */
+	public List<Book> search(String query, SearchIndex.Field field, boolean matchAll) {
+		long start = System.nanoTime();
+		List<Book> found = books.search(query, field, matchAll);
+		metrics.record(LibraryMetrics.Operation.SEARCH, start, true);
+		return found;
+	}
+
+	/**
+	 * @see Books#searchFuzzy(String, SearchIndex.Field, int)
+	 */
+	public List<Book> searchFuzzy(String query, SearchIndex.Field field, int limit) {
+		long start = System.nanoTime();
+		List<Book> found = books.searchFuzzy(query, field, limit);
+		metrics.record(LibraryMetrics.Operation.SEARCH, start, true);
+		return found;
+	}
+
+	/**
+	 * @see Books#browse(SortedIndexes.Order, String, String, int)
+	 */
+	public List<Book> browse(SortedIndexes.Order order, String from, String to, int limit) {
+		long start = System.nanoTime();
+		List<Book> found = books.browse(order, from, to, limit);
+		metrics.record(LibraryMetrics.Operation.BROWSE, start, true);
+		return found;
+	}
+
+	/**
+	 * @see Books#byQuantity(int, int, int)
+	 */
+	public List<Book> byQuantity(int min, int max, int limit) {
+		long start = System.nanoTime();
+		List<Book> found = books.byQuantity(min, max, limit);
+		metrics.record(LibraryMetrics.Operation.BROWSE, start, true);
+		return found;
+	}
+
+	/**
+	 * @return the most borrowed titles of the last week, most borrowed first
+	 * @see CirculationStats#mostBorrowed()
+	 */
+	public List<CirculationStats.Demand> mostBorrowed() {
+		return books.circulation.mostBorrowed();
+	}
+
+	/**
+	 * @return the titles that are low on stock, the ones that have been low the longest first
+	 * @see CirculationStats#lowStock()
+	 */
+	public List<CirculationStats.StockAlert> lowStock() {
+		return books.circulation.lowStock();
+	}
+
+	/**
+	 * @param bookID a title
+	 * @return how often it was checked out in the last week
+	 */
+	public int borrows(int bookID) {
+		return books.circulation.borrows(bookID);
+	}
+
+	/**
+	 * @see Books#utilization(int)
+	 */
+	public double utilization(int bookID) {
+		return books.utilization(bookID);
+	}
+
+	/**
+	 * @return every book, catalog rows first
+	 */
+	public List<Book> allBooks() {
+		List<Book> all = new ArrayList<Book>(books.size());
+		books.forEachBook(all::add);
+		return all;
+	}
+
+	/**
+	 * @return the books that have a copy to lend, in ID order
+	 */
+	public List<Book> availableBooks() {
+		List<Book> available = new ArrayList<Book>(books.availableCount());
+		books.forEachAvailableBook(available::add);
+		return available;
+	}
+
+	/**
+	 * @see Books#page(int, int)
+	 */
+	public Page<Book> booksPage(int cursor, int limit) {
+		return books.page(cursor, limit);
+	}
+
+	/**
+	 * @see Students#page(int, int)
+	 */
+	public Page<Student> studentsPage(int cursor, int limit) {
+		return students.page(cursor, limit);
+	}
+
+	public List<Student> allStudents() {
+		synchronized(students) {
+			return new ArrayList<Student>(students.studentList);
+		}
+	}
+
+	/**
+	 * @param studentID the student to look at
+	 * @return the books the student has borrowed, one entry per copy
+	 */
+	public List<Book> loansOf(int studentID) {
+		List<Book> loans = new ArrayList<Book>();
+		for(int bookID:students.loansOf(studentID)) {
+			loans.add(books.findBook(bookID));
+		}
+		return loans;
+	}
+
+	/**
+	 * @param studentID the student to look at
+	 * @return the student's loans with checkout times and due dates
+	 */
+	public List<Loan> loanDetailsOf(int studentID) {
+		return students.loanDetailsOf(studentID);
+	}
+
+	/**
+	 * Lists every loan that is past due and not returned. Only loans that fell due since the last call are looked at, so this stays cheap with millions of loans out.
+	 *
+	 * @return the overdue loans, the longest overdue first
+	 */
+	public List<Loan> overdueLoans() {
+		long start = System.nanoTime();
+		List<Loan> overdue = students.overdueLoans();
+		metrics.record(LibraryMetrics.Operation.OVERDUE_SCAN, start, true);
+		return overdue;
+	}
+
+	/**
+	 * @return the cache of hot catalog rows, for its hit, miss and eviction counters
+	 */
+	public HotCache<?, ?> bookCache() {
+		return books.rowCache;
+	}
+
+	/**
+	 * @return the cache of recent search results
+	 */
+	public HotCache<?, ?> searchCache() {
+		return books.searchCache;
+	}
+
+	public int bookCount() {
+		return books.size();
+	}
+
+	public int studentCount() {
+		return students.studentList.size();
+	}
+
+	/**
+	 * Imports books from a CSV file and saves them with a snapshot, since imported rows are not logged one by one.
+	 *
+	 * @see BulkLoader#importBooks(Path, Books)
+	 */
+	public BulkLoader.Report importBooks(Path file) throws IOException {
+		long start = System.nanoTime();
+		boolean ok = false;
+		try {
+			BulkLoader.Report report = BulkLoader.importBooks(file, books);
+			snapshot();
+			ok = true;
+			return report;
+		}finally {
+			metrics.record(LibraryMetrics.Operation.IMPORT, start, ok);
+		}
+	}
+
+	/**
+	 * Imports students from a CSV file and saves them with a snapshot.
+	 *
+	 * @see BulkLoader#importStudents(Path, Students)
+	 */
+	public BulkLoader.Report importStudents(Path file) throws IOException {
+		long start = System.nanoTime();
+		boolean ok = false;
+		try {
+			BulkLoader.Report report = BulkLoader.importStudents(file, students);
+			snapshot();
+			ok = true;
+			return report;
+		}finally {
+			metrics.record(LibraryMetrics.Operation.IMPORT, start, ok);
+		}
+	}
+
+	/**
+	 * @see BulkExporter#exportBooks(Path, Books)
+	 */
+	public long exportBooks(Path file) throws IOException {
+		long start = System.nanoTime();
+		boolean ok = false;
+		try {
+			long rows = BulkExporter.exportBooks(file, books);
+			ok = true;
+			return rows;
+		}finally {
+			metrics.record(LibraryMetrics.Operation.EXPORT, start, ok);
+		}
+	}
+
+	/**
+	 * @see BulkExporter#exportStudents(Path, Students)
+	 */
+	public long exportStudents(Path file) throws IOException {
+		long start = System.nanoTime();
+		boolean ok = false;
+		try {
+			long rows = BulkExporter.exportStudents(file, students);
+			ok = true;
+			return rows;
+		}finally {
+			metrics.record(LibraryMetrics.Operation.EXPORT, start, ok);
+		}
+	}
+
+	/**
+	 * Takes a snapshot if enough changes have been logged since the last one.
+	 *
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public void snapshotIfDue() throws IOException {
+		if(journal!=null && journal.shouldSnapshot()) {
+			snapshot();
+		}
+	}
+
+	/**
+	 * Saves the full state and starts an empty log. Must not run while other threads are changing books or students.
+	 *
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public void snapshot() throws IOException {
+		if(journal!=null) {
+			journal.snapshot(books, students);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		events.close();
+		if(journal!=null) {
+			journal.close();
+		}
+	}
+
+	Books books() {
+		return books;
+	}
+
+	Students students() {
+		return students;
+	}
+
+	/**
+	 * @return the failure for a malformed batch or one naming an unknown book, or null if the batch can be tried
+	 */
+	private BatchResult checkBatch(int[] studentIDs, int[] bookIDs) {
+		if(studentIDs==null || bookIDs==null || studentIDs.length!=bookIDs.length || studentIDs.length==0) {
+			return BatchResult.failed(OperationResult.Status.INVALID_INPUT, -1);
+		}
+		for(int i=0;i<bookIDs.length;i++) {
+			if(books.findBook(bookIDs[i])==null) {
+				return BatchResult.failed(OperationResult.Status.NO_SUCH_BOOK, i);
+			}
+		}
+		return null;
+	}
+
+	private static boolean isBlank(String text) {
+		return text==null || text.trim().isEmpty();
+	}
+
+}
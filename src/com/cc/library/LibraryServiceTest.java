@@ -0,0 +1,183 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+/**
+ * Unit tests for the headless LibraryService.
+ * Testing framework: JUnit 5
+ */
+public class LibraryServiceTest {
+
+    private LibraryService service;
+
+    @BeforeEach
+    void setUp() {
+        Book.ids = new IdAllocator();
+        Student.ids = new IdAllocator();
+        service = new LibraryService();
+    }
+
+    @Test
+    void testAddBook_InvalidInput_Rejected() {
+        assertEquals(OperationResult.Status.INVALID_INPUT, service.addBook(" ", "Author", 2).getStatus());
+        assertEquals(OperationResult.Status.INVALID_INPUT, service.addBook("Title", "Author", 0).getStatus());
+
+        OperationResult<Book> added = service.addBook("Dune", "Frank Herbert", 3);
+        assertTrue(added.isOk());
+        assertSame(added.getValue(), service.findBook(added.getValue().getBookID()));
+        assertEquals(1, service.bookCount());
+    }
+
+    @Test
+    void testRent_ReportsWhyItFailed() {
+        int bookID = service.addBook("Dune", "Frank Herbert", 2).getValue().getBookID();
+        int studentID = service.registerStudent("Asha").getValue().getStudentID();
+
+        assertEquals(OperationResult.Status.NO_SUCH_STUDENT, service.rent(999, bookID).getStatus());
+        assertEquals(OperationResult.Status.NO_SUCH_BOOK, service.rent(studentID, 999).getStatus());
+        assertTrue(service.rent(studentID, bookID).isOk());
+        assertEquals(OperationResult.Status.NOT_AVAILABLE, service.rent(studentID, bookID).getStatus());
+    }
+
+    @Test
+    void testRent_LoanLimit() {
+        int studentID = service.registerStudent("Asha").getValue().getStudentID();
+        int bookID = service.addBook("Popular", "Author", 20).getValue().getBookID();
+        for (int i = 0; i < Students.MAX_LOANS; i++) {
+            assertTrue(service.rent(studentID, bookID).isOk());
+        }
+
+        assertEquals(OperationResult.Status.LOAN_LIMIT_REACHED, service.rent(studentID, bookID).getStatus());
+        assertEquals(Students.MAX_LOANS, service.loansOf(studentID).size());
+    }
+
+    @Test
+    void testGiveBack_OnlyWhatWasBorrowed() {
+        int bookID = service.addBook("Dune", "Frank Herbert", 3).getValue().getBookID();
+        int studentID = service.registerStudent("Asha").getValue().getStudentID();
+
+        assertEquals(OperationResult.Status.NOT_BORROWED, service.giveBack(studentID, bookID).getStatus());
+        service.rent(studentID, bookID);
+        OperationResult<Book> returned = service.giveBack(studentID, bookID);
+
+        assertTrue(returned.isOk());
+        assertEquals(3, returned.getValue().getQuantity());
+        assertTrue(service.loansOf(studentID).isEmpty());
+    }
+
+    @Test
+    void testUpdateQuantity_And_Listings() {
+        int first = service.addBook("Java Programming", "Author 1", 1).getValue().getBookID();
+        service.addBook("Clean Code", "Author 2", 4);
+
+        assertEquals(OperationResult.Status.NO_SUCH_BOOK, service.updateQuantity(999, 2).getStatus());
+        assertEquals(OperationResult.Status.INVALID_INPUT, service.updateQuantity(first, -1).getStatus());
+        assertEquals(1, service.availableBooks().size());
+        assertTrue(service.updateQuantity(first, 5).isOk());
+
+        assertEquals(2, service.availableBooks().size());
+        assertEquals(2, service.allBooks().size());
+        List<Book> found = service.search("java", SearchIndex.Field.TITLE, true);
+        assertEquals(1, found.size());
+        assertEquals(5, found.get(0).getQuantity());
+    }
+
+    @Test
+    void testConcurrentRents_NeverOverLend() throws Exception {
+        int bookID = service.addBook("Popular", "Author", 51).getValue().getBookID();
+        int[] studentIDs = new int[20];
+        for (int i = 0; i < studentIDs.length; i++) {
+            studentIDs[i] = service.registerStudent("Student " + i).getValue().getStudentID();
+        }
+
+        Thread[] desks = new Thread[4];
+        for (int d = 0; d < desks.length; d++) {
+            int desk = d;
+            desks[d] = new Thread(() -> {
+                for (int i = desk; i < studentIDs.length; i += desks.length) {
+                    for (int j = 0; j < Students.MAX_LOANS; j++) {
+                        service.rent(studentIDs[i], bookID);
+                    }
+                }
+            });
+            desks[d].start();
+        }
+        for (Thread desk : desks) {
+            desk.join();
+        }
+
+        int lent = 0;
+        for (int studentID : studentIDs) {
+            lent += service.loansOf(studentID).size();
+        }
+        assertEquals(50, lent);
+        assertEquals(1, service.findBook(bookID).getQuantity());
+    }
+
+    @Test
+    void testRentAll_AppliesWholeBatchOrNothing() {
+        int dune = service.addBook("Dune", "Frank Herbert", 4).getValue().getBookID();
+        int emma = service.addBook("Emma", "Jane Austen", 2).getValue().getBookID();
+        int asha = service.registerStudent("Asha").getValue().getStudentID();
+        int ravi = service.registerStudent("Ravi").getValue().getStudentID();
+
+        assertEquals(OperationResult.Status.INVALID_INPUT, service.rentAll(new int[] {asha}, new int[0]).getStatus());
+        BatchResult unknown = service.rentAll(new int[] {asha, asha}, new int[] {dune, 999});
+        assertEquals(OperationResult.Status.NO_SUCH_BOOK, unknown.getStatus());
+        assertEquals(1, unknown.getFailedIndex());
+
+        BatchResult shortOfCopies = service.rentAll(new int[] {asha, ravi, ravi}, new int[] {dune, emma, emma});
+        assertEquals(OperationResult.Status.NOT_AVAILABLE, shortOfCopies.getStatus());
+        assertEquals(1, shortOfCopies.getFailedIndex());
+        assertTrue(service.loansOf(asha).isEmpty());
+        assertEquals(4, service.findBook(dune).getQuantity());
+
+        assertTrue(service.rentAll(new int[] {asha, ravi, ravi}, new int[] {dune, dune, emma}).isOk());
+        assertEquals(1, service.loansOf(asha).size());
+        assertEquals(2, service.loansOf(ravi).size());
+        assertEquals(2, service.findBook(dune).getQuantity());
+        assertEquals(1, service.findBook(emma).getQuantity());
+    }
+
+    @Test
+    void testRentAll_LoanLimitCountsTheWholeBatch() {
+        int bookID = service.addBook("Popular", "Author", 20).getValue().getBookID();
+        int studentID = service.registerStudent("Asha").getValue().getStudentID();
+        service.rent(studentID, bookID);
+        int[] students = new int[Students.MAX_LOANS];
+        int[] books = new int[Students.MAX_LOANS];
+        java.util.Arrays.fill(students, studentID);
+        java.util.Arrays.fill(books, bookID);
+
+        BatchResult result = service.rentAll(students, books);
+        assertEquals(OperationResult.Status.LOAN_LIMIT_REACHED, result.getStatus());
+        assertEquals(Students.MAX_LOANS - 1, result.getFailedIndex());
+        assertEquals(1, service.loansOf(studentID).size());
+        assertEquals(19, service.findBook(bookID).getQuantity());
+    }
+
+    @Test
+    void testGiveBackAll_OnlyWhatWasBorrowed() {
+        int dune = service.addBook("Dune", "Frank Herbert", 4).getValue().getBookID();
+        int emma = service.addBook("Emma", "Jane Austen", 3).getValue().getBookID();
+        int asha = service.registerStudent("Asha").getValue().getStudentID();
+        int ravi = service.registerStudent("Ravi").getValue().getStudentID();
+        service.rentAll(new int[] {asha, asha, ravi}, new int[] {dune, emma, dune});
+
+        BatchResult wrongStudent = service.giveBackAll(new int[] {asha, ravi}, new int[] {dune, emma});
+        assertEquals(OperationResult.Status.NOT_BORROWED, wrongStudent.getStatus());
+        assertEquals(1, wrongStudent.getFailedIndex());
+        assertEquals(2, service.loansOf(asha).size());
+        assertEquals(2, service.findBook(dune).getQuantity());
+
+        assertTrue(service.giveBackAll(new int[] {ravi, asha, asha}, new int[] {dune, emma, dune}).isOk());
+        assertTrue(service.loansOf(asha).isEmpty());
+        assertTrue(service.loansOf(ravi).isEmpty());
+        assertEquals(4, service.findBook(dune).getQuantity());
+        assertEquals(3, service.findBook(emma).getQuantity());
+    }
+}
@@ -0,0 +1,70 @@
+package com.cc.library;
+
+import java.time.Instant;
+
+/**
+ * One borrowed copy: who has it, which book it is, when it went out and when it is due back.
+ *
+ * A student who borrows two copies of the same book has two loans. Loans also carry the links DueDateWheel uses to keep them in its slot lists, so scheduling and cancelling a due date never allocates.
+ */
+public final class Loan {
+
+	private final int studentID;
+	private final int bookID;
+	private final long checkedOutAt;
+	private final long dueAt;
+
+	Loan prev;
+	Loan next;
+	Loan list;
+
+	/**
+	 * @param studentID the borrowing student
+	 * @param bookID the borrowed book
+	 * @param checkedOutAt when the copy went out, in epoch milliseconds
+	 * @param dueAt when the copy is due back, in epoch milliseconds
+	 */
+	Loan(int studentID, int bookID, long checkedOutAt, long dueAt) {
+		this.studentID = studentID;
+		this.bookID = bookID;
+		this.checkedOutAt = checkedOutAt;
+		this.dueAt = dueAt;
+	}
+
+	public int getStudentID() {
+		return studentID;
+	}
+
+	public int getBookID() {
+		return bookID;
+	}
+
+	/**
+	 * @return when the copy went out, in epoch milliseconds
+	 */
+	public long getCheckedOutAt() {
+		return checkedOutAt;
+	}
+
+	/**
+	 * @return when the copy is due back, in epoch milliseconds
+	 */
+	public long getDueAt() {
+		return dueAt;
+	}
+
+	/**
+	 * @param nowMillis the current time in epoch milliseconds
+	 * @return true if the due time has passed
+	 */
+	public boolean isOverdueAt(long nowMillis) {
+		return nowMillis>=dueAt;
+	}
+
+	@Override
+	public String toString() {
+		return "Loan [studentID=" + studentID + ", bookID=" + bookID + ", checkedOutAt=" + Instant.ofEpochMilli(checkedOutAt)
+				+ ", dueAt=" + Instant.ofEpochMilli(dueAt) + "]";
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.cc.library;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight view of one row of a ColumnarCatalog.
+ *
+ * The view only keeps the catalog and the row number, every getter reads straight from the mapped columns. The title and author are decoded on first use and kept, so a view that stays in Books' hot-title cache decodes them only once. Views are read-only: Books copies a row into a regular Book before it changes the quantity, so the setters here refuse to work.
+ */
+class MappedBook extends Book {
+
+	private final ColumnarCatalog catalog;
+	private final int row;
+	private String title;
+	private String author;
+
+	MappedBook(ColumnarCatalog catalog, int row) {
+		super(catalog.idAt(row));
+		this.catalog = catalog;
+		this.row = row;
+	}
+
+	@Override
+	public String getBookName() {
+		String decoded = title;
+		if(decoded==null) {
+			decoded = catalog.titleAt(row);
+			title = decoded;
+		}
+		return decoded;
+	}
+
+	@Override
+	public String getBookAuthor() {
+		String decoded = author;
+		if(decoded==null) {
+			decoded = catalog.authorAt(row);
+			author = decoded;
+		}
+		return decoded;
+	}
+
+	@Override
+	public int getQuantity() {
+		return catalog.quantityAt(row);
+	}
+
+	@Override
+	public void setQuantity(int quantity) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setBookName(String bookName) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setBookAuthor(String bookAuthor) {
+		throw readOnly();
+	}
+
+	@Override
+	public boolean takeCopy() {
+		throw readOnly();
+	}
+
+	@Override
+	public boolean takeCopies(int count) {
+		throw readOnly();
+	}
+
+	@Override
+	public int returnCopy() {
+		throw readOnly();
+	}
+
+	@Override
+	public int returnCopies(int count) {
+		throw readOnly();
+	}
+
+	/**
+	 * @return the row's title as UTF-8 bytes straight from the mapped column, without decoding it
+	 */
+	ByteBuffer titleBytes() {
+		return catalog.titleBytesAt(row);
+	}
+
+	/**
+	 * @return the row's author as UTF-8 bytes straight from the mapped column, without decoding it
+	 */
+	ByteBuffer authorBytes() {
+		return catalog.authorBytesAt(row);
+	}
+
+	/**
+	 * Copies the row into a regular heap Book that can be changed.
+	 *
+	 * @return a new Book with the same ID and fields
+	 */
+	Book toHeapBook() {
+		return new Book(getBookID(), getBookName(), getBookAuthor(), getQuantity());
+	}
+
+	private UnsupportedOperationException readOnly() {
+		return new UnsupportedOperationException("Book " + getBookID() + " is a read-only catalog row");
+	}
+
+}
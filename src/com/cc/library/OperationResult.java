@@ -0,0 +1,60 @@
+package com.cc.library;
+
+/**
+ * The outcome of a LibraryService call: a status and, when the call succeeded, the book or student it worked on.
+ *
+ * @param <T> the type of the value handed back on success
+ */
+public final class OperationResult<T> {
+
+	/**
+	 * Why an operation succeeded or failed.
+	 */
+	public enum Status {
+		OK,
+		INVALID_INPUT,
+		NO_SUCH_BOOK,
+		NO_SUCH_STUDENT,
+		NOT_AVAILABLE,
+		LOAN_LIMIT_REACHED,
+		NOT_BORROWED,
+		NO_SUCH_HOLD
+	}
+
+	private final Status status;
+	private final T value;
+
+	private OperationResult(Status status, T value) {
+		this.status = status;
+		this.value = value;
+	}
+
+	static <T> OperationResult<T> ok(T value) {
+		return new OperationResult<T>(Status.OK, value);
+	}
+
+	static <T> OperationResult<T> failed(Status status) {
+		return new OperationResult<T>(status, null);
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the value the operation worked on, or null if it failed
+	 */
+	public T getValue() {
+		return value;
+	}
+
+	public boolean isOk() {
+		return status==Status.OK;
+	}
+
+	@Override
+	public String toString() {
+		return "OperationResult [status=" + status + ", value=" + value + "]";
+	}
+
+}
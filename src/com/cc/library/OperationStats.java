@@ -0,0 +1,84 @@
+package com.cc.library;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call and failure counters and a latency histogram for one library operation.
+ *
+ * Everything is updated without locks, so many threads can record the same operation at once without waiting on each other.
+ */
+public class OperationStats implements OperationStatsMBean {
+
+	private final String name;
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	OperationStats(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Records one finished call.
+	 *
+	 * @param nanos how long the call took
+	 * @param ok false if the call was refused or failed
+	 */
+	void record(long nanos, boolean ok) {
+		calls.increment();
+		if(!ok) {
+			failures.increment();
+		}
+		latency.record(nanos);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	@Override
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	@Override
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	@Override
+	public double getMeanNanos() {
+		return latency.mean();
+	}
+
+	@Override
+	public long getP50Nanos() {
+		return latency.valueAt(50);
+	}
+
+	@Override
+	public long getP99Nanos() {
+		return latency.valueAt(99);
+	}
+
+	@Override
+	public long getP999Nanos() {
+		return latency.valueAt(99.9);
+	}
+
+	@Override
+	public long getMaxNanos() {
+		return latency.max();
+	}
+
+	@Override
+	public String toString() {
+		return "OperationStats [name=" + name + ", calls=" + getCalls() + ", failures=" + getFailures() + ", p50=" + getP50Nanos()
+				+ "ns, p99=" + getP99Nanos() + "ns, p999=" + getP999Nanos() + "ns, max=" + getMaxNanos() + "ns]";
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.cc.library;
+
+/**
+ * JMX view of one library operation: how often it ran, how often it failed and how long it took, in nanoseconds.
+ */
+public interface OperationStatsMBean {
+
+	long getCalls();
+
+	long getFailures();
+
+	double getMeanNanos();
+
+	long getP50Nanos();
+
+	long getP99Nanos();
+
+	long getP999Nanos();
+
+	long getMaxNanos();
+
+}
@@ -0,0 +1,47 @@
+package com.cc.library;
+
+import java.util.List;
+
+/**
+ * One page of a listing and the cursor of the page after it.
+ *
+ * Cursors are positions in the underlying storage, not offsets into a sorted result, so fetching the next page costs the same however far into the listing it is, and books or students added while a client pages through are picked up at the end instead of shifting pages that were already read.
+ *
+ * @param <T> the type of the listed records
+ */
+public final class Page<T> {
+
+	/**
+	 * The cursor of the first page.
+	 */
+	public static final int FIRST = 0;
+
+	private final List<T> items;
+	private final int nextCursor;
+
+	Page(List<T> items, int nextCursor) {
+		this.items = items;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * @return the cursor to pass for the next page, or -1 if this is the last page
+	 */
+	public int getNextCursor() {
+		return nextCursor;
+	}
+
+	public boolean hasMore() {
+		return nextCursor>=0;
+	}
+
+	@Override
+	public String toString() {
+		return "Page [items=" + items.size() + ", nextCursor=" + nextCursor + "]";
+	}
+
+}
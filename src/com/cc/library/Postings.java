@@ -0,0 +1,157 @@
+package com.cc.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sorted list of book IDs kept in a growable int array.
+ *
+ * IDs are handed out in increasing order, so adding a new book is almost always an append at the end. Lookups are binary searches, and intersecting or merging lists walks the arrays instead of boxed tree nodes.
+ */
+class Postings {
+
+	private int[] ids;
+	private int size;
+
+	Postings() {
+		this(4);
+	}
+
+	Postings(int capacity) {
+		this.ids = new int[Math.max(capacity, 1)];
+	}
+
+	private Postings(int[] ids, int size) {
+		this.ids = ids;
+		this.size = size;
+	}
+
+	/**
+	 * Adds an ID, keeping the list sorted. Adding an ID that is already present does nothing.
+	 */
+	void add(int id) {
+		if(size==0 || ids[size - 1]<id) {
+			grow();
+			ids[size++] = id;
+			return;
+		}
+		int at = Arrays.binarySearch(ids, 0, size, id);
+		if(at>=0) {
+			return;
+		}
+		at = -at - 1;
+		grow();
+		System.arraycopy(ids, at, ids, at + 1, size - at);
+		ids[at] = id;
+		size++;
+	}
+
+	void remove(int id) {
+		int at = Arrays.binarySearch(ids, 0, size, id);
+		if(at>=0) {
+			System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+			size--;
+		}
+	}
+
+	boolean contains(int id) {
+		return Arrays.binarySearch(ids, 0, size, id)>=0;
+	}
+
+	/**
+	 * @return the position of the ID in the list, or a negative number if it is not there
+	 */
+	int indexOf(int id) {
+		return Arrays.binarySearch(ids, 0, size, id);
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size==0;
+	}
+
+	/**
+	 * @return the length of the backing array, which may be larger than size
+	 */
+	int capacity() {
+		return ids.length;
+	}
+
+	int get(int index) {
+		return ids[index];
+	}
+
+	List<Integer> toList() {
+		List<Integer> list = new ArrayList<Integer>(size);
+		for(int i=0;i<size;i++) {
+			list.add(ids[i]);
+		}
+		return list;
+	}
+
+	/**
+	 * Merges lists into one sorted list without duplicates.
+	 */
+	static Postings union(List<Postings> lists) {
+		if(lists.size()==1) {
+			return lists.get(0);
+		}
+		int total = 0;
+		for(Postings list:lists) {
+			total += list.size;
+		}
+		int[] all = new int[total];
+		int at = 0;
+		for(Postings list:lists) {
+			System.arraycopy(list.ids, 0, all, at, list.size);
+			at += list.size;
+		}
+		Arrays.sort(all);
+		int unique = 0;
+		for(int i=0;i<total;i++) {
+			if(unique==0 || all[unique - 1]!=all[i]) {
+				all[unique++] = all[i];
+			}
+		}
+		return new Postings(all, unique);
+	}
+
+	/**
+	 * Keeps the IDs found in every list, walking the shortest list and binary searching the others.
+	 */
+	static Postings intersect(List<Postings> lists) {
+		Postings smallest = lists.get(0);
+		for(Postings list:lists) {
+			if(list.size<smallest.size) {
+				smallest = list;
+			}
+		}
+		int[] result = new int[smallest.size];
+		int found = 0;
+		for(int i=0;i<smallest.size;i++) {
+			int id = smallest.ids[i];
+			boolean inAll = true;
+			for(Postings list:lists) {
+				if(list!=smallest && !list.contains(id)) {
+					inAll = false;
+					break;
+				}
+			}
+			if(inAll) {
+				result[found++] = id;
+			}
+		}
+		return new Postings(result, found);
+	}
+
+	private void grow() {
+		if(size==ids.length) {
+			ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1) + 1);
+		}
+	}
+
+}
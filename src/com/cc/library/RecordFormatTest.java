@@ -0,0 +1,117 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the RecordWriter and RecordReader binary record format.
+ * Testing framework: JUnit 5
+ */
+public class RecordFormatTest {
+
+    @BeforeEach
+    void setUp() {
+        Book.ids = new IdAllocator();
+        Student.ids = new IdAllocator();
+    }
+
+    @Test
+    void testRoundTrip_BooksStudentsAndLoans() {
+        for (boolean dictionary : new boolean[] {true, false}) {
+            RecordWriter out = new RecordWriter(dictionary);
+            out.writeBook(new Book(1, "Caf\u00e9 \ud83d\udcda", "Anna Writer", 3));
+            out.writeBook(new Book(300000, null, "Anna Writer", -2));
+            out.writeBook(new Book(7, "", null, 0));
+            out.writeStudent(new Student(42, "Ravi"));
+            out.writeLoan(new Loan(42, 300000, 1_700_000_000_000L, 1_700_000_000_000L - 5000));
+
+            RecordReader in = new RecordReader(out.toByteBuffer());
+            assertTrue(in.next());
+            assertTrue(in.isBook());
+            assertEquals(1, in.bookID());
+            assertEquals(3, in.quantity());
+            assertEquals("Caf\u00e9 \ud83d\udcda", in.name());
+            assertEquals("Anna Writer", in.author());
+            assertTrue(in.next());
+            Book second = in.toBook();
+            assertEquals(300000, second.getBookID());
+            assertNull(second.getBookName());
+            assertEquals("Anna Writer", second.getBookAuthor());
+            assertEquals(-2, second.getQuantity());
+            assertTrue(in.next());
+            assertEquals("", in.name());
+            assertNull(in.author());
+            assertTrue(in.next());
+            assertTrue(in.isStudent());
+            assertEquals(new Student(42, "Ravi"), in.toStudent());
+            assertEquals("Ravi", in.name());
+            assertTrue(in.next());
+            assertTrue(in.isLoan());
+            assertEquals(42, in.studentID());
+            assertEquals(300000, in.bookID());
+            assertEquals(1_700_000_000_000L, in.checkedOutAt());
+            assertEquals(1_700_000_000_000L - 5000, in.dueAt());
+            assertFalse(in.next());
+        }
+    }
+
+    @Test
+    void testReader_LeavesCallersBufferAlone() {
+        RecordWriter out = new RecordWriter();
+        out.writeStudent(new Student(5, "Mina"));
+        ByteBuffer direct = ByteBuffer.allocateDirect(out.size() + 3);
+        direct.put(new byte[] {9, 9, 9}).put(out.toByteBuffer()).flip().position(3);
+
+        RecordReader in = new RecordReader(direct);
+        assertTrue(in.next());
+        assertEquals("Mina", in.name());
+        assertEquals(3, direct.position());
+    }
+
+    @Test
+    void testReader_RejectsForeignAndCutOffStreams() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RecordReader(ByteBuffer.wrap("name,author".getBytes(StandardCharsets.US_ASCII))));
+
+        RecordWriter out = new RecordWriter();
+        out.writeBook(new Book(1, "Java Programming", "James Gosling", 3));
+        ByteBuffer whole = out.toByteBuffer();
+        RecordReader in = new RecordReader(whole.limit(whole.limit() - 4));
+        assertThrows(IllegalArgumentException.class, in::next);
+    }
+
+    @Test
+    void testSize_SmallerThanJavaSerializationAndJson() throws IOException {
+        List<Book> books = new ArrayList<Book>();
+        for (int i = 1; i <= 2000; i++) {
+            books.add(new Book(i, "Title number " + i, "Author " + (i % 40), 1 + i % 9));
+        }
+        RecordWriter records = new RecordWriter();
+        RecordWriter plain = new RecordWriter(false);
+        ArrayList<Object[]> rows = new ArrayList<Object[]>();
+        for (Book book : books) {
+            records.writeBook(book);
+            plain.writeBook(book);
+            rows.add(new Object[] {book.getBookID(), book.getBookName(), book.getBookAuthor(), book.getQuantity()});
+        }
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(rows);
+        }
+        int json = Json.books(books).getBytes(StandardCharsets.UTF_8).length;
+
+        assertTrue(records.size() < plain.size());
+        assertTrue(plain.size() < serialized.size());
+        assertTrue(plain.size() < json);
+    }
+
+}
@@ -0,0 +1,256 @@
+package com.cc.library;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the binary record format written by RecordWriter straight out of a ByteBuffer.
+ *
+ * The reader is a cursor: next moves to the following record and reads its numbers in place, while titles, names and authors are only remembered as a position and a length in the buffer. They are decoded when asked for, so a pass that only needs IDs and quantities never creates a String. The buffer may be a heap buffer, a direct buffer or a mapped file. The reader works on its own view of it, so the caller's position and limit are left alone.
+ *
+ * Author dictionary entries are also kept as positions, and each one is decoded at most once.
+ */
+public class RecordReader {
+
+	private final ByteBuffer buffer;
+	private final boolean authorDictionary;
+	private final List<int[]> authorSpans = new ArrayList<int[]>();
+	private final List<String> authorNames = new ArrayList<String>();
+
+	private byte type;
+	private int id;
+	private int quantity;
+	private int bookID;
+	private long checkedOutAt;
+	private long dueAt;
+	private int nameAt;
+	private int nameLength;
+	private int authorAt;
+	private int authorLength;
+	private int authorEntry;
+
+	/**
+	 * @param records a stream written by RecordWriter, read from its position to its limit
+	 * @throws IllegalArgumentException if the header is missing or from an unknown version
+	 */
+	public RecordReader(ByteBuffer records) {
+		this.buffer = records.slice();
+		if(buffer.remaining()<6 || buffer.getInt()!=RecordWriter.MAGIC) {
+			throw new IllegalArgumentException("Not a library record stream");
+		}
+		byte version = buffer.get();
+		if(version!=RecordWriter.VERSION) {
+			throw new IllegalArgumentException("Unsupported record version " + version);
+		}
+		this.authorDictionary = (buffer.get() & RecordWriter.FLAG_AUTHOR_DICTIONARY)!=0;
+	}
+
+	/**
+	 * Moves to the next record.
+	 *
+	 * @return false once every record has been read
+	 * @throws IllegalArgumentException if the record is cut off or of an unknown type
+	 */
+	public boolean next() {
+		if(!buffer.hasRemaining()) {
+			type = 0;
+			return false;
+		}
+		try {
+			type = buffer.get();
+			switch(type) {
+			case RecordWriter.BOOK:
+				id = getVarint();
+				quantity = unzigzag(getVarint());
+				nameLength = skipString();
+				nameAt = buffer.position() - Math.max(nameLength, 0);
+				readAuthor();
+				break;
+			case RecordWriter.STUDENT:
+				id = getVarint();
+				nameLength = skipString();
+				nameAt = buffer.position() - Math.max(nameLength, 0);
+				break;
+			case RecordWriter.LOAN:
+				id = getVarint();
+				bookID = getVarint();
+				checkedOutAt = getVarlong();
+				dueAt = checkedOutAt + unzigzag(getVarlong());
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown record type " + type + " at byte " + (buffer.position() - 1));
+			}
+		}catch(BufferUnderflowException e) {
+			throw new IllegalArgumentException("Record cut off at byte " + buffer.position(), e);
+		}
+		return true;
+	}
+
+	/**
+	 * @return RecordWriter.BOOK, STUDENT or LOAN for the current record
+	 */
+	public byte type() {
+		return type;
+	}
+
+	public boolean isBook() {
+		return type==RecordWriter.BOOK;
+	}
+
+	public boolean isStudent() {
+		return type==RecordWriter.STUDENT;
+	}
+
+	public boolean isLoan() {
+		return type==RecordWriter.LOAN;
+	}
+
+	/**
+	 * @return the ID of the current book
+	 */
+	public int bookID() {
+		return type==RecordWriter.LOAN ? bookID : id;
+	}
+
+	/**
+	 * @return the ID of the current student, or the borrower of the current loan
+	 */
+	public int studentID() {
+		return id;
+	}
+
+	public int quantity() {
+		return quantity;
+	}
+
+	public long checkedOutAt() {
+		return checkedOutAt;
+	}
+
+	public long dueAt() {
+		return dueAt;
+	}
+
+	/**
+	 * @return the title of the current book or the name of the current student, decoded now
+	 */
+	public String name() {
+		return decode(nameAt, nameLength);
+	}
+
+	/**
+	 * @return the author of the current book, decoded on first use of its dictionary entry
+	 */
+	public String author() {
+		if(authorEntry<0) {
+			return decode(authorAt, authorLength);
+		}
+		String author = authorNames.get(authorEntry);
+		if(author==null) {
+			int[] span = authorSpans.get(authorEntry);
+			author = decode(span[0], span[1]);
+			authorNames.set(authorEntry, author);
+		}
+		return author;
+	}
+
+	public Book toBook() {
+		return new Book(id, name(), author(), quantity);
+	}
+
+	public Student toStudent() {
+		return new Student(id, name());
+	}
+
+	public Loan toLoan() {
+		return new Loan(id, bookID, checkedOutAt, dueAt);
+	}
+
+	private void readAuthor() {
+		if(!authorDictionary) {
+			authorEntry = -1;
+			authorLength = skipString();
+			authorAt = buffer.position() - Math.max(authorLength, 0);
+			return;
+		}
+		int reference = getVarint();
+		if(reference>=RecordWriter.DICTIONARY_BASE) {
+			authorEntry = reference - RecordWriter.DICTIONARY_BASE;
+			if(authorEntry>=authorSpans.size()) {
+				throw new IllegalArgumentException("Unknown author entry " + authorEntry);
+			}
+			return;
+		}
+		authorLength = skipString();
+		authorAt = buffer.position() - Math.max(authorLength, 0);
+		if(reference==RecordWriter.AUTHOR_NEW) {
+			authorEntry = authorSpans.size();
+			authorSpans.add(new int[] {authorAt, authorLength});
+			authorNames.add(null);
+		}else {
+			authorEntry = -1;
+		}
+	}
+
+	/**
+	 * Steps over a length-prefixed string.
+	 *
+	 * @return its length in bytes, or -1 for null
+	 */
+	private int skipString() {
+		int length = getVarint() - 1;
+		if(length<-1 || length>buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		if(length>0) {
+			buffer.position(buffer.position() + length);
+		}
+		return length;
+	}
+
+	private String decode(int at, int length) {
+		if(length<0) {
+			return null;
+		}
+		if(buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + at, length, StandardCharsets.UTF_8);
+		}
+		return StandardCharsets.UTF_8.decode(buffer.slice(at, length)).toString();
+	}
+
+	private int getVarint() {
+		int value = 0;
+		for(int shift=0;shift<35;shift+=7) {
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if(b>=0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Varint too long at byte " + buffer.position());
+	}
+
+	private long getVarlong() {
+		long value = 0;
+		for(int shift=0;shift<70;shift+=7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if(b>=0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Varlong too long at byte " + buffer.position());
+	}
+
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}
@@ -0,0 +1,200 @@
+package com.cc.library;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes books, students and loans into the compact binary record format that RecordReader reads.
+ *
+ * A stream starts with a header of MAGIC, VERSION and a flags byte, followed by records. Each record is a one-byte type and its fields: IDs and quantities as varints, times as varlongs with the due date stored as the distance from the checkout, and text as a varint length followed by UTF-8 bytes. A typical book takes its title plus about ten bytes.
+ *
+ * With the author dictionary switched on, each author name is written once and later books by the same author refer back to it by number, which pays off in catalogs where a few thousand authors share millions of titles. The dictionary is built while writing and rebuilt by the reader in the same order, so it is never stored on its own.
+ *
+ * Records collect in a growing heap buffer. Long streams can be drained to a channel between records, the dictionary carries on across drains.
+ */
+public class RecordWriter {
+
+	static final int MAGIC = 0x4C494252;
+	static final byte VERSION = 1;
+	static final byte FLAG_AUTHOR_DICTIONARY = 1;
+
+	static final byte BOOK = 1;
+	static final byte STUDENT = 2;
+	static final byte LOAN = 3;
+
+	/**
+	 * Author references: a literal name that is not remembered, a new dictionary entry, or DICTIONARY_BASE plus the entry's number.
+	 */
+	static final int AUTHOR_LITERAL = 0;
+	static final int AUTHOR_NEW = 1;
+	static final int DICTIONARY_BASE = 2;
+
+	/**
+	 * The most author names one stream remembers. Names after that are written in full every time.
+	 */
+	static final int MAX_DICTIONARY = 1 << 16;
+
+	private ByteBuffer buffer;
+	private final Map<String, Integer> authors;
+
+	/**
+	 * Creates a writer with the author dictionary switched on.
+	 */
+	public RecordWriter() {
+		this(true);
+	}
+
+	/**
+	 * @param authorDictionary true to write repeated author names as references
+	 */
+	public RecordWriter(boolean authorDictionary) {
+		this.buffer = ByteBuffer.allocate(4096);
+		this.authors = authorDictionary ? new HashMap<String, Integer>() : null;
+		buffer.putInt(MAGIC).put(VERSION).put(authorDictionary ? FLAG_AUTHOR_DICTIONARY : 0);
+	}
+
+	public RecordWriter writeBook(Book book) {
+		room(16);
+		buffer.put(BOOK);
+		putVarint(book.getBookID());
+		putVarint(zigzag(book.getQuantity()));
+		if(book instanceof MappedBook) {
+			putUtf8(((MappedBook) book).titleBytes());
+		}else {
+			putString(book.getBookName());
+		}
+		putAuthor(book.getBookAuthor());
+		return this;
+	}
+
+	public RecordWriter writeStudent(Student student) {
+		room(6);
+		buffer.put(STUDENT);
+		putVarint(student.getStudentID());
+		putString(student.getStudentName());
+		return this;
+	}
+
+	public RecordWriter writeLoan(Loan loan) {
+		room(31);
+		buffer.put(LOAN);
+		putVarint(loan.getStudentID());
+		putVarint(loan.getBookID());
+		putVarlong(loan.getCheckedOutAt());
+		putVarlong(zigzag(loan.getDueAt() - loan.getCheckedOutAt()));
+		return this;
+	}
+
+	/**
+	 * @return the number of bytes written since the writer was created or last drained
+	 */
+	public int size() {
+		return buffer.position();
+	}
+
+	/**
+	 * @return a read-only view of the bytes written so far, positioned at the start
+	 */
+	public ByteBuffer toByteBuffer() {
+		ByteBuffer view = buffer.duplicate();
+		view.flip();
+		return view.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Writes the bytes written so far to a channel and empties the buffer.
+	 *
+	 * @param channel where the bytes go
+	 * @throws IOException if the channel cannot be written
+	 */
+	public void drainTo(WritableByteChannel channel) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private void putAuthor(String author) {
+		if(authors==null) {
+			putString(author);
+			return;
+		}
+		Integer entry = author==null ? null : authors.get(author);
+		if(entry!=null) {
+			room(5);
+			putVarint(DICTIONARY_BASE + entry);
+		}else if(author!=null && authors.size()<MAX_DICTIONARY) {
+			authors.put(author, authors.size());
+			room(1);
+			putVarint(AUTHOR_NEW);
+			putString(author);
+		}else {
+			room(1);
+			putVarint(AUTHOR_LITERAL);
+			putString(author);
+		}
+	}
+
+	/**
+	 * Writes text as its UTF-8 length plus one, then the bytes. A length of zero stands for null.
+	 */
+	private void putString(String text) {
+		if(text==null) {
+			room(1);
+			putVarint(0);
+			return;
+		}
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		room(5 + bytes.length);
+		putVarint(bytes.length + 1);
+		buffer.put(bytes);
+	}
+
+	private void putUtf8(ByteBuffer utf8) {
+		room(5 + utf8.remaining());
+		putVarint(utf8.remaining() + 1);
+		buffer.put(utf8.duplicate());
+	}
+
+	private void putVarint(int value) {
+		while((value & ~0x7F)!=0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private void putVarlong(long value) {
+		while((value & ~0x7FL)!=0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Doubles the buffer until the given number of bytes fits.
+	 */
+	private void room(int bytes) {
+		if(buffer.remaining()<bytes) {
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+			buffer.flip();
+			bigger.put(buffer);
+			buffer = bigger;
+		}
+	}
+
+}
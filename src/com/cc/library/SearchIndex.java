@@ -0,0 +1,355 @@
+package com.cc.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Inverted index over book titles and authors.
+ *
+ * Every title and author is split into lower-case words, and each word keeps a sorted posting list of the IDs of the books that contain it. Queries only touch the posting lists of their own words, so their cost does not grow with the size of the catalog. A trigram index over the distinct words lets searchFuzzy find words with typos without scanning the titles. All public methods except estimatedBytes are synchronized so books can be added while other threads search.
+ */
+public class SearchIndex {
+
+	/**
+	 * Which part of a book a query should look at.
+	 */
+	public enum Field {
+		TITLE, AUTHOR, ANY
+	}
+
+	/**
+	 * Orders fuzzy hits from the most to the least similar, and equally similar books by ID.
+	 */
+	static final Comparator<Hit> RANKING = Comparator.comparingDouble((Hit hit) -> -hit.score).thenComparingInt(hit -> hit.bookID);
+
+	private final TreeMap<String, Postings> titleTerms = new TreeMap<String, Postings>();
+	private final TreeMap<String, Postings> authorTerms = new TreeMap<String, Postings>();
+	private final TrigramIndex vocabulary = new TrigramIndex();
+	private volatile long termBytes = 2 * 48;
+
+	/**
+	 * A book found by a fuzzy search and how closely it matched, from 0 to 1.
+	 */
+	public static final class Hit {
+		final int bookID;
+		final double score;
+
+		Hit(int bookID, double score) {
+			this.bookID = bookID;
+			this.score = score;
+		}
+
+		public int getBookID() {
+			return bookID;
+		}
+
+		public double getScore() {
+			return score;
+		}
+	}
+
+	/**
+	 * Adds the words of a book's title and author to the index.
+	 *
+	 * @param book the book to index
+	 */
+	public synchronized void add(Book book) {
+		for(String term:tokenize(book.getBookName())) {
+			addPosting(titleTerms, term, book.getBookID());
+		}
+		for(String term:tokenize(book.getBookAuthor())) {
+			addPosting(authorTerms, term, book.getBookID());
+		}
+	}
+
+	/**
+	 * Adds many books while holding the lock once.
+	 *
+	 * @param books the books to index
+	 */
+	public synchronized void addAll(Collection<Book> books) {
+		for(Book book:books) {
+			add(book);
+		}
+	}
+
+	/**
+	 * Removes a book from the index. The book's title and author must be the ones it was indexed with.
+	 *
+	 * @param book the book to remove
+	 */
+	public synchronized void remove(Book book) {
+		for(String term:tokenize(book.getBookName())) {
+			removePosting(titleTerms, term, book.getBookID());
+		}
+		for(String term:tokenize(book.getBookAuthor())) {
+			removePosting(authorTerms, term, book.getBookID());
+		}
+	}
+
+	/**
+	 * Finds the IDs of the books matching a query.
+	 *
+	 * The query is split into words the same way titles are. A word ending in '*' matches every indexed word starting with it. With matchAll a book must match every word (AND), otherwise any one word is enough (OR).
+	 *
+	 * @param query the words to look for
+	 * @param field whether to search titles, authors or both
+	 * @param matchAll true to require every word, false to accept any word
+	 * @return the matching book IDs in ascending order, empty if nothing matches
+	 */
+	public synchronized List<Integer> search(String query, Field field, boolean matchAll) {
+		List<Postings> postings = new ArrayList<Postings>();
+		for(String word:splitQuery(query)) {
+			List<Postings> matches = new ArrayList<Postings>();
+			boolean prefix = word.endsWith("*");
+			String term = prefix ? word.substring(0, word.length()-1) : word;
+			if(term.isEmpty()) {
+				continue;
+			}
+			if(field!=Field.AUTHOR) {
+				collect(titleTerms, term, prefix, matches);
+			}
+			if(field!=Field.TITLE) {
+				collect(authorTerms, term, prefix, matches);
+			}
+			if(matches.isEmpty()) {
+				if(matchAll) {
+					return Collections.emptyList();
+				}
+				continue;
+			}
+			postings.add(Postings.union(matches));
+		}
+		if(postings.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return (matchAll ? Postings.intersect(postings) : Postings.union(postings)).toList();
+	}
+
+	/**
+	 * Finds the books matching a query with typos, ranked by how closely they match.
+	 *
+	 * Every word of the query is looked up in the trigram vocabulary, which returns the indexed words within one typo for words of three to five letters and two typos for longer ones. Shorter words and words with digits must match exactly. A book must match every query word. Its score is the average over the query words of the best similarity among the words it matched, so exact matches score 1 and come first.
+	 *
+	 * Words are checked from the one with the fewest books to the one with the most, so the candidate set is as small as possible before the larger posting lists are probed.
+	 *
+	 * @param query the words to look for
+	 * @param field whether to search titles, authors or both
+	 * @param limit the most hits to return
+	 * @return the best hits, most similar first
+	 */
+	public synchronized List<Hit> searchFuzzy(String query, Field field, int limit) {
+		List<String> queryWords = tokenize(query);
+		if(queryWords.isEmpty() || limit<1) {
+			return Collections.emptyList();
+		}
+		List<List<Postings>> lists = new ArrayList<List<Postings>>();
+		List<double[]> similarities = new ArrayList<double[]>();
+		List<Integer> sizes = new ArrayList<Integer>();
+		for(String word:queryWords) {
+			List<Postings> wordLists = new ArrayList<Postings>();
+			List<Double> wordSimilarities = new ArrayList<Double>();
+			List<TrigramIndex.Match> matches = TrigramIndex.isFuzzy(word) ? vocabulary.similar(word) : List.of(new TrigramIndex.Match(word, 0));
+			for(TrigramIndex.Match match:matches) {
+				if(field!=Field.AUTHOR) {
+					addList(titleTerms.get(match.word), match.similarity(word), wordLists, wordSimilarities);
+				}
+				if(field!=Field.TITLE) {
+					addList(authorTerms.get(match.word), match.similarity(word), wordLists, wordSimilarities);
+				}
+			}
+			if(wordLists.isEmpty()) {
+				return Collections.emptyList();
+			}
+			int size = 0;
+			double[] scores = new double[wordSimilarities.size()];
+			for(int i=0;i<scores.length;i++) {
+				scores[i] = wordSimilarities.get(i);
+				size += wordLists.get(i).size();
+			}
+			lists.add(wordLists);
+			similarities.add(scores);
+			sizes.add(size);
+		}
+		Integer[] order = new Integer[lists.size()];
+		for(int i=0;i<order.length;i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingInt(sizes::get));
+		Postings candidates = Postings.union(lists.get(order[0]));
+		double[] totals = new double[candidates.size()];
+		bestSimilarities(candidates, lists.get(order[0]), similarities.get(order[0]), totals);
+		int count = candidates.size();
+		int[] ids = new int[count];
+		for(int i=0;i<count;i++) {
+			ids[i] = candidates.get(i);
+		}
+		for(int w=1;w<order.length && count>0;w++) {
+			List<Postings> wordLists = lists.get(order[w]);
+			double[] wordSimilarities = similarities.get(order[w]);
+			int kept = 0;
+			for(int c=0;c<count;c++) {
+				double best = -1;
+				for(int i=0;i<wordLists.size();i++) {
+					if(wordSimilarities[i]>best && wordLists.get(i).contains(ids[c])) {
+						best = wordSimilarities[i];
+					}
+				}
+				if(best>=0) {
+					ids[kept] = ids[c];
+					totals[kept++] = totals[c] + best;
+				}
+			}
+			count = kept;
+		}
+		PriorityQueue<Hit> best = new PriorityQueue<Hit>(limit + 1, RANKING.reversed());
+		for(int c=0;c<count;c++) {
+			Hit hit = new Hit(ids[c], totals[c] / queryWords.size());
+			if(best.size()<limit) {
+				best.add(hit);
+			}else if(RANKING.compare(hit, best.peek())<0) {
+				best.poll();
+				best.add(hit);
+			}
+		}
+		List<Hit> hits = new ArrayList<Hit>(best);
+		hits.sort(RANKING);
+		return hits;
+	}
+
+	/**
+	 * Fills in, for every candidate ID, the highest similarity among the lists that contain it.
+	 */
+	private static void bestSimilarities(Postings candidates, List<Postings> lists, double[] similarities, double[] into) {
+		if(lists.size()==1) {
+			Arrays.fill(into, similarities[0]);
+			return;
+		}
+		Arrays.fill(into, -1);
+		for(int i=0;i<lists.size();i++) {
+			Postings ids = lists.get(i);
+			for(int j=0;j<ids.size();j++) {
+				int at = candidates.indexOf(ids.get(j));
+				into[at] = Math.max(into[at], similarities[i]);
+			}
+		}
+	}
+
+	/**
+	 * Estimates the heap taken by the index, assuming compressed object pointers: a tree node, a String and its bytes per word, and a posting list object and its whole backing array per list.
+	 *
+	 * The estimate is kept up to date as books are added and removed, so reading it takes no lock and does not walk the index.
+	 *
+	 * @return the estimated size in bytes
+	 */
+	public long estimatedBytes() {
+		return termBytes + vocabulary.estimatedBytes();
+	}
+
+	/**
+	 * Splits text into lower-case words made of letters and digits.
+	 *
+	 * @param text the text to split, may be null
+	 * @return the words in the order they appear
+	 */
+	static List<String> tokenize(String text) {
+		List<String> terms = new ArrayList<String>();
+		if(text==null) {
+			return terms;
+		}
+		String lower = text.toLowerCase(Locale.ROOT);
+		int start = -1;
+		for(int i=0;i<=lower.length();i++) {
+			boolean wordChar = i<lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+			if(wordChar && start<0) {
+				start = i;
+			}else if(!wordChar && start>=0) {
+				terms.add(lower.substring(start, i));
+				start = -1;
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * Splits a query like tokenize, but keeps a trailing '*' on a word as the prefix marker.
+	 */
+	private static List<String> splitQuery(String query) {
+		List<String> words = new ArrayList<String>();
+		if(query==null) {
+			return words;
+		}
+		for(String part:query.trim().split("\\s+")) {
+			boolean prefix = part.endsWith("*");
+			List<String> terms = tokenize(part);
+			for(int i=0;i<terms.size();i++) {
+				words.add(prefix && i==terms.size()-1 ? terms.get(i)+"*" : terms.get(i));
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Adds a book to a word's posting list, creating the list and adding the word to the trigram vocabulary the first time the word is seen.
+	 */
+	private void addPosting(TreeMap<String, Postings> terms, String term, int bookID) {
+		Postings ids = terms.get(term);
+		long bytes = termBytes;
+		if(ids==null) {
+			ids = new Postings();
+			terms.put(term, ids);
+			vocabulary.add(term);
+			bytes += termBytes(term, ids);
+		}
+		int capacity = ids.capacity();
+		ids.add(bookID);
+		termBytes = bytes + 4L * (ids.capacity() - capacity);
+	}
+
+	/**
+	 * @return the estimated heap taken by one word of a term map: its tree node, the String and its bytes, and the posting list with its backing array
+	 */
+	private static long termBytes(String term, Postings ids) {
+		return 40 + 24 + 16 + term.length() + 24 + 16 + 4L * ids.capacity();
+	}
+
+	private static void addList(Postings ids, double similarity, List<Postings> lists, List<Double> similarities) {
+		if(ids!=null) {
+			lists.add(ids);
+			similarities.add(similarity);
+		}
+	}
+
+	private static void collect(TreeMap<String, Postings> terms, String term, boolean prefix, List<Postings> into) {
+		if(!prefix) {
+			Postings ids = terms.get(term);
+			if(ids!=null) {
+				into.add(ids);
+			}
+			return;
+		}
+		NavigableMap<String, Postings> matches = terms.subMap(term, true, term+Character.MAX_VALUE, false);
+		into.addAll(matches.values());
+	}
+
+	private void removePosting(TreeMap<String, Postings> terms, String term, int bookID) {
+		Postings ids = terms.get(term);
+		if(ids!=null) {
+			ids.remove(bookID);
+			if(ids.isEmpty()) {
+				terms.remove(term);
+				termBytes -= termBytes(term, ids);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for the SearchIndex inverted index.
+ * Testing framework: JUnit 5
+ */
+public class SearchIndexTest {
+
+    private SearchIndex index;
+    private Book javaBook;
+    private Book pythonBook;
+    private Book javaScriptBook;
+
+    @BeforeEach
+    void setUp() {
+        Book.ids = new IdAllocator();
+        index = new SearchIndex();
+        javaBook = new Book("Java Programming", "James Gosling", 3);
+        pythonBook = new Book("Python Programming", "Guido van Rossum", 2);
+        javaScriptBook = new Book("JavaScript: The Good Parts", "Douglas Crockford", 1);
+        index.add(javaBook);
+        index.add(pythonBook);
+        index.add(javaScriptBook);
+    }
+
+    @Test
+    void testTokenize_SplitsOnPunctuationAndLowercases() {
+        assertEquals(Arrays.asList("javascript", "the", "good", "parts"),
+                SearchIndex.tokenize("JavaScript: The  Good-Parts"));
+        assertTrue(SearchIndex.tokenize("  ").isEmpty());
+        assertTrue(SearchIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void testSearch_AllWords_ReturnsIntersection() {
+        assertEquals(Arrays.asList(1),
+                index.search("programming JAVA", SearchIndex.Field.TITLE, true));
+    }
+
+    @Test
+    void testSearch_AnyWord_ReturnsUnion() {
+        assertEquals(Arrays.asList(1, 2),
+                index.search("java python", SearchIndex.Field.TITLE, false));
+    }
+
+    @Test
+    void testSearch_Prefix_MatchesWordsStartingWithIt() {
+        assertEquals(Arrays.asList(1, 3),
+                index.search("jav*", SearchIndex.Field.TITLE, true));
+    }
+
+    @Test
+    void testSearch_AuthorField_IgnoresTitles() {
+        assertEquals(Arrays.asList(2),
+                index.search("rossum", SearchIndex.Field.AUTHOR, true));
+        assertEquals(Collections.emptyList(),
+                index.search("java", SearchIndex.Field.AUTHOR, true));
+    }
+
+    @Test
+    void testSearch_AnyField_MatchesTitleOrAuthor() {
+        assertEquals(Arrays.asList(1, 3),
+                index.search("gosling good", SearchIndex.Field.ANY, false));
+    }
+
+    @Test
+    void testSearch_EmptyQuery_ReturnsNothing() {
+        assertTrue(index.search("", SearchIndex.Field.ANY, true).isEmpty());
+        assertTrue(index.search("*", SearchIndex.Field.ANY, false).isEmpty());
+    }
+
+    @Test
+    void testRemove_BookNoLongerFound() {
+        index.remove(javaBook);
+
+        assertEquals(Collections.emptyList(),
+                index.search("gosling", SearchIndex.Field.AUTHOR, true));
+        assertEquals(Arrays.asList(2),
+                index.search("programming", SearchIndex.Field.TITLE, true));
+    }
+
+    @Test
+    void testSearchFuzzy_ToleratesTyposAndRanksExactFirst() {
+        Book potter = new Book("Harry Potter and the Chamber", "J Rowling", 4);
+        Book porter = new Book("Harry Porter Travels", "Someone Else", 2);
+        index.add(potter);
+        index.add(porter);
+
+        List<SearchIndex.Hit> hits = index.searchFuzzy("Harry Poter", SearchIndex.Field.TITLE, 10);
+        assertEquals(2, hits.size());
+        assertEquals((1 + 5.0 / 6) / 2, hits.get(0).getScore(), 1e-9);
+        assertEquals(Arrays.asList(potter.getBookID(), porter.getBookID()),
+                Arrays.asList(hits.get(0).getBookID(), hits.get(1).getBookID()));
+
+        assertEquals(potter.getBookID(), index.searchFuzzy("harry potter", SearchIndex.Field.TITLE, 1).get(0).getBookID());
+        assertEquals(1.0, index.searchFuzzy("harry potter", SearchIndex.Field.TITLE, 1).get(0).getScore(), 1e-9);
+        assertEquals(Arrays.asList(1), ids(index.searchFuzzy("Gosleng", SearchIndex.Field.AUTHOR, 10)));
+        assertTrue(index.searchFuzzy("Gosleng", SearchIndex.Field.TITLE, 10).isEmpty());
+        assertTrue(index.searchFuzzy("Harry Xylophone", SearchIndex.Field.TITLE, 10).isEmpty());
+    }
+
+    @Test
+    void testSearchFuzzy_ShortWordsAndNumbersMatchExactly() {
+        index.add(new Book("Go in 2024", "Rob Pike", 1));
+
+        assertEquals(1, index.searchFuzzy("go 2024", SearchIndex.Field.TITLE, 10).size());
+        assertTrue(index.searchFuzzy("go 2025", SearchIndex.Field.TITLE, 10).isEmpty());
+        assertTrue(index.searchFuzzy("to 2024", SearchIndex.Field.TITLE, 10).isEmpty());
+    }
+
+    @Test
+    void testEstimatedBytes_FollowsAddsAndRemoves() {
+        long before = index.estimatedBytes();
+        Book dune = new Book("Dune Messiah", "Frank Herbert", 2);
+        index.add(dune);
+        long added = index.estimatedBytes();
+        assertTrue(added > before);
+
+        index.remove(dune);
+        assertTrue(index.estimatedBytes() < added);
+        index.add(dune);
+        assertEquals(added, index.estimatedBytes());
+    }
+
+    @Test
+    void testDistance_StopsAtTheBound() {
+        assertEquals(0, TrigramIndex.distance("potter", "potter", 2));
+        assertEquals(1, TrigramIndex.distance("poter", "potter", 2));
+        assertEquals(3, TrigramIndex.distance("kitten", "sitting", 2));
+        assertEquals(2, TrigramIndex.distance("abc", "abcdef", 1));
+    }
+
+    private static List<Integer> ids(List<SearchIndex.Hit> hits) {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (SearchIndex.Hit hit : hits) {
+            ids.add(hit.getBookID());
+        }
+        return ids;
+    }
+}
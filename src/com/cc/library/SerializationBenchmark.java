@@ -0,0 +1,150 @@
+package com.cc.library;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * JMH benchmarks that encode and decode a catalog as binary records, with Java serialization and as JSON.
+ * Benchmark framework: JMH
+ *
+ * Java serialization writes each book as an Object[] of its fields, since Book is not Serializable. JSON writes one object per line with Json.book and reads it back with Json.parseObject. The encoded size of each format is reported as a secondary result in bytes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int catalogSize;
+
+    List<Book> books;
+    ByteBuffer records;
+    byte[] serialized;
+    byte[] json;
+
+    @Setup(Level.Trial)
+    public void encodeCatalog() throws IOException {
+        books = new ArrayList<Book>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            books.add(new Book(1 + i, CatalogBenchmark.title(i), "Author " + (i % 5000), 10));
+        }
+        records = writeRecords().toByteBuffer();
+        serialized = writeSerialized();
+        json = writeJson();
+    }
+
+    @Benchmark
+    public RecordWriter writeRecords() {
+        RecordWriter out = new RecordWriter();
+        for (Book book : books) {
+            out.writeBook(book);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public byte[] writeSerialized() throws IOException {
+        ArrayList<Object[]> rows = new ArrayList<Object[]>(books.size());
+        for (Book book : books) {
+            rows.add(new Object[] {book.getBookID(), book.getBookName(), book.getBookAuthor(), book.getQuantity()});
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(rows);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] writeJson() {
+        StringBuilder out = new StringBuilder(books.size() * 80);
+        for (Book book : books) {
+            out.append(Json.book(book)).append('\n');
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<Book> readRecords() {
+        List<Book> read = new ArrayList<Book>(catalogSize);
+        RecordReader in = new RecordReader(records);
+        while (in.next()) {
+            read.add(in.toBook());
+        }
+        return read;
+    }
+
+    /**
+     * Sums the quantities without decoding any text, the pass the reader's lazy strings are for.
+     */
+    @Benchmark
+    public long scanRecordQuantities() {
+        long total = 0;
+        RecordReader in = new RecordReader(records);
+        while (in.next()) {
+            total += in.quantity();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<Book> readSerialized() throws IOException, ClassNotFoundException {
+        List<Book> read = new ArrayList<Book>(catalogSize);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            for (Object[] row : (ArrayList<Object[]>) in.readObject()) {
+                read.add(new Book((Integer) row[0], (String) row[1], (String) row[2], (Integer) row[3]));
+            }
+        }
+        return read;
+    }
+
+    @Benchmark
+    public List<Book> readJson() {
+        List<Book> read = new ArrayList<Book>(catalogSize);
+        for (String line : new String(json, StandardCharsets.UTF_8).split("\n")) {
+            Map<String, String> fields = Json.parseObject(line);
+            read.add(new Book(Integer.parseInt(fields.get("bookID")), fields.get("bookName"), fields.get("bookAuthor"),
+                    Integer.parseInt(fields.get("quantity"))));
+        }
+        return read;
+    }
+
+    /**
+     * Reports the encoded size of each format next to the timings.
+     */
+    @Benchmark
+    public void encodedSizes(Sizes sizes) {
+        sizes.recordBytes = records.remaining();
+        sizes.serializedBytes = serialized.length;
+        sizes.jsonBytes = json.length;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes {
+        public long recordBytes;
+        public long serializedBytes;
+        public long jsonBytes;
+    }
+}
@@ -0,0 +1,247 @@
+package com.cc.library;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * A search index partitioned by book ID range into shards that each have their own SearchIndex and lock.
+ *
+ * IDs are cut into ranges of RANGE IDs and the ranges are dealt out to the shards in turn, so adding a block of new books locks at most two shards and searches on the other shards carry on. Books still serializes its adds on its own lock, so the shards spread out contention between adds and searches, not between two adds. A search is sent to every shard in parallel on a ForkJoinPool and the sorted ID lists the shards return are merged pairwise while the tasks join, so the answer is in ascending ID order as with a single index. Fuzzy searches fan out the same way, each shard returns its best hits and the merge keeps the best of both sides.
+ *
+ * Fanning out only pays once the shards hold enough books. Below PARALLEL_THRESHOLD indexed books the shards are searched one after the other in the calling thread.
+ */
+public class ShardedSearchIndex {
+
+	/**
+	 * How many consecutive IDs go to the same shard, the size of the largest block IdAllocator hands to a thread. A thread's blocks start small and double up to that size, so the IDs of one block never span more than two shards.
+	 */
+	static final int RANGE = IdAllocator.THREAD_BLOCK;
+
+	/**
+	 * How many indexed books the shards must hold together before a search is forked.
+	 */
+	static final int PARALLEL_THRESHOLD = 50000;
+
+	private final SearchIndex[] shards;
+	private final ForkJoinPool pool;
+	private final int parallelThreshold;
+	private final AtomicInteger indexed = new AtomicInteger();
+
+	/**
+	 * Creates one shard per available processor, searched on the common pool.
+	 */
+	public ShardedSearchIndex() {
+		this(Runtime.getRuntime().availableProcessors(), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param shardCount how many shards to split the IDs across
+	 * @param pool the pool searches are forked on
+	 */
+	public ShardedSearchIndex(int shardCount, ForkJoinPool pool) {
+		this(shardCount, pool, PARALLEL_THRESHOLD);
+	}
+
+	ShardedSearchIndex(int shardCount, ForkJoinPool pool, int parallelThreshold) {
+		if(shardCount<1) {
+			throw new IllegalArgumentException("shardCount must be positive");
+		}
+		this.shards = new SearchIndex[shardCount];
+		for(int i=0;i<shardCount;i++) {
+			shards[i] = new SearchIndex();
+		}
+		this.pool = pool;
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	/**
+	 * @return the number of shards
+	 */
+	public int shardCount() {
+		return shards.length;
+	}
+
+	/**
+	 * @param bookID a book ID
+	 * @return the shard the ID belongs to
+	 */
+	int shardOf(int bookID) {
+		return Math.floorMod(bookID / RANGE, shards.length);
+	}
+
+	/**
+	 * Adds a book to its shard, locking only that shard.
+	 *
+	 * @param book the book to index
+	 */
+	public void add(Book book) {
+		shards[shardOf(book.getBookID())].add(book);
+		indexed.incrementAndGet();
+	}
+
+	/**
+	 * Groups the books by shard and adds each group while holding its shard's lock once.
+	 *
+	 * @param books the books to index
+	 */
+	public void addAll(Collection<Book> books) {
+		List<List<Book>> groups = new ArrayList<List<Book>>(shards.length);
+		for(int i=0;i<shards.length;i++) {
+			groups.add(new ArrayList<Book>());
+		}
+		for(Book book:books) {
+			groups.get(shardOf(book.getBookID())).add(book);
+		}
+		for(int i=0;i<shards.length;i++) {
+			if(!groups.get(i).isEmpty()) {
+				shards[i].addAll(groups.get(i));
+			}
+		}
+		indexed.addAndGet(books.size());
+	}
+
+	/**
+	 * Removes a book from its shard. The book's title and author must be the ones it was indexed with.
+	 *
+	 * @param book the book to remove
+	 */
+	public void remove(Book book) {
+		shards[shardOf(book.getBookID())].remove(book);
+		indexed.decrementAndGet();
+	}
+
+	/**
+	 * Finds the IDs of the books matching a query on every shard and merges them.
+	 *
+	 * @param query the words to look for, a trailing '*' on a word makes it a prefix
+	 * @param field whether to search titles, authors or both
+	 * @param matchAll true to require every word, false to accept any word
+	 * @return the matching book IDs in ascending order, empty if nothing matches
+	 * @see SearchIndex#search(String, SearchIndex.Field, boolean)
+	 */
+	public List<Integer> search(String query, SearchIndex.Field field, boolean matchAll) {
+		return scatter(shard -> shard.search(query, field, matchAll), ShardedSearchIndex::merge);
+	}
+
+	/**
+	 * Runs a fuzzy search on every shard and keeps the best hits of all of them.
+	 *
+	 * @param query the words to look for, typos allowed
+	 * @param field whether to search titles, authors or both
+	 * @param limit the most hits to return
+	 * @return the best hits, most similar first
+	 * @see SearchIndex#searchFuzzy(String, SearchIndex.Field, int)
+	 */
+	public List<SearchIndex.Hit> searchFuzzy(String query, SearchIndex.Field field, int limit) {
+		return scatter(shard -> shard.searchFuzzy(query, field, limit), (left, right) -> mergeRanked(left, right, limit));
+	}
+
+	/**
+	 * Runs a search on every shard, in parallel once the shards are big enough, and merges the answers pairwise.
+	 */
+	private <T> T scatter(Function<SearchIndex, T> search, BinaryOperator<T> merge) {
+		if(shards.length==1 || indexed.get()<parallelThreshold) {
+			T found = search.apply(shards[0]);
+			for(int i=1;i<shards.length;i++) {
+				found = merge.apply(found, search.apply(shards[i]));
+			}
+			return found;
+		}
+		return pool.invoke(new ShardTask<T>(shards, 0, shards.length, search, merge));
+	}
+
+	/**
+	 * @return the estimated heap taken by all shards together
+	 */
+	public long estimatedBytes() {
+		long bytes = 16 + 16 + 4L * shards.length;
+		for(SearchIndex shard:shards) {
+			bytes += shard.estimatedBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Merges two ascending ID lists. A book only lives in one shard, so the lists never share an ID.
+	 */
+	static List<Integer> merge(List<Integer> left, List<Integer> right) {
+		if(left.isEmpty()) {
+			return right;
+		}
+		if(right.isEmpty()) {
+			return left;
+		}
+		List<Integer> merged = new ArrayList<Integer>(left.size() + right.size());
+		int i = 0;
+		int j = 0;
+		while(i<left.size() && j<right.size()) {
+			merged.add(left.get(i)<right.get(j) ? left.get(i++) : right.get(j++));
+		}
+		merged.addAll(left.subList(i, left.size()));
+		merged.addAll(right.subList(j, right.size()));
+		return merged;
+	}
+
+	/**
+	 * Merges two ranked hit lists and keeps the best limit hits.
+	 */
+	static List<SearchIndex.Hit> mergeRanked(List<SearchIndex.Hit> left, List<SearchIndex.Hit> right, int limit) {
+		if(right.isEmpty()) {
+			return left;
+		}
+		if(left.isEmpty()) {
+			return right;
+		}
+		List<SearchIndex.Hit> merged = new ArrayList<SearchIndex.Hit>(Math.min(limit, left.size() + right.size()));
+		int i = 0;
+		int j = 0;
+		while(merged.size()<limit && (i<left.size() || j<right.size())) {
+			if(j==right.size() || (i<left.size() && SearchIndex.RANKING.compare(left.get(i), right.get(j))<=0)) {
+				merged.add(left.get(i++));
+			}else {
+				merged.add(right.get(j++));
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * Searches a range of shards, splitting it in half and forking one half until a single shard is left.
+	 */
+	private static class ShardTask<T> extends RecursiveTask<T> {
+		private static final long serialVersionUID = 1L;
+
+		private final SearchIndex[] shards;
+		private final int from;
+		private final int to;
+		private final Function<SearchIndex, T> search;
+		private final BinaryOperator<T> merge;
+
+		ShardTask(SearchIndex[] shards, int from, int to, Function<SearchIndex, T> search, BinaryOperator<T> merge) {
+			this.shards = shards;
+			this.from = from;
+			this.to = to;
+			this.search = search;
+			this.merge = merge;
+		}
+
+		@Override
+		protected T compute() {
+			if(to - from==1) {
+				return search.apply(shards[from]);
+			}
+			int middle = (from + to) >>> 1;
+			ShardTask<T> left = new ShardTask<T>(shards, from, middle, search, merge);
+			left.fork();
+			T right = new ShardTask<T>(shards, middle, to, search, merge).compute();
+			return merge.apply(left.join(), right);
+		}
+	}
+
+}
@@ -0,0 +1,107 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Unit tests for the ShardedSearchIndex scatter-gather search.
+ * Testing framework: JUnit 5
+ */
+public class ShardedSearchIndexTest {
+
+    private static final String[] WORDS = {"java", "python", "rust", "garden", "history", "ocean", "river", "stars"};
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void testShardOf_DealsIdRangesOutInTurn() {
+        ShardedSearchIndex index = new ShardedSearchIndex(4, pool);
+
+        assertEquals(0, index.shardOf(1));
+        assertEquals(0, index.shardOf(ShardedSearchIndex.RANGE - 1));
+        assertEquals(1, index.shardOf(ShardedSearchIndex.RANGE));
+        assertEquals(0, index.shardOf(4 * ShardedSearchIndex.RANGE));
+    }
+
+    @Test
+    void testSearch_MergesShardsInIdOrder() {
+        ShardedSearchIndex index = new ShardedSearchIndex(3, pool, 0);
+        index.add(new Book(5000, "Java Programming", "James Gosling", 2));
+        index.add(new Book(7, "Effective Java", "Joshua Bloch", 2));
+        index.add(new Book(2100, "Python Programming", "Guido van Rossum", 2));
+
+        assertEquals(Arrays.asList(7, 5000), index.search("java", SearchIndex.Field.TITLE, true));
+        assertEquals(Arrays.asList(2100, 5000), index.search("programming", SearchIndex.Field.TITLE, true));
+        assertEquals(Arrays.asList(7, 2100, 5000), index.search("jav* python", SearchIndex.Field.ANY, false));
+        assertTrue(index.search("cobol", SearchIndex.Field.ANY, false).isEmpty());
+    }
+
+    @Test
+    void testSearch_ParallelAndSequentialMatchSingleIndex() {
+        Random random = new Random(7);
+        SearchIndex single = new SearchIndex();
+        ShardedSearchIndex parallel = new ShardedSearchIndex(5, pool, 0);
+        ShardedSearchIndex sequential = new ShardedSearchIndex(5, pool);
+        List<Book> books = new ArrayList<Book>();
+        for (int i = 0; i < 5000; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            books.add(new Book(1 + random.nextInt(1_000_000), title, "Author " + random.nextInt(50), 2));
+        }
+        List<Book> unique = new ArrayList<Book>();
+        Set<Integer> seen = new HashSet<Integer>();
+        for (Book book : books) {
+            if (seen.add(book.getBookID())) {
+                unique.add(book);
+            }
+        }
+        single.addAll(unique);
+        parallel.addAll(unique);
+        for (Book book : unique) {
+            sequential.add(book);
+        }
+
+        for (String query : new String[] {"java", "river stars", "ocean* history", "author", "missing"}) {
+            for (boolean matchAll : new boolean[] {true, false}) {
+                List<Integer> expected = single.search(query, SearchIndex.Field.ANY, matchAll);
+                assertEquals(expected, parallel.search(query, SearchIndex.Field.ANY, matchAll));
+                assertEquals(expected, sequential.search(query, SearchIndex.Field.ANY, matchAll));
+            }
+        }
+    }
+
+    @Test
+    void testSearchFuzzy_KeepsTheBestHitsOfEveryShard() {
+        ShardedSearchIndex index = new ShardedSearchIndex(4, pool, 0);
+        index.add(new Book(10, "Harry Potter", "J Rowling", 2));
+        index.add(new Book(1500, "Harry Poter", "Fan Fiction", 2));
+        index.add(new Book(2600, "Harry Porter", "Someone Else", 2));
+        index.add(new Book(3700, "Garden History", "Someone Else", 2));
+
+        List<SearchIndex.Hit> hits = index.searchFuzzy("harry potter", SearchIndex.Field.TITLE, 2);
+        assertEquals(2, hits.size());
+        assertEquals(10, hits.get(0).getBookID());
+        assertEquals(1.0, hits.get(0).getScore(), 1e-9);
+        assertEquals(1500, hits.get(1).getBookID());
+        assertEquals(3, index.searchFuzzy("harry potter", SearchIndex.Field.TITLE, 10).size());
+    }
+}
@@ -0,0 +1,164 @@
+package com.cc.library;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Secondary indexes that keep the catalog sorted by title, by author and by quantity, for ordered browsing and range queries.
+ *
+ * Each index is a concurrent skip list, so any number of readers walk it without locks while books are added and copies go in and out. A range query finds its first entry in O(log n) and then reads the next k entries, instead of sorting the whole catalog per request. Entries only hold the book ID, and books are looked up again when a query returns, so the indexes never hand out stale quantities.
+ *
+ * Titles and authors are ordered ignoring case, with the book ID breaking ties. The quantity index is keyed by quantity and ID packed into one long. When a book's quantity changes, its old key is taken out and the new one put in under the book's monitor, and the quantity that is indexed is remembered on the book, so concurrent rents of the same title always leave exactly one key with the latest quantity. Readers see the indexes weakly consistent: a book whose quantity changes during a scan may be missed or seen at its new place.
+ */
+public class SortedIndexes {
+
+	/**
+	 * Which text a range query orders by.
+	 */
+	public enum Order {
+		TITLE, AUTHOR
+	}
+
+	/**
+	 * The indexed quantity of a book that is not in the quantity index yet.
+	 */
+	static final int NOT_INDEXED = Integer.MIN_VALUE;
+
+	private final NavigableSet<Key> byTitle = new ConcurrentSkipListSet<Key>();
+	private final NavigableSet<Key> byAuthor = new ConcurrentSkipListSet<Key>();
+	private final NavigableSet<Long> byQuantity = new ConcurrentSkipListSet<Long>();
+
+	/**
+	 * Adds a book to all three indexes. Adding a book again, or a catalog row and its heap copy, leaves a single entry per index.
+	 *
+	 * @param book the book to index
+	 */
+	public void add(Book book) {
+		int bookID = book.getBookID();
+		byTitle.add(new Key(book.getBookName(), bookID));
+		byAuthor.add(new Key(book.getBookAuthor(), bookID));
+		if(book instanceof MappedBook) {
+			byQuantity.add(quantityKey(book.getQuantity(), bookID));
+			return;
+		}
+		synchronized(book) {
+			if(book.sortedQuantity==NOT_INDEXED) {
+				book.sortedQuantity = book.getQuantity();
+				byQuantity.add(quantityKey(book.sortedQuantity, bookID));
+			}
+		}
+	}
+
+	/**
+	 * Moves a book to its place for its current quantity. Books that were never added are left alone, they are indexed with their quantity when they are added.
+	 *
+	 * @param book the book whose quantity changed
+	 */
+	public void quantityChanged(Book book) {
+		synchronized(book) {
+			int quantity = book.getQuantity();
+			if(book.sortedQuantity==NOT_INDEXED || book.sortedQuantity==quantity) {
+				return;
+			}
+			byQuantity.remove(quantityKey(book.sortedQuantity, book.getBookID()));
+			byQuantity.add(quantityKey(quantity, book.getBookID()));
+			book.sortedQuantity = quantity;
+		}
+	}
+
+	/**
+	 * Lists books in title or author order, starting at from and stopping after every text that starts with to.
+	 *
+	 * Both bounds ignore case and either may be null for an open end, so range(AUTHOR, "a", "c", 100) lists the authors from A to C, "Clarke" included. A from that sorts after every text starting with to gives an empty list.
+	 *
+	 * @param order whether to order by title or by author
+	 * @param from the first text to include, or null to start at the beginning
+	 * @param to the last text or prefix to include, or null to run to the end
+	 * @param limit the most books to list
+	 * @return the IDs of the books in order
+	 */
+	public List<Integer> range(Order order, String from, String to, int limit) {
+		NavigableSet<Key> index = order==Order.TITLE ? byTitle : byAuthor;
+		NavigableSet<Key> range;
+		if(from==null && to==null) {
+			range = index;
+		}else if(to==null) {
+			range = index.tailSet(new Key(from, Integer.MIN_VALUE), true);
+		}else if(from==null) {
+			range = index.headSet(new Key(to + Character.MAX_VALUE, Integer.MIN_VALUE), false);
+		}else {
+			Key first = new Key(from, Integer.MIN_VALUE);
+			Key end = new Key(to + Character.MAX_VALUE, Integer.MIN_VALUE);
+			if(first.compareTo(end)>0) {
+				return new ArrayList<Integer>();
+			}
+			range = index.subSet(first, true, end, false);
+		}
+		List<Integer> bookIDs = new ArrayList<Integer>(Math.min(limit, 1024));
+		for(Key key:range) {
+			if(bookIDs.size()>=limit) {
+				break;
+			}
+			bookIDs.add(key.bookID);
+		}
+		return bookIDs;
+	}
+
+	/**
+	 * Lists the books with a quantity from min to max, fewest copies first, equal quantities in ID order.
+	 *
+	 * @param min the lowest quantity to include
+	 * @param max the highest quantity to include
+	 * @param limit the most books to list
+	 * @return the IDs of the books in order
+	 */
+	public List<Integer> quantityBetween(int min, int max, int limit) {
+		List<Integer> bookIDs = new ArrayList<Integer>(Math.min(limit, 1024));
+		if(min>max) {
+			return bookIDs;
+		}
+		for(long key:byQuantity.subSet(quantityKey(min, 0), true, quantityKey(max, -1), true)) {
+			if(bookIDs.size()>=limit) {
+				break;
+			}
+			bookIDs.add((int) key);
+		}
+		return bookIDs;
+	}
+
+	/**
+	 * @return the number of books in the indexes
+	 */
+	public int size() {
+		return byQuantity.size();
+	}
+
+	/**
+	 * Packs a quantity and an ID into a long that sorts by quantity first and ID second.
+	 */
+	static long quantityKey(int quantity, int bookID) {
+		return ((long) quantity << 32) | (bookID & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * A title or author with the ID of its book.
+	 */
+	private static final class Key implements Comparable<Key> {
+		final String text;
+		final int bookID;
+
+		Key(String text, int bookID) {
+			this.text = text==null ? "" : text;
+			this.bookID = bookID;
+		}
+
+		@Override
+		public int compareTo(Key other) {
+			int byText = String.CASE_INSENSITIVE_ORDER.compare(text, other.text);
+			return byText!=0 ? byText : Integer.compare(bookID, other.bookID);
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for the SortedIndexes and the ordered queries of Books.
+ * Testing framework: JUnit 5
+ */
+public class SortedIndexesTest {
+
+    private Books books;
+
+    @BeforeEach
+    void setUp() {
+        Book.ids = new IdAllocator();
+        books = new Books();
+        books.addBook(new Book("the river", "Zora Neale", 5));
+        books.addBook(new Book("Brave World", "aldous Huxley", 2));
+        books.addBook(new Book("Childhood's End", "Arthur Clarke", 3));
+        books.addBook(new Book("Dune", "Frank Herbert", 9));
+    }
+
+    private static List<String> titles(List<Book> found) {
+        List<String> titles = new ArrayList<String>();
+        for (Book book : found) {
+            titles.add(book.getBookName());
+        }
+        return titles;
+    }
+
+    @Test
+    void testBrowse_OrdersIgnoringCaseWithinRange() {
+        assertEquals(Arrays.asList("Brave World", "Childhood's End", "Dune", "the river"),
+                titles(books.browse(SortedIndexes.Order.TITLE, null, null, 10)));
+        assertEquals(Arrays.asList("Brave World", "Childhood's End"),
+                titles(books.browse(SortedIndexes.Order.AUTHOR, "a", "c", 10)));
+        assertEquals(Arrays.asList("Childhood's End", "Dune"),
+                titles(books.browse(SortedIndexes.Order.TITLE, "c", "dune", 10)));
+        assertEquals(Arrays.asList("Dune", "the river"),
+                titles(books.browse(SortedIndexes.Order.TITLE, "D", null, 10)));
+        assertEquals(Arrays.asList("Brave World"),
+                titles(books.browse(SortedIndexes.Order.TITLE, null, "c", 1)));
+    }
+
+    @Test
+    void testBrowse_ReversedBoundsFindNothing() {
+        assertTrue(books.browse(SortedIndexes.Order.TITLE, "z", "a", 10).isEmpty());
+        assertTrue(books.browse(SortedIndexes.Order.AUTHOR, "Herbert", "Clarke", 10).isEmpty());
+        assertEquals(Arrays.asList("Dune"),
+                titles(books.browse(SortedIndexes.Order.TITLE, "dune", "d", 10)));
+    }
+
+    @Test
+    void testByQuantity_FollowsRentsReturnsAndUpdates() {
+        assertEquals(Arrays.asList("Brave World", "Childhood's End"),
+                titles(books.byQuantity(Integer.MIN_VALUE, 3, 10)));
+
+        int river = books.browse(SortedIndexes.Order.TITLE, "the river", "the river", 1).get(0).getBookID();
+        assertTrue(books.rent(river));
+        assertTrue(books.rent(river));
+        assertEquals(Arrays.asList("Brave World", "the river", "Childhood's End"),
+                titles(books.byQuantity(Integer.MIN_VALUE, 3, 10)));
+        books.giveBack(river);
+        books.updateQuantity(river, 1);
+        books.addBook(new Book("Emma", "Jane Austen", 2));
+
+        assertEquals(Arrays.asList("the river", "Brave World", "Emma"),
+                titles(books.byQuantity(Integer.MIN_VALUE, 2, 10)));
+        assertEquals(Arrays.asList("Dune"), titles(books.byQuantity(4, Integer.MAX_VALUE, 10)));
+        assertTrue(books.byQuantity(5, 4, 10).isEmpty());
+    }
+
+    @Test
+    void testConcurrentRents_LeaveOneKeyPerBook() throws InterruptedException {
+        Book popular = new Book("Popular", "Author", 2001);
+        books.addBook(popular);
+        assertEquals(5, books.byQuantity(Integer.MIN_VALUE, Integer.MAX_VALUE, 100).size());
+
+        Thread[] desks = new Thread[8];
+        for (int d = 0; d < desks.length; d++) {
+            desks[d] = new Thread(() -> {
+                for (int i = 0; i < 250; i++) {
+                    books.rent(popular.getBookID());
+                    if (i % 2 == 0) {
+                        books.giveBack(popular.getBookID());
+                    }
+                }
+            });
+            desks[d].start();
+        }
+        for (Thread desk : desks) {
+            desk.join();
+        }
+
+        assertEquals(5, books.byQuantity(Integer.MIN_VALUE, Integer.MAX_VALUE, 100).size());
+        int quantity = popular.getQuantity();
+        assertEquals(Arrays.asList(popular), books.byQuantity(quantity, quantity, 10));
+    }
+
+    @Test
+    void testCatalogRows_FiledOnceAfterCopyToHeap() throws IOException {
+        Path directory = Files.createTempDirectory("library-sorted");
+        try {
+            Book.ids = new IdAllocator();
+            ColumnarCatalog.write(directory, Arrays.asList(new Book("Mapped Title", "Row Author", 4)));
+            Books catalogBooks = new Books();
+            catalogBooks.attach(ColumnarCatalog.open(directory));
+            assertEquals(1, catalogBooks.byQuantity(4, 4, 10).size());
+
+            catalogBooks.updateQuantity(1, 7);
+
+            assertTrue(catalogBooks.byQuantity(4, 4, 10).isEmpty());
+            assertEquals(7, catalogBooks.byQuantity(7, 7, 10).get(0).getQuantity());
+            assertEquals(1, catalogBooks.browse(SortedIndexes.Order.TITLE, null, null, 10).size());
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+}
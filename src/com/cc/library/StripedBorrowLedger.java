@@ -0,0 +1,169 @@
+package com.cc.library;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Thread-safe borrow ledger split into independently locked stripes.
+ *
+ * Each stripe is a plain BorrowLedger guarded by its own monitor, and a book always maps to the same stripe. Rents and returns of different books therefore rarely wait on each other, and there is no single lock for the whole ledger.
+ */
+public class StripedBorrowLedger {
+
+	private final BorrowLedger[] stripes;
+	private final int mask;
+	private final LongAdder copies = new LongAdder();
+
+	public StripedBorrowLedger() {
+		this(Runtime.getRuntime().availableProcessors() * 4);
+	}
+
+	public StripedBorrowLedger(int concurrency) {
+		int count = Integer.highestOneBit(Math.max(concurrency - 1, 1)) << 1;
+		this.stripes = new BorrowLedger[count];
+		for(int i=0;i<count;i++) {
+			stripes[i] = new BorrowLedger();
+		}
+		this.mask = count - 1;
+	}
+
+	/**
+	 * @see BorrowLedger#increment(int)
+	 */
+	public int increment(int bookID) {
+		BorrowLedger stripe = stripeOf(bookID);
+		synchronized(stripe) {
+			copies.increment();
+			return stripe.increment(bookID);
+		}
+	}
+
+	/**
+	 * @see BorrowLedger#decrement(int)
+	 */
+	public int decrement(int bookID) {
+		BorrowLedger stripe = stripeOf(bookID);
+		synchronized(stripe) {
+			int remaining = stripe.decrement(bookID);
+			if(remaining>=0) {
+				copies.decrement();
+			}
+			return remaining;
+		}
+	}
+
+	/**
+	 * @see BorrowLedger#put(int, int)
+	 */
+	public void put(int bookID, int count) {
+		BorrowLedger stripe = stripeOf(bookID);
+		synchronized(stripe) {
+			copies.add(Math.max(count, 0) - stripe.count(bookID));
+			stripe.put(bookID, count);
+		}
+	}
+
+	public int count(int bookID) {
+		BorrowLedger stripe = stripeOf(bookID);
+		synchronized(stripe) {
+			return stripe.count(bookID);
+		}
+	}
+
+	public boolean contains(int bookID) {
+		return count(bookID)>0;
+	}
+
+	/**
+	 * Counts the distinct borrowed books. Stripes are visited one at a time, so under concurrent updates the result is a snapshot of each stripe rather than of the whole ledger.
+	 *
+	 * @return the number of distinct books with at least one borrowed copy
+	 */
+	public int size() {
+		int size = 0;
+		for(BorrowLedger stripe:stripes) {
+			synchronized(stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of borrowed copies across all books from a running total, without visiting the stripes.
+	 *
+	 * @return the sum of all borrowed counts
+	 */
+	public long totalCopies() {
+		return copies.sum();
+	}
+
+	public boolean isEmpty() {
+		return size()==0;
+	}
+
+	/**
+	 * Hands every borrowed book and its count to the visitor, one stripe at a time.
+	 *
+	 * @param visitor receives each entry
+	 */
+	public void forEach(BorrowLedger.Visitor visitor) {
+		for(BorrowLedger stripe:stripes) {
+			synchronized(stripe) {
+				stripe.forEach(visitor);
+			}
+		}
+	}
+
+	/**
+	 * Returns the monitor guarding a book's stripe. Holding it makes a caller's own step atomic with that book's ledger updates, for example writing the journal record in the same order as the ledger changes.
+	 *
+	 * @param bookID the ID of the book
+	 * @return the lock object for the book's stripe
+	 */
+	public Object lockFor(int bookID) {
+		return stripeOf(bookID);
+	}
+
+	/**
+	 * Runs a step while holding the stripes of several books, for batches whose changes must be atomic with the ledger across all their books.
+	 *
+	 * Each stripe is taken once and in stripe order, so two batches, or a batch and a single rent, can never wait on each other.
+	 *
+	 * @param bookIDs the books, only the first count are used
+	 * @param count how many entries of bookIDs to lock
+	 * @param body the step to run with the stripes held
+	 * @return what the body returned
+	 */
+	public int withLocks(int[] bookIDs, int count, IntSupplier body) {
+		int[] order = new int[count];
+		for(int i=0;i<count;i++) {
+			order[i] = indexOf(bookIDs[i]);
+		}
+		Arrays.sort(order);
+		return lockAndRun(order, 0, -1, body);
+	}
+
+	private int lockAndRun(int[] order, int next, int previous, IntSupplier body) {
+		while(next<order.length && order[next]==previous) {
+			next++;
+		}
+		if(next==order.length) {
+			return body.getAsInt();
+		}
+		synchronized(stripes[order[next]]) {
+			return lockAndRun(order, next + 1, order[next], body);
+		}
+	}
+
+	private BorrowLedger stripeOf(int bookID) {
+		return stripes[indexOf(bookID)];
+	}
+
+	private int indexOf(int bookID) {
+		int h = bookID * 0x9E3779B9;
+		return (h >>> 16) & mask;
+	}
+
+}
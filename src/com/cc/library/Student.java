@@ -4,13 +4,21 @@ import java.util.Objects;
 
 public class Student {
 	
-	static int counter=0;
+	static IdAllocator ids = new IdAllocator();
 	private final int studentID;
 	private String studentName;
 	public Student(String studentName) {
 		super();
 		this.studentName = studentName;
-		this.studentID=++counter;
+		this.studentID=ids.next();
+	}
+	/**
+	 * Recreates a student that already has an ID, for example when loading saved state. Does not take an ID from the allocator.
+	 */
+	Student(int studentID, String studentName) {
+		super();
+		this.studentName = studentName;
+		this.studentID = studentID;
 	}
 	@Override
 	public int hashCode() {
@@ -38,7 +46,16 @@ public class Student {
 	}
 	@Override
 	public String toString() {
-		return "Student [studentID=" + studentID + ", studentName=" + studentName + "]";
+		return appendTo(new StringBuilder(48)).toString();
+	}
+	/**
+	 * Appends the same text as toString to a buffer, for listings that print a page at a time.
+	 *
+	 * @param out the buffer to append to
+	 * @return the same buffer
+	 */
+	public StringBuilder appendTo(StringBuilder out) {
+		return out.append("Student [studentID=").append(studentID).append(", studentName=").append(studentName).append(']');
 	}
 	
 	
@@ -1,20 +1,112 @@
 package com.cc.library;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class Students {
 	
+	/**
+	 * How many copies one student may have borrowed at the same time.
+	 */
+	static final int MAX_LOANS = 5;
+	
+	/**
+	 * How long a copy may be kept before it is overdue.
+	 */
+	static final Duration LOAN_PERIOD = Duration.ofDays(14);
+	
+	/**
+	 * How precisely overdue loans are reported: a loan shows up as overdue at most this long after its due time.
+	 */
+	static final Duration OVERDUE_PRECISION = Duration.ofMinutes(1);
+	
 	List<Student> studentList = new ArrayList<Student>();
+	Map<Integer, Student> studentIndex = new ConcurrentHashMap<Integer, Student>();
+	Map<Integer, Loans> loans = new ConcurrentHashMap<Integer, Loans>();
+	Journal journal;
+	EventBus events;
+	Clock clock;
+	Duration loanPeriod = LOAN_PERIOD;
+	DueDateWheel dueDates;
+	HoldQueues holds = new HoldQueues();
 	static Scanner sc = new Scanner(System.in);
 	
+	public Students() {
+		this(Clock.systemUTC());
+	}
+	
+	/**
+	 * @param clock the clock checkout times and due dates are taken from
+	 */
+	Students(Clock clock) {
+		this.clock = clock;
+		this.dueDates = new DueDateWheel(OVERDUE_PRECISION.toMillis(), clock.millis());
+	}
+	
 	public void registerStudent() {
-		Student student = new Student(askString("Whats your name?"));
-		this.studentList.add(student);
+		registerStudent(askString("Whats your name?"));
 		System.out.println("Student registered successfully.");
 	}
 	
+	/**
+	 * Registers a new student with the next free ID, logs it to the journal and adds it to the register.
+	 *
+	 * The student is logged before it can be found, so any checkout by them is logged after it.
+	 *
+	 * @param name the student's name
+	 * @return the new student
+	 */
+	public Student registerStudent(String name) {
+		Student student = new Student(name);
+		long seq = journal!=null ? journal.logRegisterStudent(student) : 0;
+		addStudent(student);
+		if(journal!=null) {
+			journal.commit(seq);
+		}
+		return student;
+	}
+	
+	/**
+	 * Adds an already created student to the register.
+	 *
+	 * @param student the student to add
+	 */
+	public void addStudent(Student student) {
+		synchronized(this) {
+			this.studentList.add(student);
+			this.studentIndex.put(student.getStudentID(), student);
+		}
+		publishRegistered(student.getStudentID());
+	}
+	
+	/**
+	 * Adds many already created students in one step, for bulk loaders.
+	 *
+	 * @param students the students to add
+	 */
+	public void addStudents(Collection<Student> students) {
+		synchronized(this) {
+			this.studentList.addAll(students);
+			for(Student student:students) {
+				this.studentIndex.put(student.getStudentID(), student);
+			}
+		}
+		for(Student student:students) {
+			publishRegistered(student.getStudentID());
+		}
+	}
+	
 	public static String askString(String prompt){
 		System.out.println(prompt);
 		return sc.nextLine();
@@ -22,13 +114,498 @@ public class Students {
 	}
 	
 	public Student searchStudent(int studentID) {
-		for(Student student:studentList) {
-			if(student.getStudentID() == studentID) {
-				return student;
+		Student student = findStudent(studentID);
+		if(student==null) {
+			System.out.println("No student found with ID: " + studentID);
+		}
+		return student;
+	}
+	
+	/**
+	 * Looks up a student by ID without printing anything.
+	 *
+	 * @param studentID the ID to look for
+	 * @return the student, or null if no student has that ID
+	 */
+	public Student findStudent(int studentID) {
+		return studentIndex.get(studentID);
+	}
+	
+	/**
+	 * @param studentID the student to look at
+	 * @return how many copies the student has borrowed right now
+	 */
+	public int loanCount(int studentID) {
+		Loans current = loans.get(studentID);
+		if(current==null) {
+			return 0;
+		}
+		synchronized(current) {
+			return current.total;
+		}
+	}
+	
+	/**
+	 * @param studentID the student to look at
+	 * @return true if the student is registered and has fewer than MAX_LOANS copies borrowed
+	 */
+	public boolean canBorrow(int studentID) {
+		return findStudent(studentID)!=null && loanCount(studentID)<MAX_LOANS;
+	}
+	
+	/**
+	 * Lists the books a student has borrowed, one entry per copy.
+	 *
+	 * @param studentID the student to look at
+	 * @return the borrowed book IDs, empty if the student has nothing out
+	 */
+	public List<Integer> loansOf(int studentID) {
+		List<Integer> bookIDs = new ArrayList<Integer>();
+		Loans current = loans.get(studentID);
+		if(current!=null) {
+			synchronized(current) {
+				current.books.forEach((bookID, count) -> {
+					for(int i=0;i<count;i++) {
+						bookIDs.add(bookID);
+					}
+				});
+			}
+		}
+		return bookIDs;
+	}
+	
+	/**
+	 * Lists the loans of a student with their checkout times and due dates.
+	 *
+	 * @param studentID the student to look at
+	 * @return the student's loans in the order they were made, empty if the student has nothing out
+	 */
+	public List<Loan> loanDetailsOf(int studentID) {
+		Loans current = loans.get(studentID);
+		if(current==null) {
+			return new ArrayList<Loan>();
+		}
+		synchronized(current) {
+			return new ArrayList<Loan>(current.active);
+		}
+	}
+	
+	/**
+	 * Brings the due date wheel up to the clock and lists every loan that is past due and not returned.
+	 *
+	 * Only the loans that fell due since the last call are touched, however many loans are out.
+	 *
+	 * @return the overdue loans, the longest overdue first
+	 */
+	public List<Loan> overdueLoans() {
+		dueDates.advance(clock.millis());
+		return dueDates.overdue();
+	}
+	
+	/**
+	 * Brings the due date wheel up to the clock, for example from a nightly job that sends reminders.
+	 *
+	 * @return only the loans that became overdue since the last call
+	 */
+	public List<Loan> collectNewlyOverdue() {
+		return dueDates.advance(clock.millis());
+	}
+	
+	/**
+	 * @return the number of overdue loans, after bringing the due date wheel up to the clock
+	 */
+	public int overdueCount() {
+		dueDates.advance(clock.millis());
+		return dueDates.overdueCount();
+	}
+	
+	/**
+	 * Lends a copy of a book to a student without any console interaction.
+	 *
+	 * The student's loans are locked while the copy is taken, so two desks serving the same student cannot push them over the limit. A title other students are waiting for is not lent at the desk; its copies go to the hold queue.
+	 *
+	 * @param studentID the borrowing student
+	 * @param bookID the book to lend
+	 * @param books the book collection to take the copy from
+	 * @return true if the copy was lent, false if the student is unknown, at the limit, or the book is not available
+	 */
+	public boolean checkOut(int studentID, int bookID, Books books) {
+		if(findStudent(studentID)==null || lend(studentID, bookID, books, false)!=OperationResult.Status.OK) {
+			return false;
+		}
+		publishLoan(LibraryEvent.Type.LOAN_OPENED, studentID, bookID, books);
+		return true;
+	}
+	
+	/**
+	 * Lends a copy, either at the desk or to the student at the head of the title's hold queue. The loan is not published, the caller does that once it holds no lock.
+	 */
+	private OperationResult.Status lend(int studentID, int bookID, Books books, boolean fromHold) {
+		Loans current = loans.computeIfAbsent(studentID, id -> new Loans());
+		long seq = 0;
+		synchronized(current) {
+			if(current.total>=MAX_LOANS) {
+				return OperationResult.Status.LOAN_LIMIT_REACHED;
+			}
+			if((!fromHold && holds.hasWaiting(bookID)) || !books.rentUnpublished(bookID)) {
+				return OperationResult.Status.NOT_AVAILABLE;
+			}
+			Loan loan = newLoan(studentID, bookID);
+			current.add(loan);
+			dueDates.schedule(loan);
+			if(journal!=null) {
+				seq = journal.logCheckOut(loan);
+			}
+		}
+		if(journal!=null) {
+			journal.commit(seq);
+		}
+		return OperationResult.Status.OK;
+	}
+	
+	/**
+	 * Takes back a copy a student borrowed, without any console interaction.
+	 *
+	 * @param studentID the returning student
+	 * @param bookID the book being returned
+	 * @param books the book collection to give the copy back to
+	 * @return true if the copy was taken back, false if the student has not borrowed that book
+	 */
+	public boolean checkIn(int studentID, int bookID, Books books) {
+		if(!takeBack(studentID, bookID, books)) {
+			return false;
+		}
+		publishLoan(LibraryEvent.Type.LOAN_CLOSED, studentID, bookID, books);
+		serveHolds(bookID, books);
+		return true;
+	}
+	
+	/**
+	 * Takes back a copy and closes the loan without offering the copy to the title's hold queue. Like lend, it leaves publishing to the caller.
+	 */
+	private boolean takeBack(int studentID, int bookID, Books books) {
+		Loans current = loans.get(studentID);
+		if(current==null) {
+			return false;
+		}
+		long seq = 0;
+		synchronized(current) {
+			if(!current.books.contains(bookID) || !books.giveBackUnpublished(bookID)) {
+				return false;
+			}
+			dueDates.cancel(current.remove(bookID));
+			if(journal!=null) {
+				seq = journal.logCheckIn(studentID, bookID);
+			}
+		}
+		if(journal!=null) {
+			journal.commit(seq);
+		}
+		return true;
+	}
+	
+	/**
+	 * Lends a batch of books to students in one step, all or nothing.
+	 *
+	 * The loans of every student in the batch are locked in student ID order, so two batches can never wait on each other. The loan limit is checked for the whole batch before any copy is taken, and the copies are then taken with Books.rentAll.
+	 *
+	 * @param studentIDs the borrowing student of each entry
+	 * @param bookIDs the book of each entry, same length as studentIDs
+	 * @param books the book collection to take the copies from
+	 * @return OK, or the reason and index of the first entry that stopped the batch
+	 */
+	public BatchResult checkOutAll(int[] studentIDs, int[] bookIDs, Books books) {
+		for(int i=0;i<studentIDs.length;i++) {
+			if(findStudent(studentIDs[i])==null) {
+				return BatchResult.failed(OperationResult.Status.NO_SUCH_STUDENT, i);
+			}
+		}
+		for(int i=0;i<bookIDs.length;i++) {
+			if(holds.hasWaiting(bookIDs[i])) {
+				return BatchResult.failed(OperationResult.Status.NOT_AVAILABLE, i);
+			}
+		}
+		long[] seq = {0};
+		BatchResult result = withLoansLocked(studentIDs, held -> {
+			BorrowLedger wanted = new BorrowLedger(studentIDs.length);
+			for(int i=0;i<studentIDs.length;i++) {
+				if(held.get(studentIDs[i]).total + wanted.increment(studentIDs[i])>MAX_LOANS) {
+					return BatchResult.failed(OperationResult.Status.LOAN_LIMIT_REACHED, i);
+				}
+			}
+			int unavailable = books.rentAllUnpublished(bookIDs);
+			if(unavailable>=0) {
+				return BatchResult.failed(OperationResult.Status.NOT_AVAILABLE, unavailable);
+			}
+			for(int i=0;i<studentIDs.length;i++) {
+				Loan loan = newLoan(studentIDs[i], bookIDs[i]);
+				held.get(studentIDs[i]).add(loan);
+				dueDates.schedule(loan);
+				if(journal!=null) {
+					seq[0] = journal.logCheckOut(loan);
+				}
+			}
+			return BatchResult.ok();
+		});
+		if(journal!=null && result.isOk()) {
+			journal.commit(seq[0]);
+		}
+		if(result.isOk()) {
+			for(int i=0;i<studentIDs.length;i++) {
+				publishLoan(LibraryEvent.Type.LOAN_OPENED, studentIDs[i], bookIDs[i], books);
 			}
 		}
-		System.out.println("No student found with ID: " + studentID);
-		return null;
+		return result;
+	}
+	
+	/**
+	 * Takes back a batch of borrowed books from students in one step, all or nothing.
+	 *
+	 * Every entry is checked against the loans of its student before anything changes, then the copies go back with Books.giveBackAll.
+	 *
+	 * @param studentIDs the returning student of each entry
+	 * @param bookIDs the book of each entry, same length as studentIDs
+	 * @param books the book collection to give the copies back to
+	 * @return OK, or the reason and index of the first entry that stopped the batch
+	 */
+	public BatchResult checkInAll(int[] studentIDs, int[] bookIDs, Books books) {
+		for(int i=0;i<studentIDs.length;i++) {
+			if(findStudent(studentIDs[i])==null) {
+				return BatchResult.failed(OperationResult.Status.NO_SUCH_STUDENT, i);
+			}
+		}
+		long[] seq = {0};
+		BatchResult result = withLoansLocked(studentIDs, held -> {
+			int notBorrowed = -1;
+			int removed = 0;
+			Loan[] returned = new Loan[studentIDs.length];
+			while(removed<studentIDs.length) {
+				Loans current = held.get(studentIDs[removed]);
+				if(current.books.count(bookIDs[removed])<=0) {
+					notBorrowed = removed;
+					break;
+				}
+				returned[removed] = current.remove(bookIDs[removed]);
+				removed++;
+			}
+			if(notBorrowed<0) {
+				notBorrowed = books.giveBackAllUnpublished(bookIDs);
+			}
+			if(notBorrowed>=0) {
+				for(int i=0;i<removed;i++) {
+					held.get(studentIDs[i]).add(returned[i]);
+				}
+				return BatchResult.failed(OperationResult.Status.NOT_BORROWED, notBorrowed);
+			}
+			for(Loan loan:returned) {
+				dueDates.cancel(loan);
+			}
+			if(journal!=null) {
+				for(int i=0;i<studentIDs.length;i++) {
+					seq[0] = journal.logCheckIn(studentIDs[i], bookIDs[i]);
+				}
+			}
+			return BatchResult.ok();
+		});
+		if(journal!=null && result.isOk()) {
+			journal.commit(seq[0]);
+		}
+		if(result.isOk()) {
+			for(int i=0;i<studentIDs.length;i++) {
+				publishLoan(LibraryEvent.Type.LOAN_CLOSED, studentIDs[i], bookIDs[i], books);
+			}
+			for(int bookID:bookIDs) {
+				serveHolds(bookID, books);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Joins the hold queue of a title. If a copy is free and nobody is ahead, it is lent straight away and the future is already complete.
+	 *
+	 * Holds live in memory only and are not journaled, so like the clients waiting on them they do not survive a restart.
+	 *
+	 * @param studentID the waiting student
+	 * @param bookID the wanted title
+	 * @param books the book collection the copy comes from
+	 * @return completes with OK and the book once a copy is lent to the student, or with the reason the hold ended
+	 */
+	public CompletableFuture<OperationResult<Book>> placeHold(int studentID, int bookID, Books books) {
+		if(findStudent(studentID)==null) {
+			return CompletableFuture.completedFuture(OperationResult.failed(OperationResult.Status.NO_SUCH_STUDENT));
+		}
+		if(books.findBook(bookID)==null) {
+			return CompletableFuture.completedFuture(OperationResult.failed(OperationResult.Status.NO_SUCH_BOOK));
+		}
+		if(!canBorrow(studentID)) {
+			return CompletableFuture.completedFuture(OperationResult.failed(OperationResult.Status.LOAN_LIMIT_REACHED));
+		}
+		CompletableFuture<OperationResult<Book>> hold = holds.join(studentID, bookID);
+		serveHolds(bookID, books);
+		return hold;
+	}
+	
+	/**
+	 * Gives up a student's place in a title's hold queue.
+	 *
+	 * @return true if the student was waiting
+	 */
+	public boolean cancelHold(int studentID, int bookID) {
+		return holds.leave(studentID, bookID);
+	}
+	
+	/**
+	 * @return the number of students waiting for a title
+	 */
+	public int holdsWaiting(int bookID) {
+		return holds.waiting(bookID);
+	}
+	
+	/**
+	 * Hands free copies of a title to the students waiting for it, for example after a return or after more copies were added.
+	 *
+	 * @param bookID the title that may have a copy free
+	 * @param books the book collection the copies come from
+	 */
+	public void serveHolds(int bookID, Books books) {
+		List<Integer> lentTo = new ArrayList<Integer>();
+		List<Integer> takenBackFrom = new ArrayList<Integer>();
+		holds.serve(bookID, studentID -> {
+			OperationResult.Status status = lend(studentID, bookID, books, true);
+			if(status==OperationResult.Status.OK) {
+				lentTo.add(studentID);
+				return OperationResult.ok(books.findBook(bookID));
+			}
+			return OperationResult.<Book>failed(status);
+		}, studentID -> takeBack(studentID, bookID, books) && takenBackFrom.add(studentID));
+		for(int studentID:lentTo) {
+			publishLoan(LibraryEvent.Type.LOAN_OPENED, studentID, bookID, books);
+		}
+		for(int studentID:takenBackFrom) {
+			publishLoan(LibraryEvent.Type.LOAN_CLOSED, studentID, bookID, books);
+		}
+	}
+	
+	/**
+	 * Publishes a loan that was opened or closed once the caller holds no lock. The one event stands for the copy that moved as well, so a checkout costs a single publish. Without a bus the change goes to Books.track straight away, as Books does with its own changes.
+	 */
+	private void publishLoan(LibraryEvent.Type type, int studentID, int bookID, Books books) {
+		EventBus bus = events;
+		if(bus!=null) {
+			bus.publish(type, bookID, studentID, 1);
+		}else {
+			books.track(type, bookID, 1);
+		}
+	}
+	
+	private void publishRegistered(int studentID) {
+		EventBus bus = events;
+		if(bus!=null) {
+			bus.publish(LibraryEvent.Type.STUDENT_REGISTERED, 0, studentID, 0);
+		}
+	}
+	
+	/**
+	 * Locks the loans of every distinct student in ascending ID order, runs the body and unlocks them again.
+	 */
+	private BatchResult withLoansLocked(int[] studentIDs, Function<Map<Integer, Loans>, BatchResult> body) {
+		int[] sorted = studentIDs.clone();
+		Arrays.sort(sorted);
+		Map<Integer, Loans> held = new HashMap<Integer, Loans>();
+		List<Loans> order = new ArrayList<Loans>();
+		for(int studentID:sorted) {
+			if(!held.containsKey(studentID)) {
+				Loans current = loans.computeIfAbsent(studentID, id -> new Loans());
+				held.put(studentID, current);
+				order.add(current);
+			}
+		}
+		return lockAndRun(order, 0, () -> body.apply(held));
+	}
+	
+	private static BatchResult lockAndRun(List<Loans> order, int next, Supplier<BatchResult> body) {
+		if(next==order.size()) {
+			return body.get();
+		}
+		synchronized(order.get(next)) {
+			return lockAndRun(order, next + 1, body);
+		}
+	}
+	
+	/**
+	 * Records a loan in the student index only, for replaying saved state. The book side is restored separately.
+	 */
+	void recordLoan(int studentID, int bookID, long checkedOutAt, long dueAt) {
+		Loans current = loans.computeIfAbsent(studentID, id -> new Loans());
+		Loan loan = new Loan(studentID, bookID, checkedOutAt, dueAt);
+		synchronized(current) {
+			current.add(loan);
+			dueDates.schedule(loan);
+		}
+	}
+	
+	/**
+	 * Removes a loan from the student index only, for replaying saved state.
+	 */
+	void clearLoan(int studentID, int bookID) {
+		Loans current = loans.get(studentID);
+		if(current!=null) {
+			synchronized(current) {
+				dueDates.cancel(current.remove(bookID));
+			}
+		}
+	}
+	
+	private Loan newLoan(int studentID, int bookID) {
+		long now = clock.millis();
+		return new Loan(studentID, bookID, now, now + loanPeriod.toMillis());
+	}
+	
+	/**
+	 * Lends a book to a registered student, asking for the student and the book on the console.
+	 */
+	public void checkOutBook(Books books) {
+		int studentID = Books.askInt("Enter your Student ID:");
+		if(searchStudent(studentID)==null) {
+			return;
+		}
+		if(!canBorrow(studentID)) {
+			System.out.println("You already have " + MAX_LOANS + " books. Please return one before borrowing another.");
+			return;
+		}
+		books.showBooksToBorrow();
+		int bookID = Books.askInt("Provide the Book ID of the book, you want to borrow:");
+		if(checkOut(studentID, bookID, books)) {
+			System.out.println(books.findBook(bookID).getBookName()+" has been added to your cart.\nGood Choice. Happy Reading.");
+		}else {
+			System.out.println("Sorry! Input invalid / that Book ID is not available");
+		}
+	}
+	
+	/**
+	 * Takes back a book from a student, showing what they have borrowed first.
+	 */
+	public void checkInBook(Books books) {
+		int studentID = Books.askInt("Enter your Student ID:");
+		if(searchStudent(studentID)==null) {
+			return;
+		}
+		List<Integer> borrowed = loansOf(studentID);
+		if(borrowed.isEmpty()) {
+			System.out.println("You have not borrowed any books.");
+			return;
+		}
+		System.out.println("Books you have borrowed:");
+		for(int bookID:borrowed) {
+			System.out.println(books.findBook(bookID));
+		}
+		int bookID = Books.askInt("Which Book ID are you returning?");
+		if(checkIn(studentID, bookID, books)) {
+			System.out.println(books.findBook(bookID).getBookName()+" successfully returned");
+		}else {
+			System.out.println("Invalid input or you never borrowed this book");
+		}
 	}
 
 	public void showAllStudents() {
@@ -37,13 +614,71 @@ public class Students {
 			System.out.println("No students registered yet.");
 		} else {
 			System.out.println("Registered Students:");
-			for(Student student : studentList) {
-				System.out.println(student);
+			StringBuilder out = new StringBuilder(Books.PRINT_PAGE * 48);
+			Page<Student> page = page(Page.FIRST, Books.PRINT_PAGE);
+			while(true) {
+				for(Student student : page.getItems()) {
+					student.appendTo(out).append(System.lineSeparator());
+				}
+				System.out.print(out);
+				out.setLength(0);
+				if(!page.hasMore()) {
+					break;
+				}
+				page = page(page.getNextCursor(), Books.PRINT_PAGE);
 			}
 		}
 		
 	}
 	
+	/**
+	 * Returns one page of the register in the order students were registered.
+	 *
+	 * @param cursor Page.FIRST, or the next cursor of the previous page
+	 * @param limit the most students to return
+	 * @return the students of the page and the cursor of the next one
+	 */
+	public synchronized Page<Student> page(int cursor, int limit) {
+		if(cursor<0 || limit<1) {
+			throw new IllegalArgumentException("cursor must not be negative and limit must be positive");
+		}
+		int end = (int) Math.min((long) cursor + limit, studentList.size());
+		List<Student> items = cursor>=end ? new ArrayList<Student>() : new ArrayList<Student>(studentList.subList(cursor, end));
+		return new Page<Student>(items, end<studentList.size() ? end : -1);
+	}
 	
+	/**
+	 * The books one student has borrowed, with a running total so the limit check does not walk the ledger, and the loan of every copy with its due date.
+	 */
+	static class Loans {
+		final BorrowLedger books = new BorrowLedger();
+		final List<Loan> active = new ArrayList<Loan>(MAX_LOANS);
+		int total;
+		
+		void add(Loan loan) {
+			books.increment(loan.getBookID());
+			active.add(loan);
+			total++;
+		}
+		
+		/**
+		 * Removes the copy of a book that is due first.
+		 *
+		 * @return the removed loan, or null if the book is not borrowed
+		 */
+		Loan remove(int bookID) {
+			if(books.decrement(bookID)<0) {
+				return null;
+			}
+			total--;
+			int first = -1;
+			for(int i=0;i<active.size();i++) {
+				if(active.get(i).getBookID()==bookID && (first<0 || active.get(i).getDueAt()<active.get(first).getDueAt())) {
+					first = i;
+				}
+			}
+			return active.remove(first);
+		}
+	}
 
 }
@@ -0,0 +1,160 @@
+package com.cc.library;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for the Students register and student loans.
+ * Testing framework: JUnit 5
+ */
+public class StudentsTest {
+
+    private Students students;
+    private Books books;
+    private Student asha;
+
+    @BeforeEach
+    void setUp() {
+        Book.ids = new IdAllocator();
+        Student.ids = new IdAllocator();
+        students = new Students();
+        books = new Books();
+        asha = new Student("Asha");
+        students.addStudent(asha);
+        for (int i = 1; i <= 8; i++) {
+            books.addBook(new Book(i, "Book " + i, "Author", 10));
+        }
+    }
+
+    @Test
+    void testFindStudent_ByID() {
+        Student ravi = new Student(500, "Ravi");
+        students.addStudents(Arrays.asList(ravi));
+
+        assertSame(asha, students.findStudent(asha.getStudentID()));
+        assertSame(ravi, students.findStudent(500));
+        assertNull(students.findStudent(999));
+    }
+
+    @Test
+    void testCheckOut_RecordsLoanForStudent() {
+        int id = asha.getStudentID();
+
+        assertTrue(students.checkOut(id, 3, books));
+        assertTrue(students.checkOut(id, 3, books));
+        assertTrue(students.checkOut(id, 5, books));
+
+        assertEquals(3, students.loanCount(id));
+        List<Integer> loans = students.loansOf(id);
+        assertEquals(3, loans.size());
+        assertTrue(loans.containsAll(Arrays.asList(3, 5)));
+        assertEquals(8, books.findBook(3).getQuantity());
+        assertEquals(2, books.borrowedBooks.count(3));
+    }
+
+    @Test
+    void testCheckOut_UnknownStudent_Fails() {
+        assertFalse(students.checkOut(999, 1, books));
+        assertEquals(10, books.findBook(1).getQuantity());
+    }
+
+    @Test
+    void testCheckOut_AtLimit_NotEligible() {
+        int id = asha.getStudentID();
+        for (int i = 1; i <= Students.MAX_LOANS; i++) {
+            assertTrue(students.checkOut(id, i, books));
+        }
+
+        assertFalse(students.canBorrow(id));
+        assertFalse(students.checkOut(id, 7, books));
+        assertEquals(10, books.findBook(7).getQuantity());
+    }
+
+    @Test
+    void testCheckIn_OnlyBooksTheStudentHas() {
+        int id = asha.getStudentID();
+        Student ravi = new Student("Ravi");
+        students.addStudent(ravi);
+        students.checkOut(id, 2, books);
+
+        assertFalse(students.checkIn(ravi.getStudentID(), 2, books));
+        assertTrue(students.checkIn(id, 2, books));
+        assertFalse(students.checkIn(id, 2, books));
+
+        assertEquals(0, students.loanCount(id));
+        assertTrue(students.canBorrow(id));
+        assertEquals(10, books.findBook(2).getQuantity());
+    }
+
+    @Test
+    void testDueDates_OverdueUntilReturned() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-01T10:00:00Z"));
+        students = new Students(clock);
+        students.addStudent(asha);
+        int id = asha.getStudentID();
+        students.checkOut(id, 2, books);
+        clock.now = clock.now.plus(Duration.ofDays(3));
+        students.checkOut(id, 4, books);
+
+        List<Loan> loans = students.loanDetailsOf(id);
+        assertEquals(2, loans.size());
+        assertEquals(Instant.parse("2026-03-15T10:00:00Z").toEpochMilli(), loans.get(0).getDueAt());
+        assertTrue(students.overdueLoans().isEmpty());
+
+        clock.now = Instant.parse("2026-03-16T00:00:00Z");
+        List<Loan> overdue = students.overdueLoans();
+        assertEquals(1, overdue.size());
+        assertEquals(2, overdue.get(0).getBookID());
+        assertTrue(students.collectNewlyOverdue().isEmpty());
+
+        assertTrue(students.checkIn(id, 2, books));
+        assertEquals(0, students.overdueCount());
+    }
+
+    @Test
+    void testDueDates_BatchReturnCancelsLoans() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-01T10:00:00Z"));
+        students = new Students(clock);
+        students.addStudent(asha);
+        int id = asha.getStudentID();
+        assertTrue(students.checkOutAll(new int[] {id, id}, new int[] {1, 2}, books).isOk());
+        assertFalse(students.checkInAll(new int[] {id, id}, new int[] {1, 3}, books).isOk());
+        assertEquals(2, students.loanDetailsOf(id).size());
+
+        assertTrue(students.checkInAll(new int[] {id, id}, new int[] {1, 2}, books).isOk());
+        clock.now = clock.now.plus(Duration.ofDays(30));
+        assertTrue(students.overdueLoans().isEmpty());
+        assertTrue(students.loanDetailsOf(id).isEmpty());
+    }
+
+    private static class MutableClock extends Clock {
+        Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
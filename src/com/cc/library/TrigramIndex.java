@@ -0,0 +1,212 @@
+package com.cc.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trigram index over the distinct words of a SearchIndex, for finding the words within a few typos of a query word.
+ *
+ * Each word is padded with a space on both sides and cut into overlapping three-letter grams, and every gram keeps a posting list of the words that contain it. One edit changes at most three grams, so a word within k edits of a query word of length n shares at least n - 3k grams with it. Counting shared grams over the query's posting lists narrows the vocabulary down to a few candidates, and only those are checked with a Levenshtein distance that gives up as soon as it exceeds k.
+ *
+ * The index holds words, not books, so its size follows the vocabulary and not the catalog. Words containing digits, such as years and volume numbers, are left out and only ever match exactly. Not thread-safe, SearchIndex guards it with its own lock. Only estimatedBytes may be read without it.
+ */
+class TrigramIndex {
+
+	private final List<String> words = new ArrayList<String>();
+	private final Map<String, Integer> wordIDs = new HashMap<String, Integer>();
+	private final Map<Long, Postings> grams = new HashMap<Long, Postings>();
+	private volatile long bytes = 3 * 48;
+
+	/**
+	 * A vocabulary word close to a query word, with the number of edits between them.
+	 */
+	static final class Match {
+		final String word;
+		final int edits;
+
+		Match(String word, int edits) {
+			this.word = word;
+			this.edits = edits;
+		}
+
+		/**
+		 * @return 1 for the same word, falling towards 0 as the edits take up more of the longer word
+		 */
+		double similarity(String query) {
+			return 1.0 - (double) edits / Math.max(query.length(), word.length());
+		}
+	}
+
+	/**
+	 * How many typos a word of the given length may have: none up to two letters, one up to five letters, two after that.
+	 */
+	static int maxEdits(int length) {
+		return length<=2 ? 0 : length<=5 ? 1 : 2;
+	}
+
+	/**
+	 * @return true if the word is indexed, false if it can only be matched exactly
+	 */
+	static boolean isFuzzy(String word) {
+		for(int i=0;i<word.length();i++) {
+			if(Character.isDigit(word.charAt(i))) {
+				return false;
+			}
+		}
+		return maxEdits(word.length())>0;
+	}
+
+	/**
+	 * Adds a word to the vocabulary. Words already present and words with digits are skipped.
+	 */
+	void add(String word) {
+		if(!isFuzzy(word) || wordIDs.containsKey(word)) {
+			return;
+		}
+		int wordID = words.size();
+		words.add(word);
+		wordIDs.put(word, wordID);
+		long added = 4 + 32 + 24 + 16 + word.length() + 16;
+		for(long gram:gramsOf(word)) {
+			Postings list = grams.get(gram);
+			if(list==null) {
+				list = new Postings();
+				grams.put(gram, list);
+				added += 32 + 16 + 24 + 16 + 4L * list.capacity();
+			}
+			int capacity = list.capacity();
+			list.add(wordID);
+			added += 4L * (list.capacity() - capacity);
+		}
+		bytes += added;
+	}
+
+	/**
+	 * Finds the vocabulary words within maxEdits(query.length()) edits of a query word.
+	 *
+	 * @param query a lower-case word
+	 * @return the close words, including the query itself if it is in the vocabulary
+	 */
+	List<Match> similar(String query) {
+		int maxEdits = maxEdits(query.length());
+		List<Match> found = new ArrayList<Match>();
+		long[] queryGrams = gramsOf(query);
+		int needed = Math.max(1, query.length() - 3 * maxEdits);
+		int total = 0;
+		List<Postings> lists = new ArrayList<Postings>(queryGrams.length);
+		for(long gram:queryGrams) {
+			Postings list = grams.get(gram);
+			if(list!=null) {
+				lists.add(list);
+				total += list.size();
+			}
+		}
+		int[] candidates = new int[total];
+		int at = 0;
+		for(Postings list:lists) {
+			for(int i=0;i<list.size();i++) {
+				candidates[at++] = list.get(i);
+			}
+		}
+		Arrays.sort(candidates);
+		for(int i=0;i<candidates.length;) {
+			int wordID = candidates[i];
+			int run = i;
+			while(i<candidates.length && candidates[i]==wordID) {
+				i++;
+			}
+			if(i - run<needed) {
+				continue;
+			}
+			String word = words.get(wordID);
+			if(Math.abs(word.length() - query.length())>maxEdits) {
+				continue;
+			}
+			int edits = distance(query, word, maxEdits);
+			if(edits<=maxEdits) {
+				found.add(new Match(word, edits));
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * @return the number of words in the vocabulary
+	 */
+	int size() {
+		return words.size();
+	}
+
+	/**
+	 * Estimates the heap taken by the vocabulary and the gram lists, on the same assumptions as SearchIndex.estimatedBytes. The estimate grows as words are added, so reading it is a single field read.
+	 */
+	long estimatedBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Levenshtein distance between two words, computed only within a band of maxEdits around the diagonal.
+	 *
+	 * @return the distance, or maxEdits + 1 as soon as it is certain to be larger than maxEdits
+	 */
+	static int distance(String a, String b, int maxEdits) {
+		int over = maxEdits + 1;
+		if(Math.abs(a.length() - b.length())>maxEdits) {
+			return over;
+		}
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for(int j=0;j<=b.length();j++) {
+			previous[j] = j<=maxEdits ? j : over;
+		}
+		for(int i=1;i<=a.length();i++) {
+			int from = Math.max(1, i - maxEdits);
+			int to = Math.min(b.length(), i + maxEdits);
+			current[0] = i<=maxEdits ? i : over;
+			if(from>1) {
+				current[from - 1] = over;
+			}
+			int best = current[0];
+			for(int j=from;j<=to;j++) {
+				int cost = a.charAt(i - 1)==b.charAt(j - 1) ? 0 : 1;
+				int value = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+				current[j] = Math.min(value, over);
+				best = Math.min(best, current[j]);
+			}
+			if(to<b.length()) {
+				current[to + 1] = over;
+			}
+			if(best>maxEdits) {
+				return over;
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[b.length()];
+	}
+
+	/**
+	 * @return the distinct grams of the word padded with a space on both sides
+	 */
+	static long[] gramsOf(String word) {
+		String padded = " " + word + " ";
+		long[] found = new long[padded.length() - 2];
+		int count = 0;
+		for(int i=0;i + 3<=padded.length();i++) {
+			long gram = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+			boolean seen = false;
+			for(int j=0;j<count && !seen;j++) {
+				seen = found[j]==gram;
+			}
+			if(!seen) {
+				found[count++] = gram;
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+}
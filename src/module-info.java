@@ -5,4 +5,6 @@
  * 
  */
 module Library_Management_System {
+	requires java.management;
+	requires jdk.httpserver;
 }
\ No newline at end of file